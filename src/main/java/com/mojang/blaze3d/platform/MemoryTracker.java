@@ -35,4 +35,9 @@ public class MemoryTracker
             return MemoryUtil.memByteBuffer(i, p_182531_);
         }
     }
+
+    public static void free(ByteBuffer p_182532_)
+    {
+        ALLOCATOR.free(MemoryUtil.memAddress0(p_182532_));
+    }
 }
@@ -2,11 +2,10 @@ package com.mojang.blaze3d.vertex;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.google.common.primitives.Floats;
 import com.mojang.blaze3d.platform.MemoryTracker;
 import com.mojang.datafixers.util.Pair;
 import com.mojang.math.Vector3f;
-import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
 import it.unimi.dsi.fastutil.ints.IntConsumer;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
@@ -29,6 +28,7 @@ import net.optifine.render.RenderEnv;
 import net.optifine.render.VertexPosition;
 import net.optifine.shaders.SVertexBuilder;
 import net.optifine.util.BufferUtil;
+import net.optifine.util.RadixSort;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -52,7 +52,11 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
     private boolean fullFormat;
     private boolean building;
     @Nullable
-    private Vector3f[] sortingPoints;
+    private float[] sortingPoints;
+    @Nullable
+    private float[][] sortingPlanes;
+    private float[] sortingDistances = new float[0];
+    private RadixSort sortingRadix = new RadixSort();
     private float sortX = Float.NaN;
     private float sortY = Float.NaN;
     private float sortZ = Float.NaN;
@@ -147,6 +151,7 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
             if (this.sortingPoints == null)
             {
                 this.sortingPoints = this.makeQuadSortingPoints();
+                this.sortingPlanes = this.makeQuadSortingPlanes();
             }
         }
     }
@@ -161,7 +166,7 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
             atextureatlassprite = Arrays.copyOfRange(this.quadSprites, 0, i);
         }
 
-        return new BufferBuilder.SortState(this.mode, this.vertices, this.sortingPoints, this.sortX, this.sortY, this.sortZ, atextureatlassprite);
+        return new BufferBuilder.SortState(this.mode, this.vertices, this.sortingPoints, this.sortingPlanes, this.sortX, this.sortY, this.sortZ, atextureatlassprite);
     }
 
     public void restoreSortState(BufferBuilder.SortState pSortState)
@@ -171,6 +176,7 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
         this.vertices = pSortState.vertices;
         this.nextElementByte = this.totalRenderedBytes;
         this.sortingPoints = pSortState.sortingPoints;
+        this.sortingPlanes = pSortState.sortingPlanes;
         this.sortX = pSortState.sortX;
         this.sortY = pSortState.sortY;
         this.sortZ = pSortState.sortZ;
@@ -270,14 +276,14 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
         }
     }
 
-    private Vector3f[] makeQuadSortingPoints()
+    private float[] makeQuadSortingPoints()
     {
         FloatBuffer floatbuffer = this.buffer.asFloatBuffer();
         int i = this.totalRenderedBytes / 4;
         int j = this.format.getIntegerSize();
         int k = j * this.mode.primitiveStride;
         int l = this.vertices / this.mode.primitiveStride;
-        Vector3f[] avector3f = new Vector3f[l];
+        float[] afloat = new float[l * 3];
 
         for (int i1 = 0; i1 < l; ++i1)
         {
@@ -290,34 +296,100 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
             float f6 = (f + f3) / 2.0F;
             float f7 = (f1 + f4) / 2.0F;
             float f8 = (f2 + f5) / 2.0F;
-            avector3f[i1] = new Vector3f(f6, f7, f8);
+            afloat[i1 * 3 + 0] = f6;
+            afloat[i1 * 3 + 1] = f7;
+            afloat[i1 * 3 + 2] = f8;
+        }
+
+        return afloat;
+    }
+
+    @Nullable
+    private float[][] makeQuadSortingPlanes()
+    {
+        FloatBuffer floatbuffer = this.buffer.asFloatBuffer();
+        int i = this.totalRenderedBytes / 4;
+        int j = this.format.getIntegerSize();
+        int k = j * this.mode.primitiveStride;
+        int l = this.vertices / this.mode.primitiveStride;
+        FloatArrayList[] afloatarraylist = new FloatArrayList[] {new FloatArrayList(), new FloatArrayList(), new FloatArrayList()};
+
+        for (int i1 = 0; i1 < l; ++i1)
+        {
+            int j1 = i + i1 * k;
+            int k1 = getQuadPlaneAxis(floatbuffer, j1, j);
+
+            if (k1 < 0)
+            {
+                return null;
+            }
+
+            afloatarraylist[k1].add(floatbuffer.get(j1 + k1));
+        }
+
+        float[][] afloat = new float[3][];
+
+        for (int l1 = 0; l1 < afloat.length; ++l1)
+        {
+            float[] afloat1 = afloatarraylist[l1].toFloatArray();
+            Arrays.sort(afloat1);
+            int i2 = 0;
+
+            for (int j2 = 0; j2 < afloat1.length; ++j2)
+            {
+                if (i2 == 0 || afloat1[j2] != afloat1[i2 - 1])
+                {
+                    afloat1[i2++] = afloat1[j2];
+                }
+            }
+
+            afloat[l1] = Arrays.copyOf(afloat1, i2);
+        }
+
+        return afloat;
+    }
+
+    private static int getQuadPlaneAxis(FloatBuffer buffer, int pos, int vertexSize)
+    {
+        for (int i = 0; i < 3; ++i)
+        {
+            float f = buffer.get(pos + i);
+
+            if (buffer.get(pos + vertexSize + i) == f && buffer.get(pos + vertexSize * 2 + i) == f && buffer.get(pos + vertexSize * 3 + i) == f)
+            {
+                return i;
+            }
         }
 
-        return avector3f;
+        return -1;
     }
 
     private void putSortedQuadIndices(VertexFormat.IndexType pIndexType)
     {
-        float[] afloat = new float[this.sortingPoints.length];
-        int[] aint = new int[this.sortingPoints.length];
+        int i = this.sortingPoints.length / 3;
 
-        for (int i = 0; i < this.sortingPoints.length; aint[i] = i++)
+        if (this.sortingDistances.length < i)
         {
-            float f = this.sortingPoints[i].x() - this.sortX;
-            float f1 = this.sortingPoints[i].y() - this.sortY;
-            float f2 = this.sortingPoints[i].z() - this.sortZ;
-            afloat[i] = f * f + f1 * f1 + f2 * f2;
+            this.sortingDistances = new float[i];
         }
 
-        IntArrays.mergeSort(aint, (index1, index2) ->
+        float[] afloat = this.sortingDistances;
+
+        for (int j = 0; j < i; ++j)
         {
-            return Floats.compare(afloat[index2], afloat[index1]);
-        });
+            float f = this.sortingPoints[j * 3 + 0] - this.sortX;
+            float f1 = this.sortingPoints[j * 3 + 1] - this.sortY;
+            float f2 = this.sortingPoints[j * 3 + 2] - this.sortZ;
+            afloat[j] = f * f + f1 * f1 + f2 * f2;
+        }
+
+        int[] aint = this.sortingRadix.sortDescending(afloat, i);
         IntConsumer intconsumer = this.intConsumer(pIndexType);
         this.buffer.position(this.nextElementByte);
 
-        for (int j : aint)
+        for (int k = 0; k < i; ++k)
         {
+            int j = aint[k];
             intconsumer.accept(j * this.mode.primitiveStride + 0);
             intconsumer.accept(j * this.mode.primitiveStride + 1);
             intconsumer.accept(j * this.mode.primitiveStride + 2);
@@ -377,6 +449,7 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
             this.currentElement = null;
             this.elementIndex = 0;
             this.sortingPoints = null;
+            this.sortingPlanes = null;
             this.sortX = Float.NaN;
             this.sortY = Float.NaN;
             this.sortZ = Float.NaN;
@@ -548,6 +621,22 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
         this.quadSprite = null;
     }
 
+    public void release()
+    {
+        if (this.buffer != null)
+        {
+            MemoryTracker.free(this.buffer);
+            this.buffer = null;
+            this.intBuffer = null;
+            this.floatBuffer = null;
+        }
+    }
+
+    public int getCapacity()
+    {
+        return this.buffer != null ? this.buffer.capacity() : 0;
+    }
+
     public VertexFormatElement currentElement()
     {
         if (this.currentElement == null)
@@ -948,19 +1037,22 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
         final VertexFormat.Mode mode;
         final int vertices;
         @Nullable
-        final Vector3f[] sortingPoints;
+        final float[] sortingPoints;
         final float sortX;
         final float sortY;
         final float sortZ;
         private TextureAtlasSprite[] quadSprites;
+        @Nullable
+        private float[][] sortingPlanes;
 
-        private SortState(VertexFormat.Mode modeIn, int verticesIn, @Nullable Vector3f[] sortingPointsIn, float sortXIn, float sortYIn, float sortZIn, TextureAtlasSprite[] quadSpritesIn)
+        private SortState(VertexFormat.Mode modeIn, int verticesIn, @Nullable float[] sortingPointsIn, @Nullable float[][] sortingPlanesIn, float sortXIn, float sortYIn, float sortZIn, TextureAtlasSprite[] quadSpritesIn)
         {
             this(modeIn, verticesIn, sortingPointsIn, sortXIn, sortYIn, sortZIn);
+            this.sortingPlanes = sortingPlanesIn;
             this.quadSprites = quadSpritesIn;
         }
 
-        SortState(VertexFormat.Mode pMode, int pVertices, @Nullable Vector3f[] pSortingPoints, float pSortX, float pSortY, float pSortZ)
+        SortState(VertexFormat.Mode pMode, int pVertices, @Nullable float[] pSortingPoints, float pSortX, float pSortY, float pSortZ)
         {
             this.mode = pMode;
             this.vertices = pVertices;
@@ -969,5 +1061,33 @@ public class BufferBuilder extends DefaultedVertexConsumer implements BufferVert
             this.sortY = pSortY;
             this.sortZ = pSortZ;
         }
+
+        public boolean isSameSortRegion(float sortXIn, float sortYIn, float sortZIn)
+        {
+            if (this.sortingPlanes == null)
+            {
+                return false;
+            }
+            else if (this.sortingPlanes[0].length + this.sortingPlanes[1].length + this.sortingPlanes[2].length <= 1)
+            {
+                return true;
+            }
+            else
+            {
+                return getPlaneIndex(this.sortingPlanes[0], sortXIn) == getPlaneIndex(this.sortingPlanes[0], this.sortX) && getPlaneIndex(this.sortingPlanes[1], sortYIn) == getPlaneIndex(this.sortingPlanes[1], this.sortY) && getPlaneIndex(this.sortingPlanes[2], sortZIn) == getPlaneIndex(this.sortingPlanes[2], this.sortZ);
+            }
+        }
+
+        private static int getPlaneIndex(float[] planes, float val)
+        {
+            int i = 0;
+
+            while (i < planes.length && planes[i] < val)
+            {
+                ++i;
+            }
+
+            return i;
+        }
     }
 }
@@ -56,6 +56,7 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -250,6 +251,8 @@ import net.minecraft.world.level.storage.WorldData;
 import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.world.phys.EntityHitResult;
 import net.minecraft.world.phys.HitResult;
+import net.optifine.PacketScheduler;
+import net.optifine.util.PacketRunnable;
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -375,6 +378,8 @@ public class Minecraft extends ReentrantBlockableEventLoop<Runnable> implements
     @Nullable
     private TutorialToast socialInteractionsToast;
     private ProfilerFiller profiler = InactiveProfiler.INSTANCE;
+    @Nullable
+    private final PacketScheduler packetScheduler = PacketScheduler.isEnabled() ? new PacketScheduler() : null;
     private int fpsPieRenderTicks;
     private final ContinuousProfiler fpsPieProfiler = new ContinuousProfiler(Util.timeSource, () ->
     {
@@ -2566,6 +2571,36 @@ public class Minecraft extends ReentrantBlockableEventLoop<Runnable> implements
         return this.gameThread;
     }
 
+    public void tell(Runnable pTask) {
+        if (this.packetScheduler != null && pTask instanceof PacketRunnable) {
+            this.packetScheduler.add((PacketRunnable)pTask);
+            LockSupport.unpark(this.getRunningThread());
+        } else {
+            super.tell(pTask);
+        }
+    }
+
+    protected void runAllTasks() {
+        super.runAllTasks();
+
+        if (this.packetScheduler != null) {
+            this.packetScheduler.runTasks(this.profiler, this.level != null ? this.player : null);
+        }
+    }
+
+    protected void dropAllTasks() {
+        super.dropAllTasks();
+
+        if (this.packetScheduler != null) {
+            this.packetScheduler.clear();
+        }
+    }
+
+    @Nullable
+    public PacketScheduler getPacketScheduler() {
+        return this.packetScheduler;
+    }
+
     protected Runnable wrapRunnable(Runnable pRunnable) {
         return pRunnable;
     }
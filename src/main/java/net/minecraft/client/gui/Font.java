@@ -31,6 +31,7 @@ import net.minecraft.util.FormattedCharSink;
 import net.minecraft.util.Mth;
 import net.minecraft.util.StringDecomposer;
 import net.optifine.render.GlBlendState;
+import net.optifine.render.TextLayoutCache;
 import net.optifine.util.GlyphAdvanceFixed;
 import net.optifine.util.GuiPoint;
 
@@ -46,16 +47,24 @@ public class Font
     private boolean blend = false;
     private GlBlendState oldBlendState = new GlBlendState();
     private GlyphInfo glyphAdvanceSpace = new GlyphAdvanceFixed(4.0F);
+    private TextLayoutCache layoutCache;
 
     public Font(Function<ResourceLocation, FontSet> pFonts)
     {
         this.fonts = pFonts;
+        this.layoutCache = TextLayoutCache.isEnabled() ? new TextLayoutCache(pFonts) : null;
         this.splitter = new StringSplitter((charIn, styleIn) ->
         {
             return this.getFontSet(styleIn.getFont()).getGlyphInfo(charIn).getAdvance(styleIn.isBold());
         });
     }
 
+    @Nullable
+    public TextLayoutCache getLayoutCache()
+    {
+        return this.layoutCache;
+    }
+
     FontSet getFontSet(ResourceLocation pFontLocation)
     {
         return this.fonts.apply(pFontLocation);
@@ -252,6 +261,19 @@ public class Font
 
     private float renderText(String pText, float pX, float pY, int pColor, boolean pIsShadow, Matrix4f pMatrix, MultiBufferSource pBuffer, boolean pIsTransparent, int pColorBackground, int pPackedLight)
     {
+        if (this.layoutCache != null)
+        {
+            TextLayoutCache.Layout textlayoutcache$layout = this.layoutCache.getLayout(pText, pIsShadow);
+
+            if (textlayoutcache$layout == null)
+            {
+                StringDecomposer.iterateFormatted(pText, Style.EMPTY, this.layoutCache.startLayout(pIsShadow));
+                textlayoutcache$layout = this.layoutCache.finishLayout(pText, pIsShadow);
+            }
+
+            return textlayoutcache$layout.render(pBuffer, pX, pY, pColor, pMatrix, pIsTransparent ? Font.DisplayMode.SEE_THROUGH : Font.DisplayMode.NORMAL, pColorBackground, pPackedLight);
+        }
+
         Font.StringRenderOutput font$stringrenderoutput = new Font.StringRenderOutput(pBuffer, pX, pY, pColor, pIsShadow, pMatrix, pIsTransparent, pPackedLight);
         StringDecomposer.iterateFormatted(pText, Style.EMPTY, font$stringrenderoutput);
         return font$stringrenderoutput.finish(pColorBackground, pX);
@@ -259,6 +281,19 @@ public class Font
 
     private float renderText(FormattedCharSequence pText, float pX, float pY, int pColor, boolean pIsShadow, Matrix4f pMatrix, MultiBufferSource pBuffer, boolean pIsTransparent, int pColorBackground, int pPackedLight)
     {
+        if (this.layoutCache != null)
+        {
+            TextLayoutCache.Layout textlayoutcache$layout = this.layoutCache.getLayout(pText, pIsShadow);
+
+            if (textlayoutcache$layout == null)
+            {
+                pText.accept(this.layoutCache.startLayout(pIsShadow));
+                textlayoutcache$layout = this.layoutCache.finishLayout(pText, pIsShadow);
+            }
+
+            return textlayoutcache$layout.render(pBuffer, pX, pY, pColor, pMatrix, pIsTransparent ? Font.DisplayMode.SEE_THROUGH : Font.DisplayMode.NORMAL, pColorBackground, pPackedLight);
+        }
+
         Font.StringRenderOutput font$stringrenderoutput = new Font.StringRenderOutput(pBuffer, pX, pY, pColor, pIsShadow, pMatrix, pIsTransparent, pPackedLight);
         pText.accept(font$stringrenderoutput);
         return font$stringrenderoutput.finish(pColorBackground, pX);
@@ -68,14 +68,18 @@ import net.minecraft.world.level.material.FluidState;
 import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.world.phys.HitResult;
 import net.optifine.Config;
+import net.optifine.PacketScheduler;
 import net.optifine.SmartAnimations;
 import net.optifine.TextureAnimations;
 import net.optifine.reflect.Reflector;
+import net.optifine.render.TextLayoutCache;
+import net.optifine.util.ArrayCache;
 import net.optifine.util.GuiPoint;
 import net.optifine.util.GuiRect;
 import net.optifine.util.GuiUtils;
 import net.optifine.util.MemoryMonitor;
 import net.optifine.util.NativeMemory;
+import net.optifine.util.PacketMetrics;
 
 public class DebugScreenOverlay extends GuiComponent
 {
@@ -284,6 +288,14 @@ public class DebugScreenOverlay extends GuiComponent
         }
 
         stringbuilder.append(textureatlas.getCountAnimations() + TextureAnimations.getCountAnimations());
+        TextLayoutCache textlayoutcache = this.minecraft.font.getLayoutCache();
+
+        if (textlayoutcache != null)
+        {
+            stringbuilder.append(", Tx: ");
+            stringbuilder.append(textlayoutcache.getStats());
+        }
+
         String s = stringbuilder.toString();
         String s1 = null;
 
@@ -333,6 +345,18 @@ public class DebugScreenOverlay extends GuiComponent
             s = String.format("\"%s\" server, %.0f tx, %.0f rx", this.minecraft.player.getServerBrand(), f, f1);
         }
 
+        if (connection.isBatching())
+        {
+            s = s + String.format(", %.1f p/f, %.0f B/f", connection.getAveragePacketsPerFlush(), connection.getAverageBytesPerFlush());
+        }
+
+        PacketScheduler packetscheduler = this.minecraft.getPacketScheduler();
+
+        if (packetscheduler != null)
+        {
+            s = s + ", " + packetscheduler.getStats();
+        }
+
         BlockPos blockpos = this.minecraft.getCameraEntity().blockPosition();
 
         if (this.minecraft.showOnlyReducedInfo())
@@ -565,6 +589,7 @@ public class DebugScreenOverlay extends GuiComponent
         String s = "Native: " + bytesToMegabytes(i1) + "/" + bytesToMegabytes(j1) + "+" + bytesToMegabytes(k1) + "MB";
         list.add(3, s);
         list.set(4, "Allocation: " + MemoryMonitor.getAllocationRateAvgMb() + "MB/s");
+        list.add(5, "Array cache: " + ArrayCache.getStats());
 
         if (Reflector.BrandingControl_getBrandings.exists())
         {
@@ -579,6 +604,12 @@ public class DebugScreenOverlay extends GuiComponent
             }
         }
 
+        if (this.minecraft.options.renderFpsChart && PacketMetrics.isEnabled() && this.minecraft.getConnection() != null)
+        {
+            list.add("");
+            list.addAll(PacketMetrics.INSTANCE.getOverlayLines(6));
+        }
+
         if (this.minecraft.showOnlyReducedInfo())
         {
             return list;
@@ -39,6 +39,7 @@ public class FontSet implements AutoCloseable
     private final Int2ObjectMap<GlyphInfo> glyphInfos = new Int2ObjectOpenHashMap<>();
     private final Int2ObjectMap<IntList> glyphsByWidth = new Int2ObjectOpenHashMap<>();
     private final List<FontTexture> textures = Lists.newArrayList();
+    private static volatile int reloadCount;
 
     public FontSet(TextureManager pTextureManager, ResourceLocation pName)
     {
@@ -48,6 +49,7 @@ public class FontSet implements AutoCloseable
 
     public void reload(List<GlyphProvider> pGlyphProviders)
     {
+        ++reloadCount;
         this.closeProviders();
         this.closeTextures();
         this.glyphs.clear();
@@ -196,6 +198,11 @@ public class FontSet implements AutoCloseable
         return intlist != null && !intlist.isEmpty() ? this.getGlyph(intlist.getInt(RANDOM.nextInt(intlist.size()))) : this.missingGlyph;
     }
 
+    public static int getReloadCount()
+    {
+        return reloadCount;
+    }
+
     public BakedGlyph whiteGlyph()
     {
         return this.whiteGlyph;
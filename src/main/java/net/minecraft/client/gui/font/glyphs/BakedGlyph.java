@@ -96,6 +96,46 @@ public class BakedGlyph
         }
     }
 
+    public float getU0()
+    {
+        return this.u0;
+    }
+
+    public float getU1()
+    {
+        return this.u1;
+    }
+
+    public float getV0()
+    {
+        return this.v0;
+    }
+
+    public float getV1()
+    {
+        return this.v1;
+    }
+
+    public float getLeft()
+    {
+        return this.left;
+    }
+
+    public float getRight()
+    {
+        return this.right;
+    }
+
+    public float getUp()
+    {
+        return this.up;
+    }
+
+    public float getDown()
+    {
+        return this.down;
+    }
+
     public static class Effect
     {
         protected final float x0;
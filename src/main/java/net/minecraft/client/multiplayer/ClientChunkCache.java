@@ -20,8 +20,10 @@ import net.minecraft.world.level.chunk.ChunkSource;
 import net.minecraft.world.level.chunk.ChunkStatus;
 import net.minecraft.world.level.chunk.EmptyLevelChunk;
 import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.world.level.lighting.LevelLightEngine;
 import net.optifine.ChunkOF;
+import net.optifine.ChunkPacketDecoder;
 import net.optifine.reflect.Reflector;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -103,6 +105,12 @@ public class ClientChunkCache extends ChunkSource
 
     @Nullable
     public LevelChunk replaceWithPacketData(int p_194117_, int p_194118_, FriendlyByteBuf p_194119_, CompoundTag p_194120_, Consumer<ClientboundLevelChunkPacketData.BlockEntityTagOutput> p_194121_)
+    {
+        return this.replaceWithPacketData(p_194117_, p_194118_, (LevelChunkSection[])null, p_194119_, p_194120_, p_194121_);
+    }
+
+    @Nullable
+    public LevelChunk replaceWithPacketData(int p_194117_, int p_194118_, @Nullable LevelChunkSection[] decodedSections, FriendlyByteBuf p_194119_, CompoundTag p_194120_, Consumer<ClientboundLevelChunkPacketData.BlockEntityTagOutput> p_194121_)
     {
         if (!this.storage.inRange(p_194117_, p_194118_))
         {
@@ -123,12 +131,12 @@ public class ClientChunkCache extends ChunkSource
                 }
 
                 levelchunk = new ChunkOF(this.level, chunkpos);
-                levelchunk.replaceWithPacketData(p_194119_, p_194120_, p_194121_);
+                levelchunk.replaceWithPacketData(decodedSections, p_194119_, p_194120_, p_194121_);
                 this.storage.replace(i, levelchunk);
             }
             else
             {
-                levelchunk.replaceWithPacketData(p_194119_, p_194120_, p_194121_);
+                levelchunk.replaceWithPacketData(decodedSections, p_194119_, p_194120_, p_194121_);
             }
 
             this.level.onChunkLoaded(chunkpos);
@@ -190,7 +198,7 @@ public class ClientChunkCache extends ChunkSource
 
     public String gatherStats()
     {
-        return this.storage.chunks.length() + ", " + this.getLoadedChunksCount();
+        return this.storage.chunks.length() + ", " + this.getLoadedChunksCount() + ", " + ChunkPacketDecoder.getStats();
     }
 
     public int getLoadedChunksCount()
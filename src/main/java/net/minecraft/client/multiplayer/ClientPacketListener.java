@@ -273,6 +273,7 @@ import net.minecraft.world.scores.Score;
 import net.minecraft.world.scores.Scoreboard;
 import net.minecraft.world.scores.Team;
 import net.minecraft.world.scores.criteria.ObjectiveCriteria;
+import net.optifine.ChunkPacketDecoder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -657,21 +658,36 @@ public class ClientPacketListener implements ClientGamePacketListener
 
     public void handleLevelChunkWithLight(ClientboundLevelChunkWithLightPacket p_194241_)
     {
+        ClientLevel clientlevel = this.level;
+
+        if (ChunkPacketDecoder.isEnabled() && clientlevel != null && !this.minecraft.isSameThread() && p_194241_.getDecodeFuture() == null)
+        {
+            p_194241_.setDecodeFuture(ChunkPacketDecoder.decodeAsync(clientlevel, p_194241_.getChunkData(), p_194241_.getLightData()));
+        }
+
         PacketUtils.ensureRunningOnSameThread(p_194241_, this, this.minecraft);
-        this.updateLevelChunk(p_194241_.getX(), p_194241_.getZ(), p_194241_.getChunkData());
-        this.queueLightUpdate(p_194241_.getX(), p_194241_.getZ(), p_194241_.getLightData());
+        ChunkPacketDecoder.Result chunkpacketdecoder$result = ChunkPacketDecoder.getResult(p_194241_.getDecodeFuture(), this.level);
+        this.updateLevelChunk(p_194241_.getX(), p_194241_.getZ(), p_194241_.getChunkData(), chunkpacketdecoder$result);
+        this.queueLightUpdate(p_194241_.getX(), p_194241_.getZ(), p_194241_.getLightData(), chunkpacketdecoder$result);
     }
 
-    private void updateLevelChunk(int p_194199_, int p_194200_, ClientboundLevelChunkPacketData p_194201_)
+    private void updateLevelChunk(int p_194199_, int p_194200_, ClientboundLevelChunkPacketData p_194201_, @Nullable ChunkPacketDecoder.Result decoded)
     {
-        this.level.getChunkSource().replaceWithPacketData(p_194199_, p_194200_, p_194201_.getReadBuffer(), p_194201_.getHeightmaps(), p_194201_.getBlockEntitiesTagsConsumer(p_194199_, p_194200_));
+        LevelChunkSection[] alevelchunksection = decoded != null ? decoded.getSections() : null;
+        long i = alevelchunksection == null ? System.nanoTime() : 0L;
+        this.level.getChunkSource().replaceWithPacketData(p_194199_, p_194200_, alevelchunksection, p_194201_.getReadBuffer(), p_194201_.getHeightmaps(), p_194201_.getBlockEntitiesTagsConsumer(p_194199_, p_194200_));
+
+        if (alevelchunksection == null)
+        {
+            ChunkPacketDecoder.addTimeSync(System.nanoTime() - i);
+        }
     }
 
-    private void queueLightUpdate(int p_194203_, int p_194204_, ClientboundLightUpdatePacketData p_194205_)
+    private void queueLightUpdate(int p_194203_, int p_194204_, ClientboundLightUpdatePacketData p_194205_, @Nullable ChunkPacketDecoder.Result decoded)
     {
         this.level.queueLightUpdate(() ->
         {
-            this.applyLightData(p_194203_, p_194204_, p_194205_);
+            this.applyLightData(p_194203_, p_194204_, p_194205_, decoded);
             LevelChunk levelchunk = this.level.getChunkSource().getChunk(p_194203_, p_194204_, false);
 
             if (levelchunk != null)
@@ -2486,26 +2502,34 @@ public class ClientPacketListener implements ClientGamePacketListener
 
     public void handleLightUpdatePacket(ClientboundLightUpdatePacket p_194243_)
     {
+        ClientLevel clientlevel = this.level;
+
+        if (ChunkPacketDecoder.isEnabled() && clientlevel != null && !this.minecraft.isSameThread() && p_194243_.getDecodeFuture() == null)
+        {
+            p_194243_.setDecodeFuture(ChunkPacketDecoder.decodeAsync(clientlevel, (ClientboundLevelChunkPacketData)null, p_194243_.getLightData()));
+        }
+
         PacketUtils.ensureRunningOnSameThread(p_194243_, this, this.minecraft);
         int i = p_194243_.getX();
         int j = p_194243_.getZ();
         ClientboundLightUpdatePacketData clientboundlightupdatepacketdata = p_194243_.getLightData();
+        ChunkPacketDecoder.Result chunkpacketdecoder$result = ChunkPacketDecoder.getResult(p_194243_.getDecodeFuture(), this.level);
         this.level.queueLightUpdate(() ->
         {
-            this.applyLightData(i, j, clientboundlightupdatepacketdata);
+            this.applyLightData(i, j, clientboundlightupdatepacketdata, chunkpacketdecoder$result);
         });
     }
 
-    private void applyLightData(int p_194249_, int p_194250_, ClientboundLightUpdatePacketData p_194251_)
+    private void applyLightData(int p_194249_, int p_194250_, ClientboundLightUpdatePacketData p_194251_, @Nullable ChunkPacketDecoder.Result decoded)
     {
         LevelLightEngine levellightengine = this.level.getChunkSource().getLightEngine();
         BitSet bitset = p_194251_.getSkyYMask();
         BitSet bitset1 = p_194251_.getEmptySkyYMask();
-        Iterator<byte[]> iterator = p_194251_.getSkyUpdates().iterator();
+        Iterator<DataLayer> iterator = ChunkPacketDecoder.getSkyLayers(decoded, p_194251_);
         this.readSectionList(p_194249_, p_194250_, levellightengine, LightLayer.SKY, bitset, bitset1, iterator, p_194251_.getTrustEdges());
         BitSet bitset2 = p_194251_.getBlockYMask();
         BitSet bitset3 = p_194251_.getEmptyBlockYMask();
-        Iterator<byte[]> iterator1 = p_194251_.getBlockUpdates().iterator();
+        Iterator<DataLayer> iterator1 = ChunkPacketDecoder.getBlockLayers(decoded, p_194251_);
         this.readSectionList(p_194249_, p_194250_, levellightengine, LightLayer.BLOCK, bitset2, bitset3, iterator1, p_194251_.getTrustEdges());
         this.level.setLightReady(p_194249_, p_194250_);
     }
@@ -2553,7 +2577,7 @@ public class ClientPacketListener implements ClientGamePacketListener
         this.minecraft.gameMode.handleBlockBreakAck(this.level, pPacket.pos(), pPacket.state(), pPacket.action(), pPacket.allGood());
     }
 
-    private void readSectionList(int p_171735_, int p_171736_, LevelLightEngine p_171737_, LightLayer p_171738_, BitSet p_171739_, BitSet p_171740_, Iterator<byte[]> p_171741_, boolean p_171742_)
+    private void readSectionList(int p_171735_, int p_171736_, LevelLightEngine p_171737_, LightLayer p_171738_, BitSet p_171739_, BitSet p_171740_, Iterator<DataLayer> p_171741_, boolean p_171742_)
     {
         for (int i = 0; i < p_171737_.getLightSectionCount(); ++i)
         {
@@ -2563,7 +2587,7 @@ public class ClientPacketListener implements ClientGamePacketListener
 
             if (flag || flag1)
             {
-                p_171737_.queueSectionData(p_171738_, SectionPos.of(p_171735_, j, p_171736_), flag ? new DataLayer((byte[])p_171741_.next().clone()) : new DataLayer(), p_171742_);
+                p_171737_.queueSectionData(p_171738_, SectionPos.of(p_171735_, j, p_171736_), flag ? p_171741_.next() : new DataLayer(), p_171742_);
                 this.level.setSectionDirtyWithNeighbors(p_171735_, j, p_171736_);
             }
         }
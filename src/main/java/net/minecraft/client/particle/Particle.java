@@ -255,6 +255,11 @@ public abstract class Particle
         return !this.removed;
     }
 
+    boolean isStoppedByCollision()
+    {
+        return this.stoppedByCollision;
+    }
+
     public AABB getBoundingBox()
     {
         return this.bb;
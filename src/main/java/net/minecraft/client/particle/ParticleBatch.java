@@ -0,0 +1,677 @@
+package net.minecraft.client.particle;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import net.minecraft.CrashReport;
+import net.minecraft.CrashReportCategory;
+import net.minecraft.ReportedException;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.BlockCollisions;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.CollisionGetter;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.border.WorldBorder;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.material.FluidState;
+import net.minecraft.world.level.material.Fluids;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.shapes.Shapes;
+import net.minecraft.world.phys.shapes.VoxelShape;
+
+public class ParticleBatch
+{
+    private static final boolean ENABLED = !Boolean.getBoolean("particle.batch.disabled");
+    private static final int PARALLEL_MIN = Integer.getInteger("particle.batch.parallel", 2048);
+    private static final int THREADS = Integer.getInteger("particle.batch.threads", Mth.clamp(Runtime.getRuntime().availableProcessors() - 1, 1, 4));
+    private static final int SLICE_SIZE = 512;
+    private static final int FLAG_PHYSICS = 1;
+    private static final int FLAG_SPEED_UP = 2;
+    private static final int FLAG_ON_GROUND = 4;
+    private static final int FLAG_STOPPED = 8;
+    private static final int FLAG_REMOVED = 16;
+    private static final int FLAG_MOVED = 32;
+    private static final double MAXIMUM_COLLISION_VELOCITY_SQUARED = Mth.square(100.0D);
+    private static final BlockState AIR = Blocks.AIR.defaultBlockState();
+    private static final Reference2BooleanOpenHashMap < Class<? >> simpleClasses = new Reference2BooleanOpenHashMap<>();
+    private static ForkJoinPool pool;
+    private int size;
+    private Particle[] particles = new Particle[0];
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] z = new double[0];
+    private double[] xo = new double[0];
+    private double[] yo = new double[0];
+    private double[] zo = new double[0];
+    private double[] xd = new double[0];
+    private double[] yd = new double[0];
+    private double[] zd = new double[0];
+    private float[] halfWidth = new float[0];
+    private float[] height = new float[0];
+    private float[] gravity = new float[0];
+    private float[] friction = new float[0];
+    private int[] age = new int[0];
+    private int[] lifetime = new int[0];
+    private byte[] flags = new byte[0];
+
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    public static boolean isSimple(Particle particle)
+    {
+        if (particle.hasPhysics && (particle.bbWidth > 1.0F || particle.bbHeight > 1.0F))
+        {
+            return false;
+        }
+        else
+        {
+            Class<?> oclass = particle.getClass();
+
+            if (simpleClasses.containsKey(oclass))
+            {
+                return simpleClasses.getBoolean(oclass);
+            }
+            else
+            {
+                boolean flag;
+
+                try
+                {
+                    flag = oclass.getMethod("tick").getDeclaringClass() == Particle.class && oclass.getMethod("move", double.class, double.class, double.class).getDeclaringClass() == Particle.class;
+                }
+                catch (NoSuchMethodException nosuchmethodexception)
+                {
+                    flag = false;
+                }
+
+                simpleClasses.put(oclass, flag);
+                return flag;
+            }
+        }
+    }
+
+    public boolean add(Particle particle, int capacity)
+    {
+        if (this.size >= capacity)
+        {
+            return false;
+        }
+        else
+        {
+            if (this.size >= this.particles.length)
+            {
+                this.grow(Math.max(256, this.particles.length * 2));
+            }
+
+            int i = this.size++;
+            this.particles[i] = particle;
+            this.x[i] = particle.x;
+            this.y[i] = particle.y;
+            this.z[i] = particle.z;
+            this.xo[i] = particle.xo;
+            this.yo[i] = particle.yo;
+            this.zo[i] = particle.zo;
+            this.xd[i] = particle.xd;
+            this.yd[i] = particle.yd;
+            this.zd[i] = particle.zd;
+            this.halfWidth[i] = particle.bbWidth / 2.0F;
+            this.height[i] = particle.bbHeight;
+            this.gravity[i] = particle.gravity;
+            this.friction[i] = particle.friction;
+            this.age[i] = particle.age;
+            this.lifetime[i] = particle.lifetime;
+            int j = 0;
+
+            if (particle.hasPhysics)
+            {
+                j |= FLAG_PHYSICS;
+            }
+
+            if (particle.speedUpWhenYMotionIsBlocked)
+            {
+                j |= FLAG_SPEED_UP;
+            }
+
+            if (particle.onGround)
+            {
+                j |= FLAG_ON_GROUND;
+            }
+
+            if (particle.isStoppedByCollision())
+            {
+                j |= FLAG_STOPPED;
+            }
+
+            if (!particle.isAlive())
+            {
+                j |= FLAG_REMOVED;
+            }
+
+            this.flags[i] = (byte)j;
+            return true;
+        }
+    }
+
+    private void grow(int capacity)
+    {
+        this.particles = Arrays.copyOf(this.particles, capacity);
+        this.x = Arrays.copyOf(this.x, capacity);
+        this.y = Arrays.copyOf(this.y, capacity);
+        this.z = Arrays.copyOf(this.z, capacity);
+        this.xo = Arrays.copyOf(this.xo, capacity);
+        this.yo = Arrays.copyOf(this.yo, capacity);
+        this.zo = Arrays.copyOf(this.zo, capacity);
+        this.xd = Arrays.copyOf(this.xd, capacity);
+        this.yd = Arrays.copyOf(this.yd, capacity);
+        this.zd = Arrays.copyOf(this.zd, capacity);
+        this.halfWidth = Arrays.copyOf(this.halfWidth, capacity);
+        this.height = Arrays.copyOf(this.height, capacity);
+        this.gravity = Arrays.copyOf(this.gravity, capacity);
+        this.friction = Arrays.copyOf(this.friction, capacity);
+        this.age = Arrays.copyOf(this.age, capacity);
+        this.lifetime = Arrays.copyOf(this.lifetime, capacity);
+        this.flags = Arrays.copyOf(this.flags, capacity);
+    }
+
+    public void tick(ClientLevel level, long timeEndMs, Consumer<Particle> onRemoved)
+    {
+        if (this.size > 0)
+        {
+            ParticleBatch.Snapshot particlebatch$snapshot = this.makeSnapshot(level);
+
+            if (this.size >= PARALLEL_MIN && THREADS > 1)
+            {
+                getPool().invoke(new ParticleBatch.TickTask(this, particlebatch$snapshot, 0, this.size, timeEndMs));
+            }
+            else
+            {
+                for (int i = 0; i < this.size; i += SLICE_SIZE)
+                {
+                    this.tickSlice(particlebatch$snapshot, i, Math.min(i + SLICE_SIZE, this.size), timeEndMs);
+                }
+            }
+
+            this.syncParticles(onRemoved);
+        }
+    }
+
+    private void tickSlice(ParticleBatch.Snapshot snapshot, int start, int end, long timeEndMs)
+    {
+        if (System.currentTimeMillis() > timeEndMs)
+        {
+            for (int i = start; i < end; ++i)
+            {
+                this.flags[i] = (byte)(this.flags[i] | FLAG_REMOVED);
+            }
+        }
+        else
+        {
+            this.tickRange(snapshot, start, end);
+        }
+    }
+
+    public void evictOldest(int count, Consumer<Particle> onRemoved)
+    {
+        count = Math.min(count, this.size);
+
+        if (count > 0)
+        {
+            for (int i = 0; i < count; ++i)
+            {
+                Particle particle = this.particles[i];
+                particle.remove();
+                onRemoved.accept(particle);
+            }
+
+            for (int j = count; j < this.size; ++j)
+            {
+                this.copy(j, j - count);
+                this.flags[j - count] = this.flags[j];
+            }
+
+            Arrays.fill(this.particles, this.size - count, this.size, (Object)null);
+            this.size -= count;
+        }
+    }
+
+    private ParticleBatch.Snapshot makeSnapshot(ClientLevel level)
+    {
+        ParticleBatch.Snapshot particlebatch$snapshot = new ParticleBatch.Snapshot(level);
+        long i = Long.MIN_VALUE;
+
+        for (int j = 0; j < this.size; ++j)
+        {
+            if ((this.flags[j] & (FLAG_PHYSICS | FLAG_STOPPED)) == FLAG_PHYSICS)
+            {
+                int k = SectionPos.blockToSectionCoord(Mth.floor(this.x[j]));
+                int l = SectionPos.blockToSectionCoord(Mth.floor(this.z[j]));
+                long i1 = ChunkPos.asLong(k, l);
+
+                if (i1 != i)
+                {
+                    i = i1;
+                    particlebatch$snapshot.addChunks(level, k, l);
+                }
+            }
+        }
+
+        return particlebatch$snapshot;
+    }
+
+    private void tickRange(ParticleBatch.Snapshot snapshot, int start, int end)
+    {
+        BlockPos.MutableBlockPos blockpos$mutableblockpos = new BlockPos.MutableBlockPos();
+        List<VoxelShape> list = new ArrayList<>();
+
+        for (int i = start; i < end; ++i)
+        {
+            int j = this.flags[i];
+
+            if ((j & FLAG_REMOVED) != 0)
+            {
+                continue;
+            }
+
+            this.xo[i] = this.x[i];
+            this.yo[i] = this.y[i];
+            this.zo[i] = this.z[i];
+
+            if (this.age[i]++ >= this.lifetime[i])
+            {
+                this.flags[i] = (byte)(j | FLAG_REMOVED);
+                continue;
+            }
+
+            this.yd[i] -= 0.04D * (double)this.gravity[i];
+            j = this.move(i, j, snapshot, blockpos$mutableblockpos, list);
+
+            if ((j & FLAG_SPEED_UP) != 0 && this.y[i] == this.yo[i])
+            {
+                this.xd[i] *= 1.1D;
+                this.zd[i] *= 1.1D;
+            }
+
+            double d0 = (double)this.friction[i];
+            this.xd[i] *= d0;
+            this.yd[i] *= d0;
+            this.zd[i] *= d0;
+
+            if ((j & FLAG_ON_GROUND) != 0)
+            {
+                this.xd[i] *= (double)0.7F;
+                this.zd[i] *= (double)0.7F;
+            }
+
+            this.flags[i] = (byte)j;
+        }
+    }
+
+    private int move(int index, int flags, ParticleBatch.Snapshot snapshot, BlockPos.MutableBlockPos pos, List<VoxelShape> shapes)
+    {
+        if ((flags & FLAG_STOPPED) != 0)
+        {
+            return flags;
+        }
+        else
+        {
+            double d0 = this.xd[index];
+            double d1 = this.yd[index];
+            double d2 = this.zd[index];
+            double d3 = d0;
+            double d4 = d1;
+            double d5 = d2;
+
+            if ((flags & FLAG_PHYSICS) != 0 && (d0 != 0.0D || d1 != 0.0D || d2 != 0.0D) && d0 * d0 + d1 * d1 + d2 * d2 < MAXIMUM_COLLISION_VELOCITY_SQUARED && this.hasNearBlocks(index, d0, d1, d2, snapshot, pos))
+            {
+                AABB aabb = this.getBoundingBox(index);
+                BlockCollisions blockcollisions = new BlockCollisions(snapshot, (Entity)null, aabb.expandTowards(d0, d1, d2));
+                shapes.clear();
+
+                while (blockcollisions.hasNext())
+                {
+                    shapes.add(blockcollisions.next());
+                }
+
+                if (!shapes.isEmpty())
+                {
+                    if (d4 != 0.0D)
+                    {
+                        d4 = Shapes.collide(Direction.Axis.Y, aabb, shapes, d4);
+
+                        if (d4 != 0.0D)
+                        {
+                            aabb = aabb.move(0.0D, d4, 0.0D);
+                        }
+                    }
+
+                    boolean flag = Math.abs(d3) < Math.abs(d5);
+
+                    if (flag && d5 != 0.0D)
+                    {
+                        d5 = Shapes.collide(Direction.Axis.Z, aabb, shapes, d5);
+
+                        if (d5 != 0.0D)
+                        {
+                            aabb = aabb.move(0.0D, 0.0D, d5);
+                        }
+                    }
+
+                    if (d3 != 0.0D)
+                    {
+                        d3 = Shapes.collide(Direction.Axis.X, aabb, shapes, d3);
+
+                        if (!flag && d3 != 0.0D)
+                        {
+                            aabb = aabb.move(d3, 0.0D, 0.0D);
+                        }
+                    }
+
+                    if (!flag && d5 != 0.0D)
+                    {
+                        d5 = Shapes.collide(Direction.Axis.Z, aabb, shapes, d5);
+                    }
+                }
+            }
+
+            if (d3 != 0.0D || d4 != 0.0D || d5 != 0.0D)
+            {
+                this.x[index] += d3;
+                this.y[index] += d4;
+                this.z[index] += d5;
+                flags |= FLAG_MOVED;
+            }
+
+            if (Math.abs(d1) >= (double)1.0E-5F && Math.abs(d4) < (double)1.0E-5F)
+            {
+                flags |= FLAG_STOPPED;
+            }
+
+            if (d1 != d4 && d1 < 0.0D)
+            {
+                flags |= FLAG_ON_GROUND;
+            }
+            else
+            {
+                flags &= ~FLAG_ON_GROUND;
+            }
+
+            if (d0 != d3)
+            {
+                this.xd[index] = 0.0D;
+            }
+
+            if (d2 != d5)
+            {
+                this.zd[index] = 0.0D;
+            }
+
+            return flags;
+        }
+    }
+
+    private boolean hasNearBlocks(int index, double dx, double dy, double dz, ParticleBatch.Snapshot snapshot, BlockPos.MutableBlockPos pos)
+    {
+        double d0 = this.x[index];
+        double d1 = this.y[index];
+        double d2 = this.z[index];
+        int i = Mth.floor(d0);
+        int j = Mth.floor(d1);
+        int k = Mth.floor(d2);
+
+        if (!snapshot.getBlockState(pos.set(i, j, k)).isAir())
+        {
+            return true;
+        }
+        else
+        {
+            double d3 = (double)this.halfWidth[index];
+            double d4 = dx > 0.0D ? d0 + d3 : (dx < 0.0D ? d0 - d3 : d0);
+            double d5 = dy > 0.0D ? d1 + (double)this.height[index] : d1;
+            double d6 = dz > 0.0D ? d2 + d3 : (dz < 0.0D ? d2 - d3 : d2);
+            int l = Mth.floor(d4 + dx);
+            int i1 = Mth.floor(d5 + dy);
+            int j1 = Mth.floor(d6 + dz);
+            return (l != i || i1 != j || j1 != k) && !snapshot.getBlockState(pos.set(l, i1, j1)).isAir();
+        }
+    }
+
+    private AABB getBoundingBox(int index)
+    {
+        double d0 = (double)this.halfWidth[index];
+        return new AABB(this.x[index] - d0, this.y[index], this.z[index] - d0, this.x[index] + d0, this.y[index] + (double)this.height[index], this.z[index] + d0);
+    }
+
+    private void syncParticles(Consumer<Particle> onRemoved)
+    {
+        int i = 0;
+
+        for (int j = 0; j < this.size; ++j)
+        {
+            Particle particle = this.particles[j];
+            int k = this.flags[j];
+            particle.xo = this.xo[j];
+            particle.yo = this.yo[j];
+            particle.zo = this.zo[j];
+            particle.age = this.age[j];
+
+            if ((k & FLAG_REMOVED) != 0)
+            {
+                particle.remove();
+                onRemoved.accept(particle);
+                continue;
+            }
+
+            particle.x = this.x[j];
+            particle.y = this.y[j];
+            particle.z = this.z[j];
+            particle.xd = this.xd[j];
+            particle.yd = this.yd[j];
+            particle.zd = this.zd[j];
+            particle.onGround = (k & FLAG_ON_GROUND) != 0;
+
+            if ((k & FLAG_MOVED) != 0)
+            {
+                particle.setBoundingBox(this.getBoundingBox(j));
+                k &= ~FLAG_MOVED;
+            }
+
+            if (i != j)
+            {
+                this.copy(j, i);
+            }
+
+            this.flags[i] = (byte)k;
+            ++i;
+        }
+
+        Arrays.fill(this.particles, i, this.size, (Object)null);
+        this.size = i;
+    }
+
+    private void copy(int from, int to)
+    {
+        this.particles[to] = this.particles[from];
+        this.x[to] = this.x[from];
+        this.y[to] = this.y[from];
+        this.z[to] = this.z[from];
+        this.xo[to] = this.xo[from];
+        this.yo[to] = this.yo[from];
+        this.zo[to] = this.zo[from];
+        this.xd[to] = this.xd[from];
+        this.yd[to] = this.yd[from];
+        this.zd[to] = this.zd[from];
+        this.halfWidth[to] = this.halfWidth[from];
+        this.height[to] = this.height[from];
+        this.gravity[to] = this.gravity[from];
+        this.friction[to] = this.friction[from];
+        this.age[to] = this.age[from];
+        this.lifetime[to] = this.lifetime[from];
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public Particle get(int index)
+    {
+        return this.particles[index];
+    }
+
+    public void clear()
+    {
+        Arrays.fill(this.particles, 0, this.size, (Object)null);
+        this.size = 0;
+    }
+
+    private static ForkJoinPool getPool()
+    {
+        if (pool == null)
+        {
+            AtomicInteger atomicinteger = new AtomicInteger(1);
+            pool = new ForkJoinPool(THREADS, (poolIn) ->
+            {
+                ForkJoinWorkerThread forkjoinworkerthread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(poolIn);
+                forkjoinworkerthread.setName("Particle Worker-" + atomicinteger.getAndIncrement());
+                forkjoinworkerthread.setDaemon(true);
+                return forkjoinworkerthread;
+            }, (Thread.UncaughtExceptionHandler)null, false);
+        }
+
+        return pool;
+    }
+
+    private static class Snapshot implements CollisionGetter
+    {
+        private final Long2ObjectOpenHashMap<LevelChunk> chunks = new Long2ObjectOpenHashMap<>();
+        private final WorldBorder worldBorder;
+        private final int minBuildHeight;
+        private final int height;
+
+        public Snapshot(ClientLevel level)
+        {
+            this.worldBorder = level.getWorldBorder();
+            this.minBuildHeight = level.getMinBuildHeight();
+            this.height = level.getHeight();
+        }
+
+        public void addChunks(ClientLevel level, int chunkX, int chunkZ)
+        {
+            for (int i = chunkX - 1; i <= chunkX + 1; ++i)
+            {
+                for (int j = chunkZ - 1; j <= chunkZ + 1; ++j)
+                {
+                    long k = ChunkPos.asLong(i, j);
+
+                    if (!this.chunks.containsKey(k))
+                    {
+                        this.chunks.put(k, level.getChunkSource().getChunkNow(i, j));
+                    }
+                }
+            }
+        }
+
+        @Nullable
+        public BlockGetter getChunkForCollisions(int chunkX, int chunkZ)
+        {
+            return this.chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+        }
+
+        public BlockState getBlockState(BlockPos pos)
+        {
+            LevelChunk levelchunk = this.chunks.get(ChunkPos.asLong(SectionPos.blockToSectionCoord(pos.getX()), SectionPos.blockToSectionCoord(pos.getZ())));
+            return levelchunk == null ? AIR : levelchunk.getBlockState(pos);
+        }
+
+        public FluidState getFluidState(BlockPos pos)
+        {
+            LevelChunk levelchunk = this.chunks.get(ChunkPos.asLong(SectionPos.blockToSectionCoord(pos.getX()), SectionPos.blockToSectionCoord(pos.getZ())));
+            return levelchunk == null ? Fluids.EMPTY.defaultFluidState() : levelchunk.getFluidState(pos);
+        }
+
+        @Nullable
+        public BlockEntity getBlockEntity(BlockPos pos)
+        {
+            return null;
+        }
+
+        public WorldBorder getWorldBorder()
+        {
+            return this.worldBorder;
+        }
+
+        public List<VoxelShape> getEntityCollisions(@Nullable Entity entity, AABB box)
+        {
+            return List.of();
+        }
+
+        public int getMinBuildHeight()
+        {
+            return this.minBuildHeight;
+        }
+
+        public int getHeight()
+        {
+            return this.height;
+        }
+    }
+
+    private static class TickTask extends RecursiveAction
+    {
+        private final ParticleBatch batch;
+        private final ParticleBatch.Snapshot snapshot;
+        private final int start;
+        private final int end;
+        private final long timeEndMs;
+
+        public TickTask(ParticleBatch batch, ParticleBatch.Snapshot snapshot, int start, int end, long timeEndMs)
+        {
+            this.batch = batch;
+            this.snapshot = snapshot;
+            this.start = start;
+            this.end = end;
+            this.timeEndMs = timeEndMs;
+        }
+
+        protected void compute()
+        {
+            if (this.end - this.start <= SLICE_SIZE)
+            {
+                try
+                {
+                    this.batch.tickSlice(this.snapshot, this.start, this.end, this.timeEndMs);
+                }
+                catch (Throwable throwable)
+                {
+                    CrashReport crashreport = CrashReport.forThrowable(throwable, "Ticking Particle");
+                    CrashReportCategory crashreportcategory = crashreport.addCategory("Particle batch being ticked");
+                    crashreportcategory.setDetail("Range", this.start + " - " + this.end);
+                    throw new ReportedException(crashreport);
+                }
+            }
+            else
+            {
+                int i = this.start + this.end >>> 1;
+                invokeAll(new ParticleBatch.TickTask(this.batch, this.snapshot, this.start, i, this.timeEndMs), new ParticleBatch.TickTask(this.batch, this.snapshot, i, this.end, this.timeEndMs));
+            }
+        }
+    }
+}
@@ -73,6 +73,7 @@ public class ParticleEngine implements PreparableReloadListener
     private static final List<ParticleRenderType> RENDER_ORDER = ImmutableList.of(ParticleRenderType.TERRAIN_SHEET, ParticleRenderType.PARTICLE_SHEET_OPAQUE, ParticleRenderType.PARTICLE_SHEET_LIT, ParticleRenderType.PARTICLE_SHEET_TRANSLUCENT, ParticleRenderType.CUSTOM);
     protected ClientLevel level;
     private final Map<ParticleRenderType, Queue<Particle>> particles = Maps.newIdentityHashMap();
+    private final Map<ParticleRenderType, ParticleBatch> particleBatches = Maps.newIdentityHashMap();
     private final Queue<TrackingEmitter> trackingEmitters = Queues.newArrayDeque();
     private final TextureManager textureManager;
     private final Random random = new Random();
@@ -219,6 +220,7 @@ public class ParticleEngine implements PreparableReloadListener
         }, pBackgroundExecutor).thenCompose(pStage::wait).thenAcceptAsync((preparationsIn) ->
         {
             this.particles.clear();
+            this.particleBatches.clear();
             pReloadProfiler.startTick();
             pReloadProfiler.push("upload");
             this.textureAtlas.reload(preparationsIn);
@@ -386,6 +388,18 @@ public class ParticleEngine implements PreparableReloadListener
             this.level.getProfiler().pop();
         });
 
+        if (!this.particleBatches.isEmpty())
+        {
+            this.level.getProfiler().push("batch");
+
+            for (ParticleBatch particlebatch : this.particleBatches.values())
+            {
+                particlebatch.tick(this.level, System.currentTimeMillis() + 20L, this::onParticleRemoved);
+            }
+
+            this.level.getProfiler().pop();
+        }
+
         if (!this.trackingEmitters.isEmpty())
         {
             List<TrackingEmitter> list = Lists.newArrayList();
@@ -407,17 +421,56 @@ public class ParticleEngine implements PreparableReloadListener
 
         if (!this.particlesToAdd.isEmpty())
         {
+            boolean flag = ParticleBatch.isEnabled() && !Reflector.ForgeHooksClient.exists();
+
             while ((particle = this.particlesToAdd.poll()) != null)
             {
-                Queue<Particle> queue = this.particles.computeIfAbsent(particle.getRenderType(), (renderTypeIn) ->
+                if (flag && ParticleBatch.isSimple(particle))
+                {
+                    ParticleBatch particlebatch = this.particleBatches.computeIfAbsent(particle.getRenderType(), (renderTypeIn) ->
+                    {
+                        return new ParticleBatch();
+                    });
+                    Queue<Particle> queue = this.particles.get(particle.getRenderType());
+
+                    if (particlebatch.add(particle, MAX_PARTICLES_PER_LAYER - (queue != null ? queue.size() : 0)))
+                    {
+                        continue;
+                    }
+                }
+
+                Queue<Particle> queue1 = this.particles.computeIfAbsent(particle.getRenderType(), (renderTypeIn) ->
                 {
                     return EvictingQueue.create(16384);
                 });
-                queue.add(particle);
+                queue1.add(particle);
+            }
+
+            for (Map.Entry<ParticleRenderType, ParticleBatch> entry : this.particleBatches.entrySet())
+            {
+                Queue<Particle> queue2 = this.particles.get(entry.getKey());
+
+                if (queue2 != null)
+                {
+                    int i = entry.getValue().size() + queue2.size() - MAX_PARTICLES_PER_LAYER;
+
+                    if (i > 0)
+                    {
+                        entry.getValue().evictOldest(i, this::onParticleRemoved);
+                    }
+                }
             }
         }
     }
 
+    private void onParticleRemoved(Particle particle)
+    {
+        particle.getParticleGroup().ifPresent((groupIn) ->
+        {
+            this.updateCount(groupIn, -1);
+        });
+    }
+
     private void tickParticleList(Collection<Particle> pParticles)
     {
         if (!pParticles.isEmpty())
@@ -510,8 +563,9 @@ public class ParticleEngine implements PreparableReloadListener
             if (particlerendertype != ParticleRenderType.NO_RENDER)
             {
                 Iterable<Particle> iterable = this.particles.get(particlerendertype);
+                ParticleBatch particlebatch = this.particleBatches.get(particlerendertype);
 
-                if (iterable != null)
+                if (iterable != null || particlebatch != null && particlebatch.size() > 0)
                 {
                     RenderSystem.setShader(GameRenderer::getParticleShader);
                     RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
@@ -519,25 +573,19 @@ public class ParticleEngine implements PreparableReloadListener
                     BufferBuilder bufferbuilder = tesselator.getBuilder();
                     particlerendertype.begin(bufferbuilder, this.textureManager);
 
-                    for (Particle particle : iterable)
+                    if (iterable != null)
                     {
-                        if (clippingHelper == null || !particle.shouldCull() || clippingHelper.isVisible(particle.getBoundingBox()))
+                        for (Particle particle : iterable)
                         {
-                            try
-                            {
-                                if (flag || !(particle instanceof SuspendedParticle) || particle.xd != 0.0D || particle.yd != 0.0D || particle.zd != 0.0D)
-                                {
-                                    particle.render(bufferbuilder, activeRenderInfoIn, partialTicks);
-                                }
-                            }
-                            catch (Throwable throwable)
-                            {
-                                CrashReport crashreport = CrashReport.forThrowable(throwable, "Rendering Particle");
-                                CrashReportCategory crashreportcategory = crashreport.addCategory("Particle being rendered");
-                                crashreportcategory.setDetail("Particle", particle::toString);
-                                crashreportcategory.setDetail("Particle Type", particlerendertype::toString);
-                                throw new ReportedException(crashreport);
-                            }
+                            this.renderParticle(particle, particlerendertype, bufferbuilder, activeRenderInfoIn, partialTicks, clippingHelper, flag);
+                        }
+                    }
+
+                    if (particlebatch != null)
+                    {
+                        for (int i = 0; i < particlebatch.size(); ++i)
+                        {
+                            this.renderParticle(particlebatch.get(i), particlerendertype, bufferbuilder, activeRenderInfoIn, partialTicks, clippingHelper, flag);
                         }
                     }
 
@@ -554,10 +602,33 @@ public class ParticleEngine implements PreparableReloadListener
         RenderSystem.enableDepthTest();
     }
 
+    private void renderParticle(Particle particle, ParticleRenderType renderType, BufferBuilder bufferBuilder, Camera camera, float partialTicks, Frustum clippingHelper, boolean inWater)
+    {
+        if (clippingHelper == null || !particle.shouldCull() || clippingHelper.isVisible(particle.getBoundingBox()))
+        {
+            try
+            {
+                if (inWater || !(particle instanceof SuspendedParticle) || particle.xd != 0.0D || particle.yd != 0.0D || particle.zd != 0.0D)
+                {
+                    particle.render(bufferBuilder, camera, partialTicks);
+                }
+            }
+            catch (Throwable throwable)
+            {
+                CrashReport crashreport = CrashReport.forThrowable(throwable, "Rendering Particle");
+                CrashReportCategory crashreportcategory = crashreport.addCategory("Particle being rendered");
+                crashreportcategory.setDetail("Particle", particle::toString);
+                crashreportcategory.setDetail("Particle Type", renderType::toString);
+                throw new ReportedException(crashreport);
+            }
+        }
+    }
+
     public void setLevel(@Nullable ClientLevel pLevel)
     {
         this.level = pLevel;
         this.particles.clear();
+        this.particleBatches.clear();
         this.trackingEmitters.clear();
         this.trackedParticleCounts.clear();
     }
@@ -674,7 +745,7 @@ public class ParticleEngine implements PreparableReloadListener
 
     public String countParticles()
     {
-        return String.valueOf(this.particles.values().stream().mapToInt(Collection::size).sum());
+        return String.valueOf(this.particles.values().stream().mapToInt(Collection::size).sum() + this.particleBatches.values().stream().mapToInt(ParticleBatch::size).sum());
     }
 
     private boolean hasSpaceInParticleLimit(ParticleGroup pGroup)
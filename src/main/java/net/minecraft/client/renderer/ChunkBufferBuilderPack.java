@@ -3,29 +3,100 @@ package net.minecraft.client.renderer;
 import com.mojang.blaze3d.vertex.BufferBuilder;
 import java.util.Map;
 import java.util.stream.Collectors;
+import net.optifine.render.ChunkBufferArena;
 
 public class ChunkBufferBuilderPack
 {
-    private final Map<RenderType, BufferBuilder> builders = RenderType.chunkBufferLayers().stream().collect(Collectors.toMap((p_108845_) ->
+    private final Map<RenderType, BufferBuilder> builders;
+    private ChunkBufferArena arena;
+    private BufferBuilder[] arenaBuilders;
+    private int[] arenaCapacities;
+
+    public ChunkBufferBuilderPack()
     {
-        return p_108845_;
-    }, (p_108843_) ->
+        this.builders = RenderType.chunkBufferLayers().stream().collect(Collectors.toMap((p_108845_) ->
+        {
+            return p_108845_;
+        }, (p_108843_) ->
+        {
+            return new BufferBuilder(p_108843_.bufferSize());
+        }));
+    }
+
+    public ChunkBufferBuilderPack(ChunkBufferArena arena)
     {
-        return new BufferBuilder(p_108843_.bufferSize());
-    }));
+        this.builders = null;
+        this.arena = arena;
+        this.arenaBuilders = new BufferBuilder[RenderType.CHUNK_RENDER_TYPES.length];
+        this.arenaCapacities = new int[RenderType.CHUNK_RENDER_TYPES.length];
+    }
 
     public BufferBuilder builder(RenderType pRenderType)
     {
-        return this.builders.get(pRenderType);
+        if (this.arena == null)
+        {
+            return this.builders.get(pRenderType);
+        }
+        else
+        {
+            int i = pRenderType.ordinal();
+            BufferBuilder bufferbuilder = this.arenaBuilders[i];
+
+            if (bufferbuilder == null)
+            {
+                bufferbuilder = this.arena.allocate(pRenderType);
+                this.arenaBuilders[i] = bufferbuilder;
+                this.arenaCapacities[i] = bufferbuilder.getCapacity();
+            }
+
+            return bufferbuilder;
+        }
     }
 
     public void clearAll()
     {
-        this.builders.values().forEach(BufferBuilder::clear);
+        if (this.arena == null)
+        {
+            this.builders.values().forEach(BufferBuilder::clear);
+        }
+        else
+        {
+            this.freeArenaBuilders(true);
+        }
     }
 
     public void discardAll()
     {
-        this.builders.values().forEach(BufferBuilder::discard);
+        if (this.arena == null)
+        {
+            this.builders.values().forEach(BufferBuilder::discard);
+        }
+        else
+        {
+            this.freeArenaBuilders(false);
+        }
+    }
+
+    private void freeArenaBuilders(boolean clear)
+    {
+        for (int i = 0; i < this.arenaBuilders.length; ++i)
+        {
+            BufferBuilder bufferbuilder = this.arenaBuilders[i];
+
+            if (bufferbuilder != null)
+            {
+                if (clear)
+                {
+                    bufferbuilder.clear();
+                }
+                else
+                {
+                    bufferbuilder.discard();
+                }
+
+                this.arenaBuilders[i] = null;
+                this.arena.free(RenderType.CHUNK_RENDER_TYPES[i], bufferbuilder, this.arenaCapacities[i]);
+            }
+        }
     }
 }
@@ -36,6 +36,7 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectMap.Entry;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectListIterator;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -59,6 +60,7 @@ import java.util.SortedSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -151,6 +153,7 @@ import net.minecraftforge.client.ISkyRenderHandler;
 import net.minecraftforge.client.IWeatherParticleRenderHandler;
 import net.minecraftforge.client.IWeatherRenderHandler;
 import net.optifine.BlockPosM;
+import net.optifine.ChunkBuildScheduler;
 import net.optifine.Config;
 import net.optifine.CustomColors;
 import net.optifine.CustomSky;
@@ -161,9 +164,11 @@ import net.optifine.Vec3M;
 import net.optifine.entity.model.CustomEntityModels;
 import net.optifine.reflect.Reflector;
 import net.optifine.render.ChunkVisibility;
+import net.optifine.render.EntityOcclusionCuller;
 import net.optifine.render.RenderEnv;
 import net.optifine.render.RenderStateManager;
 import net.optifine.render.RenderUtils;
+import net.optifine.render.SectionFrustumCuller;
 import net.optifine.render.VboRegion;
 import net.optifine.shaders.RenderStage;
 import net.optifine.shaders.Shaders;
@@ -291,6 +296,28 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
     private ObjectArrayList renderInfosTerrainShadow = new ObjectArrayList(1024);
     private LongOpenHashSet renderInfosEntitiesShadow = new LongOpenHashSet(1024);
     private List renderInfosTileEntitiesShadow = new ArrayList(1024);
+    private SectionFrustumCuller sectionCuller = new SectionFrustumCuller();
+    private EntityOcclusionCuller entityOcclusionCuller = new EntityOcclusionCuller();
+    private LevelRenderer.RenderChunkInfo[] sectionCullerInfos = new LevelRenderer.RenderChunkInfo[0];
+    private Set<LevelRenderer.RenderChunkInfo> sectionCullerSet;
+    private int sectionCullerSetSize = -1;
+    private int sectionCullerMoved = -1;
+    private final float[] frustumPlanes = new float[24];
+    private static final boolean FRUSTUM_SOA = !Boolean.getBoolean("chunk.frustum.legacy");
+    private boolean needsRenderChunkRepair;
+    private int countRenderChunkRepairs;
+    private int fullUpdateSectionX = Integer.MIN_VALUE;
+    private int fullUpdateSectionY = Integer.MIN_VALUE;
+    private int fullUpdateSectionZ = Integer.MIN_VALUE;
+    private boolean fullUpdateSmartCull;
+    private static final int VISIBILITY_NONE = 0;
+    private static final int VISIBILITY_VISIBLE = 1;
+    private static final int VISIBILITY_RAY_BLOCKED = 2;
+    private static final boolean VISIBILITY_PARALLEL = Boolean.getBoolean("chunk.visibility.parallel");
+    private static final boolean VISIBILITY_INCREMENTAL = Boolean.getBoolean("chunk.visibility.incremental");
+    private static final int VISIBILITY_PARALLEL_MIN = 256;
+    private static final int REPAIR_NODES_MAX = 8192;
+    private static final int REPAIRS_MAX = 16;
     private int renderDistance = 0;
     private int renderDistanceSq = 0;
     private int renderDistanceXZSq = 0;
@@ -839,6 +866,8 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         this.lastCameraChunkZ = Integer.MIN_VALUE;
         this.entityRenderDispatcher.setLevel(pLevel);
         this.level = pLevel;
+        this.entityOcclusionCuller.close();
+        this.entityOcclusionCuller = new EntityOcclusionCuller();
 
         if (Config.isDynamicLights())
         {
@@ -903,6 +932,11 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
                 this.chunkRenderDispatcher.setLevel(this.level);
             }
 
+            if (this.chunkRenderDispatcher.getMeshCache() != null)
+            {
+                this.chunkRenderDispatcher.getMeshCache().updateFingerprint(this.minecraft);
+            }
+
             this.needsFullRenderChunkUpdate = true;
             this.generateClouds = true;
             this.recentlyCompiledChunks.clear();
@@ -1052,7 +1086,8 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         double d6 = Math.floor(vec3.x / 8.0D);
         double d7 = Math.floor(vec3.y / 8.0D);
         double d8 = Math.floor(vec3.z / 8.0D);
-        this.needsFullRenderChunkUpdate = this.needsFullRenderChunkUpdate || d6 != this.prevCamX || d7 != this.prevCamY || d8 != this.prevCamZ;
+        boolean flag3 = d6 != this.prevCamX || d7 != this.prevCamY || d8 != this.prevCamZ;
+        this.needsFullRenderChunkUpdate = this.needsFullRenderChunkUpdate || flag3 && !VISIBILITY_INCREMENTAL;
         this.nextFullUpdateMillis.updateAndGet((p_194368_1_) ->
         {
             if (p_194368_1_ > 0L && System.currentTimeMillis() > p_194368_1_)
@@ -1075,6 +1110,18 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
             flag = false;
         }
 
+        if (flag3 && VISIBILITY_INCREMENTAL)
+        {
+            if (this.isRenderChunkRepairPossible(vec3, flag))
+            {
+                this.needsRenderChunkRepair = true;
+            }
+            else
+            {
+                this.needsFullRenderChunkUpdate = true;
+            }
+        }
+
         Lagometer.timerVisibility.start();
 
         if (!p_194341_)
@@ -1083,6 +1130,12 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
             {
                 this.minecraft.getProfiler().push("full_update_schedule");
                 this.needsFullRenderChunkUpdate = false;
+                this.needsRenderChunkRepair = false;
+                this.countRenderChunkRepairs = 0;
+                this.fullUpdateSectionX = SectionPos.posToSectionCoord(vec3.x);
+                this.fullUpdateSectionY = SectionPos.posToSectionCoord(vec3.y);
+                this.fullUpdateSectionZ = SectionPos.posToSectionCoord(vec3.z);
+                this.fullUpdateSmartCull = flag;
                 boolean flag1 = flag;
                 this.lastFullRenderChunkUpdate = Util.backgroundExecutor().submit(() ->
                 {
@@ -1092,7 +1145,16 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
                     queue1.forEach((info) -> {
                         levelrenderer$renderchunkstorage1.renderInfoMap.put(info.chunk, info);
                     });
-                    this.updateRenderChunks(levelrenderer$renderchunkstorage1, levelrenderer$renderchunkstorage1.renderInfoMap, vec3, queue1, flag1);
+
+                    if (VISIBILITY_PARALLEL)
+                    {
+                        this.updateRenderChunksParallel(levelrenderer$renderchunkstorage1, levelrenderer$renderchunkstorage1.renderInfoMap, vec3, queue1, flag1);
+                    }
+                    else
+                    {
+                        this.updateRenderChunks(levelrenderer$renderchunkstorage1, levelrenderer$renderchunkstorage1.renderInfoMap, vec3, queue1, flag1);
+                    }
+
                     this.renderChunkStorage.set(levelrenderer$renderchunkstorage1);
                     this.needsFrustumUpdate.set(true);
                 });
@@ -1101,6 +1163,32 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
 
             LevelRenderer.RenderChunkStorage levelrenderer$renderchunkstorage = this.renderChunkStorage.get();
 
+            if (this.needsRenderChunkRepair && !this.needsFullRenderChunkUpdate && (this.lastFullRenderChunkUpdate == null || this.lastFullRenderChunkUpdate.isDone()))
+            {
+                this.minecraft.getProfiler().push("repair_update");
+                this.needsRenderChunkRepair = false;
+
+                if (levelrenderer$renderchunkstorage.renderChunksRayBlocked.size() > REPAIR_NODES_MAX)
+                {
+                    this.needsFullRenderChunkUpdate = true;
+                }
+                else
+                {
+                    Queue<LevelRenderer.RenderChunkInfo> queue2 = Queues.newArrayDeque(levelrenderer$renderchunkstorage.renderChunksRayBlocked);
+                    levelrenderer$renderchunkstorage.renderChunksRayBlocked.clear();
+
+                    if (!this.updateRenderChunks(levelrenderer$renderchunkstorage, levelrenderer$renderchunkstorage.renderInfoMap, vec3, queue2, flag, REPAIR_NODES_MAX))
+                    {
+                        this.needsFullRenderChunkUpdate = true;
+                    }
+
+                    ++this.countRenderChunkRepairs;
+                    this.needsFrustumUpdate.set(true);
+                }
+
+                this.minecraft.getProfiler().pop();
+            }
+
             if (!this.recentlyCompiledChunks.isEmpty())
             {
                 this.minecraft.getProfiler().push("partial_update");
@@ -1146,6 +1234,26 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         this.minecraft.getProfiler().pop();
     }
 
+    private boolean isRenderChunkRepairPossible(Vec3 viewPos, boolean smartCull)
+    {
+        if (this.renderChunkStorage.get() == null)
+        {
+            return false;
+        }
+        else if (this.countRenderChunkRepairs >= REPAIRS_MAX)
+        {
+            return false;
+        }
+        else if (smartCull != this.fullUpdateSmartCull)
+        {
+            return false;
+        }
+        else
+        {
+            return SectionPos.posToSectionCoord(viewPos.x) == this.fullUpdateSectionX && SectionPos.posToSectionCoord(viewPos.y) == this.fullUpdateSectionY && SectionPos.posToSectionCoord(viewPos.z) == this.fullUpdateSectionZ;
+        }
+    }
+
     private void applyFrustum(Frustum p_194355_)
     {
         this.applyFrustum(p_194355_, true, -1);
@@ -1165,6 +1273,14 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         int j = (int)frustumIn.getCameraY() >> 4 << 4;
         int k = (int)frustumIn.getCameraZ() >> 4 << 4;
         int l = maxChunkDistance * maxChunkDistance;
+
+        if (FRUSTUM_SOA && frustumIn.getClass() == Frustum.class && !frustumIn.disabled)
+        {
+            this.applyFrustumCuller(frustumIn, updateRenderInfos, maxChunkDistance, i, j, k, l);
+            this.minecraft.getProfiler().pop();
+            return;
+        }
+
         Iterator iterator = (this.renderChunkStorage.get()).renderChunks.iterator();
 
         while (true)
@@ -1220,6 +1336,80 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         }
     }
 
+    private void applyFrustumCuller(Frustum frustumIn, boolean updateRenderInfos, int maxChunkDistance, int camX, int camY, int camZ, int maxDistSq)
+    {
+        Set<LevelRenderer.RenderChunkInfo> set = (this.renderChunkStorage.get()).renderChunks;
+
+        if (set != this.sectionCullerSet || set.size() != this.sectionCullerSetSize || ChunkRenderDispatcher.renderChunksMoved != this.sectionCullerMoved)
+        {
+            int i = set.size();
+            this.sectionCuller.setSectionCount(i);
+
+            if (this.sectionCullerInfos.length < i)
+            {
+                this.sectionCullerInfos = new LevelRenderer.RenderChunkInfo[Math.max(i, this.sectionCullerInfos.length * 3 / 2)];
+            }
+
+            int j = 0;
+
+            for (LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo : set)
+            {
+                BlockPos blockpos = levelrenderer$renderchunkinfo.chunk.getOrigin();
+                this.sectionCullerInfos[j] = levelrenderer$renderchunkinfo;
+                this.sectionCuller.setSection(j, blockpos.getX(), blockpos.getY(), blockpos.getZ());
+                ++j;
+            }
+
+            Arrays.fill(this.sectionCullerInfos, i, this.sectionCullerInfos.length, null);
+            this.sectionCuller.build();
+            this.sectionCullerSet = set;
+            this.sectionCullerSetSize = i;
+            this.sectionCullerMoved = ChunkRenderDispatcher.renderChunksMoved;
+        }
+
+        frustumIn.getPlanes(this.frustumPlanes);
+        boolean[] aboolean = this.sectionCuller.cull(this.frustumPlanes, frustumIn.getCameraX(), frustumIn.getCameraY(), frustumIn.getCameraZ());
+        int k = this.sectionCuller.getSectionCount();
+
+        for (int l = 0; l < k; ++l)
+        {
+            if (aboolean[l])
+            {
+                LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo1 = this.sectionCullerInfos[l];
+
+                if (maxChunkDistance > 0)
+                {
+                    BlockPos blockpos1 = levelrenderer$renderchunkinfo1.chunk.getOrigin();
+                    int i1 = camX - blockpos1.getX();
+                    int j1 = camY - blockpos1.getY();
+                    int k1 = camZ - blockpos1.getZ();
+
+                    if (i1 * i1 + j1 * j1 + k1 * k1 > maxDistSq)
+                    {
+                        continue;
+                    }
+                }
+
+                if (updateRenderInfos)
+                {
+                    this.renderChunksInFrustum.add(levelrenderer$renderchunkinfo1);
+                }
+
+                ChunkRenderDispatcher.CompiledChunk chunkrenderdispatcher$compiledchunk = levelrenderer$renderchunkinfo1.chunk.getCompiledChunk();
+
+                if (!chunkrenderdispatcher$compiledchunk.hasNoRenderableLayers())
+                {
+                    this.renderInfosTerrain.add(levelrenderer$renderchunkinfo1);
+                }
+
+                if (!chunkrenderdispatcher$compiledchunk.getRenderableBlockEntities().isEmpty())
+                {
+                    this.renderInfosTileEntities.add(levelrenderer$renderchunkinfo1);
+                }
+            }
+        }
+    }
+
     private void initializeQueueForFullUpdate(Camera p_194344_, Queue<LevelRenderer.RenderChunkInfo> p_194345_)
     {
         int i = 16;
@@ -1266,6 +1456,11 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
     }
 
     private void updateRenderChunks(LevelRenderer.RenderChunkStorage renderChunkStorage, LevelRenderer.RenderInfoMap renderInfoMap, Vec3 viewPos, Queue<LevelRenderer.RenderChunkInfo> renderQueue, boolean smartCull)
+    {
+        this.updateRenderChunks(renderChunkStorage, renderInfoMap, viewPos, renderQueue, smartCull, Integer.MAX_VALUE);
+    }
+
+    private boolean updateRenderChunks(LevelRenderer.RenderChunkStorage renderChunkStorage, LevelRenderer.RenderInfoMap renderInfoMap, Vec3 viewPos, Queue<LevelRenderer.RenderChunkInfo> renderQueue, boolean smartCull, int maxNodes)
     {
         Set<LevelRenderer.RenderChunkInfo> set = renderChunkStorage.renderChunks;
         EntitySectionStorage entitysectionstorage = this.level.getSectionStorage();
@@ -1274,8 +1469,15 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         BlockPos blockpos1 = blockpos.offset(8, 8, 8);
         Entity.setViewScale(Mth.clamp((double)this.minecraft.options.getEffectiveRenderDistance() / 8.0D, 1.0D, 2.5D) * (double)this.minecraft.options.entityDistanceScaling);
 
+        int k = 0;
+
         while (!renderQueue.isEmpty())
         {
+            if (k++ >= maxNodes)
+            {
+                return false;
+            }
+
             LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo = renderQueue.poll();
             ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk = levelrenderer$renderchunkinfo.chunk;
             ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk1 = levelrenderer$renderchunkinfo.chunk;
@@ -1303,165 +1505,297 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
                 }
                 else if (!smartCull || !levelrenderer$renderchunkinfo.hasDirection(direction1.getOpposite()))
                 {
-                    if (smartCull && levelrenderer$renderchunkinfo.hasSourceDirections())
-                    {
-                        ChunkRenderDispatcher.CompiledChunk chunkrenderdispatcher$compiledchunk1 = chunkrenderdispatcher$renderchunk.getCompiledChunk();
-                        boolean flag2 = false;
+                    int j = this.getRenderChunkVisibility(renderInfoMap, levelrenderer$renderchunkinfo, chunkrenderdispatcher$renderchunk2, direction1, direction, flag1, blockpos, blockpos1, viewPos, smartCull, renderChunkStorage.vec3M1, renderChunkStorage.vec3M2, renderChunkStorage.vec3M3);
 
-                        for (int j = 0; j < DIRECTIONS.length; ++j)
+                    if (j == VISIBILITY_RAY_BLOCKED)
+                    {
+                        if (VISIBILITY_INCREMENTAL)
                         {
-                            if (levelrenderer$renderchunkinfo.hasSourceDirection(j) && chunkrenderdispatcher$compiledchunk1.facesCanSeeEachother(DIRECTIONS[j].getOpposite(), direction1))
-                            {
-                                flag2 = true;
-                                break;
-                            }
+                            renderChunkStorage.renderChunksRayBlocked.add(levelrenderer$renderchunkinfo);
                         }
+                    }
+                    else if (j == VISIBILITY_VISIBLE)
+                    {
+                        this.addRenderChunkInfo(renderInfoMap, levelrenderer$renderchunkinfo, chunkrenderdispatcher$renderchunk2, direction1, blockpos, renderQueue);
+                    }
+                }
+            }
+        }
 
-                        if (!flag2)
+        return true;
+    }
+
+    private void updateRenderChunksParallel(LevelRenderer.RenderChunkStorage renderChunkStorage, LevelRenderer.RenderInfoMap renderInfoMap, Vec3 viewPos, Queue<LevelRenderer.RenderChunkInfo> renderQueue, boolean smartCull)
+    {
+        Set<LevelRenderer.RenderChunkInfo> set = renderChunkStorage.renderChunks;
+        BlockPos blockpos = new BlockPos(Mth.floor(viewPos.x / 16.0D) * 16, Mth.floor(viewPos.y / 16.0D) * 16, Mth.floor(viewPos.z / 16.0D) * 16);
+        BlockPos blockpos1 = blockpos.offset(8, 8, 8);
+        Entity.setViewScale(Mth.clamp((double)this.minecraft.options.getEffectiveRenderDistance() / 8.0D, 1.0D, 2.5D) * (double)this.minecraft.options.entityDistanceScaling);
+        List<LevelRenderer.RenderChunkInfo> list = new ArrayList<>(renderQueue);
+        renderQueue.clear();
+
+        while (!list.isEmpty())
+        {
+            int i = list.size();
+            int[] aint = new int[i];
+
+            if (i >= VISIBILITY_PARALLEL_MIN)
+            {
+                (new LevelRenderer.VisibilityTask(list, aint, 0, i, renderInfoMap, blockpos, blockpos1, viewPos, smartCull)).invoke();
+            }
+            else
+            {
+                this.updateRenderChunkVisibility(list, aint, 0, i, renderInfoMap, blockpos, blockpos1, viewPos, smartCull, new Vec3M(0.0D, 0.0D, 0.0D), new Vec3M(0.0D, 0.0D, 0.0D), new Vec3M(0.0D, 0.0D, 0.0D));
+            }
+
+            List<LevelRenderer.RenderChunkInfo> list1 = new ArrayList<>();
+            Set<LevelRenderer.RenderChunkInfo> set1 = new ObjectOpenHashSet<>();
+
+            for (int j = 0; j < i; ++j)
+            {
+                LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo = list.get(j);
+                ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk = levelrenderer$renderchunkinfo.chunk;
+
+                if (chunkrenderdispatcher$renderchunk.compiled.get().hasTerrainBlockEntities() || chunkrenderdispatcher$renderchunk.isDirty())
+                {
+                    set.add(levelrenderer$renderchunkinfo);
+                }
+
+                int k = aint[j];
+
+                for (int l = 0; l < DIRECTIONS.length; ++l)
+                {
+                    int i1 = k >> l * 2 & 3;
+
+                    if (i1 == VISIBILITY_RAY_BLOCKED)
+                    {
+                        if (VISIBILITY_INCREMENTAL)
                         {
-                            continue;
+                            renderChunkStorage.renderChunksRayBlocked.add(levelrenderer$renderchunkinfo);
                         }
                     }
-
-                    if (smartCull && flag1 && levelrenderer$renderchunkinfo.hasSourceDirections() && !levelrenderer$renderchunkinfo.hasSourceDirection(direction.ordinal()))
+                    else if (i1 == VISIBILITY_VISIBLE)
                     {
-                        ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk4 = this.getRelativeFrom(blockpos, chunkrenderdispatcher$renderchunk, direction.getOpposite());
+                        Direction direction = DIRECTIONS[l];
+                        ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk1 = this.getRelativeFrom(blockpos, chunkrenderdispatcher$renderchunk, direction);
+                        LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo1 = renderInfoMap.get(chunkrenderdispatcher$renderchunk1);
 
-                        if (chunkrenderdispatcher$renderchunk4 == null)
+                        if (levelrenderer$renderchunkinfo1 != null && levelrenderer$renderchunkinfo1.step >= levelrenderer$renderchunkinfo.step && !levelrenderer$renderchunkinfo1.hasSourceDirection(direction.ordinal()) && set1.add(levelrenderer$renderchunkinfo1))
                         {
-                            continue;
+                            list1.add(levelrenderer$renderchunkinfo1);
                         }
 
-                        LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo2 = renderInfoMap.get(chunkrenderdispatcher$renderchunk4);
+                        int j1 = list1.size();
+                        this.addRenderChunkInfo(renderInfoMap, levelrenderer$renderchunkinfo, chunkrenderdispatcher$renderchunk1, direction, blockpos, list1);
 
-                        if (levelrenderer$renderchunkinfo2 == null)
+                        if (list1.size() > j1)
                         {
-                            continue;
+                            set1.add(list1.get(j1));
                         }
                     }
+                }
+            }
+
+            list = list1;
+        }
+    }
+
+    private void updateRenderChunkVisibility(List<LevelRenderer.RenderChunkInfo> renderInfos, int[] visibilities, int from, int to, LevelRenderer.RenderInfoMap renderInfoMap, BlockPos cameraChunkPos, BlockPos cameraChunkCenter, Vec3 viewPos, boolean smartCull, Vec3M vecPos, Vec3M vecStep, Vec3M vecDist)
+    {
+        for (int i = from; i < to; ++i)
+        {
+            LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo = renderInfos.get(i);
+            ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk = levelrenderer$renderchunkinfo.chunk;
+            BlockPos blockpos = chunkrenderdispatcher$renderchunk.getOrigin();
+            Direction direction = Direction.getNearest((float)(blockpos.getX() - cameraChunkPos.getX()), (float)(blockpos.getY() - cameraChunkPos.getY()), (float)(blockpos.getZ() - cameraChunkPos.getZ()));
+            boolean flag = Math.abs(blockpos.getX() - cameraChunkPos.getX()) > 60 || Math.abs(blockpos.getY() - cameraChunkPos.getY()) > 60 || Math.abs(blockpos.getZ() - cameraChunkPos.getZ()) > 60;
+            int j = 0;
+
+            for (int k = 0; k < DIRECTIONS.length; ++k)
+            {
+                Direction direction1 = DIRECTIONS[k];
+                ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk1 = this.getRelativeFrom(cameraChunkPos, chunkrenderdispatcher$renderchunk, direction1);
 
-                    if (smartCull && flag1)
+                if (chunkrenderdispatcher$renderchunk1 == null)
+                {
+                    if (!this.closeToBorder(cameraChunkPos, chunkrenderdispatcher$renderchunk))
                     {
-                        BlockPos blockpos2;
-                        byte b1;
-                        label150:
-                        {
-                            label149:
-                            {
-                                blockpos2 = chunkrenderdispatcher$renderchunk2.getOrigin();
+                        this.nextFullUpdateMillis.set(System.currentTimeMillis() + 1000L);
+                    }
+                }
+                else if (!smartCull || !levelrenderer$renderchunkinfo.hasDirection(direction1.getOpposite()))
+                {
+                    j |= this.getRenderChunkVisibility(renderInfoMap, levelrenderer$renderchunkinfo, chunkrenderdispatcher$renderchunk1, direction1, direction, flag, cameraChunkPos, cameraChunkCenter, viewPos, smartCull, vecPos, vecStep, vecDist) << k * 2;
+                }
+            }
 
-                                if (direction1.getAxis() == Direction.Axis.X)
-                                {
-                                    if (blockpos1.getX() <= blockpos2.getX())
-                                    {
-                                        break label149;
-                                    }
-                                }
-                                else if (blockpos1.getX() >= blockpos2.getX())
-                                {
-                                    break label149;
-                                }
+            visibilities[i] = j;
+        }
+    }
 
-                                b1 = 16;
-                                break label150;
-                            }
-                            b1 = 0;
-                        }
-                        byte b2;
-                        label142:
-                        {
-                            label141:
-                            {
-                                if (direction1.getAxis() == Direction.Axis.Y)
-                                {
-                                    if (blockpos1.getY() <= blockpos2.getY())
-                                    {
-                                        break label141;
-                                    }
-                                }
-                                else if (blockpos1.getY() >= blockpos2.getY())
-                                {
-                                    break label141;
-                                }
+    private void addRenderChunkInfo(LevelRenderer.RenderInfoMap renderInfoMap, LevelRenderer.RenderChunkInfo renderInfo, ChunkRenderDispatcher.RenderChunk renderChunkNext, Direction facing, BlockPos cameraChunkPos, Collection<LevelRenderer.RenderChunkInfo> renderQueue)
+    {
+        LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo = renderInfoMap.get(renderChunkNext);
 
-                                b2 = 16;
-                                break label142;
-                            }
-                            b2 = 0;
-                        }
-                        byte b0;
-                        label134:
-                        {
-                            label133:
-                            {
-                                if (direction1.getAxis() == Direction.Axis.Z)
-                                {
-                                    if (blockpos1.getZ() <= blockpos2.getZ())
-                                    {
-                                        break label133;
-                                    }
-                                }
-                                else if (blockpos1.getZ() >= blockpos2.getZ())
-                                {
-                                    break label133;
-                                }
+        if (levelrenderer$renderchunkinfo != null)
+        {
+            levelrenderer$renderchunkinfo.addSourceDirection(facing);
+        }
+        else if (!renderChunkNext.hasAllNeighbors())
+        {
+            if (!this.closeToBorder(cameraChunkPos, renderInfo.chunk))
+            {
+                this.nextFullUpdateMillis.set(System.currentTimeMillis() + 500L);
+            }
+        }
+        else
+        {
+            LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo1 = renderChunkNext.getRenderInfo(facing, renderInfo.step + 1);
+            levelrenderer$renderchunkinfo1.setDirection(renderInfo.directions, facing);
+            renderQueue.add(levelrenderer$renderchunkinfo1);
+            renderInfoMap.put(renderChunkNext, levelrenderer$renderchunkinfo1);
+        }
+    }
 
-                                b0 = 16;
-                                break label134;
-                            }
-                            b0 = 0;
-                        }
-                        Vec3M vec3m = renderChunkStorage.vec3M1.set((double)blockpos2.getX() + (double)b1, (double)blockpos2.getY() + (double)b2, (double)blockpos2.getZ() + (double)b0);
-                        Vec3M vec3m1 = renderChunkStorage.vec3M2.set(viewPos).subtract(vec3m).normalize().scale(CEILED_SECTION_DIAGONAL);
-                        boolean flag3 = true;
+    private int getRenderChunkVisibility(LevelRenderer.RenderInfoMap renderInfoMap, LevelRenderer.RenderChunkInfo renderInfo, ChunkRenderDispatcher.RenderChunk renderChunkNext, Direction facing, Direction facingNearest, boolean far, BlockPos cameraChunkPos, BlockPos cameraChunkCenter, Vec3 viewPos, boolean smartCull, Vec3M vecPos, Vec3M vecStep, Vec3M vecDist)
+    {
+        if (smartCull && renderInfo.hasSourceDirections())
+        {
+            ChunkRenderDispatcher.CompiledChunk chunkrenderdispatcher$compiledchunk1 = renderInfo.chunk.getCompiledChunk();
+            boolean flag2 = false;
 
-                        while (renderChunkStorage.vec3M3.set(viewPos).subtract(vec3m).lengthSquared() > 3600.0D)
-                        {
-                            vec3m = vec3m.add(vec3m1);
+            for (int j = 0; j < DIRECTIONS.length; ++j)
+            {
+                if (renderInfo.hasSourceDirection(j) && chunkrenderdispatcher$compiledchunk1.facesCanSeeEachother(DIRECTIONS[j].getOpposite(), facing))
+                {
+                    flag2 = true;
+                    break;
+                }
+            }
 
-                            if (vec3m.y > (double)this.level.getMaxBuildHeight() || vec3m.y < (double)this.level.getMinBuildHeight())
-                            {
-                                break;
-                            }
+            if (!flag2)
+            {
+                return VISIBILITY_NONE;
+            }
+        }
 
-                            ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk3 = this.viewArea.getRenderChunkAt(new BlockPos(vec3m.x, vec3m.y, vec3m.z));
+        if (smartCull && far && renderInfo.hasSourceDirections() && !renderInfo.hasSourceDirection(facingNearest.ordinal()))
+        {
+            ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk4 = this.getRelativeFrom(cameraChunkPos, renderInfo.chunk, facingNearest.getOpposite());
 
-                            if (chunkrenderdispatcher$renderchunk3 == null || renderInfoMap.get(chunkrenderdispatcher$renderchunk3) == null)
-                            {
-                                flag3 = false;
-                                break;
-                            }
-                        }
+            if (chunkrenderdispatcher$renderchunk4 == null)
+            {
+                return VISIBILITY_NONE;
+            }
 
-                        if (!flag3)
+            LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo2 = renderInfoMap.get(chunkrenderdispatcher$renderchunk4);
+
+            if (levelrenderer$renderchunkinfo2 == null)
+            {
+                return VISIBILITY_NONE;
+            }
+        }
+
+        if (smartCull && far)
+        {
+            BlockPos blockpos2;
+            byte b1;
+            label150:
+            {
+                label149:
+                {
+                    blockpos2 = renderChunkNext.getOrigin();
+
+                    if (facing.getAxis() == Direction.Axis.X)
+                    {
+                        if (cameraChunkCenter.getX() <= blockpos2.getX())
                         {
-                            continue;
+                            break label149;
                         }
                     }
+                    else if (cameraChunkCenter.getX() >= blockpos2.getX())
+                    {
+                        break label149;
+                    }
 
-                    LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo1 = renderInfoMap.get(chunkrenderdispatcher$renderchunk2);
-
-                    if (levelrenderer$renderchunkinfo1 != null)
+                    b1 = 16;
+                    break label150;
+                }
+                b1 = 0;
+            }
+            byte b2;
+            label142:
+            {
+                label141:
+                {
+                    if (facing.getAxis() == Direction.Axis.Y)
                     {
-                        levelrenderer$renderchunkinfo1.addSourceDirection(direction1);
+                        if (cameraChunkCenter.getY() <= blockpos2.getY())
+                        {
+                            break label141;
+                        }
+                    }
+                    else if (cameraChunkCenter.getY() >= blockpos2.getY())
+                    {
+                        break label141;
                     }
-                    else if (!chunkrenderdispatcher$renderchunk2.hasAllNeighbors())
+
+                    b2 = 16;
+                    break label142;
+                }
+                b2 = 0;
+            }
+            byte b0;
+            label134:
+            {
+                label133:
+                {
+                    if (facing.getAxis() == Direction.Axis.Z)
                     {
-                        if (!this.closeToBorder(blockpos, chunkrenderdispatcher$renderchunk))
+                        if (cameraChunkCenter.getZ() <= blockpos2.getZ())
                         {
-                            this.nextFullUpdateMillis.set(System.currentTimeMillis() + 500L);
+                            break label133;
                         }
                     }
-                    else
+                    else if (cameraChunkCenter.getZ() >= blockpos2.getZ())
                     {
-                        LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo3 = chunkrenderdispatcher$renderchunk2.getRenderInfo(direction1, levelrenderer$renderchunkinfo.step + 1);
-                        levelrenderer$renderchunkinfo3.setDirection(levelrenderer$renderchunkinfo.directions, direction1);
-                        renderQueue.add(levelrenderer$renderchunkinfo3);
-                        renderInfoMap.put(chunkrenderdispatcher$renderchunk2, levelrenderer$renderchunkinfo3);
+                        break label133;
                     }
+
+                    b0 = 16;
+                    break label134;
                 }
+                b0 = 0;
+            }
+            Vec3M vec3m = vecPos.set((double)blockpos2.getX() + (double)b1, (double)blockpos2.getY() + (double)b2, (double)blockpos2.getZ() + (double)b0);
+            Vec3M vec3m1 = vecStep.set(viewPos).subtract(vec3m).normalize().scale(CEILED_SECTION_DIAGONAL);
+            boolean flag3 = true;
+
+            while (vecDist.set(viewPos).subtract(vec3m).lengthSquared() > 3600.0D)
+            {
+                vec3m = vec3m.add(vec3m1);
+
+                if (vec3m.y > (double)this.level.getMaxBuildHeight() || vec3m.y < (double)this.level.getMinBuildHeight())
+                {
+                    break;
+                }
+
+                ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk3 = this.viewArea.getRenderChunkAt(new BlockPos(vec3m.x, vec3m.y, vec3m.z));
+
+                if (chunkrenderdispatcher$renderchunk3 == null || renderInfoMap.get(chunkrenderdispatcher$renderchunk3) == null)
+                {
+                    flag3 = false;
+                    break;
+                }
+            }
+
+            if (!flag3)
+            {
+                return VISIBILITY_RAY_BLOCKED;
             }
         }
+
+        return VISIBILITY_VISIBLE;
     }
 
     @Nullable
@@ -1652,6 +1986,7 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         this.setupRender(pRenderBlockOutline, frustum, flag1, this.minecraft.player.isSpectator());
         profilerfiller.popPush("compilechunks");
         this.compileChunks(pRenderBlockOutline);
+        this.chunkRenderDispatcher.updateTaskPriorities(frustum, vec3, this.frameId);
         profilerfiller.popPush("terrain");
         Lagometer.timerTerrain.start();
 
@@ -1698,6 +2033,12 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         this.renderedEntities = 0;
         this.culledEntities = 0;
         this.countTileEntitiesRendered = 0;
+        boolean flag7 = EntityOcclusionCuller.isEnabled() && !Shaders.isShadowPass && !this.minecraft.player.isSpectator();
+
+        if (flag7)
+        {
+            this.entityOcclusionCuller.beginFrame(this.level, d0, d1, d2);
+        }
 
         if (this.itemEntityTarget != null)
         {
@@ -1743,6 +2084,17 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
 
                 if ((this.entityRenderDispatcher.shouldRender(entity, frustum, d0, d1, d2) || entity.hasIndirectPassenger(this.minecraft.player)) && (entity != pRenderBlockOutline.getEntity() || pRenderBlockOutline.isDetached() || pRenderBlockOutline.getEntity() instanceof LivingEntity && ((LivingEntity)pRenderBlockOutline.getEntity()).isSleeping()) && (!(entity instanceof LocalPlayer) || pRenderBlockOutline.getEntity() == entity || flag5))
                 {
+                    if (flag7 && entity != pRenderBlockOutline.getEntity() && !entity.hasIndirectPassenger(this.minecraft.player))
+                    {
+                        this.entityOcclusionCuller.addEntity(entity);
+
+                        if (this.entityOcclusionCuller.isHidden(entity) && !this.minecraft.shouldEntityAppearGlowing(entity))
+                        {
+                            ++this.culledEntities;
+                            continue;
+                        }
+                    }
+
                     String s = entity.getClass().getName();
                     List<Entity> list = this.mapEntityLists.get(s);
 
@@ -1833,7 +2185,7 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
                 while (true)
                 {
                     BlockEntity blockentity1;
-                    AABB aabb1;
+                    AABB aabb1 = null;
 
                     do
                     {
@@ -1853,6 +2205,17 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
                     }
                     while (aabb1 != null && !frustum1.isVisible(aabb1));
 
+                    if (flag7)
+                    {
+                        this.entityOcclusionCuller.addBlockEntity(blockentity1, flag6 ? aabb1 : null);
+
+                        if (this.entityOcclusionCuller.isHidden(blockentity1))
+                        {
+                            ++this.culledEntities;
+                            continue;
+                        }
+                    }
+
                     if (flag2)
                     {
                         Shaders.nextBlockEntity(blockentity1);
@@ -1929,6 +2292,11 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
             }
         }
 
+        if (flag7)
+        {
+            this.entityOcclusionCuller.endFrame();
+        }
+
         this.checkPoseStack(pPoseStack);
         multibuffersource$buffersource.endBatch(RenderType.solid());
         multibuffersource$buffersource.endBatch(RenderType.endPortal());
@@ -3373,10 +3741,12 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         BlockPos blockpos = p_194371_.getBlockPosition();
         List<ChunkRenderDispatcher.RenderChunk> list = Lists.newArrayList();
         Lagometer.timerChunkUpdate.start();
+        long j = System.nanoTime();
 
         for (LevelRenderer.RenderChunkInfo levelrenderer$renderchunkinfo : this.renderChunksInFrustum)
         {
             ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk = levelrenderer$renderchunkinfo.chunk;
+            chunkrenderdispatcher$renderchunk.setFrameVisible(this.frameId);
             ChunkPos chunkpos = new ChunkPos(chunkrenderdispatcher$renderchunk.getOrigin());
 
             if (chunkrenderdispatcher$renderchunk.isDirty() && this.level.getChunk(chunkpos.x, chunkpos.z).isClientLightReady())
@@ -3419,8 +3789,9 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
 
         Lagometer.timerChunkUpdate.end();
         Lagometer.timerChunkUpload.start();
+        long k = System.nanoTime();
         this.minecraft.getProfiler().popPush("upload");
-        this.chunkRenderDispatcher.uploadAllPendingUploads();
+        this.chunkRenderDispatcher.uploadPendingUploads(ChunkBuildScheduler.getUploadBudgetNano());
         this.minecraft.getProfiler().popPush("schedule_async_compile");
 
         if (this.chunksToResortTransparency.size() > 0)
@@ -3465,6 +3836,8 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         }
 
         Lagometer.timerChunkUpload.end();
+        long l = System.nanoTime();
+        this.chunkRenderDispatcher.updateScheduler(k - j, l - k);
         this.minecraft.getProfiler().pop();
     }
 
@@ -3790,6 +4163,7 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
     private void setSectionDirty(int pSectionX, int pSectionY, int pSectionZ, boolean pReRenderOnMainThread)
     {
         this.viewArea.setDirty(pSectionX, pSectionY, pSectionZ, pReRenderOnMainThread);
+        this.entityOcclusionCuller.onSectionDirty(pSectionX, pSectionY, pSectionZ);
     }
 
     public void playStreamingMusic(@Nullable SoundEvent pSoundEvent, BlockPos pPos)
@@ -5062,10 +5436,50 @@ public class LevelRenderer implements ResourceManagerReloadListener, AutoCloseab
         }
     }
 
+    class VisibilityTask extends RecursiveAction
+    {
+        private final List<LevelRenderer.RenderChunkInfo> renderInfos;
+        private final int[] visibilities;
+        private final int from;
+        private final int to;
+        private final LevelRenderer.RenderInfoMap renderInfoMap;
+        private final BlockPos cameraChunkPos;
+        private final BlockPos cameraChunkCenter;
+        private final Vec3 viewPos;
+        private final boolean smartCull;
+
+        public VisibilityTask(List<LevelRenderer.RenderChunkInfo> renderInfos, int[] visibilities, int from, int to, LevelRenderer.RenderInfoMap renderInfoMap, BlockPos cameraChunkPos, BlockPos cameraChunkCenter, Vec3 viewPos, boolean smartCull)
+        {
+            this.renderInfos = renderInfos;
+            this.visibilities = visibilities;
+            this.from = from;
+            this.to = to;
+            this.renderInfoMap = renderInfoMap;
+            this.cameraChunkPos = cameraChunkPos;
+            this.cameraChunkCenter = cameraChunkCenter;
+            this.viewPos = viewPos;
+            this.smartCull = smartCull;
+        }
+
+        protected void compute()
+        {
+            if (this.to - this.from > LevelRenderer.VISIBILITY_PARALLEL_MIN)
+            {
+                int i = this.from + this.to >>> 1;
+                invokeAll(LevelRenderer.this.new VisibilityTask(this.renderInfos, this.visibilities, this.from, i, this.renderInfoMap, this.cameraChunkPos, this.cameraChunkCenter, this.viewPos, this.smartCull), LevelRenderer.this.new VisibilityTask(this.renderInfos, this.visibilities, i, this.to, this.renderInfoMap, this.cameraChunkPos, this.cameraChunkCenter, this.viewPos, this.smartCull));
+            }
+            else
+            {
+                LevelRenderer.this.updateRenderChunkVisibility(this.renderInfos, this.visibilities, this.from, this.to, this.renderInfoMap, this.cameraChunkPos, this.cameraChunkCenter, this.viewPos, this.smartCull, new Vec3M(0.0D, 0.0D, 0.0D), new Vec3M(0.0D, 0.0D, 0.0D), new Vec3M(0.0D, 0.0D, 0.0D));
+            }
+        }
+    }
+
     static class RenderChunkStorage
     {
         public final LevelRenderer.RenderInfoMap renderInfoMap;
         public final Set<LevelRenderer.RenderChunkInfo> renderChunks;
+        public final Set<LevelRenderer.RenderChunkInfo> renderChunksRayBlocked = new ObjectLinkedOpenHashSet<>();
         public final Vec3M vec3M1 = new Vec3M(0.0D, 0.0D, 0.0D);
         public final Vec3M vec3M2 = new Vec3M(0.0D, 0.0D, 0.0D);
         public final Vec3M vec3M3 = new Vec3M(0.0D, 0.0D, 0.0D);
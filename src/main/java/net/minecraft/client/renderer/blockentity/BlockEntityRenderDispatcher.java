@@ -24,6 +24,7 @@ import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.phys.HitResult;
 import net.optifine.EmissiveTextures;
+import net.optifine.entity.model.anim.RenderEntityParameterFloat;
 
 public class BlockEntityRenderDispatcher implements ResourceManagerReloadListener
 {
@@ -89,6 +90,7 @@ public class BlockEntityRenderDispatcher implements ResourceManagerReloadListene
         }
 
         tileEntityRendered = pBlockEntity;
+        RenderEntityParameterFloat.resetCache();
 
         if (EmissiveTextures.isActive())
         {
@@ -110,6 +112,7 @@ public class BlockEntityRenderDispatcher implements ResourceManagerReloadListene
         }
 
         tileEntityRendered = null;
+        RenderEntityParameterFloat.resetCache();
     }
 
     public <E extends BlockEntity> boolean renderItem(E pBlockEntity, PoseStack pPoseStack, MultiBufferSource pBufferSource, int pPackedLight, int pPackedOverlay)
@@ -125,8 +128,10 @@ public class BlockEntityRenderDispatcher implements ResourceManagerReloadListene
             tryRender(pBlockEntity, () ->
             {
                 tileEntityRendered = pBlockEntity;
+                RenderEntityParameterFloat.resetCache();
                 blockentityrenderer.render(pBlockEntity, 0.0F, pPoseStack, pBufferSource, pPackedLight, pPackedOverlay);
                 tileEntityRendered = null;
+                RenderEntityParameterFloat.resetCache();
             });
             return false;
         }
@@ -11,6 +11,7 @@ import com.mojang.blaze3d.vertex.VertexBuffer;
 import com.mojang.blaze3d.vertex.VertexFormat;
 import it.unimi.dsi.fastutil.objects.ObjectArraySet;
 import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
@@ -38,6 +39,7 @@ import net.minecraft.client.renderer.ViewArea;
 import net.minecraft.client.renderer.block.BlockRenderDispatcher;
 import net.minecraft.client.renderer.block.ModelBlockRenderer;
 import net.minecraft.client.renderer.blockentity.BlockEntityRenderer;
+import net.minecraft.client.renderer.culling.Frustum;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.SectionPos;
@@ -59,13 +61,16 @@ import net.minecraftforge.client.model.ModelDataManager;
 import net.minecraftforge.client.model.data.EmptyModelData;
 import net.minecraftforge.client.model.data.IModelData;
 import net.optifine.BlockPosM;
+import net.optifine.ChunkBuildScheduler;
 import net.optifine.Config;
 import net.optifine.CustomBlockLayers;
 import net.optifine.override.ChunkCacheOF;
 import net.optifine.reflect.Reflector;
 import net.optifine.render.AabbFrame;
+import net.optifine.render.ChunkBufferArena;
 import net.optifine.render.ChunkLayerMap;
 import net.optifine.render.ChunkLayerSet;
+import net.optifine.render.ChunkMeshCache;
 import net.optifine.render.ICamera;
 import net.optifine.render.RenderEnv;
 import net.optifine.render.RenderTypes;
@@ -82,19 +87,26 @@ public class ChunkRenderDispatcher
     private static final VertexFormat VERTEX_FORMAT = DefaultVertexFormat.BLOCK;
     private static final int MAX_HIGH_PRIORITY_QUOTA = 2;
     private final PriorityQueue<ChunkRenderDispatcher.RenderChunk.ChunkCompileTask> toBatchHighPriority = Queues.newPriorityQueue();
-    private final Queue<ChunkRenderDispatcher.RenderChunk.ChunkCompileTask> toBatchLowPriority = Queues.newArrayDeque();
+    private final PriorityQueue<ChunkRenderDispatcher.RenderChunk.ChunkCompileTask> toBatchLowPriority = Queues.newPriorityQueue();
     private int highPriorityQuota = 2;
     private final Queue<ChunkBufferBuilderPack> freeBuffers;
     private final Queue<Runnable> toUpload = Queues.newConcurrentLinkedQueue();
     private volatile int toBatchCount;
     private volatile int freeBufferCount;
     final ChunkBufferBuilderPack fixedBuffers;
+    private final ChunkBufferArena bufferArena = new ChunkBufferArena();
+    private final ChunkMeshCache meshCache = ChunkMeshCache.open();
     private final ProcessorMailbox<Runnable> mailbox;
     private final Executor executor;
     ClientLevel level;
     final LevelRenderer renderer;
     private Vec3 camera = Vec3.ZERO;
     private int countRenderBuilders;
+    private int countActiveBuilders;
+    private volatile int countTasksSkipped;
+    private int countResortsPerformed;
+    private int countResortsSkipped;
+    private static final boolean TRANSLUCENCY_TOPOLOGICAL = Boolean.getBoolean("chunk.translucency.topological");
     private List<ChunkBufferBuilderPack> listPausedBuilders = new ArrayList<>();
     public static final RenderType[] BLOCK_RENDER_LAYERS = RenderType.chunkBufferLayers().toArray(new RenderType[0]);
     private static final boolean FORGE = Reflector.ForgeHooksClient.exists();
@@ -102,6 +114,7 @@ public class ChunkRenderDispatcher
     private static final boolean FORGE_CAN_RENDER_IN_LAYER_FS = Reflector.ForgeRenderTypeLookup_canRenderInLayerBs.exists();
     private static final boolean FORGE_SET_RENDER_TYPE = Reflector.ForgeHooksClient_setRenderType.exists();
     public static int renderChunksUpdated;
+    public static int renderChunksMoved;
 
     public ChunkRenderDispatcher(ClientLevel p_194405_, LevelRenderer p_194406_, Executor p_194407_, boolean p_194408_, ChunkBufferBuilderPack p_194409_)
     {
@@ -112,7 +125,7 @@ public class ChunkRenderDispatcher
     {
         this.level = worldIn;
         this.renderer = worldRendererIn;
-        int i = Math.max(1, (int)((double)Runtime.getRuntime().maxMemory() * 0.3D) / (RenderType.chunkBufferLayers().stream().mapToInt(RenderType::bufferSize).sum() * 4) - 1);
+        int i = Math.max(1, (int)((double)Runtime.getRuntime().maxMemory() * 0.3D) / (RenderType.solid().bufferSize() * 4) - 1);
         int j = Runtime.getRuntime().availableProcessors();
         int k = java64bit ? j : Math.min(j, 4);
         int l = Math.max(1, Math.min(k, i));
@@ -129,7 +142,7 @@ public class ChunkRenderDispatcher
         {
             for (int i1 = 0; i1 < l; ++i1)
             {
-                list.add(new ChunkBufferBuilderPack());
+                list.add(new ChunkBufferBuilderPack(this.bufferArena));
             }
         }
         catch (OutOfMemoryError outofmemoryerror1)
@@ -148,6 +161,7 @@ public class ChunkRenderDispatcher
         this.freeBuffers = Queues.newConcurrentLinkedQueue(list);
         this.freeBufferCount = this.freeBuffers.size();
         this.countRenderBuilders = this.freeBufferCount;
+        ChunkBuildScheduler.init(this.countRenderBuilders);
         this.executor = executorIn;
         this.mailbox = ProcessorMailbox.create(executorIn, "Chunk Renderer");
         this.mailbox.tell(this::runTask);
@@ -160,11 +174,20 @@ public class ChunkRenderDispatcher
 
     private void runTask()
     {
-        if (!this.freeBuffers.isEmpty())
+        while (!this.freeBuffers.isEmpty() && this.countActiveBuilders < ChunkBuildScheduler.getBuildersLimit())
         {
             ChunkRenderDispatcher.RenderChunk.ChunkCompileTask chunkrenderdispatcher$renderchunk$chunkcompiletask = this.pollTask();
 
-            if (chunkrenderdispatcher$renderchunk$chunkcompiletask != null)
+            if (chunkrenderdispatcher$renderchunk$chunkcompiletask == null)
+            {
+                return;
+            }
+            else if (chunkrenderdispatcher$renderchunk$chunkcompiletask.isCancelled.get())
+            {
+                ++this.countTasksSkipped;
+                this.toBatchCount = this.toBatchHighPriority.size() + this.toBatchLowPriority.size();
+            }
+            else
             {
                 ChunkBufferBuilderPack chunkbufferbuilderpack = this.freeBuffers.poll();
 
@@ -174,6 +197,7 @@ public class ChunkRenderDispatcher
                     return;
                 }
 
+                ++this.countActiveBuilders;
                 this.toBatchCount = this.toBatchHighPriority.size() + this.toBatchLowPriority.size();
                 this.freeBufferCount = this.freeBuffers.size();
                 CompletableFuture.supplyAsync(Util.wrapThreadWithTaskName(chunkrenderdispatcher$renderchunk$chunkcompiletask.name(), () ->
@@ -204,7 +228,13 @@ public class ChunkRenderDispatcher
 
                             this.freeBuffers.add(chunkbufferbuilderpack);
                             this.freeBufferCount = this.freeBuffers.size();
+                            --this.countActiveBuilders;
                             this.runTask();
+
+                            if (this.countActiveBuilders <= 0 && this.toBatchCount <= 0)
+                            {
+                                this.bufferArena.trim();
+                            }
                         });
                     }
                 });
@@ -242,7 +272,13 @@ public class ChunkRenderDispatcher
 
     public String getStats()
     {
-        return String.format("pC: %03d, pU: %02d, aB: %02d", this.toBatchCount, this.toUpload.size(), this.freeBufferCount);
+        return String.format("pC: %03d, pU: %02d, aB: %02d, bL: %d/%d, uB: %.1f, sT: %d, tS: %d/%d, bM: %d/%d", this.toBatchCount, this.toUpload.size(), this.freeBufferCount, ChunkBuildScheduler.getBuildersLimit(), ChunkBuildScheduler.getBuildersMax(), (double)ChunkBuildScheduler.getUploadBudgetNano() / 1000000.0D, this.countTasksSkipped, this.countResortsPerformed, this.countResortsSkipped, this.bufferArena.getBytesAllocated() >> 20, this.bufferArena.getBytesFree() >> 20) + (this.meshCache != null ? ", " + this.meshCache.getStats() : "");
+    }
+
+    @Nullable
+    public ChunkMeshCache getMeshCache()
+    {
+        return this.meshCache;
     }
 
     public int getToBatchCount()
@@ -260,6 +296,59 @@ public class ChunkRenderDispatcher
         return this.freeBufferCount;
     }
 
+    public int getCountTasksSkipped()
+    {
+        return this.countTasksSkipped;
+    }
+
+    public int getCountResortsPerformed()
+    {
+        return this.countResortsPerformed;
+    }
+
+    public int getCountResortsSkipped()
+    {
+        return this.countResortsSkipped;
+    }
+
+    public void updateTaskPriorities(Frustum frustum, Vec3 cameraPos, int frameId)
+    {
+        if (this.toBatchCount > 0)
+        {
+            Frustum frustum1 = new Frustum(frustum);
+            this.mailbox.tell(() ->
+            {
+                this.updateTaskPriorities(this.toBatchHighPriority, frustum1, cameraPos, frameId);
+                this.updateTaskPriorities(this.toBatchLowPriority, frustum1, cameraPos, frameId);
+                this.toBatchCount = this.toBatchHighPriority.size() + this.toBatchLowPriority.size();
+            });
+        }
+    }
+
+    private void updateTaskPriorities(PriorityQueue<ChunkRenderDispatcher.RenderChunk.ChunkCompileTask> queue, Frustum frustum, Vec3 cameraPos, int frameId)
+    {
+        if (!queue.isEmpty())
+        {
+            List<ChunkRenderDispatcher.RenderChunk.ChunkCompileTask> list = new ArrayList<>(queue);
+            queue.clear();
+
+            for (int i = 0; i < list.size(); ++i)
+            {
+                ChunkRenderDispatcher.RenderChunk.ChunkCompileTask chunkrenderdispatcher$renderchunk$chunkcompiletask = list.get(i);
+
+                if (chunkrenderdispatcher$renderchunk$chunkcompiletask.isCancelled.get())
+                {
+                    ++this.countTasksSkipped;
+                }
+                else
+                {
+                    chunkrenderdispatcher$renderchunk$chunkcompiletask.updatePriority(frustum, cameraPos, frameId);
+                    queue.add(chunkrenderdispatcher$renderchunk$chunkcompiletask);
+                }
+            }
+        }
+    }
+
     public void setCamera(Vec3 pCamera)
     {
         this.camera = pCamera;
@@ -280,6 +369,30 @@ public class ChunkRenderDispatcher
         }
     }
 
+    public void uploadPendingUploads(long budgetNano)
+    {
+        long i = System.nanoTime() + budgetNano;
+        Runnable runnable;
+
+        while ((runnable = this.toUpload.poll()) != null)
+        {
+            runnable.run();
+
+            if (System.nanoTime() > i)
+            {
+                break;
+            }
+        }
+    }
+
+    public void updateScheduler(long timeUpdateNano, long timeUploadNano)
+    {
+        if (ChunkBuildScheduler.update(timeUpdateNano, timeUploadNano, this.toBatchCount > 0))
+        {
+            this.mailbox.tell(this::runTask);
+        }
+    }
+
     public void rebuildChunkSync(ChunkRenderDispatcher.RenderChunk p_200432_, RenderRegionCache p_200433_)
     {
         p_200432_.compileSync(p_200433_);
@@ -357,6 +470,12 @@ public class ChunkRenderDispatcher
         this.clearBatchQueue();
         this.mailbox.close();
         this.freeBuffers.clear();
+        this.bufferArena.close();
+
+        if (this.meshCache != null)
+        {
+            this.meshCache.close();
+        }
     }
 
     public void pauseChunkUpdates()
@@ -535,6 +654,7 @@ public class ChunkRenderDispatcher
         private boolean renderChunkNeighboursUpated = false;
         private LevelRenderer.RenderChunkInfo renderInfo = new LevelRenderer.RenderChunkInfo(this, (Direction)null, 0);
         public AabbFrame boundingBoxParent;
+        private volatile int frameVisible = -1;
 
         public RenderChunk(int p_173720_)
         {
@@ -563,6 +683,7 @@ public class ChunkRenderDispatcher
             {
                 this.reset();
                 this.origin.set(pX, pY, pZ);
+                ++ChunkRenderDispatcher.renderChunksMoved;
 
                 if (this.renderRegions)
                 {
@@ -613,6 +734,195 @@ public class ChunkRenderDispatcher
             pBuilder.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.BLOCK);
         }
 
+        private ChunkMeshCache.Key makeMeshKey(ChunkMeshCache meshCache, ChunkCacheOF chunkCache, BlockPos posIn, List<BlockPos> blockEntities)
+        {
+            ChunkMeshCache.Hasher chunkmeshcache$hasher = meshCache.newHasher();
+            int i = posIn.getX();
+            int j = posIn.getY();
+            int k = posIn.getZ();
+            chunkmeshcache$hasher.add(i);
+            chunkmeshcache$hasher.add(j);
+            chunkmeshcache$hasher.add(k);
+            chunkmeshcache$hasher.add(this.regionDX);
+            chunkmeshcache$hasher.add(this.regionDY);
+            chunkmeshcache$hasher.add(this.regionDZ);
+            BlockPosM blockposm = new BlockPosM();
+
+            for (int l = -1; l <= 16; ++l)
+            {
+                for (int i1 = -1; i1 <= 16; ++i1)
+                {
+                    for (int j1 = -1; j1 <= 16; ++j1)
+                    {
+                        blockposm.setXyz(i + j1, j + l, k + i1);
+                        BlockState blockstate = chunkCache.getBlockState(blockposm);
+                        chunkmeshcache$hasher.add(Block.getId(blockstate));
+                        chunkmeshcache$hasher.add(LevelRenderer.getLightColor(chunkCache, blockstate, blockposm));
+
+                        if (blockstate.hasBlockEntity() && l >= 0 && l < 16 && i1 >= 0 && i1 < 16 && j1 >= 0 && j1 < 16)
+                        {
+                            blockEntities.add(blockposm.immutable());
+                        }
+                    }
+                }
+            }
+
+            int k2 = (Config.getBiomeBlendRadius() + 3) / 4 * 4 + 4;
+
+            for (int l1 = -4; l1 <= 16; l1 += 4)
+            {
+                for (int i2 = -k2; i2 <= 16 + k2; i2 += 4)
+                {
+                    for (int j2 = -k2; j2 <= 16 + k2; j2 += 4)
+                    {
+                        blockposm.setXyz(i + j2, j + l1, k + i2);
+                        chunkmeshcache$hasher.add(meshCache.getBiomeHash(ChunkRenderDispatcher.this.level, chunkCache.getBiome(blockposm)));
+                    }
+                }
+            }
+
+            return chunkmeshcache$hasher.getKey();
+        }
+
+        private ByteBuffer saveMesh(ChunkRenderDispatcher.CompiledChunk compiledChunk, ChunkBufferBuilderPack builders)
+        {
+            int i = 16;
+
+            for (RenderType rendertype : compiledChunk.hasLayer)
+            {
+                BufferBuilder bufferbuilder = builders.builder(rendertype);
+                int j = bufferbuilder.animatedSprites != null ? bufferbuilder.animatedSprites.toLongArray().length : 0;
+                i += 12 + j * 8 + bufferbuilder.getVertexCount() * bufferbuilder.getVertexFormat().getVertexSize();
+            }
+
+            ByteBuffer bytebuffer = ByteBuffer.allocate(i);
+            int i1 = 0;
+            int j1 = 0;
+
+            for (RenderType rendertype1 : RenderType.CHUNK_RENDER_TYPES)
+            {
+                if (compiledChunk.hasLayer.contains(rendertype1))
+                {
+                    i1 |= 1 << rendertype1.ordinal();
+                }
+
+                if (compiledChunk.hasBlocks.contains(rendertype1))
+                {
+                    j1 |= 1 << rendertype1.ordinal();
+                }
+            }
+
+            bytebuffer.putLong(0L);
+            bytebuffer.putInt(i1);
+            bytebuffer.putInt(j1);
+
+            for (RenderType rendertype2 : RenderType.CHUNK_RENDER_TYPES)
+            {
+                if (compiledChunk.hasLayer.contains(rendertype2))
+                {
+                    BufferBuilder bufferbuilder1 = builders.builder(rendertype2);
+                    long[] along = bufferbuilder1.animatedSprites != null ? bufferbuilder1.animatedSprites.toLongArray() : new long[0];
+                    int k = bufferbuilder1.getVertexFormat().getVertexSize();
+                    int l = bufferbuilder1.getVertexCount() * k;
+                    bytebuffer.putInt(k);
+                    bytebuffer.putInt(l);
+                    bytebuffer.putInt(along.length);
+
+                    for (long k1 : along)
+                    {
+                        bytebuffer.putLong(k1);
+                    }
+
+                    ByteBuffer bytebuffer1 = bufferbuilder1.getByteBuffer().duplicate();
+                    bytebuffer1.limit(bufferbuilder1.getStartPosition() + l);
+                    bytebuffer1.position(bufferbuilder1.getStartPosition());
+                    bytebuffer.put(bytebuffer1);
+                }
+            }
+
+            bytebuffer.flip();
+            return bytebuffer;
+        }
+
+        private boolean loadMesh(ByteBuffer data, ChunkRenderDispatcher.CompiledChunk compiledChunk, ChunkBufferBuilderPack builders)
+        {
+            RenderType[] arendertype = RenderType.CHUNK_RENDER_TYPES;
+            ByteBuffer[] abytebuffer = new ByteBuffer[arendertype.length];
+            long[][] along = new long[arendertype.length][];
+            long i;
+            int j;
+            int k;
+
+            try
+            {
+                i = data.getLong();
+                j = data.getInt();
+                k = data.getInt();
+
+                for (int l = 0; l < arendertype.length; ++l)
+                {
+                    if ((j & 1 << l) != 0)
+                    {
+                        int i1 = data.getInt();
+                        int j1 = data.getInt();
+                        int k1 = data.getInt();
+
+                        if (i1 != DefaultVertexFormat.BLOCK.getVertexSize() || j1 < 0 || j1 % i1 != 0 || k1 < 0 || k1 > 1024)
+                        {
+                            return false;
+                        }
+
+                        along[l] = new long[k1];
+
+                        for (int l1 = 0; l1 < k1; ++l1)
+                        {
+                            along[l][l1] = data.getLong();
+                        }
+
+                        ByteBuffer bytebuffer = data.slice();
+                        bytebuffer.limit(j1);
+                        data.position(data.position() + j1);
+                        abytebuffer[l] = bytebuffer;
+                    }
+                }
+            }
+            catch (RuntimeException runtimeexception)
+            {
+                return false;
+            }
+
+            for (int i2 = 0; i2 < arendertype.length; ++i2)
+            {
+                if (abytebuffer[i2] != null)
+                {
+                    RenderType rendertype = arendertype[i2];
+                    BufferBuilder bufferbuilder = builders.builder(rendertype);
+                    bufferbuilder.setBlockLayer(rendertype);
+                    compiledChunk.hasLayer.add(rendertype);
+                    this.beginLayer(bufferbuilder);
+
+                    if (abytebuffer[i2].hasRemaining())
+                    {
+                        bufferbuilder.putBulkData(abytebuffer[i2]);
+                    }
+
+                    if (bufferbuilder.animatedSprites != null)
+                    {
+                        bufferbuilder.animatedSprites.or(BitSet.valueOf(along[i2]));
+                    }
+                }
+
+                if ((k & 1 << i2) != 0)
+                {
+                    compiledChunk.hasBlocks.add(arendertype[i2]);
+                    compiledChunk.isCompletelyEmpty = false;
+                }
+            }
+
+            compiledChunk.visibilitySet.setBits(i);
+            return true;
+        }
+
         public ChunkRenderDispatcher.CompiledChunk getCompiledChunk()
         {
             return this.compiled.get();
@@ -680,6 +990,20 @@ public class ChunkRenderDispatcher
         {
             ChunkRenderDispatcher.CompiledChunk chunkrenderdispatcher$compiledchunk = this.getCompiledChunk();
 
+            if (ChunkRenderDispatcher.TRANSLUCENCY_TOPOLOGICAL && chunkrenderdispatcher$compiledchunk.transparencyState != null && chunkrenderdispatcher$compiledchunk.hasLayer.contains(pType))
+            {
+                Vec3 vec3 = pDispatcher.getCameraPosition();
+                float f = (float)this.regionDX + (float)vec3.x - (float)this.origin.getX();
+                float f1 = (float)this.regionDY + (float)vec3.y - (float)this.origin.getY();
+                float f2 = (float)this.regionDZ + (float)vec3.z - (float)this.origin.getZ();
+
+                if (chunkrenderdispatcher$compiledchunk.transparencyState.isSameSortRegion(f, f1, f2))
+                {
+                    ++pDispatcher.countResortsSkipped;
+                    return true;
+                }
+            }
+
             if (this.lastResortTransparencyTask != null)
             {
                 this.lastResortTransparencyTask.cancel();
@@ -701,6 +1025,7 @@ public class ChunkRenderDispatcher
                 }
 
                 pDispatcher.schedule(this.lastResortTransparencyTask);
+                ++pDispatcher.countResortsPerformed;
                 return true;
             }
         }
@@ -963,6 +1288,11 @@ public class ChunkRenderDispatcher
             return this.renderChunkNeighboursValid[facing.ordinal()];
         }
 
+        public void setFrameVisible(int frameId)
+        {
+            this.frameVisible = frameId;
+        }
+
         public LevelRenderer.RenderChunkInfo getRenderInfo()
         {
             return this.renderInfo;
@@ -1040,6 +1370,7 @@ public class ChunkRenderDispatcher
         abstract class ChunkCompileTask implements Comparable<ChunkRenderDispatcher.RenderChunk.ChunkCompileTask>
         {
             protected final double distAtCreation;
+            protected double priority;
             protected final AtomicBoolean isCancelled = new AtomicBoolean(false);
             protected final boolean isHighPriority;
             protected Map<BlockPos, IModelData> modelData;
@@ -1052,6 +1383,7 @@ public class ChunkRenderDispatcher
             public ChunkCompileTask(ChunkPos pos, double distanceSqIn, boolean highPriorityIn)
             {
                 this.distAtCreation = distanceSqIn;
+                this.priority = distanceSqIn;
                 this.isHighPriority = highPriorityIn;
 
                 if (pos == null)
@@ -1072,7 +1404,23 @@ public class ChunkRenderDispatcher
 
             public int compareTo(ChunkRenderDispatcher.RenderChunk.ChunkCompileTask pOther)
             {
-                return Doubles.compare(this.distAtCreation, pOther.distAtCreation);
+                return Doubles.compare(this.priority, pOther.priority);
+            }
+
+            public void updatePriority(Frustum frustum, Vec3 cameraPos, int frameId)
+            {
+                AABB aabb = RenderChunk.this.bb;
+                double d0 = aabb.minX + 8.0D - cameraPos.x;
+                double d1 = aabb.minY + 8.0D - cameraPos.y;
+                double d2 = aabb.minZ + 8.0D - cameraPos.z;
+                double d3 = d0 * d0 + d1 * d1 + d2 * d2;
+
+                if (RenderChunk.this.frameVisible != frameId)
+                {
+                    d3 *= frustum.isVisible(aabb) ? 4.0D : 16.0D;
+                }
+
+                this.priority = d3;
             }
 
             public IModelData getModelData(BlockPos pos)
@@ -1085,6 +1433,7 @@ public class ChunkRenderDispatcher
         {
             @Nullable
             protected RenderChunkRegion region;
+            private final boolean firstCompile = RenderChunk.this.compiled.get() == ChunkRenderDispatcher.CompiledChunk.UNCOMPILED;
 
             public RebuildTask(double p_194427_, RenderChunkRegion p_194428_, boolean p_194429_)
             {
@@ -1174,12 +1523,39 @@ public class ChunkRenderDispatcher
                 Set<BlockEntity> set = Sets.newHashSet();
                 this.region = null;
                 PoseStack posestack = new PoseStack();
+                ChunkMeshCache chunkmeshcache = ChunkRenderDispatcher.this.meshCache;
+                ChunkMeshCache.Key chunkmeshcache$key = null;
+                ByteBuffer bytebuffer = null;
+                boolean flag2 = false;
 
                 if (!RenderChunk.this.isChunkRegionEmpty(blockpos))
                 {
                     ++ChunkRenderDispatcher.renderChunksUpdated;
                     ChunkCacheOF chunkcacheof = RenderChunk.this.makeChunkCacheOF(blockpos);
                     chunkcacheof.renderStart();
+
+                    if (chunkmeshcache != null && this.firstCompile && !Config.isShaders() && !Config.isMultiTexture() && !ChunkRenderDispatcher.FORGE)
+                    {
+                        List<BlockPos> list = new ArrayList<>();
+                        chunkmeshcache$key = RenderChunk.this.makeMeshKey(chunkmeshcache, chunkcacheof, blockpos, list);
+                        ByteBuffer bytebuffer1 = chunkmeshcache.get(chunkmeshcache$key);
+
+                        if (bytebuffer1 != null && RenderChunk.this.loadMesh(bytebuffer1, pCompiledChunk, pBuffers))
+                        {
+                            flag2 = true;
+
+                            for (BlockPos blockpos2 : list)
+                            {
+                                BlockEntity blockentity1 = chunkcacheof.getBlockEntity(blockpos2);
+
+                                if (blockentity1 != null)
+                                {
+                                    this.handleBlockEntity(pCompiledChunk, set, blockentity1);
+                                }
+                            }
+                        }
+                    }
+
                     RenderType[] arendertype = new RenderType[1];
                     boolean flag = Config.isShaders();
                     boolean flag1 = flag && Shaders.useMidBlockAttrib;
@@ -1187,7 +1563,9 @@ public class ChunkRenderDispatcher
                     Random random = new Random();
                     BlockRenderDispatcher blockrenderdispatcher = Minecraft.getInstance().getBlockRenderer();
 
-                    for (BlockPosM blockposm : (Iterable<BlockPosM>)BlockPosM.getAllInBoxMutable(blockpos, blockpos1))
+                    Iterable<BlockPosM> iterable = flag2 ? Collections.emptyList() : (Iterable<BlockPosM>)BlockPosM.getAllInBoxMutable(blockpos, blockpos1);
+
+                    for (BlockPosM blockposm : iterable)
                     {
                         BlockState blockstate = chunkcacheof.getBlockState(blockposm);
 
@@ -1305,6 +1683,11 @@ public class ChunkRenderDispatcher
                         }
                     }
 
+                    if (chunkmeshcache$key != null && !flag2)
+                    {
+                        bytebuffer = RenderChunk.this.saveMesh(pCompiledChunk, pBuffers);
+                    }
+
                     if (pCompiledChunk.hasBlocks.contains(RenderType.translucent()))
                     {
                         BufferBuilder bufferbuilder1 = pBuffers.builder(RenderType.translucent());
@@ -1338,7 +1721,17 @@ public class ChunkRenderDispatcher
                     ModelBlockRenderer.clearCache();
                 }
 
-                pCompiledChunk.visibilitySet = visgraph.resolve();
+                if (!flag2)
+                {
+                    pCompiledChunk.visibilitySet = visgraph.resolve();
+                }
+
+                if (bytebuffer != null)
+                {
+                    bytebuffer.putLong(0, pCompiledChunk.visibilitySet.getBits());
+                    chunkmeshcache.put(chunkmeshcache$key, bytebuffer);
+                }
+
                 return set;
             }
 
@@ -111,6 +111,25 @@ class RenderChunk
         }
     }
 
+    public boolean isDebug()
+    {
+        return this.debug;
+    }
+
+    @Nullable
+    public PalettedContainer<BlockState> getSectionStates(int sectionY)
+    {
+        if (this.sections == null)
+        {
+            return null;
+        }
+        else
+        {
+            int i = this.wrapped.getSectionIndexFromSectionY(sectionY);
+            return i >= 0 && i < this.sections.size() ? this.sections.get(i) : null;
+        }
+    }
+
     public LevelChunk getChunk()
     {
         return this.wrapped;
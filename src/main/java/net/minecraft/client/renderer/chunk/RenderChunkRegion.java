@@ -11,6 +11,7 @@ import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.PalettedContainer;
 import net.minecraft.world.level.lighting.LevelLightEngine;
 import net.minecraft.world.level.material.FluidState;
 
@@ -85,4 +86,15 @@ public class RenderChunkRegion implements BlockAndTintGetter
     {
         return this.chunks[ix][iz].getChunk();
     }
+
+    public boolean isDebug()
+    {
+        return this.chunks[0][0].isDebug();
+    }
+
+    @Nullable
+    public PalettedContainer<BlockState> getSectionStates(int ix, int sectionY, int iz)
+    {
+        return this.chunks[ix][iz].getSectionStates(sectionY);
+    }
 }
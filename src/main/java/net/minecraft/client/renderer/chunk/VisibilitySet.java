@@ -37,6 +37,16 @@ public class VisibilitySet
         }
     }
 
+    public long getBits()
+    {
+        return this.bits;
+    }
+
+    public void setBits(long bits)
+    {
+        this.bits = bits;
+    }
+
     public boolean visibilityBetween(Direction pFace, Direction pOtherFace)
     {
         return this.getBit(pFace.ordinal() + pOtherFace.ordinal() * FACINGS);
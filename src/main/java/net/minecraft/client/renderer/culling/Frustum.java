@@ -219,6 +219,19 @@ public class Frustum implements ICamera
         }
     }
 
+    public void getPlanes(float[] planes)
+    {
+        for (int i = 0; i < 6; ++i)
+        {
+            Vector4f vector4f = this.frustumData[i];
+            int j = i * 4;
+            planes[j] = vector4f.x();
+            planes[j + 1] = vector4f.y();
+            planes[j + 2] = vector4f.z();
+            planes[j + 3] = vector4f.w();
+        }
+    }
+
     public double getCameraX()
     {
         return this.camX;
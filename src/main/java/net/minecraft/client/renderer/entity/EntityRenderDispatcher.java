@@ -53,6 +53,7 @@ import net.optifine.Config;
 import net.optifine.DynamicLights;
 import net.optifine.EmissiveTextures;
 import net.optifine.entity.model.CustomEntityModels;
+import net.optifine.entity.model.anim.RenderEntityParameterFloat;
 import net.optifine.player.PlayerItemsLayer;
 import net.optifine.reflect.Reflector;
 import net.optifine.reflect.ReflectorForge;
@@ -166,6 +167,7 @@ public class EntityRenderDispatcher implements ResourceManagerReloadListener
                 {
                     this.renderRender = entityrenderer;
                     this.renderEntity = pEntity;
+                    RenderEntityParameterFloat.resetCache();
                 }
 
                 if (EmissiveTextures.isActive())
@@ -191,6 +193,7 @@ public class EntityRenderDispatcher implements ResourceManagerReloadListener
                 {
                     this.renderRender = null;
                     this.renderEntity = null;
+                    RenderEntityParameterFloat.resetCache();
                 }
 
                 if (pEntity.displayFireAnimation())
@@ -24,6 +24,7 @@ import net.minecraft.world.entity.player.PlayerModelPart;
 import net.minecraft.world.scores.Team;
 import net.optifine.Config;
 import net.optifine.entity.model.CustomEntityModels;
+import net.optifine.entity.model.anim.RenderEntityParameterFloat;
 import net.optifine.reflect.Reflector;
 import net.optifine.shaders.Shaders;
 import org.apache.logging.log4j.LogManager;
@@ -164,6 +165,7 @@ public abstract class LivingEntityRenderer<T extends LivingEntity, M extends Ent
                 this.renderHeadYaw = f2;
                 this.renderHeadPitch = f7;
                 this.renderPartialTicks = pPartialTicks;
+                RenderEntityParameterFloat.resetCache();
             }
 
             boolean flag = Config.isShaders();
@@ -1123,6 +1123,11 @@ public class TextureAtlas extends AbstractTexture implements Tickable
         }
     }
 
+    public Collection<TextureAtlasSprite> getUploadedSprites()
+    {
+        return this.texturesByName.values();
+    }
+
     public Collection<TextureAtlasSprite> getRegisteredSprites()
     {
         return Collections.unmodifiableCollection(this.mapRegisteredSprites.values());
@@ -1,10 +1,10 @@
 package net.minecraft.network;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.zip.Inflater;
 
@@ -15,6 +15,7 @@ public class CompressionDecoder extends ByteToMessageDecoder
     private final Inflater inflater;
     private int threshold;
     private boolean validateDecompressed;
+    private byte[] inputBuf = new byte[0];
 
     public CompressionDecoder(int pThreshold, boolean pValidateDecompressed)
     {
@@ -32,7 +33,7 @@ public class CompressionDecoder extends ByteToMessageDecoder
 
             if (i == 0)
             {
-                p_129443_.add(friendlybytebuf.readBytes(friendlybytebuf.readableBytes()));
+                p_129443_.add(friendlybytebuf.readRetainedSlice(friendlybytebuf.readableBytes()));
             }
             else
             {
@@ -49,17 +50,70 @@ public class CompressionDecoder extends ByteToMessageDecoder
                     }
                 }
 
-                byte[] abyte = new byte[friendlybytebuf.readableBytes()];
-                friendlybytebuf.readBytes(abyte);
-                this.inflater.setInput(abyte);
-                byte[] abyte1 = new byte[i];
-                this.inflater.inflate(abyte1);
-                p_129443_.add(Unpooled.wrappedBuffer(abyte1));
-                this.inflater.reset();
+                int j = p_129442_.readableBytes();
+                this.setInput(p_129442_, j);
+                ByteBuf bytebuf = p_129441_.alloc().directBuffer(i, i);
+
+                try
+                {
+                    ByteBuffer bytebuffer = bytebuf.internalNioBuffer(0, i);
+
+                    while (!this.inflater.finished() && bytebuffer.hasRemaining())
+                    {
+                        if (this.inflater.inflate(bytebuffer) == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary()))
+                        {
+                            break;
+                        }
+                    }
+
+                    int k = (int)this.inflater.getBytesWritten();
+
+                    if (k < i)
+                    {
+                        if (this.validateDecompressed)
+                        {
+                            throw new DecoderException("Badly compressed packet - actual length of uncompressed payload " + k + " does not match declared size " + i);
+                        }
+
+                        bytebuf.setZero(k, i - k);
+                    }
+
+                    bytebuf.writerIndex(i);
+                    p_129442_.skipBytes(j);
+                    p_129443_.add(bytebuf);
+                    bytebuf = null;
+                }
+                finally
+                {
+                    this.inflater.reset();
+
+                    if (bytebuf != null)
+                    {
+                        bytebuf.release();
+                    }
+                }
             }
         }
     }
 
+    private void setInput(ByteBuf buf, int length)
+    {
+        if (buf.nioBufferCount() == 1)
+        {
+            this.inflater.setInput(buf.nioBuffer(buf.readerIndex(), length));
+        }
+        else
+        {
+            if (this.inputBuf.length < length)
+            {
+                this.inputBuf = new byte[length];
+            }
+
+            buf.getBytes(buf.readerIndex(), this.inputBuf, 0, length);
+            this.inflater.setInput(this.inputBuf, 0, length);
+        }
+    }
+
     public void setThreshold(int pThreshold, boolean pValidateDecompressed)
     {
         this.threshold = pThreshold;
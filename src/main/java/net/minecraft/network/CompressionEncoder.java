@@ -3,11 +3,12 @@ package net.minecraft.network;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
+import java.nio.ByteBuffer;
 import java.util.zip.Deflater;
 
 public class CompressionEncoder extends MessageToByteEncoder<ByteBuf>
 {
-    private final byte[] encodeBuf = new byte[8192];
+    private byte[] encodeBuf = new byte[0];
     private final Deflater deflater;
     private int threshold;
 
@@ -29,22 +30,55 @@ public class CompressionEncoder extends MessageToByteEncoder<ByteBuf>
         }
         else
         {
-            byte[] abyte = new byte[i];
-            p_129453_.readBytes(abyte);
-            friendlybytebuf.writeVarInt(abyte.length);
-            this.deflater.setInput(abyte, 0, i);
+            friendlybytebuf.writeVarInt(i);
+            this.setInput(p_129453_, i);
             this.deflater.finish();
 
-            while (!this.deflater.finished())
+            try
             {
-                int j = this.deflater.deflate(this.encodeBuf);
-                friendlybytebuf.writeBytes(this.encodeBuf, 0, j);
+                while (!this.deflater.finished())
+                {
+                    p_129454_.ensureWritable(Math.max(256, i >> 3));
+                    int j = p_129454_.writerIndex();
+                    ByteBuffer bytebuffer = p_129454_.internalNioBuffer(j, p_129454_.writableBytes());
+                    int k = this.deflater.deflate(bytebuffer);
+                    p_129454_.writerIndex(j + k);
+                }
+
+                p_129453_.skipBytes(i);
+            }
+            finally
+            {
+                this.deflater.reset();
+            }
+        }
+    }
+
+    private void setInput(ByteBuf buf, int length)
+    {
+        if (buf.nioBufferCount() == 1)
+        {
+            this.deflater.setInput(buf.nioBuffer(buf.readerIndex(), length));
+        }
+        else
+        {
+            if (this.encodeBuf.length < length)
+            {
+                this.encodeBuf = new byte[length];
             }
 
-            this.deflater.reset();
+            buf.getBytes(buf.readerIndex(), this.encodeBuf, 0, length);
+            this.deflater.setInput(this.encodeBuf, 0, length);
         }
     }
 
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect)
+    {
+        int i = msg.readableBytes();
+        int j = i < this.threshold ? i + 1 : i + (i >> 12) + (i >> 14) + (i >> 25) + 13 + 5;
+        return preferDirect ? ctx.alloc().ioBuffer(j) : ctx.alloc().heapBuffer(j);
+    }
+
     public int getThreshold()
     {
         return this.threshold;
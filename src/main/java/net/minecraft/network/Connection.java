@@ -9,6 +9,7 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.DefaultEventLoopGroup;
 import io.netty.channel.EventLoopGroup;
@@ -29,6 +30,7 @@ import io.netty.util.concurrent.GenericFutureListener;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import javax.crypto.Cipher;
 import net.minecraft.network.chat.Component;
@@ -36,6 +38,10 @@ import net.minecraft.network.chat.TranslatableComponent;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.PacketFlow;
 import net.minecraft.network.protocol.game.ClientboundDisconnectPacket;
+import net.minecraft.network.protocol.game.ClientboundKeepAlivePacket;
+import net.minecraft.network.protocol.game.ClientboundPingPacket;
+import net.minecraft.network.protocol.game.ServerboundKeepAlivePacket;
+import net.minecraft.network.protocol.game.ServerboundPongPacket;
 import net.minecraft.network.protocol.login.ClientboundLoginDisconnectPacket;
 import net.minecraft.server.RunningOnDifferentThreadException;
 import net.minecraft.server.network.ServerGamePacketListenerImpl;
@@ -51,6 +57,10 @@ import org.apache.logging.log4j.MarkerManager;
 public class Connection extends SimpleChannelInboundHandler < Packet<? >>
 {
     private static final float AVERAGE_PACKETS_SMOOTHING = 0.75F;
+    private static final boolean BATCH_ENABLED = !Boolean.getBoolean("network.batch.disabled");
+    private static final int BATCH_PACKETS = Integer.getInteger("network.batch.packets", 64);
+    private static final int BATCH_BYTES = Integer.getInteger("network.batch.bytes", 16384);
+    private static final int BATCH_LATENCY_MS = Integer.getInteger("network.batch.latency", 5);
     private static final Logger LOGGER = LogManager.getLogger();
     public static final Marker ROOT_MARKER = MarkerManager.getMarker("NETWORK");
     public static final Marker PACKET_MARKER = MarkerManager.getMarker("NETWORK_PACKETS", ROOT_MARKER);
@@ -81,6 +91,16 @@ public class Connection extends SimpleChannelInboundHandler < Packet<? >>
     private float averageSentPackets;
     private int tickCount;
     private boolean handlingFault;
+    private int pendingPackets;
+    private boolean flushScheduled;
+    private volatile long flushCount;
+    private volatile long flushPackets;
+    private volatile long flushBytes;
+    private long lastFlushCount;
+    private long lastFlushPackets;
+    private long lastFlushBytes;
+    private float averagePacketsPerFlush;
+    private float averageBytesPerFlush;
 
     public Connection(PacketFlow p_129482_)
     {
@@ -240,7 +260,34 @@ public class Connection extends SimpleChannelInboundHandler < Packet<? >>
             this.setProtocol(p_178306_);
         }
 
-        ChannelFuture channelfuture = this.channel.writeAndFlush(p_178304_);
+        ChannelFuture channelfuture;
+
+        if (!BATCH_ENABLED)
+        {
+            channelfuture = this.channel.writeAndFlush(p_178304_);
+        }
+        else
+        {
+            channelfuture = this.channel.write(p_178304_);
+            ++this.pendingPackets;
+
+            if (p_178305_ == null && p_178306_ == p_178307_ && p_178306_ == ConnectionProtocol.PLAY && !isImmediate(p_178304_))
+            {
+                if (this.pendingPackets >= BATCH_PACKETS || this.getPendingBytes() >= (long)BATCH_BYTES)
+                {
+                    this.flushPending();
+                }
+                else if (!this.flushScheduled)
+                {
+                    this.flushScheduled = true;
+                    this.channel.eventLoop().schedule(this::flushScheduled, (long)BATCH_LATENCY_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+            else
+            {
+                this.flushPending();
+            }
+        }
 
         if (p_178305_ != null)
         {
@@ -250,6 +297,35 @@ public class Connection extends SimpleChannelInboundHandler < Packet<? >>
         channelfuture.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
     }
 
+    private static boolean isImmediate(Packet<?> packet)
+    {
+        return packet instanceof ClientboundKeepAlivePacket || packet instanceof ServerboundKeepAlivePacket || packet instanceof ClientboundPingPacket || packet instanceof ServerboundPongPacket || packet instanceof ClientboundDisconnectPacket;
+    }
+
+    private long getPendingBytes()
+    {
+        ChannelOutboundBuffer channeloutboundbuffer = this.channel.unsafe().outboundBuffer();
+        return channeloutboundbuffer == null ? 0L : channeloutboundbuffer.totalPendingWriteBytes();
+    }
+
+    private void flushScheduled()
+    {
+        this.flushScheduled = false;
+        this.flushPending();
+    }
+
+    private void flushPending()
+    {
+        if (this.pendingPackets > 0)
+        {
+            this.flushBytes += this.getPendingBytes();
+            this.flushPackets += (long)this.pendingPackets;
+            ++this.flushCount;
+            this.pendingPackets = 0;
+            this.channel.flush();
+        }
+    }
+
     private ConnectionProtocol getCurrentProtocol()
     {
         return this.channel.attr(ATTRIBUTE_PROTOCOL).get();
@@ -292,7 +368,18 @@ public class Connection extends SimpleChannelInboundHandler < Packet<? >>
 
         if (this.channel != null)
         {
-            this.channel.flush();
+            if (!BATCH_ENABLED)
+            {
+                this.channel.flush();
+            }
+            else if (this.channel.eventLoop().inEventLoop())
+            {
+                this.flushPending();
+            }
+            else
+            {
+                this.channel.eventLoop().execute(this::flushPending);
+            }
         }
 
         if (this.tickCount++ % 20 == 0)
@@ -307,6 +394,20 @@ public class Connection extends SimpleChannelInboundHandler < Packet<? >>
         this.averageReceivedPackets = Mth.lerp(0.75F, (float)this.receivedPackets, this.averageReceivedPackets);
         this.sentPackets = 0;
         this.receivedPackets = 0;
+        long i = this.flushCount;
+        long j = this.flushPackets;
+        long k = this.flushBytes;
+
+        if (i > this.lastFlushCount)
+        {
+            float f = (float)(i - this.lastFlushCount);
+            this.averagePacketsPerFlush = Mth.lerp(0.75F, (float)(j - this.lastFlushPackets) / f, this.averagePacketsPerFlush);
+            this.averageBytesPerFlush = Mth.lerp(0.75F, (float)(k - this.lastFlushBytes) / f, this.averageBytesPerFlush);
+        }
+
+        this.lastFlushCount = i;
+        this.lastFlushPackets = j;
+        this.lastFlushBytes = k;
     }
 
     public SocketAddress getRemoteAddress()
@@ -318,6 +419,7 @@ public class Connection extends SimpleChannelInboundHandler < Packet<? >>
     {
         if (this.channel.isOpen())
         {
+            this.channel.flush();
             this.channel.close().awaitUninterruptibly();
             this.disconnectedReason = pMessage;
         }
@@ -494,6 +596,21 @@ public class Connection extends SimpleChannelInboundHandler < Packet<? >>
         return this.averageSentPackets;
     }
 
+    public boolean isBatching()
+    {
+        return BATCH_ENABLED;
+    }
+
+    public float getAveragePacketsPerFlush()
+    {
+        return this.averagePacketsPerFlush;
+    }
+
+    public float getAverageBytesPerFlush()
+    {
+        return this.averageBytesPerFlush;
+    }
+
     static class PacketHolder
     {
         final Packet<?> packet;
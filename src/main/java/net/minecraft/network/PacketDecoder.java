@@ -8,6 +8,7 @@ import java.util.List;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.PacketFlow;
 import net.minecraft.util.profiling.jfr.JvmProfiler;
+import net.optifine.util.PacketMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.Marker;
@@ -32,7 +33,9 @@ public class PacketDecoder extends ByteToMessageDecoder
         {
             FriendlyByteBuf friendlybytebuf = new FriendlyByteBuf(p_130536_);
             int j = friendlybytebuf.readVarInt();
-            Packet<?> packet = p_130535_.channel().attr(Connection.ATTRIBUTE_PROTOCOL).get().createPacket(this.flow, j, friendlybytebuf);
+            long l = System.nanoTime();
+            ConnectionProtocol connectionprotocol = p_130535_.channel().attr(Connection.ATTRIBUTE_PROTOCOL).get();
+            Packet<?> packet = connectionprotocol.createPacket(this.flow, j, friendlybytebuf);
 
             if (packet == null)
             {
@@ -42,6 +45,7 @@ public class PacketDecoder extends ByteToMessageDecoder
             {
                 int k = p_130535_.channel().attr(Connection.ATTRIBUTE_PROTOCOL).get().getId();
                 JvmProfiler.INSTANCE.onPacketReceived(k, j, p_130535_.channel().remoteAddress(), i);
+                PacketMetrics.INSTANCE.onDecoded(connectionprotocol, this.flow, packet, i, System.nanoTime() - l);
 
                 if (friendlybytebuf.readableBytes() > 0)
                 {
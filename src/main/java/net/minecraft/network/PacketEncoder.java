@@ -7,6 +7,7 @@ import java.io.IOException;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.PacketFlow;
 import net.minecraft.util.profiling.jfr.JvmProfiler;
+import net.optifine.util.PacketMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.Marker;
@@ -52,7 +53,9 @@ public class PacketEncoder extends MessageToByteEncoder < Packet<? >>
                 try
                 {
                     int i = friendlybytebuf.writerIndex();
+                    long l = System.nanoTime();
                     p_130546_.write(friendlybytebuf);
+                    long i1 = System.nanoTime() - l;
                     int j = friendlybytebuf.writerIndex() - i;
 
                     if (j > 8388608)
@@ -63,6 +66,7 @@ public class PacketEncoder extends MessageToByteEncoder < Packet<? >>
                     {
                         int k = p_130545_.channel().attr(Connection.ATTRIBUTE_PROTOCOL).get().getId();
                         JvmProfiler.INSTANCE.onPacketSent(k, integer, p_130545_.channel().remoteAddress(), j);
+                        PacketMetrics.INSTANCE.onEncoded(connectionprotocol, this.flow, p_130546_, j, i1);
                     }
                 }
                 catch (Throwable throwable)
@@ -1,7 +1,6 @@
 package net.minecraft.network;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.CorruptedFrameException;
@@ -12,9 +11,9 @@ public class Varint21FrameDecoder extends ByteToMessageDecoder
     protected void decode(ChannelHandlerContext p_130566_, ByteBuf p_130567_, List<Object> p_130568_)
     {
         p_130567_.markReaderIndex();
-        byte[] abyte = new byte[3];
+        int i = 0;
 
-        for (int i = 0; i < abyte.length; ++i)
+        for (int j = 0; j < 3; ++j)
         {
             if (!p_130567_.isReadable())
             {
@@ -22,29 +21,18 @@ public class Varint21FrameDecoder extends ByteToMessageDecoder
                 return;
             }
 
-            abyte[i] = p_130567_.readByte();
+            byte b0 = p_130567_.readByte();
+            i |= (b0 & 127) << j * 7;
 
-            if (abyte[i] >= 0)
+            if (b0 >= 0)
             {
-                FriendlyByteBuf friendlybytebuf = new FriendlyByteBuf(Unpooled.wrappedBuffer(abyte));
-
-                try
-                {
-                    int j = friendlybytebuf.readVarInt();
-
-                    if (p_130567_.readableBytes() >= j)
-                    {
-                        p_130568_.add(p_130567_.readBytes(j));
-                        return;
-                    }
-
-                    p_130567_.resetReaderIndex();
-                }
-                finally
+                if (p_130567_.readableBytes() >= i)
                 {
-                    friendlybytebuf.release();
+                    p_130568_.add(p_130567_.readRetainedSlice(i));
+                    return;
                 }
 
+                p_130567_.resetReaderIndex();
                 return;
             }
         }
@@ -40,6 +40,11 @@ public class ClientboundEntityEventPacket implements Packet<ClientGamePacketList
         return pLevel.getEntity(this.entityId);
     }
 
+    public int getEntityId()
+    {
+        return this.entityId;
+    }
+
     public byte getEventId()
     {
         return this.eventId;
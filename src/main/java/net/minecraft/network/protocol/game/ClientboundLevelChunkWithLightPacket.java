@@ -1,12 +1,14 @@
 package net.minecraft.network.protocol.game;
 
 import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nullable;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.lighting.LevelLightEngine;
+import net.optifine.ChunkPacketDecoder;
 
 public class ClientboundLevelChunkWithLightPacket implements Packet<ClientGamePacketListener>
 {
@@ -14,6 +16,7 @@ public class ClientboundLevelChunkWithLightPacket implements Packet<ClientGamePa
     private final int z;
     private final ClientboundLevelChunkPacketData chunkData;
     private final ClientboundLightUpdatePacketData lightData;
+    private volatile CompletableFuture<ChunkPacketDecoder.Result> decodeFuture;
 
     public ClientboundLevelChunkWithLightPacket(LevelChunk p_195704_, LevelLightEngine p_195705_, @Nullable BitSet p_195706_, @Nullable BitSet p_195707_, boolean p_195708_)
     {
@@ -64,4 +67,14 @@ public class ClientboundLevelChunkWithLightPacket implements Packet<ClientGamePa
     {
         return this.lightData;
     }
+
+    public CompletableFuture<ChunkPacketDecoder.Result> getDecodeFuture()
+    {
+        return this.decodeFuture;
+    }
+
+    public void setDecodeFuture(CompletableFuture<ChunkPacketDecoder.Result> decodeFuture)
+    {
+        this.decodeFuture = decodeFuture;
+    }
 }
@@ -1,17 +1,20 @@
 package net.minecraft.network.protocol.game;
 
 import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nullable;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.lighting.LevelLightEngine;
+import net.optifine.ChunkPacketDecoder;
 
 public class ClientboundLightUpdatePacket implements Packet<ClientGamePacketListener>
 {
     private final int x;
     private final int z;
     private final ClientboundLightUpdatePacketData lightData;
+    private volatile CompletableFuture<ChunkPacketDecoder.Result> decodeFuture;
 
     public ClientboundLightUpdatePacket(ChunkPos pChunkPos, LevelLightEngine pLightEngine, @Nullable BitSet pChangedSkySections, @Nullable BitSet pChangedBlockSections, boolean pTrustEdges)
     {
@@ -53,4 +56,14 @@ public class ClientboundLightUpdatePacket implements Packet<ClientGamePacketList
     {
         return this.lightData;
     }
+
+    public CompletableFuture<ChunkPacketDecoder.Result> getDecodeFuture()
+    {
+        return this.decodeFuture;
+    }
+
+    public void setDecodeFuture(CompletableFuture<ChunkPacketDecoder.Result> decodeFuture)
+    {
+        this.decodeFuture = decodeFuture;
+    }
 }
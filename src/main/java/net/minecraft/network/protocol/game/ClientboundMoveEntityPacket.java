@@ -73,6 +73,11 @@ public abstract class ClientboundMoveEntityPacket implements Packet<ClientGamePa
         return pLevel.getEntity(this.entityId);
     }
 
+    public int getEntityId()
+    {
+        return this.entityId;
+    }
+
     public short getXa()
     {
         return this.xa;
@@ -41,6 +41,11 @@ public class ClientboundRemoveMobEffectPacket implements Packet<ClientGamePacket
         return pLevel.getEntity(this.entityId);
     }
 
+    public int getEntityId()
+    {
+        return this.entityId;
+    }
+
     @Nullable
     public MobEffect getEffect()
     {
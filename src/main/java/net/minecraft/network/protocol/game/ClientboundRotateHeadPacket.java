@@ -38,6 +38,11 @@ public class ClientboundRotateHeadPacket implements Packet<ClientGamePacketListe
         return pLevel.getEntity(this.entityId);
     }
 
+    public int getEntityId()
+    {
+        return this.entityId;
+    }
+
     public byte getYHeadRot()
     {
         return this.yHeadRot;
@@ -31,6 +31,7 @@ import net.minecraft.resources.ResourceKey;
 import net.minecraft.util.profiling.jfr.callback.ProfiledDuration;
 import net.minecraft.util.profiling.jfr.event.ChunkGenerationEvent;
 import net.minecraft.util.profiling.jfr.event.NetworkSummaryEvent;
+import net.minecraft.util.profiling.jfr.event.PacketHandledEvent;
 import net.minecraft.util.profiling.jfr.event.PacketReceivedEvent;
 import net.minecraft.util.profiling.jfr.event.PacketSentEvent;
 import net.minecraft.util.profiling.jfr.event.ServerTickTimeEvent;
@@ -47,7 +48,7 @@ public class JfrProfiler implements JvmProfiler
     public static final String WORLD_GEN_CATEGORY = "World Generation";
     public static final String TICK_CATEGORY = "Ticking";
     public static final String NETWORK_CATEGORY = "Network";
-    private static final List < Class <? extends Event >> CUSTOM_EVENTS = List.of(ChunkGenerationEvent.class, PacketReceivedEvent.class, PacketSentEvent.class, NetworkSummaryEvent.class, ServerTickTimeEvent.class, WorldLoadFinishedEvent.class);
+    private static final List < Class <? extends Event >> CUSTOM_EVENTS = List.of(ChunkGenerationEvent.class, PacketReceivedEvent.class, PacketSentEvent.class, PacketHandledEvent.class, NetworkSummaryEvent.class, ServerTickTimeEvent.class, WorldLoadFinishedEvent.class);
     private static final String FLIGHT_RECORDER_CONFIG = "/flightrecorder-config.jfc";
     private static final DateTimeFormatter DATE_TIME_FORMATTER = (new DateTimeFormatterBuilder()).appendPattern("yyyy-MM-dd-HHmmss").toFormatter().withZone(ZoneId.systemDefault());
     private static final JfrProfiler INSTANCE = new JfrProfiler();
@@ -245,6 +246,21 @@ public class JfrProfiler implements JvmProfiler
         }
     }
 
+    @Nullable
+    public ProfiledDuration onPacketHandled(String p_185327_, long p_185328_)
+    {
+        if (!PacketHandledEvent.TYPE.isEnabled())
+        {
+            return null;
+        }
+        else
+        {
+            PacketHandledEvent packethandledevent = new PacketHandledEvent(p_185327_, p_185328_);
+            packethandledevent.begin();
+            return packethandledevent::commit;
+        }
+    }
+
     private NetworkSummaryEvent.SumAggregation networkStatFor(SocketAddress p_185320_)
     {
         return this.networkTrafficByAddress.computeIfAbsent(p_185320_.toString(), NetworkSummaryEvent.SumAggregation::new);
@@ -28,6 +28,9 @@ public interface JvmProfiler
 
     void onPacketSent(int p_185351_, int p_185352_, SocketAddress p_185353_, int p_185354_);
 
+    @Nullable
+    ProfiledDuration onPacketHandled(String p_185355_, long p_185356_);
+
     @Nullable
     ProfiledDuration onWorldLoadedStarted();
 
@@ -74,6 +77,12 @@ public interface JvmProfiler
         {
         }
 
+        @Nullable
+        public ProfiledDuration onPacketHandled(String p_185379_, long p_185380_)
+        {
+            return null;
+        }
+
         public ProfiledDuration onWorldLoadedStarted()
         {
             return noOpCommit;
@@ -0,0 +1,46 @@
+package net.minecraft.util.profiling.jfr.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import net.minecraft.obfuscate.DontObfuscate;
+
+@Name("minecraft.PacketHandled")
+@Label("Network Packet Handled")
+@Category( {"Minecraft", "Network"})
+@StackTrace(false)
+@Enabled(false)
+@DontObfuscate
+public class PacketHandledEvent extends Event
+{
+    public static final String EVENT_NAME = "minecraft.PacketHandled";
+    public static final EventType TYPE = EventType.getEventType(PacketHandledEvent.class);
+    @Name("packetName")
+    @Label("Packet Name")
+    public final String packetName;
+    @Name("queueDuration")
+    @Label("Queue Duration")
+    @Timespan
+    public final long queueDurationNanos;
+
+    public PacketHandledEvent(String p_195610_, long p_195611_)
+    {
+        this.packetName = p_195610_;
+        this.queueDurationNanos = p_195611_;
+    }
+
+    public static class Fields
+    {
+        public static final String PACKET_NAME = "packetName";
+        public static final String QUEUE_DURATION = "queueDuration";
+
+        private Fields()
+        {
+        }
+    }
+}
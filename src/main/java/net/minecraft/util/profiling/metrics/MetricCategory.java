@@ -9,7 +9,8 @@ public enum MetricCategory
     JVM("jvm"),
     CHUNK_RENDERING("chunk rendering"),
     CHUNK_RENDERING_DISPATCHING("chunk rendering dispatching"),
-    CPU("cpu");
+    CPU("cpu"),
+    NETWORK("network");
 
     private final String description;
 
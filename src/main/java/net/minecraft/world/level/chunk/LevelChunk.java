@@ -538,12 +538,24 @@ public class LevelChunk extends ChunkAccess
     }
 
     public void replaceWithPacketData(FriendlyByteBuf p_187972_, CompoundTag p_187973_, Consumer<ClientboundLevelChunkPacketData.BlockEntityTagOutput> p_187974_)
+    {
+        this.replaceWithPacketData((LevelChunkSection[])null, p_187972_, p_187973_, p_187974_);
+    }
+
+    public void replaceWithPacketData(@Nullable LevelChunkSection[] decodedSections, FriendlyByteBuf p_187972_, CompoundTag p_187973_, Consumer<ClientboundLevelChunkPacketData.BlockEntityTagOutput> p_187974_)
     {
         this.clearAllBlockEntities();
 
-        for (LevelChunkSection levelchunksection : this.sections)
+        if (decodedSections != null && decodedSections.length == this.sections.length)
+        {
+            System.arraycopy(decodedSections, 0, this.sections, 0, this.sections.length);
+        }
+        else
         {
-            levelchunksection.read(p_187972_);
+            for (LevelChunkSection levelchunksection : this.sections)
+            {
+                levelchunksection.read(p_187972_);
+            }
         }
 
         for (Heightmap.Types heightmap$types : Heightmap.Types.values())
@@ -35,7 +35,9 @@ public class RegionFile implements AutoCloseable
     private static final int CHUNK_NOT_PRESENT = 0;
     private final FileChannel file;
     private final Path externalFileDir;
-    final RegionFileVersion version;
+    RegionFileVersion version;
+    @Nullable
+    private RegionFileDictionary dictionary;
     private final ByteBuffer header = ByteBuffer.allocateDirect(8192);
     private final IntBuffer offsets;
     private final IntBuffer timestamps;
@@ -218,7 +220,7 @@ public class RegionFile implements AutoCloseable
         }
         else
         {
-            return new DataInputStream(regionfileversion.wrap(pInputStream));
+            return new DataInputStream(regionfileversion.wrap(pInputStream, regionfileversion.isDictionary() ? this.getDictionary() : null));
         }
     }
 
@@ -335,7 +337,27 @@ public class RegionFile implements AutoCloseable
 
     public DataOutputStream getChunkDataOutputStream(ChunkPos pChunkPos) throws IOException
     {
-        return new DataOutputStream(this.version.wrap(new RegionFile.ChunkBuffer(pChunkPos)));
+        return new DataOutputStream(this.version.wrap(new RegionFile.ChunkBuffer(pChunkPos), this.version.isDictionary() ? this.getDictionary() : null));
+    }
+
+    private RegionFileDictionary getDictionary() throws IOException
+    {
+        if (this.dictionary == null)
+        {
+            this.dictionary = RegionFileDictionary.forFolder(this.externalFileDir);
+
+            if (this.dictionary == null)
+            {
+                throw new IOException("Missing region dictionary in " + this.externalFileDir);
+            }
+        }
+
+        return this.dictionary;
+    }
+
+    void setVersion(RegionFileVersion version)
+    {
+        this.version = version;
     }
 
     public void flush() throws IOException
@@ -0,0 +1,356 @@
+package net.minecraft.world.level.chunk.storage;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.Nullable;
+import net.minecraft.world.level.ChunkPos;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class RegionFileDictionary
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    public static final String FILE_NAME = "deflate.dict";
+    public static final int MAX_SIZE = 32768;
+    private static final int SHINGLE_SIZE = 8;
+    private static final int SEGMENT_SIZE = 64;
+    private static final Map<Path, RegionFileDictionary> DICTIONARIES = new ConcurrentHashMap<>();
+    private final byte[] data;
+    private final int id;
+
+    public RegionFileDictionary(byte[] data)
+    {
+        this.data = data;
+        this.id = getChecksum(data);
+    }
+
+    private static int getChecksum(byte[] data)
+    {
+        Adler32 adler32 = new Adler32();
+        adler32.update(data);
+        return (int)adler32.getValue();
+    }
+
+    public int getId()
+    {
+        return this.id;
+    }
+
+    public int getSize()
+    {
+        return this.data.length;
+    }
+
+    @Nullable
+    public static RegionFileDictionary forFolder(Path folder) throws IOException
+    {
+        Path path = folder.toAbsolutePath().normalize();
+        Path path1 = path.resolve(FILE_NAME);
+
+        if (!Files.isRegularFile(path1))
+        {
+            DICTIONARIES.remove(path);
+            return null;
+        }
+        else
+        {
+            byte[] abyte = Files.readAllBytes(path1);
+            int i = getChecksum(abyte);
+            RegionFileDictionary regionfiledictionary = DICTIONARIES.get(path);
+
+            if (regionfiledictionary == null || regionfiledictionary.id != i || regionfiledictionary.data.length != abyte.length)
+            {
+                regionfiledictionary = new RegionFileDictionary(abyte);
+                DICTIONARIES.put(path, regionfiledictionary);
+            }
+
+            return regionfiledictionary;
+        }
+    }
+
+    public static void release(Path folder)
+    {
+        DICTIONARIES.remove(folder.toAbsolutePath().normalize());
+    }
+
+    public static RegionFileDictionary create(Path folder, byte[] data) throws IOException
+    {
+        Path path = folder.toAbsolutePath().normalize();
+        Path path1 = path.resolve(FILE_NAME);
+
+        if (Files.exists(path1))
+        {
+            throw new IOException("Region dictionary already exists: " + path1);
+        }
+        else
+        {
+            Path path2 = Files.createTempFile(path, "tmp", (String)null);
+            FileChannel filechannel = FileChannel.open(path2, StandardOpenOption.WRITE);
+
+            try
+            {
+                ByteBuffer bytebuffer = ByteBuffer.wrap(data);
+
+                while (bytebuffer.hasRemaining())
+                {
+                    filechannel.write(bytebuffer);
+                }
+
+                filechannel.force(true);
+            }
+            finally
+            {
+                filechannel.close();
+            }
+
+            Files.move(path2, path1, StandardCopyOption.REPLACE_EXISTING);
+            RegionFileDictionary regionfiledictionary = forFolder(path);
+            int i = getChecksum(data);
+
+            if (regionfiledictionary != null && regionfiledictionary.id == i)
+            {
+                return regionfiledictionary;
+            }
+            else
+            {
+                throw new IOException("Region dictionary verification failed: " + path1);
+            }
+        }
+    }
+
+    public InputStream createInputStream(InputStream stream) throws IOException
+    {
+        int i = (new DataInputStream(stream)).readInt();
+
+        if (i != this.id)
+        {
+            throw new IOException("Region dictionary mismatch, expected " + Integer.toHexString(this.id) + ", found " + Integer.toHexString(i));
+        }
+        else
+        {
+            final Inflater inflater = new Inflater(true);
+            inflater.setDictionary(this.data);
+            return new InflaterInputStream(new SequenceInputStream(stream, new ByteArrayInputStream(new byte[1])), inflater)
+            {
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        inflater.end();
+                    }
+                }
+            };
+        }
+    }
+
+    public OutputStream createOutputStream(OutputStream stream) throws IOException
+    {
+        (new DataOutputStream(stream)).writeInt(this.id);
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setDictionary(this.data);
+        return new DeflaterOutputStream(stream, deflater)
+        {
+            public void close() throws IOException
+            {
+                try
+                {
+                    super.close();
+                }
+                finally
+                {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    public static void collectSamples(RegionFile regionFile, int maxCount, List<byte[]> samples) throws IOException
+    {
+        List<ChunkPos> list = new ArrayList<>();
+
+        for (int i = 0; i < 32; ++i)
+        {
+            for (int j = 0; j < 32; ++j)
+            {
+                ChunkPos chunkpos = new ChunkPos(j, i);
+
+                if (regionFile.hasChunk(chunkpos))
+                {
+                    list.add(chunkpos);
+                }
+            }
+        }
+
+        int k = Math.max(1, list.size() / Math.max(1, maxCount));
+
+        for (int l = 0; l < list.size() && maxCount > 0; l += k)
+        {
+            DataInputStream datainputstream = regionFile.getChunkDataInputStream(list.get(l));
+
+            if (datainputstream != null)
+            {
+                try
+                {
+                    samples.add(datainputstream.readAllBytes());
+                    --maxCount;
+                }
+                finally
+                {
+                    datainputstream.close();
+                }
+            }
+        }
+    }
+
+    public static byte[] train(List<byte[]> samples, int maxSize)
+    {
+        Long2IntOpenHashMap long2intopenhashmap = new Long2IntOpenHashMap();
+        LongOpenHashSet longopenhashset = new LongOpenHashSet();
+
+        for (byte[] abyte : samples)
+        {
+            longopenhashset.clear();
+
+            for (int i = 0; i + SHINGLE_SIZE <= abyte.length; ++i)
+            {
+                long j = getShingle(abyte, i);
+
+                if (longopenhashset.add(j))
+                {
+                    long2intopenhashmap.addTo(j, 1);
+                }
+            }
+        }
+
+        PriorityQueue<RegionFileDictionary.Segment> priorityqueue = new PriorityQueue<>();
+
+        for (byte[] abyte1 : samples)
+        {
+            for (int k = 0; k + SEGMENT_SIZE <= abyte1.length; k += SEGMENT_SIZE / 2)
+            {
+                RegionFileDictionary.Segment regionfiledictionary$segment = new RegionFileDictionary.Segment(abyte1, k);
+                regionfiledictionary$segment.score = regionfiledictionary$segment.computeScore(long2intopenhashmap);
+
+                if (regionfiledictionary$segment.score > 0)
+                {
+                    priorityqueue.add(regionfiledictionary$segment);
+                }
+            }
+        }
+
+        List<RegionFileDictionary.Segment> list = new ArrayList<>();
+        int l = 0;
+
+        while (l + SEGMENT_SIZE <= maxSize && !priorityqueue.isEmpty())
+        {
+            RegionFileDictionary.Segment regionfiledictionary$segment1 = priorityqueue.poll();
+            int i1 = regionfiledictionary$segment1.computeScore(long2intopenhashmap);
+
+            if (i1 > 0)
+            {
+                if (!priorityqueue.isEmpty() && i1 < priorityqueue.peek().score)
+                {
+                    regionfiledictionary$segment1.score = i1;
+                    priorityqueue.add(regionfiledictionary$segment1);
+                }
+                else
+                {
+                    list.add(regionfiledictionary$segment1);
+                    l += SEGMENT_SIZE;
+
+                    for (int j1 = regionfiledictionary$segment1.start; j1 + SHINGLE_SIZE <= regionfiledictionary$segment1.start + SEGMENT_SIZE; ++j1)
+                    {
+                        long2intopenhashmap.remove(getShingle(regionfiledictionary$segment1.data, j1));
+                    }
+                }
+            }
+        }
+
+        byte[] abyte2 = new byte[l];
+        int k1 = 0;
+
+        for (int l1 = list.size() - 1; l1 >= 0; --l1)
+        {
+            RegionFileDictionary.Segment regionfiledictionary$segment2 = list.get(l1);
+            System.arraycopy(regionfiledictionary$segment2.data, regionfiledictionary$segment2.start, abyte2, k1, SEGMENT_SIZE);
+            k1 += SEGMENT_SIZE;
+        }
+
+        LOGGER.debug("Trained region dictionary: {} bytes from {} samples", l, samples.size());
+        return abyte2;
+    }
+
+    private static long getShingle(byte[] data, int pos)
+    {
+        long i = 0L;
+
+        for (int j = 0; j < SHINGLE_SIZE; ++j)
+        {
+            i = i << 8 | (long)(data[pos + j] & 255);
+        }
+
+        return i;
+    }
+
+    static class Segment implements Comparable<RegionFileDictionary.Segment>
+    {
+        final byte[] data;
+        final int start;
+        int score;
+
+        Segment(byte[] data, int start)
+        {
+            this.data = data;
+            this.start = start;
+        }
+
+        int computeScore(Long2IntOpenHashMap frequencies)
+        {
+            int i = 0;
+
+            for (int j = this.start; j + SHINGLE_SIZE <= this.start + SEGMENT_SIZE; ++j)
+            {
+                int k = frequencies.get(getShingle(this.data, j));
+
+                if (k > 1)
+                {
+                    i += k;
+                }
+            }
+
+            return i;
+        }
+
+        public int compareTo(RegionFileDictionary.Segment other)
+        {
+            return Integer.compare(other.score, this.score);
+        }
+    }
+}
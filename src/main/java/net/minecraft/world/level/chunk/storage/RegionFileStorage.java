@@ -6,25 +6,59 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.Nullable;
+import net.minecraft.Util;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.NbtIo;
 import net.minecraft.nbt.StreamTagVisitor;
 import net.minecraft.util.ExceptionCollector;
 import net.minecraft.world.level.ChunkPos;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public final class RegionFileStorage implements AutoCloseable
 {
+    private static final Logger LOGGER = LogManager.getLogger();
     public static final String ANVIL_EXTENSION = ".mca";
     private static final int MAX_CACHE_SIZE = 256;
+    private static final Pattern REGION_NAME = Pattern.compile("^r\\.(-?[0-9]+)\\.(-?[0-9]+)\\.mca$");
+    private static final boolean DICTIONARY_ENABLED = Boolean.getBoolean("region.dictionary");
+    private static final int DICTIONARY_REGIONS = 8;
+    private static final int DICTIONARY_SAMPLES_PER_REGION = 64;
+    private static final int DICTIONARY_MIN_SAMPLES = 64;
+    private static final int DICTIONARY_RETRY_WRITES = 4096;
     private final Long2ObjectLinkedOpenHashMap<RegionFile> regionCache = new Long2ObjectLinkedOpenHashMap<>();
     private final Path folder;
     private final boolean sync;
+    private RegionFileVersion version = RegionFileVersion.VERSION_DEFLATE;
+    private int writesUntilDictionary;
 
     RegionFileStorage(Path p_196954_, boolean p_196955_)
     {
         this.folder = p_196954_;
         this.sync = p_196955_;
+
+        if (DICTIONARY_ENABLED)
+        {
+            try
+            {
+                if (Files.isDirectory(p_196954_) && RegionFileDictionary.forFolder(p_196954_) != null)
+                {
+                    this.version = RegionFileVersion.VERSION_DEFLATE_DICTIONARY;
+                }
+            }
+            catch (IOException ioexception)
+            {
+                LOGGER.warn("Failed to load region dictionary for {}", p_196954_, ioexception);
+            }
+        }
     }
 
     private RegionFile getRegionFile(ChunkPos pChunkPos) throws IOException
@@ -45,7 +79,7 @@ public final class RegionFileStorage implements AutoCloseable
 
             Files.createDirectories(this.folder);
             Path path = this.folder.resolve("r." + pChunkPos.getRegionX() + "." + pChunkPos.getRegionZ() + ".mca");
-            RegionFile regionfile1 = new RegionFile(path, this.folder, this.sync);
+            RegionFile regionfile1 = new RegionFile(path, this.folder, this.version, this.sync);
             this.regionCache.putAndMoveToFirst(i, regionfile1);
             return regionfile1;
         }
@@ -139,6 +173,12 @@ public final class RegionFileStorage implements AutoCloseable
 
     protected void write(ChunkPos pChunkPos, @Nullable CompoundTag pChunkData) throws IOException
     {
+        if (DICTIONARY_ENABLED && !this.version.isDictionary() && --this.writesUntilDictionary <= 0)
+        {
+            this.writesUntilDictionary = DICTIONARY_RETRY_WRITES;
+            this.createDictionary();
+        }
+
         RegionFile regionfile = this.getRegionFile(pChunkPos);
 
         if (pChunkData == null)
@@ -177,6 +217,88 @@ public final class RegionFileStorage implements AutoCloseable
         }
     }
 
+    private void createDictionary()
+    {
+        try
+        {
+            RegionFileDictionary regionfiledictionary = RegionFileDictionary.forFolder(this.folder);
+
+            if (regionfiledictionary == null)
+            {
+                if (!Files.isDirectory(this.folder))
+                {
+                    return;
+                }
+
+                long i = Util.getMillis();
+                Stream<Path> stream = Files.list(this.folder);
+                List<Path> list;
+
+                try
+                {
+                    list = stream.filter((p_196970_) ->
+                    {
+                        return REGION_NAME.matcher(p_196970_.getFileName().toString()).matches();
+                    }).sorted(Comparator.comparingLong((Path p_196971_) ->
+                    {
+                        return p_196971_.toFile().length();
+                    }).reversed()).limit((long)DICTIONARY_REGIONS).collect(Collectors.toList());
+                }
+                finally
+                {
+                    stream.close();
+                }
+
+                List<byte[]> list1 = new ArrayList<>();
+
+                for (Path path : list)
+                {
+                    Matcher matcher = REGION_NAME.matcher(path.getFileName().toString());
+
+                    if (matcher.matches())
+                    {
+                        ChunkPos chunkpos = new ChunkPos(Integer.parseInt(matcher.group(1)) << 5, Integer.parseInt(matcher.group(2)) << 5);
+                        RegionFileDictionary.collectSamples(this.getRegionFile(chunkpos), DICTIONARY_SAMPLES_PER_REGION, list1);
+                    }
+                }
+
+                if (list1.size() < DICTIONARY_MIN_SAMPLES)
+                {
+                    return;
+                }
+
+                byte[] abyte = RegionFileDictionary.train(list1, RegionFileDictionary.MAX_SIZE);
+
+                if (abyte.length < 1024)
+                {
+                    return;
+                }
+
+                regionfiledictionary = RegionFileDictionary.create(this.folder, abyte);
+                LOGGER.info("Created region dictionary for {}: {} bytes from {} chunks in {} ms", this.folder, regionfiledictionary.getSize(), list1.size(), Util.getMillis() - i);
+            }
+
+            RegionFileDictionary regionfiledictionary1 = RegionFileDictionary.forFolder(this.folder);
+
+            if (regionfiledictionary1 == null || regionfiledictionary1.getId() != regionfiledictionary.getId())
+            {
+                LOGGER.warn("Region dictionary for {} is not on disk, keeping {}", this.folder, this.version);
+                return;
+            }
+
+            this.version = RegionFileVersion.VERSION_DEFLATE_DICTIONARY;
+
+            for (RegionFile regionfile : this.regionCache.values())
+            {
+                regionfile.setVersion(this.version);
+            }
+        }
+        catch (IOException ioexception)
+        {
+            LOGGER.warn("Failed to create region dictionary for {}", this.folder, ioexception);
+        }
+    }
+
     public void close() throws IOException
     {
         ExceptionCollector<IOException> exceptioncollector = new ExceptionCollector<>();
@@ -193,6 +315,7 @@ public final class RegionFileStorage implements AutoCloseable
             }
         }
 
+        RegionFileDictionary.release(this.folder);
         exceptioncollector.throwIfPresent();
     }
 
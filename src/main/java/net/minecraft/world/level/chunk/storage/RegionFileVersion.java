@@ -37,15 +37,35 @@ public class RegionFileVersion
     {
         return p_196962_;
     }));
+    public static final RegionFileVersion VERSION_DEFLATE_DICTIONARY = register(new RegionFileVersion(126, (in, dictionary) ->
+    {
+        return new FastBufferedInputStream(dictionary.createInputStream(in));
+    }, (out, dictionary) ->
+    {
+        return new BufferedOutputStream(dictionary.createOutputStream(out));
+    }, true));
     private final int id;
-    private final RegionFileVersion.StreamWrapper<InputStream> inputWrapper;
-    private final RegionFileVersion.StreamWrapper<OutputStream> outputWrapper;
+    private final RegionFileVersion.DictionaryStreamWrapper<InputStream> inputWrapper;
+    private final RegionFileVersion.DictionaryStreamWrapper<OutputStream> outputWrapper;
+    private final boolean dictionary;
 
     private RegionFileVersion(int pId, RegionFileVersion.StreamWrapper<InputStream> pInputWrapper, RegionFileVersion.StreamWrapper<OutputStream> pOutputWrapper)
     {
-        this.id = pId;
-        this.inputWrapper = pInputWrapper;
-        this.outputWrapper = pOutputWrapper;
+        this(pId, (in, dictionary) ->
+        {
+            return pInputWrapper.wrap(in);
+        }, (out, dictionary) ->
+        {
+            return pOutputWrapper.wrap(out);
+        }, false);
+    }
+
+    private RegionFileVersion(int id, RegionFileVersion.DictionaryStreamWrapper<InputStream> inputWrapper, RegionFileVersion.DictionaryStreamWrapper<OutputStream> outputWrapper, boolean dictionary)
+    {
+        this.id = id;
+        this.inputWrapper = inputWrapper;
+        this.outputWrapper = outputWrapper;
+        this.dictionary = dictionary;
     }
 
     private static RegionFileVersion register(RegionFileVersion pFileVersion)
@@ -70,14 +90,39 @@ public class RegionFileVersion
         return this.id;
     }
 
+    public boolean isDictionary()
+    {
+        return this.dictionary;
+    }
+
     public OutputStream wrap(OutputStream pInputStream) throws IOException
     {
-        return this.outputWrapper.wrap(pInputStream);
+        return this.wrap(pInputStream, (RegionFileDictionary)null);
     }
 
     public InputStream wrap(InputStream pInputStream) throws IOException
     {
-        return this.inputWrapper.wrap(pInputStream);
+        return this.wrap(pInputStream, (RegionFileDictionary)null);
+    }
+
+    public OutputStream wrap(OutputStream stream, @Nullable RegionFileDictionary dictionary) throws IOException
+    {
+        this.checkDictionary(dictionary);
+        return this.outputWrapper.wrap(stream, dictionary);
+    }
+
+    public InputStream wrap(InputStream stream, @Nullable RegionFileDictionary dictionary) throws IOException
+    {
+        this.checkDictionary(dictionary);
+        return this.inputWrapper.wrap(stream, dictionary);
+    }
+
+    private void checkDictionary(@Nullable RegionFileDictionary dictionary) throws IOException
+    {
+        if (this.dictionary && dictionary == null)
+        {
+            throw new IOException("Missing region dictionary for chunk stream version " + this.id);
+        }
     }
 
     @FunctionalInterface
@@ -85,4 +130,10 @@ public class RegionFileVersion
     {
         O wrap(O pStream) throws IOException;
     }
+
+    @FunctionalInterface
+    interface DictionaryStreamWrapper<O>
+    {
+        O wrap(O stream, RegionFileDictionary dictionary) throws IOException;
+    }
 }
@@ -0,0 +1,115 @@
+package net.optifine;
+
+public class ChunkBuildScheduler
+{
+    private static int buildersMax = 1;
+    private static volatile int buildersLimit = 1;
+    private static volatile boolean overloaded = false;
+    private static long uploadBudgetNano = 8000000L;
+    private static long timeFrameAvgNano = 0L;
+    private static long timeFrameLastNano = 0L;
+    private static int framesStable = 0;
+    private static final long UPLOAD_BUDGET_MIN = 1000000L;
+    private static final long UPLOAD_BUDGET_MAX = 8000000L;
+    private static final long UPLOAD_BUDGET_STEP = 500000L;
+    private static final long FRAME_TIME_MIN = 6000000L;
+    private static final long FRAME_TIME_MAX = 1000000000L;
+    private static final int FRAMES_SCALE_UP = 8;
+    private static final long THROTTLE_MAX = 100L;
+
+    public static void init(int builders)
+    {
+        buildersMax = Math.max(1, builders);
+        buildersLimit = buildersMax;
+        overloaded = false;
+        uploadBudgetNano = UPLOAD_BUDGET_MAX;
+        timeFrameAvgNano = 0L;
+        timeFrameLastNano = 0L;
+        framesStable = 0;
+    }
+
+    public static boolean update(long timeUpdateNano, long timeUploadNano, boolean pending)
+    {
+        long i = System.nanoTime();
+        long j = timeFrameLastNano > 0L ? i - timeFrameLastNano : 0L;
+        timeFrameLastNano = i;
+
+        if (j > 0L && j <= FRAME_TIME_MAX)
+        {
+            if (timeFrameAvgNano <= 0L)
+            {
+                timeFrameAvgNano = j;
+                return false;
+            }
+            else
+            {
+                boolean flag = j > FRAME_TIME_MIN && j > timeFrameAvgNano * 3L / 2L;
+                boolean flag1 = timeUpdateNano + timeUploadNano > timeFrameAvgNano / 2L;
+                timeFrameAvgNano += (j - timeFrameAvgNano) / 16L;
+                long k = Math.max(UPLOAD_BUDGET_MIN, Math.min(UPLOAD_BUDGET_MAX, timeFrameAvgNano / 4L));
+                overloaded = flag;
+
+                if (flag)
+                {
+                    framesStable = 0;
+                    buildersLimit = Math.max(1, buildersLimit / 2);
+                    uploadBudgetNano = Math.max(UPLOAD_BUDGET_MIN, uploadBudgetNano / 2L);
+                    return false;
+                }
+                else
+                {
+                    if (flag1)
+                    {
+                        uploadBudgetNano = Math.max(UPLOAD_BUDGET_MIN, uploadBudgetNano - UPLOAD_BUDGET_STEP);
+                    }
+                    else
+                    {
+                        uploadBudgetNano = Math.min(k, uploadBudgetNano + UPLOAD_BUDGET_STEP);
+                    }
+
+                    ++framesStable;
+
+                    if (pending && framesStable >= FRAMES_SCALE_UP && buildersLimit < buildersMax)
+                    {
+                        framesStable = 0;
+                        ++buildersLimit;
+                        return true;
+                    }
+                    else
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    public static int getBuildersLimit()
+    {
+        return buildersLimit;
+    }
+
+    public static int getBuildersMax()
+    {
+        return buildersMax;
+    }
+
+    public static long getUploadBudgetNano()
+    {
+        return uploadBudgetNano;
+    }
+
+    public static boolean isOverloaded()
+    {
+        return overloaded;
+    }
+
+    public static long getThrottleTime(long timeTaskMs)
+    {
+        return overloaded ? Math.min(10L * timeTaskMs, THROTTLE_MAX) : 0L;
+    }
+}
@@ -0,0 +1,177 @@
+package net.optifine;
+
+import com.google.common.collect.Iterators;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import net.minecraft.Util;
+import net.minecraft.core.Registry;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkPacketData;
+import net.minecraft.network.protocol.game.ClientboundLightUpdatePacketData;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+public class ChunkPacketDecoder
+{
+    private static final boolean ENABLED = !Boolean.getBoolean("chunk.decode.sync");
+    private static final LongAdder countDecoded = new LongAdder();
+    private static final LongAdder countLate = new LongAdder();
+    private static final LongAdder countFailed = new LongAdder();
+    private static final LongAdder timeDecodeNano = new LongAdder();
+    private static final LongAdder timeSyncNano = new LongAdder();
+    private static final LongAdder countSync = new LongAdder();
+
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    public static CompletableFuture<ChunkPacketDecoder.Result> decodeAsync(Level level, @Nullable ClientboundLevelChunkPacketData chunkData, ClientboundLightUpdatePacketData lightData)
+    {
+        int i = level.getSectionsCount();
+        int j = level.getMinSection();
+        Registry<Biome> registry = level.registryAccess().registryOrThrow(Registry.BIOME_REGISTRY);
+        return CompletableFuture.supplyAsync(() ->
+        {
+            return decode(level, i, j, registry, chunkData, lightData);
+        }, Util.backgroundExecutor());
+    }
+
+    private static ChunkPacketDecoder.Result decode(Level level, int sectionsCount, int minSection, Registry<Biome> registry, @Nullable ClientboundLevelChunkPacketData chunkData, ClientboundLightUpdatePacketData lightData)
+    {
+        long i = System.nanoTime();
+        LevelChunkSection[] alevelchunksection = null;
+
+        if (chunkData != null)
+        {
+            alevelchunksection = new LevelChunkSection[sectionsCount];
+            FriendlyByteBuf friendlybytebuf = chunkData.getReadBuffer();
+
+            for (int j = 0; j < alevelchunksection.length; ++j)
+            {
+                LevelChunkSection levelchunksection = new LevelChunkSection(minSection + j, registry);
+                levelchunksection.read(friendlybytebuf);
+                alevelchunksection[j] = levelchunksection;
+            }
+        }
+
+        List<DataLayer> list = makeDataLayers(lightData.getSkyUpdates());
+        List<DataLayer> list1 = makeDataLayers(lightData.getBlockUpdates());
+        return new ChunkPacketDecoder.Result(level, alevelchunksection, list, list1, System.nanoTime() - i);
+    }
+
+    private static List<DataLayer> makeDataLayers(List<byte[]> updates)
+    {
+        List<DataLayer> list = new ArrayList<>(updates.size());
+
+        for (byte[] abyte : updates)
+        {
+            list.add(new DataLayer((byte[])abyte.clone()));
+        }
+
+        return list;
+    }
+
+    @Nullable
+    public static ChunkPacketDecoder.Result getResult(@Nullable CompletableFuture<ChunkPacketDecoder.Result> future, Level level)
+    {
+        if (future == null)
+        {
+            return null;
+        }
+        else
+        {
+            ChunkPacketDecoder.Result chunkpacketdecoder$result;
+
+            try
+            {
+                chunkpacketdecoder$result = future.getNow((ChunkPacketDecoder.Result)null);
+            }
+            catch (Exception exception)
+            {
+                countFailed.increment();
+                return null;
+            }
+
+            if (chunkpacketdecoder$result == null)
+            {
+                countLate.increment();
+                return null;
+            }
+            else if (chunkpacketdecoder$result.level != level)
+            {
+                countFailed.increment();
+                return null;
+            }
+            else
+            {
+                countDecoded.increment();
+                timeDecodeNano.add(chunkpacketdecoder$result.timeDecodeNano);
+                return chunkpacketdecoder$result;
+            }
+        }
+    }
+
+    public static Iterator<DataLayer> getSkyLayers(@Nullable ChunkPacketDecoder.Result result, ClientboundLightUpdatePacketData lightData)
+    {
+        return result != null ? result.skyLayers.iterator() : Iterators.transform(lightData.getSkyUpdates().iterator(), (bytes) ->
+        {
+            return new DataLayer((byte[])bytes.clone());
+        });
+    }
+
+    public static Iterator<DataLayer> getBlockLayers(@Nullable ChunkPacketDecoder.Result result, ClientboundLightUpdatePacketData lightData)
+    {
+        return result != null ? result.blockLayers.iterator() : Iterators.transform(lightData.getBlockUpdates().iterator(), (bytes) ->
+        {
+            return new DataLayer((byte[])bytes.clone());
+        });
+    }
+
+    public static void addTimeSync(long timeNano)
+    {
+        countSync.increment();
+        timeSyncNano.add(timeNano);
+    }
+
+    public static String getStats()
+    {
+        long i = countDecoded.sum();
+        long j = countSync.sum();
+        long k = timeDecodeNano.sum();
+        long l = timeSyncNano.sum();
+        double d0 = i > 0L ? (double)k / (double)i / 1000.0D : 0.0D;
+        double d1 = j > 0L ? (double)l / (double)j / 1000.0D : 0.0D;
+        return String.format("D: %d/%d/%d, %.0f/%.0f us, saved %d ms", i, countLate.sum(), countFailed.sum(), d0, d1, k / 1000000L);
+    }
+
+    public static class Result
+    {
+        private final Level level;
+        private final LevelChunkSection[] sections;
+        private final List<DataLayer> skyLayers;
+        private final List<DataLayer> blockLayers;
+        private final long timeDecodeNano;
+
+        public Result(Level level, LevelChunkSection[] sections, List<DataLayer> skyLayers, List<DataLayer> blockLayers, long timeDecodeNano)
+        {
+            this.level = level;
+            this.sections = sections;
+            this.skyLayers = skyLayers;
+            this.blockLayers = blockLayers;
+            this.timeDecodeNano = timeDecodeNano;
+        }
+
+        @Nullable
+        public LevelChunkSection[] getSections()
+        {
+            return this.sections;
+        }
+    }
+}
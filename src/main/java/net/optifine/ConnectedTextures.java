@@ -4,14 +4,14 @@ import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.EnumMap;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.block.model.BakedQuad;
 import net.minecraft.client.renderer.texture.MissingTextureAtlasSprite;
@@ -50,9 +50,9 @@ import net.optifine.util.TileEntityUtils;
 
 public class ConnectedTextures
 {
-    private static Map[] spriteQuadMaps = null;
-    private static Map[] spriteQuadFullMaps = null;
-    private static Map[][] spriteQuadCompactMaps = null;
+    private static volatile AtomicReferenceArray<Map<BakedQuad, BakedQuad>> spriteQuadMaps = null;
+    private static volatile AtomicReferenceArray<Map<Direction, BakedQuad>> spriteQuadFullMaps = null;
+    private static volatile AtomicReferenceArray<AtomicReferenceArray<Map<BakedQuad, BakedQuad>>> spriteQuadCompactMaps = null;
     private static ConnectedProperties[][] blockProperties = null;
     private static ConnectedProperties[][] tileProperties = null;
     private static boolean multipass = false;
@@ -205,9 +205,18 @@ public class ConnectedTextures
         }
     }
 
-    private static synchronized BakedQuad getQuad(TextureAtlasSprite sprite, BakedQuad quadIn)
+    static void initSpriteQuadMaps(int countSprites)
     {
-        if (spriteQuadMaps == null)
+        spriteQuadMaps = new AtomicReferenceArray<>(countSprites);
+        spriteQuadFullMaps = new AtomicReferenceArray<>(countSprites);
+        spriteQuadCompactMaps = new AtomicReferenceArray<>(countSprites);
+    }
+
+    static BakedQuad getQuad(TextureAtlasSprite sprite, BakedQuad quadIn)
+    {
+        AtomicReferenceArray<Map<BakedQuad, BakedQuad>> atomicreferencearray = spriteQuadMaps;
+
+        if (atomicreferencearray == null)
         {
             return quadIn;
         }
@@ -215,22 +224,20 @@ public class ConnectedTextures
         {
             int i = sprite.getIndexInMap();
 
-            if (i >= 0 && i < spriteQuadMaps.length)
+            if (i >= 0 && i < atomicreferencearray.length())
             {
-                Map map = spriteQuadMaps[i];
-
-                if (map == null)
-                {
-                    map = new IdentityHashMap(1);
-                    spriteQuadMaps[i] = map;
-                }
-
-                BakedQuad bakedquad = (BakedQuad)map.get(quadIn);
+                Map<BakedQuad, BakedQuad> map = getOrCreateMap(atomicreferencearray, i);
+                BakedQuad bakedquad = map.get(quadIn);
 
                 if (bakedquad == null)
                 {
                     bakedquad = makeSpriteQuad(quadIn, sprite);
-                    map.put(quadIn, bakedquad);
+                    BakedQuad bakedquad1 = map.putIfAbsent(quadIn, bakedquad);
+
+                    if (bakedquad1 != null)
+                    {
+                        bakedquad = bakedquad1;
+                    }
                 }
 
                 return bakedquad;
@@ -242,9 +249,11 @@ public class ConnectedTextures
         }
     }
 
-    private static synchronized BakedQuad getQuadFull(TextureAtlasSprite sprite, BakedQuad quadIn, int tintIndex)
+    static BakedQuad getQuadFull(TextureAtlasSprite sprite, BakedQuad quadIn, int tintIndex)
     {
-        if (spriteQuadFullMaps == null)
+        AtomicReferenceArray<Map<Direction, BakedQuad>> atomicreferencearray = spriteQuadFullMaps;
+
+        if (atomicreferencearray == null)
         {
             return null;
         }
@@ -256,23 +265,21 @@ public class ConnectedTextures
         {
             int i = sprite.getIndexInMap();
 
-            if (i >= 0 && i < spriteQuadFullMaps.length)
+            if (i >= 0 && i < atomicreferencearray.length())
             {
-                Map map = spriteQuadFullMaps[i];
-
-                if (map == null)
-                {
-                    map = new EnumMap<>(Direction.class);
-                    spriteQuadFullMaps[i] = map;
-                }
-
+                Map<Direction, BakedQuad> map = getOrCreateMap(atomicreferencearray, i);
                 Direction direction = quadIn.getDirection();
-                BakedQuad bakedquad = (BakedQuad)map.get(direction);
+                BakedQuad bakedquad = map.get(direction);
 
                 if (bakedquad == null)
                 {
                     bakedquad = BlockModelUtils.makeBakedQuad(direction, sprite, tintIndex);
-                    map.put(direction, bakedquad);
+                    BakedQuad bakedquad1 = map.putIfAbsent(direction, bakedquad);
+
+                    if (bakedquad1 != null)
+                    {
+                        bakedquad = bakedquad1;
+                    }
                 }
 
                 return bakedquad;
@@ -284,7 +291,24 @@ public class ConnectedTextures
         }
     }
 
-    private static BakedQuad makeSpriteQuad(BakedQuad quad, TextureAtlasSprite sprite)
+    protected static <K, V> Map<K, V> getOrCreateMap(AtomicReferenceArray<Map<K, V>> maps, int index)
+    {
+        Map<K, V> map = maps.get(index);
+
+        if (map == null)
+        {
+            map = new ConcurrentHashMap<>(4);
+
+            if (!maps.compareAndSet(index, null, map))
+            {
+                map = maps.get(index);
+            }
+        }
+
+        return map;
+    }
+
+    static BakedQuad makeSpriteQuad(BakedQuad quad, TextureAtlasSprite sprite)
     {
         int[] aint = (int[])quad.getVertices().clone();
         TextureAtlasSprite textureatlassprite = quad.getSprite();
@@ -804,7 +828,7 @@ public class ConnectedTextures
         return cp.tileIcons[i];
     }
 
-    private static synchronized BakedQuad[] getConnectedTextureCtmCompact(ConnectedProperties cp, BlockGetter blockAccess, BlockState blockState, BlockPos blockPos, int vertAxis, int side, BakedQuad quad, int metadata, RenderEnv renderEnv)
+    private static BakedQuad[] getConnectedTextureCtmCompact(ConnectedProperties cp, BlockGetter blockAccess, BlockState blockState, BlockPos blockPos, int vertAxis, int side, BakedQuad quad, int metadata, RenderEnv renderEnv)
     {
         TextureAtlasSprite textureatlassprite = quad.getSprite();
         int i = getConnectedTextureCtmIndex(cp, blockAccess, blockState, blockPos, vertAxis, side, textureatlassprite, metadata, renderEnv);
@@ -1170,7 +1194,7 @@ public class ConnectedTextures
         }
     }
 
-    protected static Map[][] getSpriteQuadCompactMaps()
+    protected static AtomicReferenceArray<AtomicReferenceArray<Map<BakedQuad, BakedQuad>>> getSpriteQuadCompactMaps()
     {
         return spriteQuadCompactMaps;
     }
@@ -2132,6 +2156,7 @@ public class ConnectedTextures
         blockProperties = null;
         tileProperties = null;
         spriteQuadMaps = null;
+        spriteQuadFullMaps = null;
         spriteQuadCompactMaps = null;
 
         if (Config.isConnectedTextures())
@@ -2146,9 +2171,7 @@ public class ConnectedTextures
 
             updateIcons(textureMap, Config.getDefaultResourcePack());
             emptySprite = textureMap.registerSprite(LOCATION_SPRITE_EMPTY);
-            spriteQuadMaps = new Map[textureMap.getCountRegisteredSprites() + 1];
-            spriteQuadFullMaps = new Map[textureMap.getCountRegisteredSprites() + 1];
-            spriteQuadCompactMaps = new Map[textureMap.getCountRegisteredSprites() + 1][];
+            initSpriteQuadMaps(textureMap.getCountRegisteredSprites() + 1);
 
             if (blockProperties.length <= 0)
             {
@@ -1,7 +1,7 @@
 package net.optifine;
 
-import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import net.minecraft.client.renderer.block.model.BakedQuad;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.optifine.render.RenderEnv;
@@ -266,9 +266,9 @@ public class ConnectedTexturesCompact
 
     private static BakedQuad getQuadCompact(TextureAtlasSprite sprite, ConnectedTexturesCompact.Dir dir, int x1, int y1, int x2, int y2, int side, BakedQuad quadIn, RenderEnv renderEnv)
     {
-        Map[][] amap = ConnectedTextures.getSpriteQuadCompactMaps();
+        AtomicReferenceArray<AtomicReferenceArray<Map<BakedQuad, BakedQuad>>> atomicreferencearray = ConnectedTextures.getSpriteQuadCompactMaps();
 
-        if (amap == null)
+        if (atomicreferencearray == null)
         {
             return quadIn;
         }
@@ -276,30 +276,32 @@ public class ConnectedTexturesCompact
         {
             int i = sprite.getIndexInMap();
 
-            if (i >= 0 && i < amap.length)
+            if (i >= 0 && i < atomicreferencearray.length())
             {
-                Map[] amap1 = amap[i];
+                AtomicReferenceArray<Map<BakedQuad, BakedQuad>> atomicreferencearray1 = atomicreferencearray.get(i);
 
-                if (amap1 == null)
+                if (atomicreferencearray1 == null)
                 {
-                    amap1 = new Map[ConnectedTexturesCompact.Dir.VALUES.length];
-                    amap[i] = amap1;
-                }
-
-                Map<BakedQuad, BakedQuad> map = amap1[dir.ordinal()];
+                    atomicreferencearray1 = new AtomicReferenceArray<>(ConnectedTexturesCompact.Dir.VALUES.length);
 
-                if (map == null)
-                {
-                    map = new IdentityHashMap<>(1);
-                    amap1[dir.ordinal()] = map;
+                    if (!atomicreferencearray.compareAndSet(i, null, atomicreferencearray1))
+                    {
+                        atomicreferencearray1 = atomicreferencearray.get(i);
+                    }
                 }
 
+                Map<BakedQuad, BakedQuad> map = ConnectedTextures.getOrCreateMap(atomicreferencearray1, dir.ordinal());
                 BakedQuad bakedquad = map.get(quadIn);
 
                 if (bakedquad == null)
                 {
                     bakedquad = makeSpriteQuadCompact(quadIn, sprite, side, x1, y1, x2, y2);
-                    map.put(quadIn, bakedquad);
+                    BakedQuad bakedquad1 = map.putIfAbsent(quadIn, bakedquad);
+
+                    if (bakedquad1 != null)
+                    {
+                        bakedquad = bakedquad1;
+                    }
                 }
 
                 return bakedquad;
@@ -0,0 +1,282 @@
+package net.optifine;
+
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.core.Direction;
+import net.minecraft.resources.ResourceLocation;
+import net.optifine.model.BlockModelUtils;
+import net.optifine.util.CounterInt;
+
+public class ConnectedTexturesTest
+{
+    private static final int SPRITES = 1024;
+    private static final int QUADS = 256;
+    private static final int LOOKUPS = 2000000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception
+    {
+        Random random = new Random(1L);
+        TextureAtlasSprite[] atextureatlassprite = makeSprites(SPRITES);
+        BakedQuad[] abakedquad = makeQuads(QUADS, atextureatlassprite, random);
+        int i = Runtime.getRuntime().availableProcessors();
+        List<Integer> list = new ArrayList<>();
+
+        for (int j = 1; j < i; j *= 2)
+        {
+            list.add(j);
+        }
+
+        list.add(i);
+        dbg("Sprites: " + SPRITES + ", quads: " + QUADS + ", lookups per thread: " + LOOKUPS);
+
+        for (int k : list)
+        {
+            ExecutorService executorservice = Executors.newFixedThreadPool(k);
+
+            try
+            {
+                long l = Long.MAX_VALUE;
+                long i1 = Long.MAX_VALUE;
+                long j1 = Long.MAX_VALUE;
+                long k1 = Long.MAX_VALUE;
+
+                for (int l1 = 0; l1 <= ROUNDS; ++l1)
+                {
+                    ConnectedTextures.initSpriteQuadMaps(SPRITES + 1);
+                    long i2 = runLookups(executorservice, k, atextureatlassprite, abakedquad, false);
+                    long j2 = runLookups(executorservice, k, atextureatlassprite, abakedquad, false);
+                    ConnectedTexturesTest.SynchronizedQuadCache.init(SPRITES + 1);
+                    long k2 = runLookups(executorservice, k, atextureatlassprite, abakedquad, true);
+                    long l2 = runLookups(executorservice, k, atextureatlassprite, abakedquad, true);
+
+                    if (l1 > 0)
+                    {
+                        l = Math.min(l, i2);
+                        i1 = Math.min(i1, j2);
+                        j1 = Math.min(j1, k2);
+                        k1 = Math.min(k1, l2);
+                    }
+                }
+
+                long i3 = (long)LOOKUPS * (long)k;
+                dbg(String.format("Threads: %2d, concurrent cold: %6.2f M/s, warm: %6.2f M/s, synchronized cold: %6.2f M/s, warm: %6.2f M/s", k, getRate(i3, l), getRate(i3, i1), getRate(i3, j1), getRate(i3, k1)));
+            }
+            finally
+            {
+                executorservice.shutdown();
+            }
+        }
+
+        ConnectedTextures.initSpriteQuadMaps(0);
+        ConnectedTexturesTest.SynchronizedQuadCache.init(0);
+    }
+
+    private static TextureAtlasSprite[] makeSprites(int count)
+    {
+        TextureAtlasSprite[] atextureatlassprite = new TextureAtlasSprite[count];
+        CounterInt counterint = new CounterInt(0);
+
+        for (int i = 0; i < count; ++i)
+        {
+            atextureatlassprite[i] = new TextureAtlasSprite(new ResourceLocation("optifine", "ctm/test/" + i));
+            atextureatlassprite[i].updateIndexInMap(counterint);
+        }
+
+        return atextureatlassprite;
+    }
+
+    private static BakedQuad[] makeQuads(int count, TextureAtlasSprite[] sprites, Random random)
+    {
+        BakedQuad[] abakedquad = new BakedQuad[count];
+        Direction[] adirection = Direction.values();
+
+        for (int i = 0; i < count; ++i)
+        {
+            int[] aint = new int[DefaultVertexFormat.BLOCK_VANILLA_SIZE];
+
+            for (int j = 0; j < aint.length; ++j)
+            {
+                aint[j] = Float.floatToRawIntBits(random.nextFloat());
+            }
+
+            abakedquad[i] = new BakedQuad(aint, -1, adirection[i % adirection.length], sprites[random.nextInt(sprites.length)], true);
+        }
+
+        return abakedquad;
+    }
+
+    private static long runLookups(ExecutorService executor, int threads, TextureAtlasSprite[] sprites, BakedQuad[] quads, boolean synchronizedCache) throws Exception
+    {
+        List<Callable<Integer>> list = new ArrayList<>();
+
+        for (int i = 0; i < threads; ++i)
+        {
+            long j = (long)i;
+            list.add(() ->
+            {
+                return lookup(new Random(j), sprites, quads, synchronizedCache);
+            });
+        }
+
+        long k = System.nanoTime();
+        int l = 0;
+
+        for (Future<Integer> future : executor.invokeAll(list))
+        {
+            l += future.get();
+        }
+
+        long i1 = System.nanoTime() - k;
+
+        if (l != threads * LOOKUPS)
+        {
+            throw new RuntimeException("Missing quads: " + (threads * LOOKUPS - l));
+        }
+        else
+        {
+            return i1;
+        }
+    }
+
+    private static int lookup(Random random, TextureAtlasSprite[] sprites, BakedQuad[] quads, boolean synchronizedCache)
+    {
+        int i = 0;
+
+        for (int j = 0; j < LOOKUPS; ++j)
+        {
+            TextureAtlasSprite textureatlassprite = sprites[random.nextInt(sprites.length)];
+            BakedQuad bakedquad = quads[random.nextInt(quads.length)];
+            boolean flag = (j & 15) == 0;
+            BakedQuad bakedquad1;
+
+            if (synchronizedCache)
+            {
+                bakedquad1 = flag ? ConnectedTexturesTest.SynchronizedQuadCache.getQuadFull(textureatlassprite, bakedquad, -1) : ConnectedTexturesTest.SynchronizedQuadCache.getQuad(textureatlassprite, bakedquad);
+            }
+            else
+            {
+                bakedquad1 = flag ? ConnectedTextures.getQuadFull(textureatlassprite, bakedquad, -1) : ConnectedTextures.getQuad(textureatlassprite, bakedquad);
+            }
+
+            if (bakedquad1 != null)
+            {
+                ++i;
+            }
+        }
+
+        return i;
+    }
+
+    private static double getRate(long count, long timeNano)
+    {
+        return (double)count / ((double)timeNano / 1.0E9D) / 1000000.0D;
+    }
+
+    private static void dbg(String str)
+    {
+        System.out.println(str);
+    }
+
+    static class SynchronizedQuadCache
+    {
+        private static Map[] spriteQuadMaps = null;
+        private static Map[] spriteQuadFullMaps = null;
+
+        static synchronized void init(int countSprites)
+        {
+            spriteQuadMaps = countSprites > 0 ? new Map[countSprites] : null;
+            spriteQuadFullMaps = countSprites > 0 ? new Map[countSprites] : null;
+        }
+
+        static synchronized BakedQuad getQuad(TextureAtlasSprite sprite, BakedQuad quadIn)
+        {
+            if (spriteQuadMaps == null)
+            {
+                return quadIn;
+            }
+            else
+            {
+                int i = sprite.getIndexInMap();
+
+                if (i >= 0 && i < spriteQuadMaps.length)
+                {
+                    Map map = spriteQuadMaps[i];
+
+                    if (map == null)
+                    {
+                        map = new IdentityHashMap(1);
+                        spriteQuadMaps[i] = map;
+                    }
+
+                    BakedQuad bakedquad = (BakedQuad)map.get(quadIn);
+
+                    if (bakedquad == null)
+                    {
+                        bakedquad = ConnectedTextures.makeSpriteQuad(quadIn, sprite);
+                        map.put(quadIn, bakedquad);
+                    }
+
+                    return bakedquad;
+                }
+                else
+                {
+                    return quadIn;
+                }
+            }
+        }
+
+        static synchronized BakedQuad getQuadFull(TextureAtlasSprite sprite, BakedQuad quadIn, int tintIndex)
+        {
+            if (spriteQuadFullMaps == null)
+            {
+                return null;
+            }
+            else if (sprite == null)
+            {
+                return null;
+            }
+            else
+            {
+                int i = sprite.getIndexInMap();
+
+                if (i >= 0 && i < spriteQuadFullMaps.length)
+                {
+                    Map map = spriteQuadFullMaps[i];
+
+                    if (map == null)
+                    {
+                        map = new EnumMap<>(Direction.class);
+                        spriteQuadFullMaps[i] = map;
+                    }
+
+                    Direction direction = quadIn.getDirection();
+                    BakedQuad bakedquad = (BakedQuad)map.get(direction);
+
+                    if (bakedquad == null)
+                    {
+                        bakedquad = BlockModelUtils.makeBakedQuad(direction, sprite, tintIndex);
+                        map.put(direction, bakedquad);
+                    }
+
+                    return bakedquad;
+                }
+                else
+                {
+                    return null;
+                }
+            }
+        }
+    }
+}
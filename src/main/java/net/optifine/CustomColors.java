@@ -51,6 +51,7 @@ import net.minecraft.world.level.material.MaterialColor;
 import net.minecraft.world.phys.Vec3;
 import net.optifine.config.ConnectedParser;
 import net.optifine.config.MatchBlock;
+import net.optifine.override.ChunkCacheOF;
 import net.optifine.render.RenderEnv;
 import net.optifine.util.BiomeUtils;
 import net.optifine.util.EntityUtils;
@@ -978,6 +979,21 @@ public class CustomColors
 
     private static int getSmoothColorMultiplier(BlockState blockState, BlockAndTintGetter blockAccess, BlockPos blockPos, CustomColors.IColorizer colorizer, BlockPosM blockPosM)
     {
+        if (blockAccess instanceof ChunkCacheOF)
+        {
+            SmoothColorCache smoothcolorcache = ((ChunkCacheOF)blockAccess).getSmoothColorCache();
+
+            if (smoothcolorcache != null)
+            {
+                int l3 = smoothcolorcache.getColor(colorizer, blockState, blockPos);
+
+                if (l3 != -1)
+                {
+                    return l3;
+                }
+            }
+        }
+
         int i = 0;
         int j = 0;
         int k = 0;
@@ -41,6 +41,12 @@ public class DynamicLight
             this.timeCheckMs = i;
         }
 
+        if (DynamicLights.isIncrementalUpdates())
+        {
+            this.updateIncremental(renderGlobal);
+            return;
+        }
+
         double d6 = this.entity.getX() - 0.5D;
         double d0 = this.entity.getY() - 0.5D + this.offsetY;
         double d1 = this.entity.getZ() - 0.5D;
@@ -94,6 +100,82 @@ public class DynamicLight
         }
     }
 
+    private void updateIncremental(LevelRenderer renderGlobal)
+    {
+        double d0 = (double)Mth.floor(this.entity.getX());
+        double d1 = (double)Mth.floor(this.entity.getY() + this.offsetY);
+        double d2 = (double)Mth.floor(this.entity.getZ());
+        int i = DynamicLights.getLightLevel(this.entity);
+
+        if (d0 != this.lastPosX || d1 != this.lastPosY || d2 != this.lastPosZ || this.lastLightLevel != i)
+        {
+            this.lastPosX = d0;
+            this.lastPosY = d1;
+            this.lastPosZ = d2;
+            this.lastLightLevel = i;
+            Set<BlockPos> set = new HashSet<>();
+
+            if (i > 0)
+            {
+                this.collectLitSections(d0, d1, d2, set);
+            }
+
+            Set<BlockPos> set1 = new HashSet<>(this.setLitChunkPos);
+            set1.addAll(set);
+
+            for (BlockPos blockpos : set1)
+            {
+                ChunkRenderDispatcher.RenderChunk chunkrenderdispatcher$renderchunk = renderGlobal.getRenderChunk(blockpos);
+                this.updateChunkLight(chunkrenderdispatcher$renderchunk, (Set<BlockPos>)null, (Set<BlockPos>)null);
+            }
+
+            this.setLitChunkPos = set;
+        }
+    }
+
+    private void collectLitSections(double x, double y, double z, Set<BlockPos> setSectionPos)
+    {
+        int i = Mth.floor(x - 8.5D) >> 4;
+        int j = Mth.floor(y - 8.5D) >> 4;
+        int k = Mth.floor(z - 8.5D) >> 4;
+        int l = Mth.floor(x + 8.5D) >> 4;
+        int i1 = Mth.floor(y + 8.5D) >> 4;
+        int j1 = Mth.floor(z + 8.5D) >> 4;
+
+        for (int k1 = i; k1 <= l; ++k1)
+        {
+            for (int l1 = j; l1 <= i1; ++l1)
+            {
+                for (int i2 = k; i2 <= j1; ++i2)
+                {
+                    double d0 = getDistanceToRange(x, k1 << 4);
+                    double d1 = getDistanceToRange(y, l1 << 4);
+                    double d2 = getDistanceToRange(z, i2 << 4);
+
+                    if (d0 * d0 + d1 * d1 + d2 * d2 <= 56.25D)
+                    {
+                        setSectionPos.add(new BlockPos(k1 << 4, l1 << 4, i2 << 4));
+                    }
+                }
+            }
+        }
+    }
+
+    private static double getDistanceToRange(double val, int min)
+    {
+        int i = min - 1;
+        int j = min + 16;
+
+        if (val < (double)i)
+        {
+            return (double)i - val;
+        }
+        else
+        {
+            return val > (double)j ? val - (double)j : 0.0D;
+        }
+    }
+
     private BlockPos getChunkPos(ChunkRenderDispatcher.RenderChunk renderChunk, BlockPos pos, Direction facing)
     {
         return renderChunk != null ? renderChunk.getRelativeOrigin(facing) : pos.relative(facing, 16);
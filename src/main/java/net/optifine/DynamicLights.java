@@ -41,6 +41,7 @@ import net.optifine.util.PropertiesOrdered;
 public class DynamicLights
 {
     private static DynamicLightsMap mapDynamicLights = new DynamicLightsMap();
+    private static volatile DynamicLightsSnapshot snapshot = DynamicLightsSnapshot.EMPTY;
     private static Map<String, Integer> mapEntityLightLevels = new HashMap<>();
     private static Map<Item, Integer> mapItemLightLevels = new HashMap<>();
     private static long timeUpdateMs = 0L;
@@ -60,6 +61,7 @@ public class DynamicLights
     private static final int LIGHT_LEVEL_GLOW_ITEM_FRAME = 8;
     private static final EntityDataAccessor<ItemStack> PARAMETER_ITEM_STACK = (EntityDataAccessor)Reflector.EntityItem_ITEM.getValue();
     private static boolean initialized;
+    private static final boolean incrementalUpdates = Boolean.getBoolean("dynamic.lights.incremental");
 
     public static void entityAdded(Entity entityIn, LevelRenderer renderGlobal)
     {
@@ -74,6 +76,7 @@ public class DynamicLights
             if (dynamiclight != null)
             {
                 dynamiclight.updateLitChunks(renderGlobal);
+                updateSnapshot();
             }
         }
     }
@@ -105,10 +108,22 @@ public class DynamicLights
                         dynamiclight.update(renderGlobal);
                     }
                 }
+
+                updateSnapshot();
             }
         }
     }
 
+    private static void updateSnapshot()
+    {
+        snapshot = DynamicLightsSnapshot.make(mapDynamicLights.valueList(), 7.5D);
+    }
+
+    public static boolean isIncrementalUpdates()
+    {
+        return incrementalUpdates;
+    }
+
     private static void initialize()
     {
         initialized = true;
@@ -281,44 +296,17 @@ public class DynamicLights
 
     public static double getLightLevel(BlockPos pos)
     {
-        double d0 = 0.0D;
+        DynamicLightsSnapshot dynamiclightssnapshot = snapshot;
 
-        synchronized (mapDynamicLights)
+        if (dynamiclightssnapshot.isEmpty())
         {
-            List<DynamicLight> list = mapDynamicLights.valueList();
-            int i = list.size();
-
-            for (int j = 0; j < i; ++j)
-            {
-                DynamicLight dynamiclight = list.get(j);
-                int k = dynamiclight.getLastLightLevel();
-
-                if (k > 0)
-                {
-                    double d1 = dynamiclight.getLastPosX();
-                    double d2 = dynamiclight.getLastPosY();
-                    double d3 = dynamiclight.getLastPosZ();
-                    double d4 = (double)pos.getX() - d1;
-                    double d5 = (double)pos.getY() - d2;
-                    double d6 = (double)pos.getZ() - d3;
-                    double d7 = d4 * d4 + d5 * d5 + d6 * d6;
-
-                    if (!(d7 > 56.25D))
-                    {
-                        double d8 = Math.sqrt(d7);
-                        double d9 = 1.0D - d8 / 7.5D;
-                        double d10 = d9 * (double)k;
-
-                        if (d10 > d0)
-                        {
-                            d0 = d10;
-                        }
-                    }
-                }
-            }
+            return 0.0D;
+        }
+        else
+        {
+            double d0 = dynamiclightssnapshot.getLightLevel(pos.getX(), pos.getY(), pos.getZ(), 7.5D);
+            return Config.limit(d0, 0.0D, 15.0D);
         }
-
-        return Config.limit(d0, 0.0D, 15.0D);
     }
 
     public static int getLightLevel(ItemStack itemStack)
@@ -523,6 +511,7 @@ public class DynamicLights
             }
 
             mapDynamicLights.clear();
+            snapshot = DynamicLightsSnapshot.EMPTY;
         }
     }
 
@@ -531,6 +520,7 @@ public class DynamicLights
         synchronized (mapDynamicLights)
         {
             mapDynamicLights.clear();
+            snapshot = DynamicLightsSnapshot.EMPTY;
         }
     }
 
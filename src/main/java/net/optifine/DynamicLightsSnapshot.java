@@ -0,0 +1,151 @@
+package net.optifine;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.List;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Mth;
+
+public class DynamicLightsSnapshot
+{
+    public static final DynamicLightsSnapshot EMPTY = new DynamicLightsSnapshot(new double[0], new double[0], new double[0], new int[0], new Long2ObjectOpenHashMap<>());
+    private final double[] posX;
+    private final double[] posY;
+    private final double[] posZ;
+    private final int[] lightLevels;
+    private final Long2ObjectMap<int[]> mapSectionLights;
+
+    private DynamicLightsSnapshot(double[] posX, double[] posY, double[] posZ, int[] lightLevels, Long2ObjectMap<int[]> mapSectionLights)
+    {
+        this.posX = posX;
+        this.posY = posY;
+        this.posZ = posZ;
+        this.lightLevels = lightLevels;
+        this.mapSectionLights = mapSectionLights;
+    }
+
+    public static DynamicLightsSnapshot make(List<DynamicLight> lights, double maxDist)
+    {
+        int i = 0;
+
+        for (int j = 0; j < lights.size(); ++j)
+        {
+            if (lights.get(j).getLastLightLevel() > 0)
+            {
+                ++i;
+            }
+        }
+
+        if (i <= 0)
+        {
+            return EMPTY;
+        }
+        else
+        {
+            double[] adouble = new double[i];
+            double[] adouble1 = new double[i];
+            double[] adouble2 = new double[i];
+            int[] aint = new int[i];
+            Long2ObjectMap<IntArrayList> long2objectmap = new Long2ObjectOpenHashMap<>();
+            int k = 0;
+
+            for (int l = 0; l < lights.size(); ++l)
+            {
+                DynamicLight dynamiclight = lights.get(l);
+                int i1 = dynamiclight.getLastLightLevel();
+
+                if (i1 > 0)
+                {
+                    double d0 = dynamiclight.getLastPosX();
+                    double d1 = dynamiclight.getLastPosY();
+                    double d2 = dynamiclight.getLastPosZ();
+                    adouble[k] = d0;
+                    adouble1[k] = d1;
+                    adouble2[k] = d2;
+                    aint[k] = i1;
+                    int j1 = SectionPos.blockToSectionCoord(Mth.floor(d0 - maxDist));
+                    int k1 = SectionPos.blockToSectionCoord(Mth.floor(d1 - maxDist));
+                    int l1 = SectionPos.blockToSectionCoord(Mth.floor(d2 - maxDist));
+                    int i2 = SectionPos.blockToSectionCoord(Mth.ceil(d0 + maxDist));
+                    int j2 = SectionPos.blockToSectionCoord(Mth.ceil(d1 + maxDist));
+                    int k2 = SectionPos.blockToSectionCoord(Mth.ceil(d2 + maxDist));
+
+                    for (int l2 = j1; l2 <= i2; ++l2)
+                    {
+                        for (int i3 = k1; i3 <= j2; ++i3)
+                        {
+                            for (int j3 = l1; j3 <= k2; ++j3)
+                            {
+                                long k3 = SectionPos.asLong(l2, i3, j3);
+                                IntArrayList intarraylist = long2objectmap.get(k3);
+
+                                if (intarraylist == null)
+                                {
+                                    intarraylist = new IntArrayList(2);
+                                    long2objectmap.put(k3, intarraylist);
+                                }
+
+                                intarraylist.add(k);
+                            }
+                        }
+                    }
+
+                    ++k;
+                }
+            }
+
+            Long2ObjectMap<int[]> long2objectmap1 = new Long2ObjectOpenHashMap<>(long2objectmap.size());
+
+            for (Long2ObjectMap.Entry<IntArrayList> entry : long2objectmap.long2ObjectEntrySet())
+            {
+                long2objectmap1.put(entry.getLongKey(), entry.getValue().toIntArray());
+            }
+
+            return new DynamicLightsSnapshot(adouble, adouble1, adouble2, aint, long2objectmap1);
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return this.lightLevels.length <= 0;
+    }
+
+    public double getLightLevel(int x, int y, int z, double maxDist)
+    {
+        int[] aint = this.mapSectionLights.get(SectionPos.asLong(SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(y), SectionPos.blockToSectionCoord(z)));
+
+        if (aint == null)
+        {
+            return 0.0D;
+        }
+        else
+        {
+            double d0 = 0.0D;
+            double d1 = maxDist * maxDist;
+
+            for (int i = 0; i < aint.length; ++i)
+            {
+                int j = aint[i];
+                double d2 = (double)x - this.posX[j];
+                double d3 = (double)y - this.posY[j];
+                double d4 = (double)z - this.posZ[j];
+                double d5 = d2 * d2 + d3 * d3 + d4 * d4;
+
+                if (!(d5 > d1))
+                {
+                    double d6 = Math.sqrt(d5);
+                    double d7 = 1.0D - d6 / maxDist;
+                    double d8 = d7 * (double)this.lightLevels[j];
+
+                    if (d8 > d0)
+                    {
+                        d0 = d8;
+                    }
+                }
+            }
+
+            return d0;
+        }
+    }
+}
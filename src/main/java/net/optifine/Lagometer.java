@@ -24,6 +24,7 @@ public class Lagometer
     public static boolean active = false;
     public static Lagometer.TimerNano timerTick = new Lagometer.TimerNano();
     public static Lagometer.TimerNano timerScheduledExecutables = new Lagometer.TimerNano();
+    public static Lagometer.TimerNano timerPackets = new Lagometer.TimerNano();
     public static Lagometer.TimerNano timerChunkUpload = new Lagometer.TimerNano();
     public static Lagometer.TimerNano timerChunkUpdate = new Lagometer.TimerNano();
     public static Lagometer.TimerNano timerVisibility = new Lagometer.TimerNano();
@@ -32,6 +33,7 @@ public class Lagometer
     private static long[] timesFrame = new long[512];
     private static long[] timesTick = new long[512];
     private static long[] timesScheduledExecutables = new long[512];
+    private static long[] timesPackets = new long[512];
     private static long[] timesChunkUpload = new long[512];
     private static long[] timesChunkUpdate = new long[512];
     private static long[] timesVisibility = new long[512];
@@ -67,7 +69,8 @@ public class Lagometer
                 boolean flag = MemoryMonitor.isGcEvent();
                 timesFrame[j] = timeNowNano - prevFrameTimeNano - renderTimeNano;
                 timesTick[j] = timerTick.timeNano;
-                timesScheduledExecutables[j] = timerScheduledExecutables.timeNano;
+                timesPackets[j] = Math.min(timerPackets.timeNano, timerScheduledExecutables.timeNano);
+                timesScheduledExecutables[j] = timerScheduledExecutables.timeNano - timesPackets[j];
                 timesChunkUpload[j] = timerChunkUpload.timeNano;
                 timesChunkUpdate[j] = timerChunkUpdate.timeNano;
                 timesVisibility[j] = timerVisibility.timeNano;
@@ -76,6 +79,7 @@ public class Lagometer
                 gcs[j] = flag;
                 timerTick.reset();
                 timerScheduledExecutables.reset();
+                timerPackets.reset();
                 timerVisibility.reset();
                 timerChunkUpdate.reset();
                 timerChunkUpload.reset();
@@ -134,6 +138,7 @@ public class Lagometer
                         f -= (float)renderTime(l, timesChunkUpdate[l], i1, 0, 0, f, bufferbuilder);
                         f -= (float)renderTime(l, timesChunkUpload[l], i1, 0, i1, f, bufferbuilder);
                         f -= (float)renderTime(l, timesScheduledExecutables[l], 0, 0, i1, f, bufferbuilder);
+                        f -= (float)renderTime(l, timesPackets[l], i1 / 2, i1 / 2, i1, f, bufferbuilder);
                         float f2 = f - (float)renderTime(l, timesTick[l], 0, i1, i1, f, bufferbuilder);
                     }
                 }
@@ -0,0 +1,380 @@
+package net.optifine;
+
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.ArrayDeque;
+import net.minecraft.client.Minecraft;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundAddExperienceOrbPacket;
+import net.minecraft.network.protocol.game.ClientboundAddMobPacket;
+import net.minecraft.network.protocol.game.ClientboundAddPaintingPacket;
+import net.minecraft.network.protocol.game.ClientboundAddPlayerPacket;
+import net.minecraft.network.protocol.game.ClientboundAddVibrationSignalPacket;
+import net.minecraft.network.protocol.game.ClientboundAnimatePacket;
+import net.minecraft.network.protocol.game.ClientboundBlockDestructionPacket;
+import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundBlockEventPacket;
+import net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket;
+import net.minecraft.network.protocol.game.ClientboundChatPacket;
+import net.minecraft.network.protocol.game.ClientboundCustomSoundPacket;
+import net.minecraft.network.protocol.game.ClientboundEntityEventPacket;
+import net.minecraft.network.protocol.game.ClientboundForgetLevelChunkPacket;
+import net.minecraft.network.protocol.game.ClientboundKeepAlivePacket;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.network.protocol.game.ClientboundLevelEventPacket;
+import net.minecraft.network.protocol.game.ClientboundLevelParticlesPacket;
+import net.minecraft.network.protocol.game.ClientboundLightUpdatePacket;
+import net.minecraft.network.protocol.game.ClientboundMoveEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundMoveVehiclePacket;
+import net.minecraft.network.protocol.game.ClientboundPingPacket;
+import net.minecraft.network.protocol.game.ClientboundPlayerAbilitiesPacket;
+import net.minecraft.network.protocol.game.ClientboundPlayerPositionPacket;
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket;
+import net.minecraft.network.protocol.game.ClientboundRemoveMobEffectPacket;
+import net.minecraft.network.protocol.game.ClientboundRotateHeadPacket;
+import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
+import net.minecraft.network.protocol.game.ClientboundSetActionBarTextPacket;
+import net.minecraft.network.protocol.game.ClientboundSetCarriedItemPacket;
+import net.minecraft.network.protocol.game.ClientboundSetChunkCacheCenterPacket;
+import net.minecraft.network.protocol.game.ClientboundSetChunkCacheRadiusPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityMotionPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEquipmentPacket;
+import net.minecraft.network.protocol.game.ClientboundSetExperiencePacket;
+import net.minecraft.network.protocol.game.ClientboundSetHealthPacket;
+import net.minecraft.network.protocol.game.ClientboundSetTimePacket;
+import net.minecraft.network.protocol.game.ClientboundSoundEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundSoundPacket;
+import net.minecraft.network.protocol.game.ClientboundStopSoundPacket;
+import net.minecraft.network.protocol.game.ClientboundTakeItemEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundUpdateAttributesPacket;
+import net.minecraft.network.protocol.game.ClientboundUpdateMobEffectPacket;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.entity.Entity;
+import net.optifine.util.PacketRunnable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class PacketScheduler
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final boolean ENABLED = !Boolean.getBoolean("packet.scheduler.disabled");
+    private static final long BUDGET_NANO = (long)Integer.getInteger("packet.scheduler.budget", 4) * 1000000L;
+    public static final int LANE_PLAYER = 0;
+    public static final int LANE_ENTITY = 1;
+    public static final int LANE_WORLD = 2;
+    public static final int LANE_COSMETIC = 3;
+    public static final int LANE_ORDERED = 4;
+    private static final String[] LANE_NAMES = new String[] {"player", "entity", "world", "cosmetic", "ordered"};
+    private static final Reference2IntOpenHashMap < Class<? >> LANES = makeLanes();
+    private final ArrayDeque<PacketScheduler.Task>[] lanes = new ArrayDeque[LANE_NAMES.length];
+    private final int[] laneDepths = new int[LANE_NAMES.length];
+    private long sequence;
+    private volatile int playerId = -1;
+    private volatile int vehicleId = -1;
+
+    public PacketScheduler()
+    {
+        for (int i = 0; i < this.lanes.length; ++i)
+        {
+            this.lanes[i] = new ArrayDeque<>();
+        }
+    }
+
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    private static Reference2IntOpenHashMap < Class<? >> makeLanes()
+    {
+        Reference2IntOpenHashMap < Class<? >> reference2intopenhashmap = new Reference2IntOpenHashMap<>();
+        reference2intopenhashmap.defaultReturnValue(LANE_ORDERED);
+        reference2intopenhashmap.put(ClientboundPlayerPositionPacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundMoveVehiclePacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundKeepAlivePacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundPingPacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundSetHealthPacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundSetExperiencePacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundPlayerAbilitiesPacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundSetCarriedItemPacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundChatPacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundSetActionBarTextPacket.class, LANE_PLAYER);
+        reference2intopenhashmap.put(ClientboundAddEntityPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundAddExperienceOrbPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundAddMobPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundAddPaintingPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundAddPlayerPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundRemoveEntitiesPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundMoveEntityPacket.Pos.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundMoveEntityPacket.PosRot.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundMoveEntityPacket.Rot.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundTeleportEntityPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundSetEntityMotionPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundRotateHeadPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundSetEntityDataPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundSetEquipmentPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundUpdateAttributesPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundEntityEventPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundUpdateMobEffectPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundRemoveMobEffectPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundTakeItemEntityPacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundAnimatePacket.class, LANE_ENTITY);
+        reference2intopenhashmap.put(ClientboundLevelChunkWithLightPacket.class, LANE_WORLD);
+        reference2intopenhashmap.put(ClientboundLightUpdatePacket.class, LANE_WORLD);
+        reference2intopenhashmap.put(ClientboundForgetLevelChunkPacket.class, LANE_WORLD);
+        reference2intopenhashmap.put(ClientboundBlockUpdatePacket.class, LANE_WORLD);
+        reference2intopenhashmap.put(ClientboundSectionBlocksUpdatePacket.class, LANE_WORLD);
+        reference2intopenhashmap.put(ClientboundBlockEntityDataPacket.class, LANE_WORLD);
+        reference2intopenhashmap.put(ClientboundBlockEventPacket.class, LANE_WORLD);
+        reference2intopenhashmap.put(ClientboundSetChunkCacheCenterPacket.class, LANE_WORLD);
+        reference2intopenhashmap.put(ClientboundSetChunkCacheRadiusPacket.class, LANE_WORLD);
+        reference2intopenhashmap.put(ClientboundLevelParticlesPacket.class, LANE_COSMETIC);
+        reference2intopenhashmap.put(ClientboundLevelEventPacket.class, LANE_COSMETIC);
+        reference2intopenhashmap.put(ClientboundBlockDestructionPacket.class, LANE_COSMETIC);
+        reference2intopenhashmap.put(ClientboundSoundPacket.class, LANE_COSMETIC);
+        reference2intopenhashmap.put(ClientboundSoundEntityPacket.class, LANE_COSMETIC);
+        reference2intopenhashmap.put(ClientboundCustomSoundPacket.class, LANE_COSMETIC);
+        reference2intopenhashmap.put(ClientboundStopSoundPacket.class, LANE_COSMETIC);
+        reference2intopenhashmap.put(ClientboundAddVibrationSignalPacket.class, LANE_COSMETIC);
+        reference2intopenhashmap.put(ClientboundSetTimePacket.class, LANE_COSMETIC);
+        return reference2intopenhashmap;
+    }
+
+    public static int getLane(Packet packet)
+    {
+        return LANES.getInt(packet.getClass());
+    }
+
+    public synchronized void add(PacketRunnable task)
+    {
+        int i = getLane(task.getPacket());
+
+        if (i == LANE_ENTITY && this.isLocalTarget(task.getPacket()))
+        {
+            i = LANE_ORDERED;
+        }
+
+        this.lanes[i].add(new PacketScheduler.Task(task, this.sequence++, i));
+    }
+
+    private boolean isLocalTarget(Packet packet)
+    {
+        int i = this.playerId;
+        int j = this.vehicleId;
+
+        if (packet instanceof ClientboundRemoveEntitiesPacket)
+        {
+            IntList intlist = ((ClientboundRemoveEntitiesPacket)packet).getEntityIds();
+            return intlist.contains(i) || j >= 0 && intlist.contains(j);
+        }
+        else
+        {
+            int k = getEntityId(packet);
+            return k >= 0 && (k == i || k == j);
+        }
+    }
+
+    private static int getEntityId(Packet packet)
+    {
+        if (packet instanceof ClientboundMoveEntityPacket)
+        {
+            return ((ClientboundMoveEntityPacket)packet).getEntityId();
+        }
+        else if (packet instanceof ClientboundTeleportEntityPacket)
+        {
+            return ((ClientboundTeleportEntityPacket)packet).getId();
+        }
+        else if (packet instanceof ClientboundSetEntityMotionPacket)
+        {
+            return ((ClientboundSetEntityMotionPacket)packet).getId();
+        }
+        else if (packet instanceof ClientboundRotateHeadPacket)
+        {
+            return ((ClientboundRotateHeadPacket)packet).getEntityId();
+        }
+        else if (packet instanceof ClientboundSetEntityDataPacket)
+        {
+            return ((ClientboundSetEntityDataPacket)packet).getId();
+        }
+        else if (packet instanceof ClientboundSetEquipmentPacket)
+        {
+            return ((ClientboundSetEquipmentPacket)packet).getEntity();
+        }
+        else if (packet instanceof ClientboundUpdateAttributesPacket)
+        {
+            return ((ClientboundUpdateAttributesPacket)packet).getEntityId();
+        }
+        else if (packet instanceof ClientboundEntityEventPacket)
+        {
+            return ((ClientboundEntityEventPacket)packet).getEntityId();
+        }
+        else if (packet instanceof ClientboundUpdateMobEffectPacket)
+        {
+            return ((ClientboundUpdateMobEffectPacket)packet).getEntityId();
+        }
+        else if (packet instanceof ClientboundRemoveMobEffectPacket)
+        {
+            return ((ClientboundRemoveMobEffectPacket)packet).getEntityId();
+        }
+        else if (packet instanceof ClientboundTakeItemEntityPacket)
+        {
+            return ((ClientboundTakeItemEntityPacket)packet).getItemId();
+        }
+        else if (packet instanceof ClientboundAnimatePacket)
+        {
+            return ((ClientboundAnimatePacket)packet).getId();
+        }
+        else if (packet instanceof ClientboundAddEntityPacket)
+        {
+            return ((ClientboundAddEntityPacket)packet).getId();
+        }
+        else
+        {
+            return -1;
+        }
+    }
+
+    private void updateLocalTargets(Entity player)
+    {
+        Entity entity = player != null ? player.getVehicle() : null;
+        this.playerId = player != null ? player.getId() : -1;
+        this.vehicleId = entity != null ? entity.getId() : -1;
+    }
+
+    public synchronized void clear()
+    {
+        for (int i = 0; i < this.lanes.length; ++i)
+        {
+            this.lanes[i].clear();
+        }
+    }
+
+    public void runTasks(ProfilerFiller profiler, Entity player)
+    {
+        this.updateLocalTargets(player);
+        long i = System.nanoTime();
+        long j = player != null ? i + BUDGET_NANO : Long.MAX_VALUE;
+        long l;
+
+        synchronized (this)
+        {
+            l = Config.isLazyChunkLoading() ? this.sequence : Long.MAX_VALUE;
+        }
+
+        boolean flag = false;
+        profiler.push("packets");
+
+        while (true)
+        {
+            boolean flag1 = !flag || System.nanoTime() < j;
+            PacketScheduler.Task packetscheduler$task = this.poll(flag1, l);
+
+            if (packetscheduler$task == null)
+            {
+                break;
+            }
+
+            int k = packetscheduler$task.lane;
+            boolean flag2 = k == LANE_WORLD || k == LANE_COSMETIC;
+            flag |= flag2;
+
+            if (flag2)
+            {
+                Lagometer.timerPackets.start();
+            }
+
+            profiler.push(LANE_NAMES[k]);
+
+            try
+            {
+                packetscheduler$task.runnable.run();
+            }
+            catch (Exception exception)
+            {
+                LOGGER.fatal("Error executing packet task {}", packetscheduler$task.runnable, exception);
+
+                if (exception.getCause() instanceof OutOfMemoryError)
+                {
+                    throw(OutOfMemoryError)exception.getCause();
+                }
+            }
+
+            profiler.pop();
+
+            if (flag2)
+            {
+                Lagometer.timerPackets.end();
+            }
+
+            if (k == LANE_ORDERED)
+            {
+                Minecraft minecraft = Minecraft.getInstance();
+                this.updateLocalTargets(minecraft.level != null ? minecraft.player : null);
+            }
+        }
+
+        synchronized (this)
+        {
+            for (int i1 = 0; i1 < this.lanes.length; ++i1)
+            {
+                this.laneDepths[i1] = this.lanes[i1].size();
+                profiler.incrementCounter(LANE_NAMES[i1] + "Queue", this.laneDepths[i1]);
+            }
+        }
+
+        profiler.pop();
+    }
+
+    private synchronized PacketScheduler.Task poll(boolean lowAllowed, long sequenceMax)
+    {
+        PacketScheduler.Task packetscheduler$task = this.lanes[LANE_ORDERED].peek();
+        long i = packetscheduler$task != null ? packetscheduler$task.sequence : Long.MAX_VALUE;
+
+        for (int j = LANE_PLAYER; j <= LANE_COSMETIC; ++j)
+        {
+            PacketScheduler.Task packetscheduler$task1 = this.lanes[j].peek();
+
+            if (packetscheduler$task1 != null && packetscheduler$task1.sequence < i && packetscheduler$task1.sequence < sequenceMax)
+            {
+                if (j < LANE_WORLD || lowAllowed)
+                {
+                    return this.lanes[j].poll();
+                }
+
+                return null;
+            }
+        }
+
+        return i < sequenceMax ? this.lanes[LANE_ORDERED].poll() : null;
+    }
+
+    public String getStats()
+    {
+        StringBuilder stringbuilder = new StringBuilder("Q:");
+
+        for (int i = 0; i < this.laneDepths.length; ++i)
+        {
+            stringbuilder.append(i == 0 ? " " : "/");
+            stringbuilder.append(this.laneDepths[i]);
+        }
+
+        return stringbuilder.toString();
+    }
+
+    private static class Task
+    {
+        private final PacketRunnable runnable;
+        private final long sequence;
+        private final int lane;
+
+        public Task(PacketRunnable runnable, long sequence, int lane)
+        {
+            this.runnable = runnable;
+            this.sequence = sequence;
+            this.lane = lane;
+        }
+    }
+}
@@ -32,7 +32,12 @@ public class SmartExecutorService extends ExecutorProxy
 
                 if (minecraft != null && (minecraft.isLocalServer() || minecraft.level != null))
                 {
-                    Config.sleep(10L * k);
+                    long l = ChunkBuildScheduler.getThrottleTime(k);
+
+                    if (l > 0L)
+                    {
+                        Config.sleep(l);
+                    }
                 }
             }
         };
@@ -0,0 +1,135 @@
+package net.optifine;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.BlockAndTintGetter;
+import net.minecraft.world.level.block.state.BlockState;
+import net.optifine.util.ArrayCache;
+
+public class SmoothColorCache
+{
+    private final BlockAndTintGetter blockAccess;
+    private final int posX;
+    private final int posY;
+    private final int posZ;
+    private final int radius;
+    private final int size;
+    private final int sizeTable;
+    private final Map<CustomColors.IColorizer, int[][]> mapTables = new IdentityHashMap<>();
+    private final BlockPosM blockPosM = new BlockPosM();
+    private static final int SECTION_SIZE = 16;
+    private static final ArrayCache cacheTables = new ArrayCache(Integer.TYPE, 64);
+
+    public SmoothColorCache(BlockAndTintGetter blockAccess, int posX, int posY, int posZ, int radius)
+    {
+        this.blockAccess = blockAccess;
+        this.posX = posX;
+        this.posY = posY;
+        this.posZ = posZ;
+        this.radius = radius;
+        this.size = SECTION_SIZE + radius * 2;
+        this.sizeTable = this.size + 1;
+    }
+
+    public int getRadius()
+    {
+        return this.radius;
+    }
+
+    public void release()
+    {
+        for (int[][] aint : this.mapTables.values())
+        {
+            for (int i = 0; i < aint.length; ++i)
+            {
+                cacheTables.free(aint[i]);
+                aint[i] = null;
+            }
+        }
+
+        this.mapTables.clear();
+    }
+
+    public int getColor(CustomColors.IColorizer colorizer, BlockState blockState, BlockPos blockPos)
+    {
+        int i = blockPos.getX() - this.posX;
+        int j = blockPos.getY() - this.posY;
+        int k = blockPos.getZ() - this.posZ;
+
+        if (i >= 0 && i < SECTION_SIZE && j >= 0 && j < SECTION_SIZE && k >= 0 && k < SECTION_SIZE)
+        {
+            int[] aint = this.getTable(colorizer, blockState, j);
+            int l = this.radius * 2 + 1;
+            int i1 = l * l;
+            int j1 = k * this.sizeTable + i;
+            int k1 = j1 + l;
+            int l1 = j1 + l * this.sizeTable;
+            int i2 = l1 + l;
+            int j2 = this.sizeTable * this.sizeTable;
+            int k2 = aint[i2] - aint[l1] - aint[k1] + aint[j1];
+            int l2 = aint[j2 + i2] - aint[j2 + l1] - aint[j2 + k1] + aint[j2 + j1];
+            int i3 = aint[2 * j2 + i2] - aint[2 * j2 + l1] - aint[2 * j2 + k1] + aint[2 * j2 + j1];
+            return k2 / i1 << 16 | l2 / i1 << 8 | i3 / i1;
+        }
+        else
+        {
+            return -1;
+        }
+    }
+
+    private int[] getTable(CustomColors.IColorizer colorizer, BlockState blockState, int y)
+    {
+        int[][] aint = this.mapTables.get(colorizer);
+
+        if (aint == null)
+        {
+            aint = new int[SECTION_SIZE][];
+            this.mapTables.put(colorizer, aint);
+        }
+
+        int[] aint1 = aint[y];
+
+        if (aint1 == null)
+        {
+            aint1 = this.makeTable(colorizer, blockState, y);
+            aint[y] = aint1;
+        }
+
+        return aint1;
+    }
+
+    private int[] makeTable(CustomColors.IColorizer colorizer, BlockState blockState, int y)
+    {
+        int i = this.sizeTable * this.sizeTable;
+        int[] aint = (int[])cacheTables.allocate(i * 3);
+        Arrays.fill(aint, 0, i * 3, 0);
+        int j = this.posX - this.radius;
+        int k = this.posZ - this.radius;
+
+        for (int l = 0; l < this.size; ++l)
+        {
+            int i1 = 0;
+            int j1 = 0;
+            int k1 = 0;
+            int l1 = (l + 1) * this.sizeTable;
+
+            for (int i2 = 0; i2 < this.size; ++i2)
+            {
+                this.blockPosM.setXyz(j + i2, this.posY + y, k + l);
+                int j2 = colorizer.getColor(blockState, this.blockAccess, this.blockPosM);
+                i1 += j2 >> 16 & 255;
+                j1 += j2 >> 8 & 255;
+                k1 += j2 & 255;
+                int k2 = l1 + i2 + 1;
+                int l2 = k2 - this.sizeTable;
+                aint[k2] = aint[l2] + i1;
+                aint[i + k2] = aint[i + l2] + j1;
+                aint[2 * i + k2] = aint[2 * i + l2] + k1;
+            }
+        }
+
+        return aint;
+    }
+}
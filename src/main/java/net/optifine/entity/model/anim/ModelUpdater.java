@@ -1,8 +1,14 @@
 package net.optifine.entity.model.anim;
 
+import net.optifine.expr.ExpressionCompiler;
+import net.optifine.expr.IExpression;
+import net.optifine.expr.IExpressionCached;
+import net.optifine.expr.IExpressionFloat;
+
 public class ModelUpdater
 {
     private ModelVariableUpdater[] modelVariableUpdaters;
+    private IExpressionCached[] expressionsCached = new IExpressionCached[0];
 
     public ModelUpdater(ModelVariableUpdater[] modelVariableUpdaters)
     {
@@ -11,9 +17,15 @@ public class ModelUpdater
 
     public void update()
     {
-        for (int i = 0; i < this.modelVariableUpdaters.length; ++i)
+        for (int i = 0; i < this.expressionsCached.length; ++i)
         {
-            ModelVariableUpdater modelvariableupdater = this.modelVariableUpdaters[i];
+            IExpressionCached iexpressioncached = this.expressionsCached[i];
+            iexpressioncached.reset();
+        }
+
+        for (int j = 0; j < this.modelVariableUpdaters.length; ++j)
+        {
+            ModelVariableUpdater modelvariableupdater = this.modelVariableUpdaters[j];
             modelvariableupdater.update();
         }
     }
@@ -30,6 +42,31 @@ public class ModelUpdater
             }
         }
 
+        if (ExpressionCompiler.isEnabled())
+        {
+            this.compile();
+        }
+
         return true;
     }
+
+    private void compile()
+    {
+        IExpression[] aiexpression = new IExpression[this.modelVariableUpdaters.length];
+
+        for (int i = 0; i < aiexpression.length; ++i)
+        {
+            aiexpression[i] = this.modelVariableUpdaters[i].getExpression();
+        }
+
+        ExpressionCompiler expressioncompiler = new ExpressionCompiler();
+        IExpression[] aiexpression1 = expressioncompiler.compile(aiexpression);
+
+        for (int j = 0; j < aiexpression1.length; ++j)
+        {
+            this.modelVariableUpdaters[j].setExpression((IExpressionFloat)aiexpression1[j]);
+        }
+
+        this.expressionsCached = expressioncompiler.getCachedExpressions();
+    }
 }
@@ -1,9 +1,11 @@
 package net.optifine.entity.model.anim;
 
 import net.minecraft.client.model.geom.ModelPart;
+import net.optifine.expr.IExpression;
+import net.optifine.expr.IExpressionCompilable;
 import net.optifine.expr.IExpressionFloat;
 
-public class ModelVariableFloat implements IExpressionFloat
+public class ModelVariableFloat implements IExpressionFloat, IExpressionCompilable
 {
     private String name;
     private ModelPart modelRenderer;
@@ -31,6 +33,49 @@ public class ModelVariableFloat implements IExpressionFloat
         this.enumModelVariable.setFloat(this.modelRenderer, value);
     }
 
+    public IExpression compile()
+    {
+        ModelPart modelpart = this.modelRenderer;
+
+        switch (this.enumModelVariable)
+        {
+            case POS_X:
+                return (IExpressionFloat)() -> modelpart.x;
+
+            case POS_Y:
+                return (IExpressionFloat)() -> modelpart.y;
+
+            case POS_Z:
+                return (IExpressionFloat)() -> modelpart.z;
+
+            case ANGLE_X:
+                return (IExpressionFloat)() -> modelpart.xRot;
+
+            case ANGLE_Y:
+                return (IExpressionFloat)() -> modelpart.yRot;
+
+            case ANGLE_Z:
+                return (IExpressionFloat)() -> modelpart.zRot;
+
+            case SCALE_X:
+                return (IExpressionFloat)() -> modelpart.scaleX;
+
+            case SCALE_Y:
+                return (IExpressionFloat)() -> modelpart.scaleY;
+
+            case SCALE_Z:
+                return (IExpressionFloat)() -> modelpart.scaleZ;
+
+            default:
+                return this;
+        }
+    }
+
+    public boolean isStable()
+    {
+        return false;
+    }
+
     public String toString()
     {
         return this.name;
@@ -44,6 +44,16 @@ public class ModelVariableUpdater
         this.expressionText = expressionText;
     }
 
+    public IExpressionFloat getExpression()
+    {
+        return this.expression;
+    }
+
+    public void setExpression(IExpressionFloat expression)
+    {
+        this.expression = expression;
+    }
+
     public void update()
     {
         float f = this.expression.eval();
@@ -8,9 +8,11 @@ import net.minecraft.client.renderer.entity.LivingEntityRenderer;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.level.block.entity.BlockEntity;
+import net.optifine.expr.IExpression;
+import net.optifine.expr.IExpressionCompilable;
 import net.optifine.expr.IExpressionFloat;
 
-public enum RenderEntityParameterFloat implements IExpressionFloat
+public enum RenderEntityParameterFloat implements IExpressionFloat, IExpressionCompilable
 {
     LIMB_SWING("limb_swing"),
     LIMB_SWING_SPEED("limb_speed"),
@@ -34,6 +36,9 @@ public enum RenderEntityParameterFloat implements IExpressionFloat
     private boolean blockEntity;
     private EntityRenderDispatcher renderManager;
     private static final RenderEntityParameterFloat[] VALUES = values();
+    private static final float[] cachedValues = new float[VALUES.length];
+    private static final int[] cachedIds = new int[VALUES.length];
+    private static int cacheId = 1;
 
     private RenderEntityParameterFloat(String name)
     {
@@ -58,6 +63,24 @@ public enum RenderEntityParameterFloat implements IExpressionFloat
     }
 
     public float eval()
+    {
+        int i = this.ordinal();
+
+        if (cachedIds[i] != cacheId)
+        {
+            cachedValues[i] = this.evalParameter();
+            cachedIds[i] = cacheId;
+        }
+
+        return cachedValues[i];
+    }
+
+    public static void resetCache()
+    {
+        ++cacheId;
+    }
+
+    private float evalParameter()
     {
         BlockEntity blockentity = BlockEntityRenderDispatcher.tileEntityRendered;
 
@@ -166,6 +189,63 @@ public enum RenderEntityParameterFloat implements IExpressionFloat
         }
     }
 
+    public IExpression compile()
+    {
+        EntityRenderDispatcher entityrenderdispatcher = this.renderManager;
+
+        switch (this)
+        {
+            case LIMB_SWING:
+                return (IExpressionFloat)() ->
+                {
+                    LivingEntityRenderer livingentityrenderer = getLivingRenderer(entityrenderdispatcher);
+                    return livingentityrenderer != null ? livingentityrenderer.renderLimbSwing : 0.0F;
+                };
+
+            case LIMB_SWING_SPEED:
+                return (IExpressionFloat)() ->
+                {
+                    LivingEntityRenderer livingentityrenderer = getLivingRenderer(entityrenderdispatcher);
+                    return livingentityrenderer != null ? livingentityrenderer.renderLimbSwingAmount : 0.0F;
+                };
+
+            case AGE:
+                return (IExpressionFloat)() ->
+                {
+                    LivingEntityRenderer livingentityrenderer = getLivingRenderer(entityrenderdispatcher);
+                    return livingentityrenderer != null ? livingentityrenderer.renderAgeInTicks : 0.0F;
+                };
+
+            case HEAD_YAW:
+                return (IExpressionFloat)() ->
+                {
+                    LivingEntityRenderer livingentityrenderer = getLivingRenderer(entityrenderdispatcher);
+                    return livingentityrenderer != null ? livingentityrenderer.renderHeadYaw : 0.0F;
+                };
+
+            case HEAD_PITCH:
+                return (IExpressionFloat)() ->
+                {
+                    LivingEntityRenderer livingentityrenderer = getLivingRenderer(entityrenderdispatcher);
+                    return livingentityrenderer != null ? livingentityrenderer.renderHeadPitch : 0.0F;
+                };
+
+            default:
+                return this;
+        }
+    }
+
+    private static LivingEntityRenderer getLivingRenderer(EntityRenderDispatcher renderManager)
+    {
+        EntityRenderer entityrenderer = renderManager.renderRender;
+        return entityrenderer instanceof LivingEntityRenderer && renderManager.renderEntity != null ? (LivingEntityRenderer)entityrenderer : null;
+    }
+
+    public boolean isStable()
+    {
+        return true;
+    }
+
     public static RenderEntityParameterFloat parse(String str)
     {
         if (str == null)
@@ -0,0 +1,21 @@
+package net.optifine.expr;
+
+public class ConstantBool implements IExpressionBool
+{
+    private boolean value;
+
+    public ConstantBool(boolean value)
+    {
+        this.value = value;
+    }
+
+    public boolean eval()
+    {
+        return this.value;
+    }
+
+    public String toString()
+    {
+        return "" + this.value;
+    }
+}
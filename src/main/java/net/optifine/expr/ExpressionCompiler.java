@@ -0,0 +1,503 @@
+package net.optifine.expr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import net.minecraft.util.Mth;
+import net.optifine.Config;
+import net.optifine.util.MathUtils;
+
+public class ExpressionCompiler
+{
+    private static final boolean enabled = Boolean.getBoolean("expr.compile");
+    private Map<IExpression, String> mapKeys = new IdentityHashMap<>();
+    private Map<IExpression, Integer> mapLeafIds = new IdentityHashMap<>();
+    private Map<String, Integer> mapKeyCounts = new HashMap<>();
+    private Map<String, IExpression> mapShared = new HashMap<>();
+    private List<IExpressionCached> listCached = new ArrayList<>();
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public IExpression[] compile(IExpression[] exprs)
+    {
+        for (int i = 0; i < exprs.length; ++i)
+        {
+            this.countKeys(exprs[i]);
+        }
+
+        IExpression[] aiexpression = new IExpression[exprs.length];
+
+        for (int j = 0; j < exprs.length; ++j)
+        {
+            IExpression iexpression = exprs[j];
+
+            try
+            {
+                aiexpression[j] = this.compileExpression(iexpression);
+            }
+            catch (RuntimeException runtimeexception)
+            {
+                Config.warn("Error compiling expression: " + iexpression);
+                Config.warn(runtimeexception.getClass().getName() + ": " + runtimeexception.getMessage());
+                aiexpression[j] = iexpression;
+            }
+        }
+
+        return aiexpression;
+    }
+
+    public IExpressionCached[] getCachedExpressions()
+    {
+        return this.listCached.toArray(new IExpressionCached[this.listCached.size()]);
+    }
+
+    private void countKeys(IExpression expr)
+    {
+        IExpression[] aiexpression = getArguments(expr);
+
+        if (aiexpression != null)
+        {
+            String s = this.getKey(expr);
+
+            if (s != null)
+            {
+                Integer integer = this.mapKeyCounts.get(s);
+                this.mapKeyCounts.put(s, integer == null ? 1 : integer + 1);
+            }
+
+            for (int i = 0; i < aiexpression.length; ++i)
+            {
+                this.countKeys(aiexpression[i]);
+            }
+        }
+    }
+
+    private String getKey(IExpression expr)
+    {
+        if (this.mapKeys.containsKey(expr))
+        {
+            return this.mapKeys.get(expr);
+        }
+        else
+        {
+            String s = this.makeKey(expr);
+            this.mapKeys.put(expr, s);
+            return s;
+        }
+    }
+
+    private String makeKey(IExpression expr)
+    {
+        if (expr instanceof ConstantFloat)
+        {
+            return "c" + Float.floatToIntBits(((ConstantFloat)expr).eval());
+        }
+        else if (expr instanceof ConstantBool)
+        {
+            return "b" + ((ConstantBool)expr).eval();
+        }
+        else
+        {
+            IExpression[] aiexpression = getArguments(expr);
+
+            if (aiexpression != null)
+            {
+                FunctionType functiontype = getType(expr);
+
+                if (!isDeterministic(functiontype))
+                {
+                    return null;
+                }
+                else
+                {
+                    StringBuilder stringbuilder = new StringBuilder();
+                    stringbuilder.append(functiontype.name());
+                    stringbuilder.append('(');
+
+                    for (int i = 0; i < aiexpression.length; ++i)
+                    {
+                        String s = this.getKey(aiexpression[i]);
+
+                        if (s == null)
+                        {
+                            return null;
+                        }
+
+                        if (i > 0)
+                        {
+                            stringbuilder.append(',');
+                        }
+
+                        stringbuilder.append(s);
+                    }
+
+                    stringbuilder.append(')');
+                    return stringbuilder.toString();
+                }
+            }
+            else if (expr instanceof IExpressionCompilable && !((IExpressionCompilable)expr).isStable())
+            {
+                return null;
+            }
+            else
+            {
+                Integer integer = this.mapLeafIds.get(expr);
+
+                if (integer == null)
+                {
+                    integer = this.mapLeafIds.size();
+                    this.mapLeafIds.put(expr, integer);
+                }
+
+                return "v" + integer;
+            }
+        }
+    }
+
+    private IExpression compileExpression(IExpression expr)
+    {
+        IExpression[] aiexpression = getArguments(expr);
+
+        if (aiexpression == null)
+        {
+            if (expr instanceof IExpressionCompilable)
+            {
+                IExpressionCompilable iexpressioncompilable = (IExpressionCompilable)expr;
+                return iexpressioncompilable.compile();
+            }
+            else
+            {
+                return expr;
+            }
+        }
+        else
+        {
+            FunctionType functiontype = getType(expr);
+
+            if (!isDeterministic(functiontype))
+            {
+                return expr;
+            }
+            else
+            {
+                String s = this.getKey(expr);
+
+                if (s != null)
+                {
+                    IExpression iexpression = this.mapShared.get(s);
+
+                    if (iexpression != null)
+                    {
+                        return iexpression;
+                    }
+                }
+
+                IExpression[] aiexpression1 = new IExpression[aiexpression.length];
+                boolean flag = functiontype != FunctionType.TIME;
+
+                for (int i = 0; i < aiexpression.length; ++i)
+                {
+                    aiexpression1[i] = this.compileExpression(aiexpression[i]);
+
+                    if (!isConstant(aiexpression1[i]))
+                    {
+                        flag = false;
+                    }
+                }
+
+                IExpression iexpression1 = flag ? fold(expr, functiontype, aiexpression1) : null;
+
+                if (iexpression1 == null)
+                {
+                    iexpression1 = makeFunction(expr, functiontype, aiexpression1);
+
+                    if (s != null && iexpression1 instanceof IExpressionFloat && this.getKeyCount(s) > 1)
+                    {
+                        ExpressionFloatCached expressionfloatcached = new ExpressionFloatCached((IExpressionFloat)iexpression1);
+                        this.listCached.add(expressionfloatcached);
+                        iexpression1 = expressionfloatcached;
+                    }
+                }
+
+                if (s != null)
+                {
+                    this.mapShared.put(s, iexpression1);
+                }
+
+                return iexpression1;
+            }
+        }
+    }
+
+    private int getKeyCount(String key)
+    {
+        Integer integer = this.mapKeyCounts.get(key);
+        return integer == null ? 0 : integer;
+    }
+
+    private static IExpression[] getArguments(IExpression expr)
+    {
+        if (expr instanceof FunctionFloat)
+        {
+            return ((FunctionFloat)expr).getArguments();
+        }
+        else if (expr instanceof FunctionBool)
+        {
+            return ((FunctionBool)expr).getArguments();
+        }
+        else
+        {
+            return expr instanceof FunctionFloatArray ? ((FunctionFloatArray)expr).getArguments() : null;
+        }
+    }
+
+    private static FunctionType getType(IExpression expr)
+    {
+        if (expr instanceof FunctionFloat)
+        {
+            return ((FunctionFloat)expr).getType();
+        }
+        else if (expr instanceof FunctionBool)
+        {
+            return ((FunctionBool)expr).getType();
+        }
+        else
+        {
+            return expr instanceof FunctionFloatArray ? ((FunctionFloatArray)expr).getType() : null;
+        }
+    }
+
+    private static boolean isDeterministic(FunctionType type)
+    {
+        return type != FunctionType.RANDOM && type != FunctionType.SMOOTH;
+    }
+
+    private static boolean isConstant(IExpression expr)
+    {
+        return expr instanceof ConstantFloat || expr instanceof ConstantBool;
+    }
+
+    private static IExpression fold(IExpression expr, FunctionType type, IExpression[] args)
+    {
+        if (expr instanceof FunctionFloat)
+        {
+            return new ConstantFloat(type.evalFloat(args));
+        }
+        else
+        {
+            return expr instanceof FunctionBool ? new ConstantBool(type.evalBool(args)) : null;
+        }
+    }
+
+    private static IExpression makeFunction(IExpression expr, FunctionType type, IExpression[] args)
+    {
+        if (expr instanceof FunctionFloat)
+        {
+            return makeFloat(type, args);
+        }
+        else
+        {
+            return expr instanceof FunctionBool ? makeBool(type, args) : new FunctionFloatArray(type, args);
+        }
+    }
+
+    private static IExpressionFloat makeFloat(FunctionType type, IExpression[] args)
+    {
+        IExpressionFloat a = getFloat(args, 0);
+        IExpressionFloat b = getFloat(args, 1);
+        IExpressionFloat c = getFloat(args, 2);
+
+        switch (type)
+        {
+            case PLUS:
+                return () -> a.eval() + b.eval();
+
+            case MINUS:
+                return () -> a.eval() - b.eval();
+
+            case MUL:
+                return () -> a.eval() * b.eval();
+
+            case DIV:
+                return () -> a.eval() / b.eval();
+
+            case MOD:
+                return () ->
+                {
+                    float f = a.eval();
+                    float f1 = b.eval();
+                    return f - f1 * (float)((int)(f / f1));
+                };
+
+            case NEG:
+                return () -> -a.eval();
+
+            case SIN:
+                return () -> Mth.sin(a.eval());
+
+            case COS:
+                return () -> Mth.cos(a.eval());
+
+            case ASIN:
+                return () -> MathUtils.asin(a.eval());
+
+            case ACOS:
+                return () -> MathUtils.acos(a.eval());
+
+            case TAN:
+                return () -> (float)Math.tan((double)a.eval());
+
+            case ATAN:
+                return () -> (float)Math.atan((double)a.eval());
+
+            case ATAN2:
+                return () -> (float)Mth.atan2((double)a.eval(), (double)b.eval());
+
+            case TORAD:
+                return () -> MathUtils.toRad(a.eval());
+
+            case TODEG:
+                return () -> MathUtils.toDeg(a.eval());
+
+            case MIN:
+                if (args.length == 2)
+                {
+                    return () -> Math.min(a.eval(), b.eval());
+                }
+
+                return new FunctionFloat(type, args);
+
+            case MAX:
+                if (args.length == 2)
+                {
+                    return () -> Math.max(a.eval(), b.eval());
+                }
+
+                return new FunctionFloat(type, args);
+
+            case CLAMP:
+                return () -> Mth.clamp(a.eval(), b.eval(), c.eval());
+
+            case ABS:
+                return () -> Mth.abs(a.eval());
+
+            case EXP:
+                return () -> (float)Math.exp((double)a.eval());
+
+            case FLOOR:
+                return () -> (float)Mth.floor(a.eval());
+
+            case CEIL:
+                return () -> (float)Mth.ceil(a.eval());
+
+            case FRAC:
+                return () -> Mth.frac(a.eval());
+
+            case LOG:
+                return () -> (float)Math.log((double)a.eval());
+
+            case POW:
+                return () -> (float)Math.pow((double)a.eval(), (double)b.eval());
+
+            case ROUND:
+                return () -> (float)Math.round(a.eval());
+
+            case SIGNUM:
+                return () -> Math.signum(a.eval());
+
+            case SQRT:
+                return () -> Mth.sqrt(a.eval());
+
+            case FMOD:
+                return () ->
+                {
+                    float f = a.eval();
+                    float f1 = b.eval();
+                    return f - f1 * (float)Mth.floor(f / f1);
+                };
+
+            case IF:
+                if (args.length == 3)
+                {
+                    IExpressionBool iexpressionbool = getBool(args, 0);
+                    return () -> iexpressionbool.eval() ? b.eval() : c.eval();
+                }
+
+                return new FunctionFloat(type, args);
+
+            default:
+                return new FunctionFloat(type, args);
+        }
+    }
+
+    private static IExpressionBool makeBool(FunctionType type, IExpression[] args)
+    {
+        IExpressionBool p = getBool(args, 0);
+        IExpressionBool q = getBool(args, 1);
+        IExpressionFloat a = getFloat(args, 0);
+        IExpressionFloat b = getFloat(args, 1);
+        IExpressionFloat c = getFloat(args, 2);
+
+        switch (type)
+        {
+            case NOT:
+                return () -> !p.eval();
+
+            case AND:
+                return () -> p.eval() && q.eval();
+
+            case OR:
+                return () -> p.eval() || q.eval();
+
+            case GREATER:
+                return () -> a.eval() > b.eval();
+
+            case GREATER_OR_EQUAL:
+                return () -> a.eval() >= b.eval();
+
+            case SMALLER:
+                return () -> a.eval() < b.eval();
+
+            case SMALLER_OR_EQUAL:
+                return () -> a.eval() <= b.eval();
+
+            case EQUAL:
+                return () -> a.eval() == b.eval();
+
+            case NOT_EQUAL:
+                return () -> a.eval() != b.eval();
+
+            case BETWEEN:
+                return () ->
+                {
+                    float f = a.eval();
+                    return f >= b.eval() && f <= c.eval();
+                };
+
+            case EQUALS:
+                return () ->
+                {
+                    float f = a.eval() - b.eval();
+                    return Math.abs(f) <= c.eval();
+                };
+
+            default:
+                return new FunctionBool(type, args);
+        }
+    }
+
+    private static IExpressionFloat getFloat(IExpression[] args, int index)
+    {
+        return index < args.length && args[index] instanceof IExpressionFloat ? (IExpressionFloat)args[index] : null;
+    }
+
+    private static IExpressionBool getBool(IExpression[] args, int index)
+    {
+        return index < args.length && args[index] instanceof IExpressionBool ? (IExpressionBool)args[index] : null;
+    }
+}
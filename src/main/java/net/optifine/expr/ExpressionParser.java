@@ -379,7 +379,7 @@ public class ExpressionParser
     {
         Deque<Token> deque = new ArrayDeque<>();
         int i = 0;
-        Iterator iterator = deque.iterator();
+        Iterator iterator = dequep.iterator();
 
         while (iterator.hasNext())
         {
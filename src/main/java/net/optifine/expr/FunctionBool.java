@@ -16,6 +16,16 @@ public class FunctionBool implements IExpressionBool
         return this.type.evalBool(this.arguments);
     }
 
+    public FunctionType getType()
+    {
+        return this.type;
+    }
+
+    public IExpression[] getArguments()
+    {
+        return this.arguments;
+    }
+
     public String toString()
     {
         return this.type + "()";
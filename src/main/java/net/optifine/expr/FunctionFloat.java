@@ -48,6 +48,16 @@ public class FunctionFloat implements IExpressionFloat
         return iexpressionfloat.eval();
     }
 
+    public FunctionType getType()
+    {
+        return this.type;
+    }
+
+    public IExpression[] getArguments()
+    {
+        return this.arguments;
+    }
+
     public String toString()
     {
         return this.type + "()";
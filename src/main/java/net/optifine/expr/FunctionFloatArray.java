@@ -16,6 +16,16 @@ public class FunctionFloatArray implements IExpressionFloatArray
         return this.type.evalFloatArray(this.arguments);
     }
 
+    public FunctionType getType()
+    {
+        return this.type;
+    }
+
+    public IExpression[] getArguments()
+    {
+        return this.arguments;
+    }
+
     public String toString()
     {
         return this.type + "()";
@@ -0,0 +1,8 @@
+package net.optifine.expr;
+
+public interface IExpressionCompilable extends IExpression
+{
+    IExpression compile();
+
+    boolean isStable();
+}
@@ -0,0 +1,85 @@
+package net.optifine.expr;
+
+public class TestExpressionCompiler
+{
+    private static float valX;
+    private static float valY;
+    private static final String[] EXPRESSIONS = new String[] {"1 + 2 * 3", "-x + y", "x - y * 2 / 3", "x % 3", "fmod(x, 3)", "sin(x) * cos(y) + tan(x / 4)", "asin(clamp(x / 10, -1, 1)) + acos(clamp(y / 10, -1, 1))", "atan(x) + atan2(y, x)", "torad(x) + todeg(y)", "min(x, y) + max(x, y)", "min(x, y, 1, -1) + max(x, y, 1, -1)", "abs(x) + floor(y) + ceil(x) + frac(y)", "exp(x / 10) + log(abs(y) + 1)", "pow(abs(x), 0.5) + sqrt(abs(y))", "round(x) + signum(y)", "if(x > y, x, y)", "if(x > 1, 1, y > 1, 2, 3)", "sin(x * 0.6662) * 1.4 * y + sin(x * 0.6662) * 1.4", "pi * 2 + sin(pi / 2)", "x / 0", "if(x >= y && !(x == y) || x <= -1, 1, 0)", "if(x < y, 1, 0) + if(x != y, 1, 0)", "if(between(x, -1, 1), 1, 0) + if(equals(x, y, 0.5), 1, 0)", "if(in(floor(x), 1, 2, 3), 1, 0)", "if(true, x, y) + if(false, x, y)"};
+
+    public static void main(String[] args) throws Exception
+    {
+        IExpressionResolver iexpressionresolver = new IExpressionResolver()
+        {
+            public IExpression getExpression(String name)
+            {
+                if (name.equals("x"))
+                {
+                    return (IExpressionFloat)() -> TestExpressionCompiler.valX;
+                }
+                else
+                {
+                    return name.equals("y") ? (IExpressionFloat)() -> TestExpressionCompiler.valY : null;
+                }
+            }
+        };
+        ExpressionParser expressionparser = new ExpressionParser(iexpressionresolver);
+        IExpression[] aiexpression = new IExpression[EXPRESSIONS.length];
+
+        for (int i = 0; i < EXPRESSIONS.length; ++i)
+        {
+            aiexpression[i] = expressionparser.parse(EXPRESSIONS[i]);
+        }
+
+        ExpressionCompiler expressioncompiler = new ExpressionCompiler();
+        IExpression[] aiexpression1 = expressioncompiler.compile(aiexpression);
+        IExpressionCached[] aiexpressioncached = expressioncompiler.getCachedExpressions();
+        int j = 0;
+        int k = 0;
+
+        for (float f = -5.0F; f <= 5.0F; f += 0.25F)
+        {
+            for (float f1 = -5.0F; f1 <= 5.0F; f1 += 0.75F)
+            {
+                valX = f;
+                valY = f1;
+
+                for (int l = 0; l < aiexpressioncached.length; ++l)
+                {
+                    aiexpressioncached[l].reset();
+                }
+
+                for (int i1 = 0; i1 < aiexpression.length; ++i1)
+                {
+                    String s = eval(aiexpression[i1]);
+                    String s1 = eval(aiexpression1[i1]);
+                    ++j;
+
+                    if (!s.equals(s1))
+                    {
+                        ++k;
+                        dbg("*** DIFFERENT *** " + EXPRESSIONS[i1] + ", x: " + f + ", y: " + f1 + ", interpreted: " + s + ", compiled: " + s1);
+                    }
+                }
+            }
+        }
+
+        dbg("Expressions: " + aiexpression.length + ", cached: " + aiexpressioncached.length + ", checks: " + j + ", different: " + k);
+    }
+
+    private static String eval(IExpression expr)
+    {
+        if (expr instanceof IExpressionFloat)
+        {
+            return "" + Float.floatToIntBits(((IExpressionFloat)expr).eval());
+        }
+        else
+        {
+            return expr instanceof IExpressionBool ? "" + ((IExpressionBool)expr).eval() : "" + expr;
+        }
+    }
+
+    private static void dbg(String str)
+    {
+        System.out.println(str);
+    }
+}
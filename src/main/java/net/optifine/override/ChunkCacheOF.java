@@ -8,12 +8,14 @@ import net.minecraft.world.level.BlockAndTintGetter;
 import net.minecraft.world.level.ColorResolver;
 import net.minecraft.world.level.LightLayer;
 import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.PalettedContainer;
 import net.minecraft.world.level.lighting.LevelLightEngine;
 import net.minecraft.world.level.material.FluidState;
-import net.optifine.BlockPosM;
+import net.optifine.Config;
+import net.optifine.SmoothColorCache;
 import net.optifine.render.RenderEnv;
 import net.optifine.util.ArrayCache;
 
@@ -30,11 +32,17 @@ public class ChunkCacheOF implements BlockAndTintGetter
     private int[] combinedLights;
     private BlockState[] blockStates;
     private Biome[] biomes;
+    private byte[] lightsSky;
+    private byte[] lightsBlock;
     private final int arraySize;
     private RenderEnv renderEnv;
+    private SmoothColorCache smoothColorCache;
     private static final ArrayCache cacheCombinedLights = new ArrayCache(Integer.TYPE, 16);
     private static final ArrayCache cacheBlockStates = new ArrayCache(BlockState.class, 16);
     private static final ArrayCache cacheBiomes = new ArrayCache(Biome.class, 16);
+    private static final ArrayCache cacheLights = new ArrayCache(Byte.TYPE, 32);
+    private static final int SNAPSHOT_BORDER = 1;
+    private static final int SNAPSHOT_SIZE = 16 + SNAPSHOT_BORDER * 2;
 
     public ChunkCacheOF(RenderChunkRegion chunkCache, BlockPos posFromIn, BlockPos posToIn, int subIn)
     {
@@ -81,9 +89,53 @@ public class ChunkCacheOF implements BlockAndTintGetter
 
     public int getBrightness(LightLayer type, BlockPos pos)
     {
+        byte[] abyte = type == LightLayer.SKY ? this.lightsSky : this.lightsBlock;
+
+        if (abyte != null)
+        {
+            int i = this.getSnapshotIndex(pos);
+
+            if (i >= 0)
+            {
+                int j = abyte[i];
+
+                if (j < 0)
+                {
+                    j = this.chunkCache.getBrightness(type, pos);
+                    abyte[i] = (byte)j;
+                }
+
+                return j;
+            }
+        }
+
         return this.chunkCache.getBrightness(type, pos);
     }
 
+    private int getSnapshotIndex(BlockPos pos)
+    {
+        int i = pos.getX() - this.posX - 16 + SNAPSHOT_BORDER;
+
+        if (i >= 0 && i < SNAPSHOT_SIZE)
+        {
+            int j = pos.getY() - this.posY - 16 + SNAPSHOT_BORDER;
+
+            if (j >= 0 && j < SNAPSHOT_SIZE)
+            {
+                int k = pos.getZ() - this.posZ - 16 + SNAPSHOT_BORDER;
+                return k >= 0 && k < SNAPSHOT_SIZE ? (j * SNAPSHOT_SIZE + k) * SNAPSHOT_SIZE + i : -1;
+            }
+            else
+            {
+                return -1;
+            }
+        }
+        else
+        {
+            return -1;
+        }
+    }
+
     public BlockState getBlockState(BlockPos pos)
     {
         int i = this.getPositionIndex(pos);
@@ -126,6 +178,25 @@ public class ChunkCacheOF implements BlockAndTintGetter
         Arrays.fill(this.combinedLights, -1);
         Arrays.fill(this.blockStates, (Object)null);
         Arrays.fill(this.biomes, (Object)null);
+
+        if (this.sizeX == 48 && this.sizeY == 48 && this.sizeZ == 48)
+        {
+            int i = SNAPSHOT_SIZE * SNAPSHOT_SIZE * SNAPSHOT_SIZE;
+
+            if (this.lightsSky == null)
+            {
+                this.lightsSky = (byte[])cacheLights.allocate(i);
+            }
+
+            if (this.lightsBlock == null)
+            {
+                this.lightsBlock = (byte[])cacheLights.allocate(i);
+            }
+
+            Arrays.fill(this.lightsSky, (byte) - 1);
+            Arrays.fill(this.lightsBlock, (byte) - 1);
+        }
+
         this.loadBlockStates();
     }
 
@@ -133,29 +204,48 @@ public class ChunkCacheOF implements BlockAndTintGetter
     {
         if (this.sizeX == 48 && this.sizeY == 48 && this.sizeZ == 48)
         {
-            LevelChunk levelchunk = this.chunkCache.getChunk(1, 1);
-            BlockPosM blockposm = new BlockPosM();
-
-            for (int i = 16; i < 32; ++i)
+            if (!this.chunkCache.isDebug())
             {
-                int j = i * this.sizeXZ;
+                int i = this.posY >> 4;
 
-                for (int k = 16; k < 32; ++k)
+                for (int j = 0; j < 3; ++j)
                 {
-                    int l = k * this.sizeX;
-
-                    for (int i1 = 16; i1 < 32; ++i1)
+                    for (int k = 0; k < 3; ++k)
                     {
-                        blockposm.setXyz(this.posX + i1, this.posY + i, this.posZ + k);
-                        int j1 = j + l + i1;
-                        BlockState blockstate = levelchunk.getBlockState(blockposm);
-                        this.blockStates[j1] = blockstate;
+                        for (int l = 0; l < 3; ++l)
+                        {
+                            loadSection(this.blockStates, this.chunkCache.getSectionStates(l, i + j, k), l, j, k);
+                        }
                     }
                 }
             }
         }
     }
 
+    static void loadSection(BlockState[] blockStates, PalettedContainer<BlockState> states, int sectionX, int sectionY, int sectionZ)
+    {
+        BlockState blockstate = Blocks.AIR.defaultBlockState();
+        int i = Math.max(sectionY << 4, 16 - SNAPSHOT_BORDER);
+        int j = Math.min(sectionY + 1 << 4, 32 + SNAPSHOT_BORDER);
+        int k = Math.max(sectionZ << 4, 16 - SNAPSHOT_BORDER);
+        int l = Math.min(sectionZ + 1 << 4, 32 + SNAPSHOT_BORDER);
+        int i1 = Math.max(sectionX << 4, 16 - SNAPSHOT_BORDER);
+        int j1 = Math.min(sectionX + 1 << 4, 32 + SNAPSHOT_BORDER);
+
+        for (int k1 = i; k1 < j; ++k1)
+        {
+            for (int l1 = k; l1 < l; ++l1)
+            {
+                int i2 = k1 * 2304 + l1 * 48;
+
+                for (int j2 = i1; j2 < j1; ++j2)
+                {
+                    blockStates[i2 + j2] = states == null ? blockstate : states.get(j2 & 15, k1 & 15, l1 & 15);
+                }
+            }
+        }
+    }
+
     public void renderFinish()
     {
         cacheCombinedLights.free(this.combinedLights);
@@ -164,6 +254,16 @@ public class ChunkCacheOF implements BlockAndTintGetter
         this.blockStates = null;
         cacheBiomes.free(this.biomes);
         this.biomes = null;
+        cacheLights.free(this.lightsSky);
+        this.lightsSky = null;
+        cacheLights.free(this.lightsBlock);
+        this.lightsBlock = null;
+
+        if (this.smoothColorCache != null)
+        {
+            this.smoothColorCache.release();
+            this.smoothColorCache = null;
+        }
     }
 
     public int[] getCombinedLights()
@@ -171,6 +271,30 @@ public class ChunkCacheOF implements BlockAndTintGetter
         return this.combinedLights;
     }
 
+    public SmoothColorCache getSmoothColorCache()
+    {
+        if (this.sizeX != 48 || this.sizeY != 48 || this.sizeZ != 48)
+        {
+            return null;
+        }
+        else
+        {
+            int i = Config.getBiomeBlendRadius();
+
+            if (this.smoothColorCache == null || this.smoothColorCache.getRadius() != i)
+            {
+                if (this.smoothColorCache != null)
+                {
+                    this.smoothColorCache.release();
+                }
+
+                this.smoothColorCache = new SmoothColorCache(this, this.posX + 16, this.posY + 16, this.posZ + 16, i);
+            }
+
+            return this.smoothColorCache;
+        }
+    }
+
     public Biome getBiome(BlockPos pos)
     {
         int i = this.getPositionIndex(pos);
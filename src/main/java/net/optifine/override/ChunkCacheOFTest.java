@@ -0,0 +1,239 @@
+package net.optifine.override;
+
+import java.util.Arrays;
+import java.util.Random;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.PalettedContainer;
+
+public class ChunkCacheOFTest
+{
+    private static final int SECTIONS = 64;
+    private static final int ROUNDS = 5;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    public static void main(String[] args) throws Exception
+    {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        Random random = new Random(1L);
+        PalettedContainer<BlockState>[][] apalettedcontainer = new PalettedContainer[SECTIONS][];
+
+        for (int i = 0; i < SECTIONS; ++i)
+        {
+            apalettedcontainer[i] = makeSections(random);
+        }
+
+        BlockState[] ablockstate = new BlockState[48 * 48 * 48];
+        BlockState[] ablockstate1 = new BlockState[48 * 48 * 48];
+
+        for (int j = 0; j < SECTIONS; ++j)
+        {
+            checkEqual(apalettedcontainer[j], ablockstate1);
+        }
+
+        long k = Long.MAX_VALUE;
+        long l = Long.MAX_VALUE;
+        int i1 = 0;
+
+        for (int j1 = 0; j1 <= ROUNDS; ++j1)
+        {
+            long k1 = System.nanoTime();
+
+            for (int l1 = 0; l1 < SECTIONS; ++l1)
+            {
+                loadLazy(apalettedcontainer[l1], ablockstate);
+                i1 += readNeighbours(apalettedcontainer[l1], ablockstate);
+            }
+
+            long i2 = System.nanoTime();
+
+            for (int j2 = 0; j2 < SECTIONS; ++j2)
+            {
+                loadSnapshot(apalettedcontainer[j2], ablockstate1);
+                i1 -= readNeighbours(apalettedcontainer[j2], ablockstate1);
+            }
+
+            long k2 = System.nanoTime();
+
+            if (j1 > 0)
+            {
+                k = Math.min(k, i2 - k1);
+                l = Math.min(l, k2 - i2);
+            }
+        }
+
+        if (i1 != 0)
+        {
+            throw new RuntimeException("Different block counts: " + i1);
+        }
+        else
+        {
+            dbg("Sections: " + SECTIONS + ", lazy: " + k / (long)SECTIONS / 1000L + " us/section, snapshot: " + l / (long)SECTIONS / 1000L + " us/section");
+        }
+    }
+
+    private static PalettedContainer<BlockState>[] makeSections(Random random)
+    {
+        BlockState[] ablockstate = new BlockState[] {Blocks.STONE.defaultBlockState(), Blocks.STONE.defaultBlockState(), Blocks.STONE.defaultBlockState(), Blocks.ANDESITE.defaultBlockState(), Blocks.GRANITE.defaultBlockState(), Blocks.DIORITE.defaultBlockState(), Blocks.GRAVEL.defaultBlockState(), Blocks.COAL_ORE.defaultBlockState(), Blocks.IRON_ORE.defaultBlockState(), Blocks.CAVE_AIR.defaultBlockState()};
+        BlockState[] ablockstate1 = new BlockState[] {Blocks.GRASS.defaultBlockState(), Blocks.DANDELION.defaultBlockState(), Blocks.POPPY.defaultBlockState(), Blocks.OAK_LOG.defaultBlockState(), Blocks.OAK_LEAVES.defaultBlockState()};
+        PalettedContainer<BlockState>[] apalettedcontainer = new PalettedContainer[27];
+
+        for (int i = 0; i < 3; ++i)
+        {
+            for (int j = 0; j < 3; ++j)
+            {
+                for (int k = 0; k < 3; ++k)
+                {
+                    if (i < 2)
+                    {
+                        PalettedContainer<BlockState> palettedcontainer = new PalettedContainer<>(Block.BLOCK_STATE_REGISTRY, Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
+
+                        for (int l = 0; l < 16; ++l)
+                        {
+                            for (int i1 = 0; i1 < 16; ++i1)
+                            {
+                                for (int j1 = 0; j1 < 16; ++j1)
+                                {
+                                    BlockState blockstate;
+
+                                    if (i == 0 || l < 8)
+                                    {
+                                        blockstate = ablockstate[random.nextInt(ablockstate.length)];
+                                    }
+                                    else if (l == 8)
+                                    {
+                                        blockstate = Blocks.GRASS_BLOCK.defaultBlockState();
+                                    }
+                                    else
+                                    {
+                                        blockstate = random.nextInt(8) == 0 ? ablockstate1[random.nextInt(ablockstate1.length)] : Blocks.AIR.defaultBlockState();
+                                    }
+
+                                    palettedcontainer.set(j1, l, i1, blockstate);
+                                }
+                            }
+                        }
+
+                        apalettedcontainer[(i * 3 + j) * 3 + k] = palettedcontainer;
+                    }
+                }
+            }
+        }
+
+        return apalettedcontainer;
+    }
+
+    private static void loadLazy(PalettedContainer<BlockState>[] sections, BlockState[] blockStates)
+    {
+        Arrays.fill(blockStates, (Object)null);
+
+        for (int i = 16; i < 32; ++i)
+        {
+            for (int j = 16; j < 32; ++j)
+            {
+                for (int k = 16; k < 32; ++k)
+                {
+                    blockStates[i * 2304 + j * 48 + k] = getSectionState(sections, new BlockPos(k, i, j));
+                }
+            }
+        }
+    }
+
+    private static void loadSnapshot(PalettedContainer<BlockState>[] sections, BlockState[] blockStates)
+    {
+        Arrays.fill(blockStates, (Object)null);
+
+        for (int i = 0; i < 3; ++i)
+        {
+            for (int j = 0; j < 3; ++j)
+            {
+                for (int k = 0; k < 3; ++k)
+                {
+                    ChunkCacheOF.loadSection(blockStates, sections[(i * 3 + j) * 3 + k], k, i, j);
+                }
+            }
+        }
+    }
+
+    private static int readNeighbours(PalettedContainer<BlockState>[] sections, BlockState[] blockStates)
+    {
+        int i = 0;
+
+        for (int j = 16; j < 32; ++j)
+        {
+            for (int k = 16; k < 32; ++k)
+            {
+                for (int l = 16; l < 32; ++l)
+                {
+                    BlockPos blockpos = new BlockPos(l, j, k);
+
+                    if (!getBlockState(sections, blockStates, blockpos).isAir())
+                    {
+                        for (Direction direction : DIRECTIONS)
+                        {
+                            if (getBlockState(sections, blockStates, blockpos.relative(direction)).canOcclude())
+                            {
+                                ++i;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return i;
+    }
+
+    private static BlockState getBlockState(PalettedContainer<BlockState>[] sections, BlockState[] blockStates, BlockPos pos)
+    {
+        int i = pos.getY() * 2304 + pos.getZ() * 48 + pos.getX();
+        BlockState blockstate = blockStates[i];
+
+        if (blockstate == null)
+        {
+            blockstate = getSectionState(sections, pos);
+            blockStates[i] = blockstate;
+        }
+
+        return blockstate;
+    }
+
+    private static BlockState getSectionState(PalettedContainer<BlockState>[] sections, BlockPos pos)
+    {
+        PalettedContainer<BlockState> palettedcontainer = sections[((pos.getY() >> 4) * 3 + (pos.getZ() >> 4)) * 3 + (pos.getX() >> 4)];
+        return palettedcontainer == null ? Blocks.AIR.defaultBlockState() : palettedcontainer.get(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+    }
+
+    private static void checkEqual(PalettedContainer<BlockState>[] sections, BlockState[] blockStates)
+    {
+        loadSnapshot(sections, blockStates);
+
+        for (int i = 15; i < 33; ++i)
+        {
+            for (int j = 15; j < 33; ++j)
+            {
+                for (int k = 15; k < 33; ++k)
+                {
+                    BlockState blockstate = getSectionState(sections, new BlockPos(k, i, j));
+                    BlockState blockstate1 = blockStates[i * 2304 + j * 48 + k];
+
+                    if (blockstate != blockstate1)
+                    {
+                        throw new RuntimeException("Different block at " + k + "," + i + "," + j + ", lazy: " + blockstate + ", snapshot: " + blockstate1);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void dbg(String str)
+    {
+        System.out.println(str);
+    }
+}
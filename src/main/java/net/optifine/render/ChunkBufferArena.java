@@ -0,0 +1,124 @@
+package net.optifine.render;
+
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.minecraft.client.renderer.RenderType;
+
+public class ChunkBufferArena
+{
+    private final Queue<BufferBuilder>[] freeBuilders;
+    private final AtomicInteger[] freeCounts;
+    private final AtomicLong bytesAllocated = new AtomicLong();
+    private final AtomicLong bytesFree = new AtomicLong();
+    private volatile boolean closed;
+    private static final int SLAB_DIVIDER = 8;
+    private static final int SLAB_SIZE_MIN = 16384;
+    private static final int KEEP_PER_LAYER = 1;
+
+    public ChunkBufferArena()
+    {
+        int i = RenderType.CHUNK_RENDER_TYPES.length;
+        this.freeBuilders = new Queue[i];
+        this.freeCounts = new AtomicInteger[i];
+
+        for (int j = 0; j < i; ++j)
+        {
+            this.freeBuilders[j] = new ConcurrentLinkedQueue<>();
+            this.freeCounts[j] = new AtomicInteger();
+        }
+    }
+
+    public BufferBuilder allocate(RenderType renderType)
+    {
+        int i = renderType.ordinal();
+        BufferBuilder bufferbuilder = this.freeBuilders[i].poll();
+
+        if (bufferbuilder != null)
+        {
+            this.freeCounts[i].decrementAndGet();
+            this.bytesFree.addAndGet((long)(-bufferbuilder.getCapacity()));
+            return bufferbuilder;
+        }
+        else
+        {
+            bufferbuilder = new BufferBuilder(getSlabSize(renderType));
+            this.bytesAllocated.addAndGet((long)bufferbuilder.getCapacity());
+            return bufferbuilder;
+        }
+    }
+
+    public void free(RenderType renderType, BufferBuilder bufferBuilder, int capacityAllocated)
+    {
+        int i = bufferBuilder.getCapacity();
+        this.bytesAllocated.addAndGet((long)(i - capacityAllocated));
+
+        if (this.closed)
+        {
+            this.bytesAllocated.addAndGet((long)(-i));
+            bufferBuilder.release();
+        }
+        else
+        {
+            int j = renderType.ordinal();
+            this.bytesFree.addAndGet((long)i);
+            this.freeCounts[j].incrementAndGet();
+            this.freeBuilders[j].add(bufferBuilder);
+        }
+    }
+
+    public void trim()
+    {
+        this.trim(KEEP_PER_LAYER);
+    }
+
+    private void trim(int keepPerLayer)
+    {
+        for (int i = 0; i < this.freeBuilders.length; ++i)
+        {
+            while (this.freeCounts[i].get() > keepPerLayer)
+            {
+                BufferBuilder bufferbuilder = this.freeBuilders[i].poll();
+
+                if (bufferbuilder == null)
+                {
+                    break;
+                }
+
+                this.freeCounts[i].decrementAndGet();
+                long j = (long)bufferbuilder.getCapacity();
+                this.bytesFree.addAndGet(-j);
+                this.bytesAllocated.addAndGet(-j);
+                bufferbuilder.release();
+            }
+        }
+    }
+
+    public void close()
+    {
+        this.closed = true;
+        this.trim(0);
+    }
+
+    public long getBytesAllocated()
+    {
+        return this.bytesAllocated.get();
+    }
+
+    public long getBytesFree()
+    {
+        return this.bytesFree.get();
+    }
+
+    public static int getSlabSize(RenderType renderType)
+    {
+        return Math.max(SLAB_SIZE_MIN, renderType.bufferSize() / SLAB_DIVIDER);
+    }
+
+    public String toString()
+    {
+        return "allocated: " + this.getBytesAllocated() / 1024L + " KB, free: " + this.getBytesFree() / 1024L + " KB";
+    }
+}
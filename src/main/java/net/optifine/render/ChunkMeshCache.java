@@ -0,0 +1,644 @@
+package net.optifine.render;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.Options;
+import net.minecraft.client.renderer.texture.TextureAtlas;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.core.Registry;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.biome.Biome;
+import net.optifine.Config;
+import net.optifine.SmartAnimations;
+import net.optifine.shaders.Shaders;
+import net.optifine.shaders.config.ShaderOption;
+
+public class ChunkMeshCache
+{
+    private final File fileData;
+    private final File fileIndex;
+    private final File fileIndexTmp;
+    private final int capacity;
+    private RandomAccessFile randomAccessFile;
+    private FileLock fileLock;
+    private MappedByteBuffer buffer;
+    private final LinkedHashMap<ChunkMeshCache.Key, ChunkMeshCache.Entry> entries = new LinkedHashMap<>(1024, 0.75F, true);
+    private final TreeMap<Integer, Integer> freeExtents = new TreeMap<>();
+    private long bytesUsed;
+    private volatile long fingerprint;
+    private final Map<Biome, Integer> biomeHashes = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final AtomicLong countHits = new AtomicLong();
+    private final AtomicLong countMisses = new AtomicLong();
+    private final AtomicLong countStored = new AtomicLong();
+    private long timeIndexSavedMs = System.currentTimeMillis();
+    private boolean indexSaving;
+    private static final boolean ENABLED = Boolean.getBoolean("chunk.meshcache");
+    private static final int CAPACITY_MB = Integer.getInteger("chunk.meshcache.size", 256);
+    private static final int INDEX_MAGIC = 0x4D455348;
+    private static final int INDEX_VERSION = 2;
+    private static final int ENTRY_HEADER = 24;
+    private static final long INDEX_SAVE_INTERVAL_MS = 30000L;
+    private static final int ALIGN = 256;
+    private static final int ENTRY_SIZE_DIVIDER = 16;
+
+    private ChunkMeshCache(File dir, int capacity)
+    {
+        this.fileData = new File(dir, "meshes.bin");
+        this.fileIndex = new File(dir, "meshes.idx");
+        this.fileIndexTmp = new File(dir, "meshes.idx.tmp");
+        this.capacity = capacity;
+    }
+
+    public static ChunkMeshCache open()
+    {
+        if (ENABLED && CAPACITY_MB > 0)
+        {
+            File file1 = new File(Minecraft.getInstance().gameDirectory, "meshcache");
+            ChunkMeshCache chunkmeshcache = new ChunkMeshCache(file1, Math.min(CAPACITY_MB, 2047) * 1024 * 1024);
+
+            try
+            {
+                file1.mkdirs();
+                chunkmeshcache.openFiles();
+                return chunkmeshcache;
+            }
+            catch (IOException ioexception)
+            {
+                Config.warn("Mesh cache not available: " + ioexception.getClass().getName() + ": " + ioexception.getMessage());
+                chunkmeshcache.close();
+                return null;
+            }
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+    private void openFiles() throws IOException
+    {
+        this.randomAccessFile = new RandomAccessFile(this.fileData, "rw");
+
+        try
+        {
+            this.fileLock = this.randomAccessFile.getChannel().tryLock();
+        }
+        catch (OverlappingFileLockException overlappingfilelockexception)
+        {
+            this.fileLock = null;
+        }
+
+        if (this.fileLock == null)
+        {
+            throw new IOException("Locked by another instance: " + this.fileData);
+        }
+
+        boolean flag = this.randomAccessFile.length() == (long)this.capacity;
+
+        if (!flag)
+        {
+            this.randomAccessFile.setLength((long)this.capacity);
+        }
+
+        this.buffer = this.randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, (long)this.capacity);
+
+        if (flag && this.fileIndex.exists())
+        {
+            try
+            {
+                this.loadIndex();
+            }
+            catch (IOException ioexception)
+            {
+                Config.warn("Mesh cache index invalid: " + ioexception.getMessage());
+                this.entries.clear();
+            }
+        }
+
+        this.fileIndexTmp.delete();
+        this.rebuildFreeExtents();
+        Config.dbg("Mesh cache: " + this.entries.size() + " meshes, " + this.bytesUsed / 1024L / 1024L + "/" + this.capacity / 1024 / 1024 + " MB");
+    }
+
+    private void loadIndex() throws IOException
+    {
+        try (DataInputStream datainputstream = new DataInputStream(new BufferedInputStream(new FileInputStream(this.fileIndex))))
+        {
+            if (datainputstream.readInt() != INDEX_MAGIC || datainputstream.readInt() != INDEX_VERSION || datainputstream.readInt() != this.capacity)
+            {
+                throw new IOException("Unknown format");
+            }
+
+            int i = datainputstream.readInt();
+
+            for (int j = 0; j < i; ++j)
+            {
+                ChunkMeshCache.Key chunkmeshcache$key = new ChunkMeshCache.Key(datainputstream.readLong(), datainputstream.readLong());
+                int k = datainputstream.readInt();
+                int l = datainputstream.readInt();
+
+                if (k < 0 || l <= 0 || (long)k + (long)l > (long)this.capacity)
+                {
+                    throw new IOException("Invalid entry: " + k + ", " + l);
+                }
+
+                this.entries.put(chunkmeshcache$key, new ChunkMeshCache.Entry(k, l));
+            }
+        }
+    }
+
+    private ByteBuffer makeIndex()
+    {
+        ByteBuffer bytebuffer = ByteBuffer.allocate(16 + this.entries.size() * 24);
+        bytebuffer.putInt(INDEX_MAGIC);
+        bytebuffer.putInt(INDEX_VERSION);
+        bytebuffer.putInt(this.capacity);
+        bytebuffer.putInt(this.entries.size());
+
+        for (Map.Entry<ChunkMeshCache.Key, ChunkMeshCache.Entry> entry : this.entries.entrySet())
+        {
+            ChunkMeshCache.Key chunkmeshcache$key = entry.getKey();
+            ChunkMeshCache.Entry chunkmeshcache$entry = entry.getValue();
+            bytebuffer.putLong(chunkmeshcache$key.hash1);
+            bytebuffer.putLong(chunkmeshcache$key.hash2);
+            bytebuffer.putInt(chunkmeshcache$entry.offset);
+            bytebuffer.putInt(chunkmeshcache$entry.length);
+        }
+
+        bytebuffer.flip();
+        return bytebuffer;
+    }
+
+    private void saveIndex(ByteBuffer index) throws IOException
+    {
+        try (FileOutputStream fileoutputstream = new FileOutputStream(this.fileIndexTmp))
+        {
+            fileoutputstream.getChannel().write(index);
+        }
+
+        Files.move(this.fileIndexTmp.toPath(), this.fileIndex.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void saveIndexPeriodically()
+    {
+        ByteBuffer bytebuffer;
+
+        synchronized (this)
+        {
+            long i = System.currentTimeMillis();
+
+            if (this.buffer == null || this.indexSaving || i < this.timeIndexSavedMs + INDEX_SAVE_INTERVAL_MS)
+            {
+                return;
+            }
+
+            this.timeIndexSavedMs = i;
+            this.indexSaving = true;
+            bytebuffer = this.makeIndex();
+        }
+
+        try
+        {
+            this.saveIndex(bytebuffer);
+        }
+        catch (IOException ioexception)
+        {
+            Config.warn("Mesh cache index not saved: " + ioexception.getMessage());
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                this.indexSaving = false;
+            }
+        }
+    }
+
+    private void rebuildFreeExtents()
+    {
+        List<ChunkMeshCache.Entry> list = new ArrayList<>(this.entries.values());
+        list.sort((e1, e2) ->
+        {
+            return Integer.compare(e1.offset, e2.offset);
+        });
+        this.freeExtents.clear();
+        this.bytesUsed = 0L;
+        int i = 0;
+
+        for (ChunkMeshCache.Entry chunkmeshcache$entry : list)
+        {
+            if (chunkmeshcache$entry.offset < i)
+            {
+                Config.warn("Mesh cache index overlaps, clearing");
+                this.entries.clear();
+                this.freeExtents.clear();
+                this.freeExtents.put(0, this.capacity);
+                this.bytesUsed = 0L;
+                return;
+            }
+
+            if (chunkmeshcache$entry.offset > i)
+            {
+                this.freeExtents.put(i, chunkmeshcache$entry.offset - i);
+            }
+
+            i = chunkmeshcache$entry.offset + chunkmeshcache$entry.length;
+            this.bytesUsed += (long)chunkmeshcache$entry.length;
+        }
+
+        if (i < this.capacity)
+        {
+            this.freeExtents.put(i, this.capacity - i);
+        }
+    }
+
+    public ByteBuffer get(ChunkMeshCache.Key key)
+    {
+        MappedByteBuffer mappedbytebuffer;
+        ChunkMeshCache.Entry chunkmeshcache$entry;
+
+        synchronized (this)
+        {
+            mappedbytebuffer = this.buffer;
+
+            if (mappedbytebuffer == null)
+            {
+                return null;
+            }
+
+            chunkmeshcache$entry = this.entries.get(key);
+        }
+
+        if (chunkmeshcache$entry == null)
+        {
+            this.countMisses.incrementAndGet();
+            return null;
+        }
+        else
+        {
+            int i = chunkmeshcache$entry.offset;
+            long j = mappedbytebuffer.getLong(i);
+            long k = mappedbytebuffer.getLong(i + 8);
+            int l = mappedbytebuffer.getInt(i + 16);
+            int i1 = mappedbytebuffer.getInt(i + 20);
+
+            if (j == key.hash1 && k == key.hash2 && l >= 0 && l <= chunkmeshcache$entry.length - ENTRY_HEADER)
+            {
+                byte[] abyte = new byte[l];
+                ByteBuffer bytebuffer = mappedbytebuffer.duplicate();
+                bytebuffer.position(i + ENTRY_HEADER);
+                bytebuffer.get(abyte);
+                CRC32 crc32 = new CRC32();
+                crc32.update(abyte);
+
+                if ((int)crc32.getValue() == i1)
+                {
+                    this.countHits.incrementAndGet();
+                    return ByteBuffer.wrap(abyte);
+                }
+            }
+
+            synchronized (this)
+            {
+                if (this.entries.get(key) == chunkmeshcache$entry)
+                {
+                    this.remove(key);
+                }
+            }
+
+            this.countMisses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(ChunkMeshCache.Key key, ByteBuffer data)
+    {
+        int i = data.remaining();
+        int j = i + ENTRY_HEADER + ALIGN - 1 & -ALIGN;
+
+        if (j <= this.capacity / ENTRY_SIZE_DIVIDER)
+        {
+            MappedByteBuffer mappedbytebuffer;
+            int k;
+
+            synchronized (this)
+            {
+                mappedbytebuffer = this.buffer;
+
+                if (mappedbytebuffer == null)
+                {
+                    return;
+                }
+
+                this.remove(key);
+                k = this.allocate(j);
+
+                while (k < 0 && !this.entries.isEmpty())
+                {
+                    Iterator<ChunkMeshCache.Key> iterator = this.entries.keySet().iterator();
+                    ChunkMeshCache.Key chunkmeshcache$key = iterator.next();
+                    this.remove(chunkmeshcache$key);
+                    k = this.allocate(j);
+                }
+
+                if (k < 0)
+                {
+                    return;
+                }
+            }
+
+            ByteBuffer bytebuffer = data.duplicate();
+            CRC32 crc32 = new CRC32();
+            crc32.update(bytebuffer);
+            mappedbytebuffer.putLong(k, key.hash1);
+            mappedbytebuffer.putLong(k + 8, key.hash2);
+            mappedbytebuffer.putInt(k + 16, i);
+            mappedbytebuffer.putInt(k + 20, (int)crc32.getValue());
+            ByteBuffer bytebuffer1 = mappedbytebuffer.duplicate();
+            bytebuffer1.position(k + ENTRY_HEADER);
+            bytebuffer1.put(data.duplicate());
+
+            synchronized (this)
+            {
+                if (this.buffer != mappedbytebuffer)
+                {
+                    return;
+                }
+
+                this.remove(key);
+                this.entries.put(key, new ChunkMeshCache.Entry(k, j));
+                this.bytesUsed += (long)j;
+                this.countStored.incrementAndGet();
+            }
+
+            this.saveIndexPeriodically();
+        }
+    }
+
+    private void remove(ChunkMeshCache.Key key)
+    {
+        ChunkMeshCache.Entry chunkmeshcache$entry = this.entries.remove(key);
+
+        if (chunkmeshcache$entry != null)
+        {
+            this.bytesUsed -= (long)chunkmeshcache$entry.length;
+            this.free(chunkmeshcache$entry.offset, chunkmeshcache$entry.length);
+        }
+    }
+
+    private int allocate(int length)
+    {
+        for (Map.Entry<Integer, Integer> entry : this.freeExtents.entrySet())
+        {
+            int i = entry.getValue();
+
+            if (i >= length)
+            {
+                int j = entry.getKey();
+                this.freeExtents.remove(j);
+
+                if (i > length)
+                {
+                    this.freeExtents.put(j + length, i - length);
+                }
+
+                return j;
+            }
+        }
+
+        return -1;
+    }
+
+    private void free(int offset, int length)
+    {
+        Map.Entry<Integer, Integer> entry = this.freeExtents.floorEntry(offset);
+
+        if (entry != null && entry.getKey() + entry.getValue() == offset)
+        {
+            offset = entry.getKey();
+            length += entry.getValue();
+            this.freeExtents.remove(offset);
+        }
+
+        Integer integer = this.freeExtents.get(offset + length);
+
+        if (integer != null)
+        {
+            this.freeExtents.remove(offset + length);
+            length += integer;
+        }
+
+        this.freeExtents.put(offset, length);
+    }
+
+    public synchronized void close()
+    {
+        if (this.buffer != null)
+        {
+            try
+            {
+                this.buffer.force();
+                this.saveIndex(this.makeIndex());
+            }
+            catch (IOException ioexception)
+            {
+                Config.warn("Mesh cache index not saved: " + ioexception.getMessage());
+            }
+
+            this.buffer = null;
+        }
+
+        if (this.randomAccessFile != null)
+        {
+            try
+            {
+                this.randomAccessFile.close();
+            }
+            catch (IOException ioexception1)
+            {
+            }
+
+            this.randomAccessFile = null;
+            this.fileLock = null;
+        }
+
+        this.entries.clear();
+        this.freeExtents.clear();
+        this.biomeHashes.clear();
+    }
+
+    public void updateFingerprint(Minecraft mc)
+    {
+        Options options = mc.options;
+        StringBuilder stringbuilder = new StringBuilder();
+        stringbuilder.append(Config.VERSION);
+        stringbuilder.append(',').append(options.ambientOcclusion).append(',').append(Config.getAmbientOcclusionLevel()).append(',').append(options.graphicsMode).append(',').append(Config.getMipmapLevels()).append(',').append(Config.getBiomeBlendRadius());
+        stringbuilder.append(',').append(Config.isConnectedTextures()).append(Config.isConnectedTexturesFancy()).append(Config.isConnectedModels());
+        stringbuilder.append(',').append(Config.isBetterGrass()).append(Config.isBetterGrassFancy()).append(Config.isBetterSnow());
+        stringbuilder.append(',').append(Config.isCustomColors()).append(Config.isSwampColors()).append(Config.isSmoothBiomes());
+        stringbuilder.append(',').append(Config.isNaturalTextures()).append(Config.isEmissiveTextures()).append(Config.isAlternateBlocks());
+        stringbuilder.append(',').append(Config.isTreesFancy()).append(Config.isTreesSmart()).append(Config.isCullFacesLeaves());
+        stringbuilder.append(',').append(Config.isRenderRegions()).append(SmartAnimations.isActive());
+        stringbuilder.append(',').append(options.resourcePacks);
+
+        if (Config.isShaders())
+        {
+            stringbuilder.append(',').append(Shaders.currentShaderName);
+            ShaderOption[] ashaderoption = Shaders.getShaderPackOptions();
+
+            if (ashaderoption != null)
+            {
+                for (ShaderOption shaderoption : ashaderoption)
+                {
+                    stringbuilder.append(',').append(shaderoption.getName()).append('=').append(shaderoption.getValue());
+                }
+            }
+        }
+        long i = (long)stringbuilder.toString().hashCode();
+        TextureAtlas textureatlas = mc.getModelManager().getAtlas(TextureAtlas.LOCATION_BLOCKS);
+
+        if (textureatlas != null)
+        {
+            long j = (long)textureatlas.atlasWidth << 32 | (long)textureatlas.atlasHeight;
+
+            for (TextureAtlasSprite textureatlassprite : textureatlas.getUploadedSprites())
+            {
+                long k = (long)textureatlassprite.getName().hashCode() * 31L + (long)textureatlassprite.getX();
+                k = k * 31L + (long)textureatlassprite.getY();
+                j += mix(k);
+            }
+
+            i = mix(i ^ j);
+        }
+
+        this.fingerprint = i;
+        this.biomeHashes.clear();
+    }
+
+    public ChunkMeshCache.Hasher newHasher()
+    {
+        return new ChunkMeshCache.Hasher(this.fingerprint);
+    }
+
+    public int getBiomeHash(Level level, Biome biome)
+    {
+        Integer integer = this.biomeHashes.get(biome);
+
+        if (integer == null)
+        {
+            ResourceLocation resourcelocation = level.registryAccess().registryOrThrow(Registry.BIOME_REGISTRY).getKey(biome);
+            int i = resourcelocation != null ? resourcelocation.hashCode() : 0;
+            i = i * 31 + biome.getWaterColor();
+            i = i * 31 + biome.getFoliageColor();
+            i = i * 31 + biome.getGrassColor(0.0D, 0.0D);
+            integer = i;
+            this.biomeHashes.put(biome, integer);
+        }
+
+        return integer;
+    }
+
+    public String getStats()
+    {
+        return "mC: " + this.countHits.get() + "/" + this.countMisses.get() + ", " + this.bytesUsed / 1024L / 1024L + " MB";
+    }
+
+    private static long mix(long value)
+    {
+        value ^= value >>> 33;
+        value *= -49064778989728563L;
+        value ^= value >>> 33;
+        value *= -4265267296055464877L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    public static class Hasher
+    {
+        private long hash1;
+        private long hash2;
+
+        public Hasher(long seed)
+        {
+            this.hash1 = seed;
+            this.hash2 = ~seed;
+        }
+
+        public void add(int value)
+        {
+            this.hash1 = Long.rotateLeft((this.hash1 ^ (long)value) * -7046029254386353131L, 27);
+            this.hash2 = (this.hash2 + (long)value) * -4417276706812531889L ^ this.hash2 >>> 29;
+        }
+
+        public ChunkMeshCache.Key getKey()
+        {
+            return new ChunkMeshCache.Key(ChunkMeshCache.mix(this.hash1), ChunkMeshCache.mix(this.hash2 ^ this.hash1 >>> 17));
+        }
+    }
+
+    public static class Key
+    {
+        private final long hash1;
+        private final long hash2;
+
+        public Key(long hash1, long hash2)
+        {
+            this.hash1 = hash1;
+            this.hash2 = hash2;
+        }
+
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof ChunkMeshCache.Key))
+            {
+                return false;
+            }
+            else
+            {
+                ChunkMeshCache.Key chunkmeshcache$key = (ChunkMeshCache.Key)obj;
+                return this.hash1 == chunkmeshcache$key.hash1 && this.hash2 == chunkmeshcache$key.hash2;
+            }
+        }
+
+        public int hashCode()
+        {
+            return (int)(this.hash1 ^ this.hash1 >>> 32);
+        }
+    }
+
+    private static class Entry
+    {
+        private final int offset;
+        private final int length;
+
+        public Entry(int offset, int length)
+        {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,636 @@
+package net.optifine.render;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BannerBlockEntity;
+import net.minecraft.world.level.block.entity.BedBlockEntity;
+import net.minecraft.world.level.block.entity.BellBlockEntity;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.entity.CampfireBlockEntity;
+import net.minecraft.world.level.block.entity.ChestBlockEntity;
+import net.minecraft.world.level.block.entity.EnderChestBlockEntity;
+import net.minecraft.world.level.block.entity.LecternBlockEntity;
+import net.minecraft.world.level.block.entity.ShulkerBoxBlockEntity;
+import net.minecraft.world.level.block.entity.SignBlockEntity;
+import net.minecraft.world.level.block.entity.SkullBlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.phys.AABB;
+import net.optifine.Config;
+
+public class EntityOcclusionCuller
+{
+    private Level level;
+    private double cameraX;
+    private double cameraY;
+    private double cameraZ;
+    private EntityOcclusionCuller.Request requestFilling = new EntityOcclusionCuller.Request();
+    private final AtomicReference<EntityOcclusionCuller.Request> requestPending = new AtomicReference<>();
+    private volatile EntityOcclusionCuller.Request requestFree = new EntityOcclusionCuller.Request();
+    private volatile EntityOcclusionCuller.Result result;
+    private final Queue<EntityOcclusionCuller.SectionUpdate> sectionUpdates = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> sectionsRequested = new ConcurrentLinkedQueue<>();
+    private final Long2ObjectOpenHashMap<long[]> sectionOpacity = new Long2ObjectOpenHashMap<>();
+    private final LongOpenHashSet sectionsPending = new LongOpenHashSet();
+    private final Object lock = new Object();
+    private Thread thread;
+    private volatile boolean closed;
+    private volatile boolean clearOpacity;
+    private final AtomicInteger countDirty = new AtomicInteger();
+    private static final boolean ENABLED = !Boolean.getBoolean("entity.occlusion.disabled");
+    private static final long[] OPACITY_EMPTY = new long[64];
+    private static final double NEAR_DISTANCE_SQ = 9.0D;
+    private static final double MOVE_MAX_SQ = 1.0D;
+    private static final double CORNER_INSET = 0.05D;
+    private static final int RAY_STEPS_MAX = 1024;
+    private static final int SECTIONS_CACHED_MAX = 8192;
+    private static final int DIRTY_MAX = 65536;
+    private static final int SNAPSHOTS_PER_FRAME = 32;
+
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    public void beginFrame(Level level, double camX, double camY, double camZ)
+    {
+        if (level != this.level)
+        {
+            this.level = level;
+            this.result = null;
+            this.clearOpacity = true;
+            this.sectionsRequested.clear();
+        }
+
+        this.cameraX = camX;
+        this.cameraY = camY;
+        this.cameraZ = camZ;
+        this.requestFilling.clear();
+    }
+
+    public boolean isHidden(Entity entity)
+    {
+        EntityOcclusionCuller.Result entityocclusionculler$result = this.getResult();
+
+        if (entityocclusionculler$result != null && entityocclusionculler$result.hiddenEntities.contains(entity.getId()) && !hasNameTag(entity))
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    public boolean isHidden(BlockEntity blockEntity)
+    {
+        EntityOcclusionCuller.Result entityocclusionculler$result = this.getResult();
+
+        if (entityocclusionculler$result != null && entityocclusionculler$result.hiddenBlockEntities.contains(blockEntity.getBlockPos().asLong()))
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    private EntityOcclusionCuller.Result getResult()
+    {
+        EntityOcclusionCuller.Result entityocclusionculler$result = this.result;
+
+        if (entityocclusionculler$result == null || entityocclusionculler$result.level != this.level)
+        {
+            return null;
+        }
+        else
+        {
+            double d0 = entityocclusionculler$result.cameraX - this.cameraX;
+            double d1 = entityocclusionculler$result.cameraY - this.cameraY;
+            double d2 = entityocclusionculler$result.cameraZ - this.cameraZ;
+            return d0 * d0 + d1 * d1 + d2 * d2 > MOVE_MAX_SQ ? null : entityocclusionculler$result;
+        }
+    }
+
+    public void addEntity(Entity entity)
+    {
+        if (!entity.noCulling && !hasNameTag(entity))
+        {
+            AABB aabb = entity.getBoundingBox();
+            this.requestFilling.add(false, (long)entity.getId(), aabb.minX, aabb.minY, aabb.minZ, aabb.maxX, aabb.maxY, aabb.maxZ);
+        }
+    }
+
+    private static boolean hasNameTag(Entity entity)
+    {
+        return entity instanceof Player || entity.shouldShowName() || entity.hasCustomName();
+    }
+
+    public void addBlockEntity(BlockEntity blockEntity, AABB renderBox)
+    {
+        if (renderBox == null)
+        {
+            renderBox = getRenderBox(blockEntity);
+        }
+
+        if (renderBox != null)
+        {
+            this.requestFilling.add(true, blockEntity.getBlockPos().asLong(), renderBox.minX, renderBox.minY, renderBox.minZ, renderBox.maxX, renderBox.maxY, renderBox.maxZ);
+        }
+    }
+
+    private static AABB getRenderBox(BlockEntity blockEntity)
+    {
+        BlockPos blockpos = blockEntity.getBlockPos();
+        double d0 = (double)blockpos.getX();
+        double d1 = (double)blockpos.getY();
+        double d2 = (double)blockpos.getZ();
+
+        if (!(blockEntity instanceof SignBlockEntity) && !(blockEntity instanceof BedBlockEntity) && !(blockEntity instanceof BellBlockEntity) && !(blockEntity instanceof CampfireBlockEntity))
+        {
+            if (!(blockEntity instanceof ChestBlockEntity) && !(blockEntity instanceof EnderChestBlockEntity) && !(blockEntity instanceof LecternBlockEntity))
+            {
+                if (!(blockEntity instanceof SkullBlockEntity) && !(blockEntity instanceof ShulkerBoxBlockEntity))
+                {
+                    return blockEntity instanceof BannerBlockEntity ? new AABB(d0 - 1.0D, d1 - 2.0D, d2 - 1.0D, d0 + 2.0D, d1 + 3.0D, d2 + 2.0D) : null;
+                }
+                else
+                {
+                    return new AABB(d0 - 0.5D, d1 - 0.5D, d2 - 0.5D, d0 + 1.5D, d1 + 1.5D, d2 + 1.5D);
+                }
+            }
+            else
+            {
+                return new AABB(d0, d1, d2, d0 + 1.0D, d1 + 1.5D, d2 + 1.0D);
+            }
+        }
+        else
+        {
+            return new AABB(d0, d1, d2, d0 + 1.0D, d1 + 1.0D, d2 + 1.0D);
+        }
+    }
+
+    public void endFrame()
+    {
+        if (this.level != null && !this.closed)
+        {
+            if (this.requestPending.get() == null)
+            {
+                EntityOcclusionCuller.Request entityocclusionculler$request = this.requestFree;
+
+                if (entityocclusionculler$request == null)
+                {
+                    entityocclusionculler$request = new EntityOcclusionCuller.Request();
+                }
+
+                this.requestFree = null;
+                EntityOcclusionCuller.Request entityocclusionculler$request1 = this.requestFilling;
+                entityocclusionculler$request1.setCamera(this.level, this.cameraX, this.cameraY, this.cameraZ);
+                this.requestFilling = entityocclusionculler$request;
+                this.requestPending.set(entityocclusionculler$request1);
+                this.startThread();
+                this.updateSnapshots();
+
+                synchronized (this.lock)
+                {
+                    this.lock.notify();
+                }
+            }
+        }
+    }
+
+    private void updateSnapshots()
+    {
+        for (int i = 0; i < SNAPSHOTS_PER_FRAME; ++i)
+        {
+            Long olong = this.sectionsRequested.poll();
+
+            if (olong == null)
+            {
+                break;
+            }
+
+            long j = olong.longValue();
+            LevelChunk levelchunk = this.level.getChunkSource().getChunkNow(SectionPos.x(j), SectionPos.z(j));
+            long[] along = null;
+
+            if (levelchunk != null)
+            {
+                int k = this.level.getSectionIndexFromSectionY(SectionPos.y(j));
+                LevelChunkSection[] alevelchunksection = levelchunk.getSections();
+                along = k >= 0 && k < alevelchunksection.length ? makeOpacity(alevelchunksection[k]) : OPACITY_EMPTY;
+            }
+
+            this.addSectionUpdate(j, along);
+        }
+    }
+
+    public void onSectionDirty(int sectionX, int sectionY, int sectionZ)
+    {
+        if (this.thread != null)
+        {
+            this.addSectionUpdate(SectionPos.asLong(sectionX, sectionY, sectionZ), (long[])null);
+        }
+    }
+
+    private void addSectionUpdate(long key, long[] opacity)
+    {
+        if (this.countDirty.incrementAndGet() > DIRTY_MAX)
+        {
+            this.clearOpacity = true;
+        }
+        else
+        {
+            this.sectionUpdates.add(new EntityOcclusionCuller.SectionUpdate(key, opacity));
+        }
+    }
+
+    public void close()
+    {
+        this.closed = true;
+        this.result = null;
+
+        synchronized (this.lock)
+        {
+            this.lock.notify();
+        }
+    }
+
+    private void startThread()
+    {
+        if (this.thread == null)
+        {
+            this.thread = new Thread(this::runWorker, "Entity Occlusion Culler");
+            this.thread.setDaemon(true);
+            this.thread.setPriority(4);
+            this.thread.start();
+        }
+    }
+
+    private void runWorker()
+    {
+        while (!this.closed)
+        {
+            EntityOcclusionCuller.Request entityocclusionculler$request = this.requestPending.get();
+
+            if (entityocclusionculler$request == null)
+            {
+                synchronized (this.lock)
+                {
+                    try
+                    {
+                        if (this.requestPending.get() == null && !this.closed)
+                        {
+                            this.lock.wait(100L);
+                        }
+                    }
+                    catch (InterruptedException interruptedexception)
+                    {
+                        return;
+                    }
+                }
+            }
+            else
+            {
+                try
+                {
+                    this.result = this.process(entityocclusionculler$request);
+                }
+                catch (Exception exception)
+                {
+                    Config.warn("Entity occlusion: " + exception.getClass().getName() + ": " + exception.getMessage());
+                    this.sectionOpacity.clear();
+                    this.sectionsPending.clear();
+                }
+
+                entityocclusionculler$request.clear();
+                this.requestFree = entityocclusionculler$request;
+                this.requestPending.set((EntityOcclusionCuller.Request)null);
+            }
+        }
+
+        this.sectionOpacity.clear();
+    }
+
+    private EntityOcclusionCuller.Result process(EntityOcclusionCuller.Request request)
+    {
+        if (this.clearOpacity)
+        {
+            this.clearOpacity = false;
+            this.sectionOpacity.clear();
+            this.sectionsPending.clear();
+            this.sectionUpdates.clear();
+            this.countDirty.set(0);
+        }
+
+        EntityOcclusionCuller.SectionUpdate entityocclusionculler$sectionupdate;
+
+        while ((entityocclusionculler$sectionupdate = this.sectionUpdates.poll()) != null)
+        {
+            this.countDirty.decrementAndGet();
+            this.sectionsPending.remove(entityocclusionculler$sectionupdate.key);
+
+            if (entityocclusionculler$sectionupdate.opacity != null)
+            {
+                this.sectionOpacity.put(entityocclusionculler$sectionupdate.key, entityocclusionculler$sectionupdate.opacity);
+            }
+            else
+            {
+                this.sectionOpacity.remove(entityocclusionculler$sectionupdate.key);
+            }
+        }
+
+        if (this.sectionOpacity.size() > SECTIONS_CACHED_MAX)
+        {
+            this.sectionOpacity.clear();
+        }
+
+        EntityOcclusionCuller.Result entityocclusionculler$result = new EntityOcclusionCuller.Result(request.level, request.cameraX, request.cameraY, request.cameraZ);
+        double[] adouble = request.boxes;
+
+        for (int i = 0; i < request.count; ++i)
+        {
+            int j = i * 6;
+
+            if (!this.isBoxVisible(request, adouble[j], adouble[j + 1], adouble[j + 2], adouble[j + 3], adouble[j + 4], adouble[j + 5]))
+            {
+                if (request.blockEntity[i])
+                {
+                    entityocclusionculler$result.hiddenBlockEntities.add(request.keys[i]);
+                }
+                else
+                {
+                    entityocclusionculler$result.hiddenEntities.add((int)request.keys[i]);
+                }
+            }
+        }
+
+        return entityocclusionculler$result;
+    }
+
+    private boolean isBoxVisible(EntityOcclusionCuller.Request request, double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+    {
+        double d0 = request.cameraX;
+        double d1 = request.cameraY;
+        double d2 = request.cameraZ;
+        double d3 = Math.max(minX - d0, Math.max(0.0D, d0 - maxX));
+        double d4 = Math.max(minY - d1, Math.max(0.0D, d1 - maxY));
+        double d5 = Math.max(minZ - d2, Math.max(0.0D, d2 - maxZ));
+
+        if (d3 * d3 + d4 * d4 + d5 * d5 < NEAR_DISTANCE_SQ)
+        {
+            return true;
+        }
+        else
+        {
+            int i = floor(minX);
+            int j = floor(minY);
+            int k = floor(minZ);
+            int l = floor(maxX - 1.0E-4D);
+            int i1 = floor(maxY - 1.0E-4D);
+            int j1 = floor(maxZ - 1.0E-4D);
+            double d6 = Math.min(CORNER_INSET, (maxX - minX) / 4.0D);
+            double d7 = Math.min(CORNER_INSET, (maxY - minY) / 4.0D);
+            double d8 = Math.min(CORNER_INSET, (maxZ - minZ) / 4.0D);
+            double d9 = minX + d6;
+            double d10 = minY + d7;
+            double d11 = minZ + d8;
+            double d12 = maxX - d6;
+            double d13 = maxY - d7;
+            double d14 = maxZ - d8;
+
+            if (this.isRayClear(request.level, d0, d1, d2, (minX + maxX) * 0.5D, (minY + maxY) * 0.5D, (minZ + maxZ) * 0.5D, i, j, k, l, i1, j1))
+            {
+                return true;
+            }
+            else
+            {
+                for (int k1 = 0; k1 < 8; ++k1)
+                {
+                    double d15 = (k1 & 1) == 0 ? d9 : d12;
+                    double d16 = (k1 & 2) == 0 ? d10 : d13;
+                    double d17 = (k1 & 4) == 0 ? d11 : d14;
+
+                    if (this.isRayClear(request.level, d0, d1, d2, d15, d16, d17, i, j, k, l, i1, j1))
+                    {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+        }
+    }
+
+    private boolean isRayClear(Level level, double x0, double y0, double z0, double x1, double y1, double z1, int targetMinX, int targetMinY, int targetMinZ, int targetMaxX, int targetMaxY, int targetMaxZ)
+    {
+        int i = floor(x0);
+        int j = floor(y0);
+        int k = floor(z0);
+        int l = floor(x1);
+        int i1 = floor(y1);
+        int j1 = floor(z1);
+        double d0 = x1 - x0;
+        double d1 = y1 - y0;
+        double d2 = z1 - z0;
+        int k1 = d0 > 0.0D ? 1 : (d0 < 0.0D ? -1 : 0);
+        int l1 = d1 > 0.0D ? 1 : (d1 < 0.0D ? -1 : 0);
+        int i2 = d2 > 0.0D ? 1 : (d2 < 0.0D ? -1 : 0);
+        double d3 = k1 == 0 ? Double.MAX_VALUE : Math.abs(1.0D / d0);
+        double d4 = l1 == 0 ? Double.MAX_VALUE : Math.abs(1.0D / d1);
+        double d5 = i2 == 0 ? Double.MAX_VALUE : Math.abs(1.0D / d2);
+        double d6 = k1 == 0 ? Double.MAX_VALUE : d3 * (k1 > 0 ? (double)(i + 1) - x0 : x0 - (double)i);
+        double d7 = l1 == 0 ? Double.MAX_VALUE : d4 * (l1 > 0 ? (double)(j + 1) - y0 : y0 - (double)j);
+        double d8 = i2 == 0 ? Double.MAX_VALUE : d5 * (i2 > 0 ? (double)(k + 1) - z0 : z0 - (double)k);
+        int j2 = Math.abs(l - i) + Math.abs(i1 - j) + Math.abs(j1 - k);
+
+        if (j2 > RAY_STEPS_MAX)
+        {
+            return true;
+        }
+        else
+        {
+            for (int k2 = 0; k2 < j2; ++k2)
+            {
+                if (d6 < d7 && d6 < d8)
+                {
+                    i += k1;
+                    d6 += d3;
+                }
+                else if (d7 < d8)
+                {
+                    j += l1;
+                    d7 += d4;
+                }
+                else
+                {
+                    k += i2;
+                    d8 += d5;
+                }
+
+                if (i >= targetMinX && i <= targetMaxX && j >= targetMinY && j <= targetMaxY && k >= targetMinZ && k <= targetMaxZ)
+                {
+                    return true;
+                }
+
+                if (this.isOpaque(level, i, j, k))
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private boolean isOpaque(Level level, int x, int y, int z)
+    {
+        long[] along = this.getSectionOpacity(level, x >> 4, y >> 4, z >> 4);
+        int i = (y & 15) << 8 | (z & 15) << 4 | x & 15;
+        return (along[i >> 6] & 1L << i) != 0L;
+    }
+
+    private long[] getSectionOpacity(Level level, int sectionX, int sectionY, int sectionZ)
+    {
+        long i = SectionPos.asLong(sectionX, sectionY, sectionZ);
+        long[] along = this.sectionOpacity.get(i);
+
+        if (along != null)
+        {
+            return along;
+        }
+        else
+        {
+            if (sectionY >= level.getMinSection() && sectionY < level.getMaxSection() && this.sectionsPending.add(i))
+            {
+                this.sectionsRequested.add(i);
+            }
+
+            return OPACITY_EMPTY;
+        }
+    }
+
+    private static long[] makeOpacity(LevelChunkSection section)
+    {
+        if (section == null || section.hasOnlyAir())
+        {
+            return OPACITY_EMPTY;
+        }
+        else
+        {
+            long[] along = new long[64];
+            boolean flag = false;
+
+            for (int i = 0; i < 4096; ++i)
+            {
+                BlockState blockstate = section.getBlockState(i & 15, i >> 8, i >> 4 & 15);
+
+                if (blockstate.canOcclude() && blockstate.isSolidRender(EmptyBlockGetter.INSTANCE, BlockPos.ZERO))
+                {
+                    along[i >> 6] |= 1L << i;
+                    flag = true;
+                }
+            }
+
+            return flag ? along : OPACITY_EMPTY;
+        }
+    }
+
+    private static int floor(double value)
+    {
+        int i = (int)value;
+        return value < (double)i ? i - 1 : i;
+    }
+
+    private static class Request
+    {
+        private Level level;
+        private double cameraX;
+        private double cameraY;
+        private double cameraZ;
+        private int count;
+        private long[] keys = new long[256];
+        private boolean[] blockEntity = new boolean[256];
+        private double[] boxes = new double[256 * 6];
+
+        public void setCamera(Level level, double camX, double camY, double camZ)
+        {
+            this.level = level;
+            this.cameraX = camX;
+            this.cameraY = camY;
+            this.cameraZ = camZ;
+        }
+
+        public void add(boolean blockEntity, long key, double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+        {
+            if (this.count >= this.keys.length)
+            {
+                int i = this.keys.length * 2;
+                this.keys = Arrays.copyOf(this.keys, i);
+                this.blockEntity = Arrays.copyOf(this.blockEntity, i);
+                this.boxes = Arrays.copyOf(this.boxes, i * 6);
+            }
+
+            int j = this.count * 6;
+            this.keys[this.count] = key;
+            this.blockEntity[this.count] = blockEntity;
+            this.boxes[j] = minX;
+            this.boxes[j + 1] = minY;
+            this.boxes[j + 2] = minZ;
+            this.boxes[j + 3] = maxX;
+            this.boxes[j + 4] = maxY;
+            this.boxes[j + 5] = maxZ;
+            ++this.count;
+        }
+
+        public void clear()
+        {
+            this.count = 0;
+            this.level = null;
+        }
+    }
+
+    private static class SectionUpdate
+    {
+        private final long key;
+        private final long[] opacity;
+
+        public SectionUpdate(long key, long[] opacity)
+        {
+            this.key = key;
+            this.opacity = opacity;
+        }
+    }
+
+    private static class Result
+    {
+        private final Level level;
+        private final double cameraX;
+        private final double cameraY;
+        private final double cameraZ;
+        private final IntOpenHashSet hiddenEntities = new IntOpenHashSet();
+        private final LongOpenHashSet hiddenBlockEntities = new LongOpenHashSet();
+
+        public Result(Level level, double cameraX, double cameraY, double cameraZ)
+        {
+            this.level = level;
+            this.cameraX = cameraX;
+            this.cameraY = cameraY;
+            this.cameraZ = cameraZ;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package net.optifine.render;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class SectionFrustumCuller
+{
+    private int count;
+    private int anchorX;
+    private int anchorY;
+    private int anchorZ;
+    private int[] sectionX = new int[0];
+    private int[] sectionY = new int[0];
+    private int[] sectionZ = new int[0];
+    private float[] posX = new float[0];
+    private float[] posY = new float[0];
+    private float[] posZ = new float[0];
+    private int[] order = new int[0];
+    private int[] sectionGroup = new int[0];
+    private boolean[] visibleSorted = new boolean[0];
+    private final Long2IntOpenHashMap groupIds = new Long2IntOpenHashMap();
+    private int groupCount;
+    private int[] groupStart = new int[0];
+    private float[] groupMin = new float[0];
+    private float[] groupMax = new float[0];
+    private boolean[] visible = new boolean[0];
+    private final float[] planes = new float[24];
+    private boolean parallel = !Boolean.getBoolean("chunk.frustum.serial");
+    public static final int SECTION_SIZE = 16;
+    public static final int GROUP_SHIFT = 7;
+    private static final int PARALLEL_MIN = 8192;
+    private static final int PARALLEL_GROUPS = 4;
+    private static final int OUTSIDE = 0;
+    private static final int INTERSECTS = 1;
+    private static final int INSIDE = 2;
+
+    public SectionFrustumCuller()
+    {
+        this.groupIds.defaultReturnValue(-1);
+    }
+
+    public void setSectionCount(int count)
+    {
+        if (this.sectionX.length < count)
+        {
+            int i = Math.max(count, this.sectionX.length * 3 / 2);
+            this.sectionX = new int[i];
+            this.sectionY = new int[i];
+            this.sectionZ = new int[i];
+            this.posX = new float[i];
+            this.posY = new float[i];
+            this.posZ = new float[i];
+            this.order = new int[i];
+            this.sectionGroup = new int[i];
+            this.visible = new boolean[i];
+            this.visibleSorted = new boolean[i];
+        }
+
+        this.count = count;
+    }
+
+    public void setSection(int index, int x, int y, int z)
+    {
+        this.sectionX[index] = x;
+        this.sectionY[index] = y;
+        this.sectionZ[index] = z;
+    }
+
+    public void build()
+    {
+        int i = this.count;
+
+        if (i <= 0)
+        {
+            this.groupCount = 0;
+        }
+        else
+        {
+            this.anchorX = this.sectionX[0] >> GROUP_SHIFT << GROUP_SHIFT;
+            this.anchorY = this.sectionY[0];
+            this.anchorZ = this.sectionZ[0] >> GROUP_SHIFT << GROUP_SHIFT;
+            Long2IntOpenHashMap long2intopenhashmap = this.groupIds;
+            long2intopenhashmap.clear();
+            int[] aint = this.order;
+            int[] aint1 = this.sectionGroup;
+
+            for (int j = 0; j < i; ++j)
+            {
+                long k = (long)(this.sectionX[j] >> GROUP_SHIFT) << 32 | (long)(this.sectionZ[j] >> GROUP_SHIFT) & 4294967295L;
+                int l = long2intopenhashmap.get(k);
+
+                if (l < 0)
+                {
+                    l = long2intopenhashmap.size();
+                    long2intopenhashmap.put(k, l);
+                }
+
+                aint1[j] = l;
+            }
+
+            int i1 = long2intopenhashmap.size();
+
+            if (this.groupStart.length < i1 + 1)
+            {
+                this.groupStart = new int[i1 + 1];
+                this.groupMin = new float[i1 * 3];
+                this.groupMax = new float[i1 * 3];
+            }
+
+            int[] aint2 = this.groupStart;
+            Arrays.fill(aint2, 0, i1 + 1, 0);
+
+            for (int j1 = 0; j1 < i; ++j1)
+            {
+                ++aint2[aint1[j1] + 1];
+            }
+
+            for (int k1 = 0; k1 < i1; ++k1)
+            {
+                aint2[k1 + 1] += aint2[k1];
+            }
+
+            for (int l1 = 0; l1 < i; ++l1)
+            {
+                aint[aint2[aint1[l1]]++] = l1;
+            }
+
+            for (int i2 = i1; i2 > 0; --i2)
+            {
+                aint2[i2] = aint2[i2 - 1];
+            }
+
+            aint2[0] = 0;
+            Arrays.fill(this.groupMin, 0, i1 * 3, Float.POSITIVE_INFINITY);
+            Arrays.fill(this.groupMax, 0, i1 * 3, Float.NEGATIVE_INFINITY);
+
+            for (int j2 = 0; j2 < i; ++j2)
+            {
+                int k2 = aint[j2];
+                float f = (float)(this.sectionX[k2] - this.anchorX);
+                float f1 = (float)(this.sectionY[k2] - this.anchorY);
+                float f2 = (float)(this.sectionZ[k2] - this.anchorZ);
+                this.posX[j2] = f;
+                this.posY[j2] = f1;
+                this.posZ[j2] = f2;
+                int l2 = aint1[k2] * 3;
+                this.groupMin[l2] = Math.min(this.groupMin[l2], f);
+                this.groupMin[l2 + 1] = Math.min(this.groupMin[l2 + 1], f1);
+                this.groupMin[l2 + 2] = Math.min(this.groupMin[l2 + 2], f2);
+                this.groupMax[l2] = Math.max(this.groupMax[l2], f + (float)SECTION_SIZE);
+                this.groupMax[l2 + 1] = Math.max(this.groupMax[l2 + 1], f1 + (float)SECTION_SIZE);
+                this.groupMax[l2 + 2] = Math.max(this.groupMax[l2 + 2], f2 + (float)SECTION_SIZE);
+            }
+
+            this.groupCount = i1;
+        }
+    }
+
+    public boolean[] cull(float[] frustumPlanes, double camX, double camY, double camZ)
+    {
+        int i = this.count;
+        boolean[] aboolean = this.visible;
+        float f = (float)((double)this.anchorX - camX);
+        float f1 = (float)((double)this.anchorY - camY);
+        float f2 = (float)((double)this.anchorZ - camZ);
+
+        for (int j = 0; j < 6; ++j)
+        {
+            int k = j * 4;
+            float f3 = frustumPlanes[k];
+            float f4 = frustumPlanes[k + 1];
+            float f5 = frustumPlanes[k + 2];
+            this.planes[k] = f3;
+            this.planes[k + 1] = f4;
+            this.planes[k + 2] = f5;
+            this.planes[k + 3] = frustumPlanes[k + 3] + f3 * f + f4 * f1 + f5 * f2;
+        }
+
+        if (this.parallel && i >= PARALLEL_MIN && this.groupCount >= PARALLEL_GROUPS && ForkJoinPool.getCommonPoolParallelism() > 1)
+        {
+            ForkJoinPool.commonPool().invoke(new SectionFrustumCuller.CullTask(0, this.groupCount));
+        }
+        else
+        {
+            this.cullGroups(0, this.groupCount);
+        }
+
+        return aboolean;
+    }
+
+    public boolean isVisible(int index)
+    {
+        return this.visible[index];
+    }
+
+    public int getSectionCount()
+    {
+        return this.count;
+    }
+
+    public int getGroupCount()
+    {
+        return this.groupCount;
+    }
+
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    private void cullGroups(int groupFrom, int groupTo)
+    {
+        for (int i = groupFrom; i < groupTo; ++i)
+        {
+            int j = this.groupStart[i];
+            int k = this.groupStart[i + 1];
+            int l = this.getGroupState(i);
+
+            if (l == INTERSECTS)
+            {
+                this.cullSections(j, k);
+            }
+            else
+            {
+                boolean flag = l == INSIDE;
+                int[] aint = this.order;
+                boolean[] aboolean = this.visible;
+
+                for (int i1 = j; i1 < k; ++i1)
+                {
+                    aboolean[aint[i1]] = flag;
+                }
+            }
+        }
+    }
+
+    private int getGroupState(int group)
+    {
+        int i = group * 3;
+        float f = this.groupMin[i];
+        float f1 = this.groupMin[i + 1];
+        float f2 = this.groupMin[i + 2];
+        float f3 = this.groupMax[i];
+        float f4 = this.groupMax[i + 1];
+        float f5 = this.groupMax[i + 2];
+        float[] afloat = this.planes;
+        int j = INSIDE;
+
+        for (int k = 0; k < 24; k += 4)
+        {
+            float f6 = afloat[k];
+            float f7 = afloat[k + 1];
+            float f8 = afloat[k + 2];
+            float f9 = afloat[k + 3];
+            float f10 = f6 * (f6 >= 0.0F ? f3 : f) + f7 * (f7 >= 0.0F ? f4 : f1) + f8 * (f8 >= 0.0F ? f5 : f2) + f9;
+
+            if (f10 <= 0.0F)
+            {
+                return OUTSIDE;
+            }
+
+            float f11 = f6 * (f6 >= 0.0F ? f : f3) + f7 * (f7 >= 0.0F ? f1 : f4) + f8 * (f8 >= 0.0F ? f2 : f5) + f9;
+
+            if (f11 <= 0.0F)
+            {
+                j = INTERSECTS;
+            }
+        }
+
+        return j;
+    }
+
+    private void cullSections(int from, int to)
+    {
+        float[] afloat = this.posX;
+        float[] afloat1 = this.posY;
+        float[] afloat2 = this.posZ;
+        boolean[] aboolean = this.visibleSorted;
+        Arrays.fill(aboolean, from, to, true);
+
+        for (int i = 0; i < 24; i += 4)
+        {
+            float f = this.planes[i];
+            float f1 = this.planes[i + 1];
+            float f2 = this.planes[i + 2];
+            float f3 = this.planes[i + 3] + (f >= 0.0F ? f * (float)SECTION_SIZE : 0.0F) + (f1 >= 0.0F ? f1 * (float)SECTION_SIZE : 0.0F) + (f2 >= 0.0F ? f2 * (float)SECTION_SIZE : 0.0F);
+
+            for (int j = from; j < to; ++j)
+            {
+                aboolean[j] &= f * afloat[j] + f1 * afloat1[j] + f2 * afloat2[j] + f3 > 0.0F;
+            }
+        }
+
+        int[] aint = this.order;
+        boolean[] aboolean1 = this.visible;
+
+        for (int k = from; k < to; ++k)
+        {
+            aboolean1[aint[k]] = aboolean[k];
+        }
+    }
+
+    private class CullTask extends RecursiveAction
+    {
+        private final int groupFrom;
+        private final int groupTo;
+
+        public CullTask(int groupFrom, int groupTo)
+        {
+            this.groupFrom = groupFrom;
+            this.groupTo = groupTo;
+        }
+
+        protected void compute()
+        {
+            int i = SectionFrustumCuller.this.groupStart[this.groupTo] - SectionFrustumCuller.this.groupStart[this.groupFrom];
+
+            if (this.groupTo - this.groupFrom > 1 && i > PARALLEL_MIN / PARALLEL_GROUPS)
+            {
+                int j = this.groupFrom + this.groupTo >>> 1;
+                invokeAll(SectionFrustumCuller.this.new CullTask(this.groupFrom, j), SectionFrustumCuller.this.new CullTask(j, this.groupTo));
+            }
+            else
+            {
+                SectionFrustumCuller.this.cullGroups(this.groupFrom, this.groupTo);
+            }
+        }
+    }
+}
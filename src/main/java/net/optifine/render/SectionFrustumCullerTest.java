@@ -0,0 +1,242 @@
+package net.optifine.render;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SectionFrustumCullerTest
+{
+    private static final float FOV = 70.0F;
+    private static final float ASPECT = 1.7777778F;
+    private static final float NEAR = 0.05F;
+    private static int countVisible;
+
+    public static void main(String[] args) throws Exception
+    {
+        int i = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        List<double[]> list = args.length > 0 && !args[0].equals("-") ? loadCameraPath(args[0]) : makeCameraPath(240);
+        int j = i * 2 + 1;
+        int k = 24;
+        int l = j * j * k;
+        int[] aint = new int[l * 3];
+        SectionFrustumCuller sectionfrustumculler = new SectionFrustumCuller();
+        sectionfrustumculler.setSectionCount(l);
+        int i1 = 0;
+
+        for (int j1 = -i; j1 <= i; ++j1)
+        {
+            for (int k1 = -i; k1 <= i; ++k1)
+            {
+                for (int l1 = 0; l1 < k; ++l1)
+                {
+                    int i2 = 1000000 + j1 * 16;
+                    int j2 = -64 + l1 * 16;
+                    int k2 = -2000000 + k1 * 16;
+                    aint[i1 * 3] = i2;
+                    aint[i1 * 3 + 1] = j2;
+                    aint[i1 * 3 + 2] = k2;
+                    sectionfrustumculler.setSection(i1, i2, j2, k2);
+                    ++i1;
+                }
+            }
+        }
+
+        sectionfrustumculler.build();
+        dbg("Sections: " + l + ", groups: " + sectionfrustumculler.getGroupCount() + ", camera poses: " + list.size());
+        float far = (float)(i * 16 + 32);
+        float[] afloat = new float[24];
+        int l2 = 0;
+        long i3 = 0L;
+
+        for (double[] adouble : list)
+        {
+            makePlanes(adouble, far, afloat);
+            boolean[] aboolean = sectionfrustumculler.cull(afloat, adouble[0], adouble[1], adouble[2]);
+
+            for (int j3 = 0; j3 < l; ++j3)
+            {
+                boolean flag = cubeInFrustum(afloat, (float)((double)aint[j3 * 3] - adouble[0]), (float)((double)aint[j3 * 3 + 1] - adouble[1]), (float)((double)aint[j3 * 3 + 2] - adouble[2]));
+
+                if (flag != aboolean[j3])
+                {
+                    ++l2;
+                }
+
+                if (flag)
+                {
+                    ++i3;
+                }
+            }
+        }
+
+        dbg("Visible: " + i3 / (long)list.size() + " per pose, mismatches: " + l2);
+
+        for (int k3 = 0; k3 < 2; ++k3)
+        {
+            long l3 = testReference(list, aint, l, far, afloat);
+            sectionfrustumculler.setParallel(false);
+            long i4 = testCuller(list, sectionfrustumculler, far, afloat);
+            sectionfrustumculler.setParallel(true);
+            long j4 = testCuller(list, sectionfrustumculler, far, afloat);
+
+            if (k3 > 0)
+            {
+                int k4 = list.size();
+                dbg("Per pose, reference: " + l3 / (long)k4 + " ns, serial: " + i4 / (long)k4 + " ns, parallel: " + j4 / (long)k4 + " ns");
+            }
+        }
+    }
+
+    private static List<double[]> makeCameraPath(int count)
+    {
+        List<double[]> list = new ArrayList<>();
+
+        for (int i = 0; i < count; ++i)
+        {
+            double d0 = (double)i / (double)count;
+            double d1 = 1000000.0D + Math.sin(d0 * Math.PI * 2.0D) * 40.0D;
+            double d2 = 70.0D + Math.sin(d0 * Math.PI * 6.0D) * 20.0D;
+            double d3 = -2000000.0D + d0 * 64.0D;
+            double d4 = d0 * 720.0D;
+            double d5 = Math.sin(d0 * Math.PI * 4.0D) * 60.0D;
+            list.add(new double[] {d1, d2, d3, d4, d5});
+        }
+
+        return list;
+    }
+
+    private static List<double[]> loadCameraPath(String fileName) throws Exception
+    {
+        List<double[]> list = new ArrayList<>();
+
+        try (BufferedReader bufferedreader = new BufferedReader(new FileReader(fileName)))
+        {
+            String s;
+
+            while ((s = bufferedreader.readLine()) != null)
+            {
+                s = s.trim();
+
+                if (!s.isEmpty() && !s.startsWith("#"))
+                {
+                    String[] astring = s.split("\\s+");
+
+                    if (astring.length >= 5)
+                    {
+                        double[] adouble = new double[5];
+
+                        for (int i = 0; i < 5; ++i)
+                        {
+                            adouble[i] = Double.parseDouble(astring[i]);
+                        }
+
+                        list.add(adouble);
+                    }
+                }
+            }
+        }
+
+        return list;
+    }
+
+    private static void makePlanes(double[] pose, float far, float[] planes)
+    {
+        float f = (float)Math.toRadians(pose[3]);
+        float f1 = (float)Math.toRadians(pose[4]);
+        float f2 = -(float)(Math.sin((double)f) * Math.cos((double)f1));
+        float f3 = -(float)Math.sin((double)f1);
+        float f4 = (float)(Math.cos((double)f) * Math.cos((double)f1));
+        float f5 = (float)Math.cos((double)f);
+        float f6 = 0.0F;
+        float f7 = (float)Math.sin((double)f);
+        float f8 = f3 * f7 - f4 * f6;
+        float f9 = f4 * f5 - f2 * f7;
+        float f10 = f2 * f6 - f3 * f5;
+        float f11 = (float)Math.toRadians((double)(FOV / 2.0F));
+        float f12 = (float)Math.atan(Math.tan((double)f11) * (double)ASPECT);
+        setSidePlane(planes, 0, f2, f3, f4, f5, f6, f7, f12);
+        setSidePlane(planes, 1, f2, f3, f4, -f5, -f6, -f7, f12);
+        setSidePlane(planes, 2, f2, f3, f4, f8, f9, f10, f11);
+        setSidePlane(planes, 3, f2, f3, f4, -f8, -f9, -f10, f11);
+        setPlane(planes, 4, f2, f3, f4, -NEAR);
+        setPlane(planes, 5, -f2, -f3, -f4, far);
+    }
+
+    private static void setSidePlane(float[] planes, int index, float fx, float fy, float fz, float sx, float sy, float sz, float angle)
+    {
+        float f = (float)Math.sin((double)angle);
+        float f1 = (float)Math.cos((double)angle);
+        setPlane(planes, index, fx * f + sx * f1, fy * f + sy * f1, fz * f + sz * f1, 0.0F);
+    }
+
+    private static void setPlane(float[] planes, int index, float x, float y, float z, float w)
+    {
+        planes[index * 4] = x;
+        planes[index * 4 + 1] = y;
+        planes[index * 4 + 2] = z;
+        planes[index * 4 + 3] = w;
+    }
+
+    private static boolean cubeInFrustum(float[] planes, float minX, float minY, float minZ)
+    {
+        float f = minX + 16.0F;
+        float f1 = minY + 16.0F;
+        float f2 = minZ + 16.0F;
+
+        for (int i = 0; i < 24; i += 4)
+        {
+            float f3 = planes[i];
+            float f4 = planes[i + 1];
+            float f5 = planes[i + 2];
+            float f6 = planes[i + 3];
+
+            if (f3 * minX + f4 * minY + f5 * minZ + f6 <= 0.0F && f3 * f + f4 * minY + f5 * minZ + f6 <= 0.0F && f3 * minX + f4 * f1 + f5 * minZ + f6 <= 0.0F && f3 * f + f4 * f1 + f5 * minZ + f6 <= 0.0F && f3 * minX + f4 * minY + f5 * f2 + f6 <= 0.0F && f3 * f + f4 * minY + f5 * f2 + f6 <= 0.0F && f3 * minX + f4 * f1 + f5 * f2 + f6 <= 0.0F && f3 * f + f4 * f1 + f5 * f2 + f6 <= 0.0F)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long testReference(List<double[]> poses, int[] sections, int count, float far, float[] planes)
+    {
+        long i = System.nanoTime();
+        int j = 0;
+
+        for (double[] adouble : poses)
+        {
+            makePlanes(adouble, far, planes);
+
+            for (int k = 0; k < count; ++k)
+            {
+                if (cubeInFrustum(planes, (float)((double)sections[k * 3] - adouble[0]), (float)((double)sections[k * 3 + 1] - adouble[1]), (float)((double)sections[k * 3 + 2] - adouble[2])))
+                {
+                    ++j;
+                }
+            }
+        }
+
+        countVisible = j;
+        return System.nanoTime() - i;
+    }
+
+    private static long testCuller(List<double[]> poses, SectionFrustumCuller culler, float far, float[] planes)
+    {
+        long i = System.nanoTime();
+
+        for (double[] adouble : poses)
+        {
+            makePlanes(adouble, far, planes);
+            culler.cull(planes, adouble[0], adouble[1], adouble[2]);
+        }
+
+        return System.nanoTime() - i;
+    }
+
+    private static void dbg(String str)
+    {
+        System.out.println(str);
+    }
+}
@@ -0,0 +1,490 @@
+package net.optifine.render;
+
+import com.mojang.blaze3d.font.GlyphInfo;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import com.mojang.math.Matrix4f;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import net.minecraft.client.gui.Font;
+import net.minecraft.client.gui.font.FontSet;
+import net.minecraft.client.gui.font.glyphs.BakedGlyph;
+import net.minecraft.client.gui.font.glyphs.EmptyGlyph;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.network.chat.Style;
+import net.minecraft.network.chat.TextColor;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.FormattedCharSequence;
+import net.minecraft.util.FormattedCharSink;
+
+public class TextLayoutCache
+{
+    private final Function<ResourceLocation, FontSet> fonts;
+    private final LinkedHashMap<TextLayoutCache.Key, TextLayoutCache.Layout> layouts = new LinkedHashMap<>(256, 0.75F, true);
+    private final TextLayoutCache.Key keyLookup = new TextLayoutCache.Key();
+    private Object keyLookupText;
+    private final TextLayoutCache.Builder builder = new TextLayoutCache.Builder();
+    private int fontReloads = -1;
+    private long countHits;
+    private long countMisses;
+    private static final boolean ENABLED = !Boolean.getBoolean("font.layout.cache.disabled");
+    private static final int LAYOUTS_MAX = 2048;
+    private static final int LAYOUT_LENGTH_MAX = 256;
+    private static final int COLOR_BASE = -1;
+
+    public TextLayoutCache(Function<ResourceLocation, FontSet> fonts)
+    {
+        this.fonts = fonts;
+    }
+
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    public TextLayoutCache.Layout getLayout(Object text, boolean shadow)
+    {
+        if (this.fontReloads != FontSet.getReloadCount())
+        {
+            this.fontReloads = FontSet.getReloadCount();
+            this.layouts.clear();
+        }
+
+        this.keyLookup.set(text, shadow);
+        this.keyLookupText = text;
+        TextLayoutCache.Layout textlayoutcache$layout = this.keyLookup.overflow ? null : this.layouts.get(this.keyLookup);
+
+        if (textlayoutcache$layout != null)
+        {
+            ++this.countHits;
+            return textlayoutcache$layout;
+        }
+        else
+        {
+            ++this.countMisses;
+            return null;
+        }
+    }
+
+    public TextLayoutCache.Builder startLayout(boolean shadow)
+    {
+        this.builder.start(shadow);
+        return this.builder;
+    }
+
+    public TextLayoutCache.Layout finishLayout(Object text, boolean shadow)
+    {
+        TextLayoutCache.Layout textlayoutcache$layout = this.builder.build();
+
+        if (this.keyLookupText != text || this.keyLookup.shadow != shadow)
+        {
+            this.keyLookup.set(text, shadow);
+        }
+
+        this.keyLookupText = null;
+
+        if (textlayoutcache$layout.cacheable && !this.keyLookup.overflow)
+        {
+            if (this.layouts.size() >= LAYOUTS_MAX)
+            {
+                Iterator<TextLayoutCache.Key> iterator = this.layouts.keySet().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+
+            this.layouts.put(this.keyLookup.copy(), textlayoutcache$layout);
+        }
+
+        return textlayoutcache$layout;
+    }
+
+    public void clear()
+    {
+        this.layouts.clear();
+    }
+
+    public String getStats()
+    {
+        return this.layouts.size() + ", " + this.countHits + "/" + this.countMisses;
+    }
+
+    private static class Key implements FormattedCharSink
+    {
+        private Object text;
+        private boolean shadow;
+        private int length;
+        private int[] codePoints = new int[32];
+        private Style[] styles = new Style[32];
+        private boolean overflow;
+        private int hash;
+        private Style lastStyle;
+        private int lastStyleHash;
+
+        public void set(Object text, boolean shadow)
+        {
+            this.shadow = shadow;
+            this.length = 0;
+            this.overflow = false;
+
+            if (text instanceof FormattedCharSequence)
+            {
+                this.text = null;
+                this.hash = 1;
+                ((FormattedCharSequence)text).accept(this);
+                this.lastStyle = null;
+            }
+            else
+            {
+                this.text = text;
+                this.hash = text.hashCode();
+            }
+
+            this.hash = this.hash * 31 + (shadow ? 1 : 0);
+        }
+
+        public boolean accept(int index, Style style, int codePoint)
+        {
+            if (this.length >= LAYOUT_LENGTH_MAX)
+            {
+                this.overflow = true;
+                return false;
+            }
+            else
+            {
+                if (this.length >= this.codePoints.length)
+                {
+                    int i = this.codePoints.length * 2;
+                    this.codePoints = Arrays.copyOf(this.codePoints, i);
+                    this.styles = Arrays.copyOf(this.styles, i);
+                }
+
+                if (style != this.lastStyle)
+                {
+                    this.lastStyle = style;
+                    this.lastStyleHash = style.hashCode();
+                }
+
+                this.codePoints[this.length] = codePoint;
+                this.styles[this.length] = style;
+                ++this.length;
+                this.hash = (this.hash * 31 + codePoint) * 31 + this.lastStyleHash;
+                return true;
+            }
+        }
+
+        public TextLayoutCache.Key copy()
+        {
+            TextLayoutCache.Key textlayoutcache$key = new TextLayoutCache.Key();
+            textlayoutcache$key.text = this.text;
+            textlayoutcache$key.shadow = this.shadow;
+            textlayoutcache$key.length = this.length;
+            textlayoutcache$key.codePoints = Arrays.copyOf(this.codePoints, this.length);
+            textlayoutcache$key.styles = Arrays.copyOf(this.styles, this.length);
+            textlayoutcache$key.overflow = this.overflow;
+            textlayoutcache$key.hash = this.hash;
+            return textlayoutcache$key;
+        }
+
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof TextLayoutCache.Key))
+            {
+                return false;
+            }
+            else
+            {
+                TextLayoutCache.Key textlayoutcache$key = (TextLayoutCache.Key)obj;
+
+                if (this.hash == textlayoutcache$key.hash && this.shadow == textlayoutcache$key.shadow && this.length == textlayoutcache$key.length)
+                {
+                    if (this.text != null)
+                    {
+                        return this.text.equals(textlayoutcache$key.text);
+                    }
+                    else if (textlayoutcache$key.text != null)
+                    {
+                        return false;
+                    }
+                    else
+                    {
+                        for (int i = 0; i < this.length; ++i)
+                        {
+                            if (this.codePoints[i] != textlayoutcache$key.codePoints[i])
+                            {
+                                return false;
+                            }
+
+                            Style style = this.styles[i];
+                            Style style1 = textlayoutcache$key.styles[i];
+
+                            if (style != style1 && !style.equals(style1))
+                            {
+                                return false;
+                            }
+                        }
+
+                        return true;
+                    }
+                }
+                else
+                {
+                    return false;
+                }
+            }
+        }
+
+        public int hashCode()
+        {
+            return this.hash;
+        }
+    }
+
+    public class Builder implements FormattedCharSink
+    {
+        private boolean shadow;
+        private float x;
+        private boolean cacheable;
+        private int glyphCount;
+        private BakedGlyph[] glyphs = new BakedGlyph[32];
+        private float[] quads = new float[32 * 8];
+        private int[] colors = new int[32];
+        private int effectCount;
+        private float[] effects = new float[8 * 4];
+        private int[] effectColors = new int[8];
+        private Style lastStyle;
+        private FontSet lastStyleFont;
+
+        void start(boolean shadow)
+        {
+            this.shadow = shadow;
+            this.x = 0.0F;
+            this.cacheable = true;
+            this.glyphCount = 0;
+            this.effectCount = 0;
+            this.lastStyle = null;
+            this.lastStyleFont = null;
+        }
+
+        public boolean accept(int index, Style style, int codePoint)
+        {
+            FontSet fontset = this.getFont(style);
+            GlyphInfo glyphinfo = fontset.getGlyphInfo(codePoint);
+            BakedGlyph bakedglyph;
+
+            if (style.isObfuscated() && codePoint != 32)
+            {
+                bakedglyph = fontset.getRandomGlyph(glyphinfo);
+                this.cacheable = false;
+            }
+            else
+            {
+                bakedglyph = fontset.getGlyph(codePoint);
+            }
+
+            boolean flag = style.isBold();
+            TextColor textcolor = style.getColor();
+            int i = textcolor != null ? textcolor.getValue() & 16777215 : COLOR_BASE;
+
+            if (!(bakedglyph instanceof EmptyGlyph))
+            {
+                float f = this.shadow ? glyphinfo.getShadowOffset() : 0.0F;
+                this.addGlyph(bakedglyph, style.isItalic(), this.x + f, f, i);
+
+                if (flag)
+                {
+                    this.addGlyph(bakedglyph, style.isItalic(), this.x + f + glyphinfo.getBoldOffset(), f, i);
+                }
+            }
+
+            float f2 = glyphinfo.getAdvance(flag);
+            float f1 = this.shadow ? 1.0F : 0.0F;
+
+            if (style.isStrikethrough())
+            {
+                this.addEffect(this.x + f1 - 1.0F, f1 + 4.5F, this.x + f1 + f2, f1 + 4.5F - 1.0F, i);
+            }
+
+            if (style.isUnderlined())
+            {
+                this.addEffect(this.x + f1 - 1.0F, f1 + 9.0F, this.x + f1 + f2, f1 + 9.0F - 1.0F, i);
+            }
+
+            this.x += f2;
+
+            if (this.glyphCount > LAYOUT_LENGTH_MAX)
+            {
+                this.cacheable = false;
+            }
+
+            return true;
+        }
+
+        private void addGlyph(BakedGlyph glyph, boolean italic, float x, float y, int color)
+        {
+            if (this.glyphCount >= this.glyphs.length)
+            {
+                int i = this.glyphs.length * 2;
+                this.glyphs = Arrays.copyOf(this.glyphs, i);
+                this.quads = Arrays.copyOf(this.quads, i * 8);
+                this.colors = Arrays.copyOf(this.colors, i);
+            }
+
+            int j = this.glyphCount * 8;
+            float f = glyph.getUp() - 3.0F;
+            float f1 = glyph.getDown() - 3.0F;
+            float f2 = italic ? 1.0F - 0.25F * f : 0.0F;
+            float f3 = italic ? 1.0F - 0.25F * f1 : 0.0F;
+            this.quads[j] = x + glyph.getLeft() + f2;
+            this.quads[j + 1] = x + glyph.getLeft() + f3;
+            this.quads[j + 2] = x + glyph.getRight() + f3;
+            this.quads[j + 3] = x + glyph.getRight() + f2;
+            this.quads[j + 4] = y + f;
+            this.quads[j + 5] = y + f1;
+            this.glyphs[this.glyphCount] = glyph;
+            this.colors[this.glyphCount] = color;
+            ++this.glyphCount;
+        }
+
+        private void addEffect(float x0, float y0, float x1, float y1, int color)
+        {
+            if (this.effectCount >= this.effectColors.length)
+            {
+                int i = this.effectColors.length * 2;
+                this.effects = Arrays.copyOf(this.effects, i * 4);
+                this.effectColors = Arrays.copyOf(this.effectColors, i);
+            }
+
+            int j = this.effectCount * 4;
+            this.effects[j] = x0;
+            this.effects[j + 1] = y0;
+            this.effects[j + 2] = x1;
+            this.effects[j + 3] = y1;
+            this.effectColors[this.effectCount] = color;
+            ++this.effectCount;
+        }
+
+        private FontSet getFont(Style styleIn)
+        {
+            if (styleIn != this.lastStyle)
+            {
+                this.lastStyle = styleIn;
+                this.lastStyleFont = TextLayoutCache.this.fonts.apply(styleIn.getFont());
+            }
+
+            return this.lastStyleFont;
+        }
+
+        TextLayoutCache.Layout build()
+        {
+            BakedGlyph bakedglyph = TextLayoutCache.this.fonts.apply(Style.DEFAULT_FONT).whiteGlyph();
+            TextLayoutCache.Layout textlayoutcache$layout = new TextLayoutCache.Layout(this.shadow, this.cacheable, Arrays.copyOf(this.glyphs, this.glyphCount), Arrays.copyOf(this.quads, this.glyphCount * 8), Arrays.copyOf(this.colors, this.glyphCount), Arrays.copyOf(this.effects, this.effectCount * 4), Arrays.copyOf(this.effectColors, this.effectCount), bakedglyph, this.x);
+            Arrays.fill(this.glyphs, 0, this.glyphCount, (Object)null);
+            this.lastStyle = null;
+            this.lastStyleFont = null;
+            return textlayoutcache$layout;
+        }
+    }
+
+    public static class Layout
+    {
+        private final boolean shadow;
+        private final boolean cacheable;
+        private final BakedGlyph[] glyphs;
+        private final float[] quads;
+        private final int[] colors;
+        private final float[] effects;
+        private final int[] effectColors;
+        private final BakedGlyph whiteGlyph;
+        private final float advance;
+
+        public Layout(boolean shadow, boolean cacheable, BakedGlyph[] glyphs, float[] quads, int[] colors, float[] effects, int[] effectColors, BakedGlyph whiteGlyph, float advance)
+        {
+            this.shadow = shadow;
+            this.cacheable = cacheable;
+            this.glyphs = glyphs;
+            this.quads = quads;
+            this.colors = colors;
+            this.effects = effects;
+            this.effectColors = effectColors;
+            this.whiteGlyph = whiteGlyph;
+            this.advance = advance;
+        }
+
+        public float render(MultiBufferSource bufferSource, float x, float y, int color, Matrix4f matrix, Font.DisplayMode mode, int colorBackground, int packedLight)
+        {
+            float f = this.shadow ? 0.25F : 1.0F;
+            float f1 = (float)(color >> 16 & 255) / 255.0F * f;
+            float f2 = (float)(color >> 8 & 255) / 255.0F * f;
+            float f3 = (float)(color & 255) / 255.0F * f;
+            float f4 = (float)(color >> 24 & 255) / 255.0F;
+            Matrix4f matrix4f = matrix.isIdentity() ? BakedGlyph.MATRIX_IDENTITY : matrix;
+            int i = (int)(f4 * 255.0F);
+            int j = packedLight & 65535;
+            int k = packedLight >> 16 & 65535;
+
+            for (int l = 0; l < this.glyphs.length; ++l)
+            {
+                BakedGlyph bakedglyph = this.glyphs[l];
+                VertexConsumer vertexconsumer = bufferSource.getBuffer(bakedglyph.renderType(mode));
+                int i1 = this.colors[l];
+                float f5 = i1 == COLOR_BASE ? f1 : (float)(i1 >> 16 & 255) / 255.0F * f;
+                float f6 = i1 == COLOR_BASE ? f2 : (float)(i1 >> 8 & 255) / 255.0F * f;
+                float f7 = i1 == COLOR_BASE ? f3 : (float)(i1 & 255) / 255.0F * f;
+                int j1 = l * 8;
+                float f8 = y + this.quads[j1 + 4];
+                float f9 = y + this.quads[j1 + 5];
+                float f10 = bakedglyph.getU0();
+                float f11 = bakedglyph.getU1();
+                float f12 = bakedglyph.getV0();
+                float f13 = bakedglyph.getV1();
+
+                if (vertexconsumer instanceof BufferBuilder && matrix4f == BakedGlyph.MATRIX_IDENTITY)
+                {
+                    BufferBuilder bufferbuilder = (BufferBuilder)vertexconsumer;
+                    int k1 = (int)(f5 * 255.0F);
+                    int l1 = (int)(f6 * 255.0F);
+                    int i2 = (int)(f7 * 255.0F);
+                    bufferbuilder.addVertexText(x + this.quads[j1], f8, 0.0F, k1, l1, i2, i, f10, f12, j, k);
+                    bufferbuilder.addVertexText(x + this.quads[j1 + 1], f9, 0.0F, k1, l1, i2, i, f10, f13, j, k);
+                    bufferbuilder.addVertexText(x + this.quads[j1 + 2], f9, 0.0F, k1, l1, i2, i, f11, f13, j, k);
+                    bufferbuilder.addVertexText(x + this.quads[j1 + 3], f8, 0.0F, k1, l1, i2, i, f11, f12, j, k);
+                }
+                else
+                {
+                    vertexconsumer.vertex(matrix4f, x + this.quads[j1], f8, 0.0F).color(f5, f6, f7, f4).uv(f10, f12).uv2(packedLight).endVertex();
+                    vertexconsumer.vertex(matrix4f, x + this.quads[j1 + 1], f9, 0.0F).color(f5, f6, f7, f4).uv(f10, f13).uv2(packedLight).endVertex();
+                    vertexconsumer.vertex(matrix4f, x + this.quads[j1 + 2], f9, 0.0F).color(f5, f6, f7, f4).uv(f11, f13).uv2(packedLight).endVertex();
+                    vertexconsumer.vertex(matrix4f, x + this.quads[j1 + 3], f8, 0.0F).color(f5, f6, f7, f4).uv(f11, f12).uv2(packedLight).endVertex();
+                }
+            }
+
+            if (this.effectColors.length > 0 || colorBackground != 0)
+            {
+                VertexConsumer vertexconsumer1 = bufferSource.getBuffer(this.whiteGlyph.renderType(mode));
+
+                for (int j2 = 0; j2 < this.effectColors.length; ++j2)
+                {
+                    int k2 = this.effectColors[j2];
+                    float f14 = k2 == COLOR_BASE ? f1 : (float)(k2 >> 16 & 255) / 255.0F * f;
+                    float f15 = k2 == COLOR_BASE ? f2 : (float)(k2 >> 8 & 255) / 255.0F * f;
+                    float f16 = k2 == COLOR_BASE ? f3 : (float)(k2 & 255) / 255.0F * f;
+                    int l2 = j2 * 4;
+                    this.whiteGlyph.renderEffect(new BakedGlyph.Effect(x + this.effects[l2], y + this.effects[l2 + 1], x + this.effects[l2 + 2], y + this.effects[l2 + 3], 0.01F, f14, f15, f16, f4), matrix4f, vertexconsumer1, packedLight);
+                }
+
+                if (colorBackground != 0)
+                {
+                    float f17 = (float)(colorBackground >> 24 & 255) / 255.0F;
+                    float f18 = (float)(colorBackground >> 16 & 255) / 255.0F;
+                    float f19 = (float)(colorBackground >> 8 & 255) / 255.0F;
+                    float f20 = (float)(colorBackground & 255) / 255.0F;
+                    this.whiteGlyph.renderEffect(new BakedGlyph.Effect(x - 1.0F, y + 9.0F, x + this.advance + 1.0F, y - 1.0F, 0.01F, f18, f19, f20, f17), matrix4f, vertexconsumer1, packedLight);
+                }
+            }
+
+            return x + this.advance;
+        }
+    }
+}
@@ -61,6 +61,11 @@ public class CustomUniform
         return this.expression;
     }
 
+    public void setExpression(IExpression expression)
+    {
+        this.expression = expression;
+    }
+
     public ShaderUniformBase getShaderUniform()
     {
         return this.shaderUniform;
@@ -1,8 +1,10 @@
 package net.optifine.shaders.uniform;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import net.optifine.expr.ExpressionCompiler;
 import net.optifine.expr.IExpression;
 import net.optifine.expr.IExpressionCached;
 
@@ -27,9 +29,34 @@ public class CustomUniforms
             }
         }
 
+        if (ExpressionCompiler.isEnabled())
+        {
+            this.compile(list);
+        }
+
         this.expressionsCached = list.toArray(new IExpressionCached[list.size()]);
     }
 
+    private void compile(List<IExpressionCached> listCached)
+    {
+        IExpression[] aiexpression = new IExpression[this.uniforms.length];
+
+        for (int i = 0; i < aiexpression.length; ++i)
+        {
+            aiexpression[i] = this.uniforms[i].getExpression();
+        }
+
+        ExpressionCompiler expressioncompiler = new ExpressionCompiler();
+        IExpression[] aiexpression1 = expressioncompiler.compile(aiexpression);
+
+        for (int j = 0; j < aiexpression1.length; ++j)
+        {
+            this.uniforms[j].setExpression(aiexpression1[j]);
+        }
+
+        listCached.addAll(Arrays.asList(expressioncompiler.getCachedExpressions()));
+    }
+
     public void setProgram(int program)
     {
         for (int i = 0; i < this.uniforms.length; ++i)
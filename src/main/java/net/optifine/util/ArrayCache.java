@@ -1,33 +1,62 @@
 package net.optifine.util;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ArrayCache
 {
     private Class elementClass = null;
     private int maxCacheSize = 0;
-    private ArrayDeque cache = new ArrayDeque();
+    private int elementBytes = 0;
+    private ThreadLocal<ArrayCache.ThreadCache> threadCache = ThreadLocal.withInitial(this::makeThreadCache);
+    private List<WeakReference<ArrayCache.ThreadCache>> threadCaches = new CopyOnWriteArrayList<>();
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private static final List<ArrayCache> caches = new CopyOnWriteArrayList<>();
+    private static final int SIZE_CLASSES = 32;
 
     public ArrayCache(Class elementClass, int maxCacheSize)
     {
         this.elementClass = elementClass;
         this.maxCacheSize = maxCacheSize;
+        this.elementBytes = getElementBytes(elementClass);
+        caches.add(this);
     }
 
-    public synchronized Object allocate(int size)
+    public Object allocate(int size)
     {
-        Object object = this.cache.pollLast();
+        ArrayCache.ThreadCache arraycache$threadcache = this.threadCache.get();
+        ArrayDeque arraydeque = arraycache$threadcache.deques[getSizeClass(size)];
 
-        if (object == null || Array.getLength(object) < size)
+        if (arraydeque != null)
         {
-            object = Array.newInstance(this.elementClass, size);
+            Object object = arraydeque.pollLast();
+
+            if (object != null)
+            {
+                int i = Array.getLength(object);
+
+                if (i >= size)
+                {
+                    --arraycache$threadcache.count;
+                    arraycache$threadcache.bytes -= (long)i * (long)this.elementBytes;
+                    this.hits.increment();
+                    return object;
+                }
+
+                arraydeque.addFirst(object);
+            }
         }
 
-        return object;
+        this.misses.increment();
+        return Array.newInstance(this.elementClass, size);
     }
 
-    public synchronized void free(Object arr)
+    public void free(Object arr)
     {
         if (arr != null)
         {
@@ -37,10 +66,119 @@ public class ArrayCache
             {
                 throw new IllegalArgumentException("Wrong component type");
             }
-            else if (this.cache.size() < this.maxCacheSize)
+            else
+            {
+                ArrayCache.ThreadCache arraycache$threadcache = this.threadCache.get();
+
+                if (arraycache$threadcache.count < this.maxCacheSize)
+                {
+                    int i = Array.getLength(arr);
+                    int j = getSizeClass(i);
+                    ArrayDeque arraydeque = arraycache$threadcache.deques[j];
+
+                    if (arraydeque == null)
+                    {
+                        arraydeque = new ArrayDeque(this.maxCacheSize);
+                        arraycache$threadcache.deques[j] = arraydeque;
+                    }
+
+                    arraydeque.addLast(arr);
+                    ++arraycache$threadcache.count;
+                    arraycache$threadcache.bytes += (long)i * (long)this.elementBytes;
+                }
+            }
+        }
+    }
+
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    public long getBytesRetained()
+    {
+        long i = 0L;
+
+        for (WeakReference<ArrayCache.ThreadCache> weakreference : this.threadCaches)
+        {
+            ArrayCache.ThreadCache arraycache$threadcache = weakreference.get();
+
+            if (arraycache$threadcache != null)
+            {
+                i += arraycache$threadcache.bytes;
+            }
+            else
             {
-                this.cache.add(arr);
+                this.threadCaches.remove(weakreference);
             }
         }
+
+        return i;
+    }
+
+    private ArrayCache.ThreadCache makeThreadCache()
+    {
+        ArrayCache.ThreadCache arraycache$threadcache = new ArrayCache.ThreadCache();
+        this.threadCaches.removeIf((ref) ->
+        {
+            return ref.get() == null;
+        });
+        this.threadCaches.add(new WeakReference<>(arraycache$threadcache));
+        return arraycache$threadcache;
+    }
+
+    public String toString()
+    {
+        return this.elementClass.getSimpleName() + "[], hits: " + this.getHits() + ", misses: " + this.getMisses() + ", retained: " + this.getBytesRetained() / 1024L + " KB";
+    }
+
+    public static String getStats()
+    {
+        long i = 0L;
+        long j = 0L;
+        long k = 0L;
+
+        for (ArrayCache arraycache : caches)
+        {
+            i += arraycache.getHits();
+            j += arraycache.getMisses();
+            k += arraycache.getBytesRetained();
+        }
+
+        long l = i + j;
+        return (l > 0L ? i * 100L / l : 0L) + "% hit, " + k / 1024L + " KB";
+    }
+
+    private static int getSizeClass(int size)
+    {
+        return size <= 1 ? 0 : SIZE_CLASSES - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    private static int getElementBytes(Class cls)
+    {
+        if (cls == Long.TYPE || cls == Double.TYPE)
+        {
+            return 8;
+        }
+        else if (cls == Short.TYPE || cls == Character.TYPE)
+        {
+            return 2;
+        }
+        else
+        {
+            return cls != Byte.TYPE && cls != Boolean.TYPE ? 4 : 1;
+        }
+    }
+
+    private static class ThreadCache
+    {
+        private final ArrayDeque[] deques = new ArrayDeque[ArrayCache.SIZE_CLASSES];
+        private int count;
+        private volatile long bytes;
     }
 }
@@ -1,33 +1,21 @@
 package net.optifine.util;
 
 import java.lang.reflect.Array;
-import java.util.ArrayDeque;
 import net.minecraft.world.level.block.state.BlockState;
 import net.optifine.Config;
 
 public class CacheObjectArray
 {
-    private static ArrayDeque<int[]> arrays = new ArrayDeque<>();
-    private static int maxCacheSize = 10;
+    private static ArrayCache arrays = new ArrayCache(Integer.TYPE, 10);
 
-    private static synchronized int[] allocateArray(int size)
+    private static int[] allocateArray(int size)
     {
-        int[] aint = arrays.pollLast();
-
-        if (aint == null || aint.length < size)
-        {
-            aint = new int[size];
-        }
-
-        return aint;
+        return (int[])arrays.allocate(size);
     }
 
-    public static synchronized void freeArray(int[] ints)
+    public static void freeArray(int[] ints)
     {
-        if (arrays.size() < maxCacheSize)
-        {
-            arrays.add(ints);
-        }
+        arrays.free(ints);
     }
 
     public static void main(String[] args) throws Exception
@@ -0,0 +1,114 @@
+package net.optifine.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram
+{
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    public static final int BUCKET_COUNT = 2 * SUB_COUNT + (MAX_EXPONENT - SUB_BITS) * SUB_COUNT;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long value)
+    {
+        if (value < 0L)
+        {
+            value = 0L;
+        }
+
+        this.counts.incrementAndGet(getIndex(value));
+        this.count.increment();
+        this.sum.add(value);
+    }
+
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    public long getSum()
+    {
+        return this.sum.sum();
+    }
+
+    public void getCounts(long[] dest)
+    {
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+        {
+            dest[i] = this.counts.get(i);
+        }
+    }
+
+    public long getValueAtPercentile(double percentile)
+    {
+        long[] along = new long[BUCKET_COUNT];
+        this.getCounts(along);
+        return getValueAtPercentile(along, percentile);
+    }
+
+    public static long getValueAtPercentile(long[] counts, double percentile)
+    {
+        long i = 0L;
+
+        for (int j = 0; j < counts.length; ++j)
+        {
+            i += counts[j];
+        }
+
+        if (i <= 0L)
+        {
+            return 0L;
+        }
+        else
+        {
+            long k = Math.max(1L, (long)Math.ceil((double)i * percentile / 100.0D));
+            long l = 0L;
+
+            for (int i1 = 0; i1 < counts.length; ++i1)
+            {
+                l += counts[i1];
+
+                if (l >= k)
+                {
+                    return getHighestValue(i1);
+                }
+            }
+
+            return getHighestValue(counts.length - 1);
+        }
+    }
+
+    public static int getIndex(long value)
+    {
+        if (value < (long)(2 * SUB_COUNT))
+        {
+            return (int)value;
+        }
+        else
+        {
+            int i = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+            int j = i - SUB_BITS;
+            int k = (int)Math.min(value >>> j, (long)(2 * SUB_COUNT - 1));
+            return 2 * SUB_COUNT + (j - 1) * SUB_COUNT + (k - SUB_COUNT);
+        }
+    }
+
+    public static long getHighestValue(int index)
+    {
+        if (index < 2 * SUB_COUNT)
+        {
+            return (long)index;
+        }
+        else
+        {
+            int i = index - 2 * SUB_COUNT;
+            int j = i / SUB_COUNT + 1;
+            long k = (long)(i % SUB_COUNT + SUB_COUNT);
+            return (k + 1L << j) - 1L;
+        }
+    }
+}
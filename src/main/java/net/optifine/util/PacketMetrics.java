@@ -0,0 +1,295 @@
+package net.optifine.util;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import net.minecraft.network.ConnectionProtocol;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.PacketFlow;
+import net.minecraft.util.profiling.metrics.MetricCategory;
+import net.minecraft.util.profiling.metrics.MetricSampler;
+import net.minecraft.util.profiling.metrics.MetricsRegistry;
+import net.minecraft.util.profiling.metrics.ProfilerMeasured;
+
+public class PacketMetrics implements ProfilerMeasured
+{
+    private static final boolean ENABLED = !Boolean.getBoolean("packet.metrics.disabled");
+    private static final PacketFlow[] FLOWS = PacketFlow.values();
+    private static final ConnectionProtocol[] PROTOCOLS = ConnectionProtocol.values();
+    public static final PacketMetrics INSTANCE = new PacketMetrics();
+    private final Map < Class<?>, PacketMetrics.Entry > entries = new ConcurrentHashMap<>();
+    private final PacketMetrics.Stats[] protocolStats = new PacketMetrics.Stats[PROTOCOLS.length * FLOWS.length];
+    private final PacketMetrics.Stats unknownStats = new PacketMetrics.Stats("unknown");
+    private long rollTimeMs;
+    private List<PacketMetrics.Entry> topEntries = Collections.emptyList();
+    private long queueP99Nano;
+
+    private PacketMetrics()
+    {
+        for (ConnectionProtocol connectionprotocol : PROTOCOLS)
+        {
+            for (PacketFlow packetflow : FLOWS)
+            {
+                this.protocolStats[getStatsIndex(connectionprotocol, packetflow)] = new PacketMetrics.Stats(connectionprotocol.name().toLowerCase() + " " + packetflow.name().toLowerCase());
+            }
+        }
+
+        if (ENABLED)
+        {
+            MetricsRegistry.INSTANCE.add(this);
+        }
+    }
+
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    public void onDecoded(ConnectionProtocol protocol, PacketFlow flow, Packet<?> packet, int bytes, long timeNano)
+    {
+        if (ENABLED)
+        {
+            this.getEntry(packet, protocol, flow).onTransferred(bytes, timeNano);
+        }
+    }
+
+    public void onEncoded(ConnectionProtocol protocol, PacketFlow flow, Packet<?> packet, int bytes, long timeNano)
+    {
+        if (ENABLED)
+        {
+            this.getEntry(packet, protocol, flow).onTransferred(bytes, timeNano);
+        }
+    }
+
+    public void onHandled(Packet<?> packet, long queueNano, long timeNano)
+    {
+        if (ENABLED)
+        {
+            this.getEntry(packet, (ConnectionProtocol)null, (PacketFlow)null).onHandled(queueNano, timeNano);
+        }
+    }
+
+    private PacketMetrics.Entry getEntry(Packet<?> packet, ConnectionProtocol protocol, PacketFlow flow)
+    {
+        Class<?> oclass = packet.getClass();
+        PacketMetrics.Entry packetmetrics$entry = this.entries.get(oclass);
+
+        if (packetmetrics$entry != null)
+        {
+            return packetmetrics$entry;
+        }
+        else
+        {
+            if (protocol == null)
+            {
+                protocol = ConnectionProtocol.getProtocolForPacket(packet);
+            }
+
+            if (flow == null && protocol != null)
+            {
+                flow = protocol.getPacketId(PacketFlow.CLIENTBOUND, packet) != null ? PacketFlow.CLIENTBOUND : PacketFlow.SERVERBOUND;
+            }
+
+            PacketMetrics.Stats packetmetrics$stats = protocol != null && flow != null ? this.protocolStats[getStatsIndex(protocol, flow)] : this.unknownStats;
+            PacketFlow packetflow = flow;
+            return this.entries.computeIfAbsent(oclass, (c) ->
+            {
+                return new PacketMetrics.Entry(c.getSimpleName(), packetflow, packetmetrics$stats);
+            });
+        }
+    }
+
+    private static int getStatsIndex(ConnectionProtocol protocol, PacketFlow flow)
+    {
+        return protocol.ordinal() * FLOWS.length + flow.ordinal();
+    }
+
+    public List<MetricSampler> profiledMetrics()
+    {
+        List<MetricSampler> list = new ArrayList<>();
+
+        for (PacketMetrics.Stats packetmetrics$stats : this.protocolStats)
+        {
+            if (packetmetrics$stats.count.sum() > 0L || packetmetrics$stats.handleTime.getCount() > 0L)
+            {
+                String s = "packets " + packetmetrics$stats.name;
+                list.add(makeDeltaSampler(s + " count", packetmetrics$stats.count::sum, 1.0D));
+                list.add(makeDeltaSampler(s + " KiB", packetmetrics$stats.bytes::sum, 9.765625E-4D));
+                list.add(makeDeltaSampler(s + " codec ms", packetmetrics$stats.codecTime::getSum, 1.0E-6D));
+                list.add(makeDeltaSampler(s + " handle ms", packetmetrics$stats.handleTime::getSum, 1.0E-6D));
+                list.add(makeDeltaSampler(s + " queue ms", packetmetrics$stats.queueTime::getSum, 1.0E-6D));
+            }
+        }
+
+        return list;
+    }
+
+    private static MetricSampler makeDeltaSampler(String name, LongSupplier supplier, double scale)
+    {
+        long[] along = new long[] {supplier.getAsLong()};
+        return MetricSampler.create(name, MetricCategory.NETWORK, () ->
+        {
+            long i = supplier.getAsLong();
+            long j = i - along[0];
+            along[0] = i;
+            return (double)j * scale;
+        });
+    }
+
+    public List<String> getOverlayLines(int maxEntries)
+    {
+        long i = System.currentTimeMillis();
+
+        if (i >= this.rollTimeMs + 1000L)
+        {
+            float f = this.rollTimeMs > 0L ? (float)(i - this.rollTimeMs) / 1000.0F : 1.0F;
+            this.rollTimeMs = i;
+            long[] along = new long[LatencyHistogram.BUCKET_COUNT];
+            long[] along1 = new long[LatencyHistogram.BUCKET_COUNT];
+            List<PacketMetrics.Entry> list = new ArrayList<>();
+
+            for (PacketMetrics.Entry packetmetrics$entry : this.entries.values())
+            {
+                if (packetmetrics$entry.flow == PacketFlow.CLIENTBOUND)
+                {
+                    packetmetrics$entry.roll(f, along1);
+
+                    for (int j = 0; j < along.length; ++j)
+                    {
+                        along[j] += packetmetrics$entry.queueWindow[j];
+                    }
+
+                    if (packetmetrics$entry.countRate > 0.0F)
+                    {
+                        list.add(packetmetrics$entry);
+                    }
+                }
+            }
+
+            list.sort(Comparator.comparingDouble((PacketMetrics.Entry e) ->
+            {
+                return (double)e.handleRateMs;
+            }).thenComparingDouble((e) ->
+            {
+                return (double)e.bytesRate;
+            }).reversed());
+            this.topEntries = list;
+            this.queueP99Nano = LatencyHistogram.getValueAtPercentile(along, 99.0D);
+        }
+
+        List<String> list1 = Lists.newArrayList();
+        float f1 = 0.0F;
+        float f2 = 0.0F;
+        float f3 = 0.0F;
+
+        for (PacketMetrics.Entry packetmetrics$entry1 : this.topEntries)
+        {
+            f1 += packetmetrics$entry1.countRate;
+            f2 += packetmetrics$entry1.bytesRate;
+            f3 += packetmetrics$entry1.handleRateMs;
+        }
+
+        list1.add(String.format("Packets in: %.0f/s, %.1f KB/s, %.1f ms/s, queue p99 %.1f ms", f1, f2 / 1024.0F, f3, (float)this.queueP99Nano / 1000000.0F));
+
+        for (int k = 0; k < Math.min(maxEntries, this.topEntries.size()); ++k)
+        {
+            PacketMetrics.Entry packetmetrics$entry2 = this.topEntries.get(k);
+            list1.add(String.format("%s: %.0f/s, %.1f KB/s, %.2f ms/s, p99 %.2f ms", packetmetrics$entry2.name, packetmetrics$entry2.countRate, packetmetrics$entry2.bytesRate / 1024.0F, packetmetrics$entry2.handleRateMs, (float)packetmetrics$entry2.handleP99Nano / 1000000.0F));
+        }
+
+        return list1;
+    }
+
+    private static class Stats
+    {
+        protected final String name;
+        protected final LongAdder count = new LongAdder();
+        protected final LongAdder bytes = new LongAdder();
+        protected final LatencyHistogram codecTime = new LatencyHistogram();
+        protected final LatencyHistogram queueTime = new LatencyHistogram();
+        protected final LatencyHistogram handleTime = new LatencyHistogram();
+
+        public Stats(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    private static class Entry extends PacketMetrics.Stats
+    {
+        private final PacketFlow flow;
+        private final PacketMetrics.Stats protocolStats;
+        private long lastCount;
+        private long lastBytes;
+        private long lastHandleNano;
+        private final long[] lastHandleCounts = new long[LatencyHistogram.BUCKET_COUNT];
+        private final long[] lastQueueCounts = new long[LatencyHistogram.BUCKET_COUNT];
+        private final long[] queueWindow = new long[LatencyHistogram.BUCKET_COUNT];
+        private float countRate;
+        private float bytesRate;
+        private float handleRateMs;
+        private long handleP99Nano;
+
+        public Entry(String name, PacketFlow flow, PacketMetrics.Stats protocolStats)
+        {
+            super(name);
+            this.flow = flow;
+            this.protocolStats = protocolStats;
+        }
+
+        public void onTransferred(int bytes, long timeNano)
+        {
+            this.count.increment();
+            this.bytes.add((long)bytes);
+            this.codecTime.record(timeNano);
+            this.protocolStats.count.increment();
+            this.protocolStats.bytes.add((long)bytes);
+            this.protocolStats.codecTime.record(timeNano);
+        }
+
+        public void onHandled(long queueNano, long timeNano)
+        {
+            this.queueTime.record(queueNano);
+            this.handleTime.record(timeNano);
+            this.protocolStats.queueTime.record(queueNano);
+            this.protocolStats.handleTime.record(timeNano);
+        }
+
+        private void roll(float seconds, long[] buffer)
+        {
+            long i = Math.max(this.count.sum(), this.handleTime.getCount());
+            long j = this.bytes.sum();
+            long k = this.handleTime.getSum();
+            this.countRate = (float)(i - this.lastCount) / seconds;
+            this.bytesRate = (float)(j - this.lastBytes) / seconds;
+            this.handleRateMs = (float)(k - this.lastHandleNano) / 1000000.0F / seconds;
+            this.lastCount = i;
+            this.lastBytes = j;
+            this.lastHandleNano = k;
+            this.handleTime.getCounts(buffer);
+
+            for (int l = 0; l < buffer.length; ++l)
+            {
+                long i1 = buffer[l];
+                buffer[l] = i1 - this.lastHandleCounts[l];
+                this.lastHandleCounts[l] = i1;
+            }
+
+            this.handleP99Nano = LatencyHistogram.getValueAtPercentile(buffer, 99.0D);
+            this.queueTime.getCounts(buffer);
+
+            for (int j1 = 0; j1 < buffer.length; ++j1)
+            {
+                long k1 = buffer[j1];
+                this.queueWindow[j1] = k1 - this.lastQueueCounts[j1];
+                this.lastQueueCounts[j1] = k1;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package net.optifine.util;
+
+import com.sun.management.ThreadMXBean;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.CompressionDecoder;
+import net.minecraft.network.CompressionEncoder;
+import net.minecraft.network.Connection;
+import net.minecraft.network.ConnectionProtocol;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.PacketDecoder;
+import net.minecraft.network.PacketEncoder;
+import net.minecraft.network.Varint21FrameDecoder;
+import net.minecraft.network.Varint21LengthFieldPrepender;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.PacketFlow;
+import net.minecraft.network.protocol.game.ClientboundCustomPayloadPacket;
+import net.minecraft.network.protocol.game.ClientboundKeepAlivePacket;
+import net.minecraft.network.protocol.game.ClientboundSetTimePacket;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.Bootstrap;
+
+public class PacketPipelineTest
+{
+    private static final int READ_SIZE = 8192;
+
+    public static void main(String[] args) throws Exception
+    {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        int i = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        byte[] abyte = args.length > 0 ? Files.readAllBytes(Paths.get(args[0])) : makeStream(i, 20000, new Random(1L));
+        int j = Math.max(5, 200000000 / Math.max(abyte.length, 1));
+        ThreadMXBean threadmxbean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long k = Thread.currentThread().getId();
+
+        for (int l = 0; l < j; ++l)
+        {
+            replay(abyte, i);
+        }
+
+        long i1 = threadmxbean.getThreadAllocatedBytes(k);
+        long j1 = System.nanoTime();
+        long k1 = 0L;
+
+        for (int l1 = 0; l1 < j; ++l1)
+        {
+            k1 += (long)replay(abyte, i);
+        }
+
+        long i2 = System.nanoTime() - j1;
+        long j2 = threadmxbean.getThreadAllocatedBytes(k) - i1;
+        double d0 = (double)i2 / 1.0E9D;
+        dbg("Stream: " + abyte.length / 1024 + " KB, threshold: " + i + ", rounds: " + j + ", packets: " + k1);
+        dbg("Time: " + i2 / (long)j / 1000L + " us/stream, " + (long)((double)abyte.length * (double)j / d0 / 1048576.0D) + " MB/s");
+        dbg("Allocated: " + j2 / k1 + " B/packet, " + (long)((double)j2 / d0 / 1048576.0D) + " MB/s");
+    }
+
+    private static int replay(byte[] stream, int threshold)
+    {
+        EmbeddedChannel embeddedchannel = new EmbeddedChannel(new Varint21FrameDecoder(), new CompressionDecoder(threshold, false), new PacketDecoder(PacketFlow.CLIENTBOUND));
+        embeddedchannel.attr(Connection.ATTRIBUTE_PROTOCOL).set(ConnectionProtocol.PLAY);
+        int i = 0;
+
+        for (int j = 0; j < stream.length; j += READ_SIZE)
+        {
+            int k = Math.min(READ_SIZE, stream.length - j);
+            ByteBuf bytebuf = embeddedchannel.alloc().buffer(k);
+            bytebuf.writeBytes(stream, j, k);
+            embeddedchannel.writeInbound(bytebuf);
+
+            while (embeddedchannel.readInbound() != null)
+            {
+                ++i;
+            }
+        }
+
+        embeddedchannel.finishAndReleaseAll();
+        return i;
+    }
+
+    private static byte[] makeStream(int threshold, int count, Random random)
+    {
+        EmbeddedChannel embeddedchannel = new EmbeddedChannel(new Varint21LengthFieldPrepender(), new CompressionEncoder(threshold), new PacketEncoder(PacketFlow.CLIENTBOUND));
+        embeddedchannel.attr(Connection.ATTRIBUTE_PROTOCOL).set(ConnectionProtocol.PLAY);
+        ByteArrayOutputStream bytearrayoutputstream = new ByteArrayOutputStream();
+        ResourceLocation resourcelocation = new ResourceLocation("optifine", "benchmark");
+
+        for (int i = 0; i < count; ++i)
+        {
+            Packet<?> packet;
+
+            switch (i % 4)
+            {
+                case 0:
+                    packet = new ClientboundKeepAlivePacket(random.nextLong());
+                    break;
+
+                case 1:
+                    packet = new ClientboundSetTimePacket(random.nextLong(), random.nextLong(), random.nextBoolean());
+                    break;
+
+                default:
+                    packet = new ClientboundCustomPayloadPacket(resourcelocation, makePayload(random));
+            }
+
+            embeddedchannel.writeOutbound(packet);
+            ByteBuf bytebuf;
+
+            while ((bytebuf = embeddedchannel.readOutbound()) != null)
+            {
+                byte[] abyte = new byte[bytebuf.readableBytes()];
+                bytebuf.readBytes(abyte);
+                bytebuf.release();
+                bytearrayoutputstream.write(abyte, 0, abyte.length);
+            }
+        }
+
+        embeddedchannel.finishAndReleaseAll();
+        return bytearrayoutputstream.toByteArray();
+    }
+
+    private static FriendlyByteBuf makePayload(Random random)
+    {
+        int i = random.nextInt(4) == 0 ? 16384 + random.nextInt(49152) : 64 + random.nextInt(2048);
+        FriendlyByteBuf friendlybytebuf = new FriendlyByteBuf(Unpooled.buffer(i));
+        int j = 0;
+
+        while (j < i)
+        {
+            int k = Math.min(i - j, 1 + random.nextInt(32));
+            byte b0 = (byte)random.nextInt(16);
+
+            for (int l = 0; l < k; ++l)
+            {
+                friendlybytebuf.writeByte(b0);
+            }
+
+            j += k;
+        }
+
+        return friendlybytebuf;
+    }
+
+    private static void dbg(String str)
+    {
+        System.out.println(str);
+    }
+}
@@ -1,21 +1,41 @@
 package net.optifine.util;
 
 import net.minecraft.network.protocol.Packet;
+import net.minecraft.util.profiling.jfr.JvmProfiler;
+import net.minecraft.util.profiling.jfr.callback.ProfiledDuration;
 
 public class PacketRunnable implements Runnable
 {
     private Packet packet;
     private Runnable runnable;
+    private long timeQueuedNano;
 
     public PacketRunnable(Packet packet, Runnable runnable)
     {
         this.packet = packet;
         this.runnable = runnable;
+        this.timeQueuedNano = System.nanoTime();
     }
 
     public void run()
     {
-        this.runnable.run();
+        long i = System.nanoTime();
+        long j = i - this.timeQueuedNano;
+        ProfiledDuration profiledduration = JvmProfiler.INSTANCE.onPacketHandled(this.packet.getClass().getSimpleName(), j);
+
+        try
+        {
+            this.runnable.run();
+        }
+        finally
+        {
+            if (profiledduration != null)
+            {
+                profiledduration.finish();
+            }
+
+            PacketMetrics.INSTANCE.onHandled(this.packet, j, System.nanoTime() - i);
+        }
     }
 
     public Packet getPacket()
@@ -0,0 +1,89 @@
+package net.optifine.util;
+
+import java.util.Arrays;
+
+public class RadixSort
+{
+    private int[] keys = new int[0];
+    private int[] keysTmp = new int[0];
+    private int[] indexes = new int[0];
+    private int[] indexesTmp = new int[0];
+    private final int[] counts = new int[1024];
+
+    public int[] sortDescending(float[] values, int count)
+    {
+        this.ensureCapacity(count);
+        int[] aint = this.keys;
+        int[] aint1 = this.indexes;
+        int[] aint2 = this.keysTmp;
+        int[] aint3 = this.indexesTmp;
+        int[] aint4 = this.counts;
+        Arrays.fill(aint4, 0);
+
+        for (int i = 0; i < count; ++i)
+        {
+            int j = Float.floatToIntBits(values[i]);
+            int k = ~(j ^ (j >> 31 | Integer.MIN_VALUE));
+            aint[i] = k;
+            aint1[i] = i;
+            ++aint4[k & 255];
+            ++aint4[256 + (k >>> 8 & 255)];
+            ++aint4[512 + (k >>> 16 & 255)];
+            ++aint4[768 + (k >>> 24)];
+        }
+
+        if (count <= 0)
+        {
+            return aint1;
+        }
+        else
+        {
+            for (int l = 0; l < 4; ++l)
+            {
+                int i1 = l << 8;
+                int j1 = l << 3;
+
+                if (aint4[i1 + (aint[0] >>> j1 & 255)] != count)
+                {
+                    int k1 = 0;
+
+                    for (int l1 = 0; l1 < 256; ++l1)
+                    {
+                        int i2 = aint4[i1 + l1];
+                        aint4[i1 + l1] = k1;
+                        k1 += i2;
+                    }
+
+                    for (int j2 = 0; j2 < count; ++j2)
+                    {
+                        int k2 = aint[j2];
+                        int l2 = aint4[i1 + (k2 >>> j1 & 255)]++;
+                        aint2[l2] = k2;
+                        aint3[l2] = aint1[j2];
+                    }
+
+                    int[] aint5 = aint;
+                    aint = aint2;
+                    aint2 = aint5;
+                    int[] aint6 = aint1;
+                    aint1 = aint3;
+                    aint3 = aint6;
+                }
+            }
+
+            return aint1;
+        }
+    }
+
+    private void ensureCapacity(int count)
+    {
+        if (this.keys.length < count)
+        {
+            int i = Math.max(count, this.keys.length * 3 / 2);
+            this.keys = new int[i];
+            this.keysTmp = new int[i];
+            this.indexes = new int[i];
+            this.indexesTmp = new int[i];
+        }
+    }
+}
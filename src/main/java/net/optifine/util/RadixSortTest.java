@@ -0,0 +1,100 @@
+package net.optifine.util;
+
+import com.google.common.primitives.Floats;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Random;
+
+public class RadixSortTest
+{
+    public static void main(String[] args) throws Exception
+    {
+        int[] aint = new int[] {1000, 10000, 100000};
+        RadixSort radixsort = new RadixSort();
+
+        for (int i = 0; i < aint.length; ++i)
+        {
+            int j = aint[i];
+            float[] afloat = makeDistances(j, new Random((long)j));
+            int k = Math.max(10, 2000000 / j);
+            checkEqual(afloat, radixsort);
+            testMergeSort(afloat, k);
+            testRadixSort(afloat, k, radixsort);
+            long l = testMergeSort(afloat, k);
+            long i1 = testRadixSort(afloat, k, radixsort);
+            dbg("Quads: " + j + ", mergeSort: " + l / (long)k + " ns, radixSort: " + i1 / (long)k + " ns");
+        }
+    }
+
+    private static float[] makeDistances(int count, Random random)
+    {
+        float[] afloat = new float[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            float f = random.nextFloat() * 96.0F - 48.0F;
+            float f1 = (float)random.nextInt(64) - 32.0F;
+            float f2 = random.nextFloat() * 96.0F - 48.0F;
+            afloat[i] = f * f + f1 * f1 + f2 * f2;
+        }
+
+        return afloat;
+    }
+
+    private static int[] mergeSort(float[] values)
+    {
+        int[] aint = new int[values.length];
+
+        for (int i = 0; i < aint.length; aint[i] = i++)
+        {
+        }
+
+        IntArrays.mergeSort(aint, (index1, index2) ->
+        {
+            return Floats.compare(values[index2], values[index1]);
+        });
+        return aint;
+    }
+
+    private static void checkEqual(float[] values, RadixSort radixSort)
+    {
+        int[] aint = mergeSort(values);
+        int[] aint1 = radixSort.sortDescending(values, values.length);
+
+        for (int i = 0; i < aint.length; ++i)
+        {
+            if (aint[i] != aint1[i])
+            {
+                throw new RuntimeException("Different order at " + i + ", mergeSort: " + aint[i] + ", radixSort: " + aint1[i]);
+            }
+        }
+    }
+
+    private static long testMergeSort(float[] values, int count)
+    {
+        long i = System.nanoTime();
+
+        for (int j = 0; j < count; ++j)
+        {
+            mergeSort(values);
+        }
+
+        return System.nanoTime() - i;
+    }
+
+    private static long testRadixSort(float[] values, int count, RadixSort radixSort)
+    {
+        long i = System.nanoTime();
+
+        for (int j = 0; j < count; ++j)
+        {
+            radixSort.sortDescending(values, values.length);
+        }
+
+        return System.nanoTime() - i;
+    }
+
+    private static void dbg(String str)
+    {
+        System.out.println(str);
+    }
+}
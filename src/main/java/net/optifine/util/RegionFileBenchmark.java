@@ -0,0 +1,203 @@
+package net.optifine.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import net.minecraft.world.level.chunk.storage.RegionFileDictionary;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+
+public class RegionFileBenchmark
+{
+    private static final int ROUNDS = 3;
+    private static final int DICTIONARY_SAMPLES = 512;
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 1)
+        {
+            dbg("Usage: RegionFileBenchmark <world or region folder> [max chunks per split]");
+            return;
+        }
+
+        File file1 = new File(args[0]);
+        File file2 = new File(file1, "region");
+        File file3 = file2.isDirectory() ? file2 : file1;
+        int i = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        List<byte[]> list = new ArrayList<>();
+        List<byte[]> list3 = new ArrayList<>();
+        readChunks(file3, i, list3, list);
+
+        if (list.isEmpty() || list3.isEmpty())
+        {
+            List<byte[]> list4 = new ArrayList<>(list3);
+            list4.addAll(list);
+            list3.clear();
+            list.clear();
+
+            for (int i2 = 0; i2 < list4.size(); ++i2)
+            {
+                (i2 % 2 == 0 ? list3 : list).add(list4.get(i2));
+            }
+
+            dbg("Only one region file, training on alternate chunks");
+        }
+
+        if (list.isEmpty() || list3.isEmpty())
+        {
+            dbg("Not enough chunks found in " + file3);
+            return;
+        }
+
+        List<CompoundTag> list1 = new ArrayList<>();
+        long j = 0L;
+
+        for (byte[] abyte : list)
+        {
+            list1.add(NbtIo.read(new DataInputStream(new ByteArrayInputStream(abyte))));
+            j += (long)abyte.length;
+        }
+
+        List<byte[]> list2 = new ArrayList<>();
+        int k = Math.max(1, list3.size() / DICTIONARY_SAMPLES);
+
+        for (int l = 0; l < list3.size(); l += k)
+        {
+            list2.add(list3.get(l));
+        }
+
+        long i1 = System.nanoTime();
+        RegionFileDictionary regionfiledictionary = new RegionFileDictionary(RegionFileDictionary.train(list2, RegionFileDictionary.MAX_SIZE));
+        long j1 = System.nanoTime() - i1;
+        dbg("Folder: " + file3 + ", test chunks: " + list.size() + ", NBT: " + j / 1024L + " KB");
+        dbg("Dictionary: " + regionfiledictionary.getSize() + " bytes from " + list2.size() + " of " + list3.size() + " training chunks in " + j1 / 1000000L + " ms");
+        RegionFileVersion[] aregionfileversion = new RegionFileVersion[] {RegionFileVersion.VERSION_NONE, RegionFileVersion.VERSION_GZIP, RegionFileVersion.VERSION_DEFLATE, RegionFileVersion.VERSION_DEFLATE_DICTIONARY};
+
+        for (RegionFileVersion regionfileversion : aregionfileversion)
+        {
+            benchmark(regionfileversion, list1, j, regionfiledictionary);
+        }
+    }
+
+    private static void readChunks(File folder, int maxCount, List<byte[]> trainChunks, List<byte[]> testChunks) throws IOException
+    {
+        File[] afile = folder.listFiles((dir, name) ->
+        {
+            return name.startsWith("r.") && name.endsWith(".mca");
+        });
+
+        if (afile != null)
+        {
+            Arrays.sort(afile);
+
+            for (int i = 0; i < afile.length; ++i)
+            {
+                List<byte[]> list = i % 2 == 0 ? trainChunks : testChunks;
+
+                if (list.size() >= maxCount)
+                {
+                    if (trainChunks.size() >= maxCount && testChunks.size() >= maxCount)
+                    {
+                        break;
+                    }
+
+                    continue;
+                }
+
+                RegionFile regionfile = new RegionFile(afile[i].toPath(), folder.toPath(), false);
+
+                try
+                {
+                    RegionFileDictionary.collectSamples(regionfile, maxCount - list.size(), list);
+                }
+                finally
+                {
+                    regionfile.close();
+                }
+            }
+        }
+    }
+
+    private static void benchmark(RegionFileVersion version, List<CompoundTag> tags, long nbtBytes, RegionFileDictionary dictionary) throws IOException
+    {
+        byte[][] abyte = new byte[tags.size()][];
+        ByteArrayOutputStream bytearrayoutputstream = new ByteArrayOutputStream(65536);
+        long i = Long.MAX_VALUE;
+        long j = Long.MAX_VALUE;
+
+        for (int k = 0; k <= ROUNDS; ++k)
+        {
+            long l = System.nanoTime();
+
+            for (int i1 = 0; i1 < tags.size(); ++i1)
+            {
+                bytearrayoutputstream.reset();
+                DataOutputStream dataoutputstream = new DataOutputStream(version.wrap(bytearrayoutputstream, dictionary));
+                NbtIo.write(tags.get(i1), dataoutputstream);
+                dataoutputstream.close();
+                abyte[i1] = bytearrayoutputstream.toByteArray();
+            }
+
+            long j1 = System.nanoTime();
+
+            for (int k1 = 0; k1 < abyte.length; ++k1)
+            {
+                DataInputStream datainputstream = new DataInputStream(version.wrap(new ByteArrayInputStream(abyte[k1]), dictionary));
+                NbtIo.read(datainputstream);
+                datainputstream.close();
+            }
+
+            long l1 = System.nanoTime();
+
+            if (k > 0)
+            {
+                i = Math.min(i, j1 - l);
+                j = Math.min(j, l1 - j1);
+            }
+        }
+
+        long i2 = 0L;
+        long j2 = 0L;
+
+        for (byte[] abyte1 : abyte)
+        {
+            i2 += (long)abyte1.length;
+            j2 += (long)(abyte1.length + 5 + 4095) / 4096L * 4096L;
+        }
+
+        dbg(String.format("%-18s size: %7d KB (%5.1f%%), sectors: %7d KB, save: %6.1f MB/s, load: %6.1f MB/s", getName(version), i2 / 1024L, (double)i2 * 100.0D / (double)nbtBytes, j2 / 1024L, (double)nbtBytes / 1048576.0D / ((double)i / 1.0E9D), (double)nbtBytes / 1048576.0D / ((double)j / 1.0E9D)));
+    }
+
+    private static String getName(RegionFileVersion version)
+    {
+        if (version == RegionFileVersion.VERSION_GZIP)
+        {
+            return "gzip";
+        }
+        else if (version == RegionFileVersion.VERSION_DEFLATE)
+        {
+            return "deflate";
+        }
+        else if (version == RegionFileVersion.VERSION_DEFLATE_DICTIONARY)
+        {
+            return "deflate+dictionary";
+        }
+        else
+        {
+            return "none";
+        }
+    }
+
+    private static void dbg(String str)
+    {
+        System.out.println(str);
+    }
+}